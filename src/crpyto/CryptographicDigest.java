@@ -1,6 +1,8 @@
 package crpyto;
 
+import java.security.DigestException;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 
 /**
@@ -10,6 +12,10 @@ import java.util.List;
  * The underlying cryptographic library can be swapped 
  * out.
  * 
+ * Each thread reuses a single MessageDigest instance. The 
+ * hashInto(...) methods write the digest into a caller supplied
+ * buffer, so hashing with them does not allocate.
+ * 
  * @author henryaspegren
  *
  */
@@ -19,30 +25,66 @@ public class CryptographicDigest {
 	private static final int SIZE_BITS = 256;
 	private static final int SIZE_BYTES = SIZE_BITS / 8;
 	
+	private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance(HASH_FUNCTION);
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	});
+	
 	/**
 	 * Calculates the cryptographic hash of the input
 	 * @param input
 	 * @return
 	 */
 	public static byte[] hash(byte[] input) {
-		try {
-			MessageDigest md = MessageDigest.getInstance(HASH_FUNCTION);
-			byte[] digest = md.digest(input);
-			return digest;
-		}catch(Exception e) {
-			throw new RuntimeException(e);
-		}
+		return DIGEST.get().digest(input);
 	}
 	
 	public static byte[] hash(List<byte[]> inputs) {
+		MessageDigest md = DIGEST.get();
+		for(byte[] input : inputs) {
+			md.update(input);
+		}
+		return md.digest();
+	}
+	
+	/**
+	 * Calculates H(left||right) and writes it into out[offset:offset+getSizeBytes()]
+	 * @param left
+	 * @param right
+	 * @param out - the buffer to write the hash into
+	 * @param offset - the position in out to write the hash
+	 */
+	public static void hashInto(byte[] left, byte[] right, byte[] out, int offset) {
+		MessageDigest md = DIGEST.get();
+		md.update(left);
+		md.update(right);
+		CryptographicDigest.digestInto(md, out, offset);
+	}
+	
+	/**
+	 * Calculates H(input[inputOffset:inputOffset+length]) and 
+	 * writes it into out[offset:offset+getSizeBytes()]. The input 
+	 * and output ranges may overlap.
+	 * @param input
+	 * @param inputOffset
+	 * @param length
+	 * @param out - the buffer to write the hash into
+	 * @param offset - the position in out to write the hash
+	 */
+	public static void hashInto(byte[] input, int inputOffset, int length, byte[] out, int offset) {
+		MessageDigest md = DIGEST.get();
+		md.update(input, inputOffset, length);
+		CryptographicDigest.digestInto(md, out, offset);
+	}
+	
+	private static void digestInto(MessageDigest md, byte[] out, int offset) {
 		try {
-			MessageDigest md = MessageDigest.getInstance(HASH_FUNCTION);
-			for(byte[] input : inputs) {
-				md.update(input);
-			}
-			byte[] digest = md.digest();
-			return digest;
-		}catch(Exception e) {
+			md.digest(out, offset, SIZE_BYTES);
+		} catch (DigestException e) {
+			md.reset();
 			throw new RuntimeException(e);
 		}
 	}
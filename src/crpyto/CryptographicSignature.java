@@ -11,12 +11,21 @@ import java.security.KeyPairGenerator;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.ECGenParameterSpec;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.security.spec.X509EncodedKeySpec;
 
+/**
+ * ECDSA signatures on the curve secp256k1. 
+ * 
+ * secp256k1 keys and signatures are handled by Secp256k1 
+ * rather than a JCA provider (newer JDKs no longer support the curve). 
+ * Keys for other curves are still handled by the provider.
+ *
+ */
 public class CryptographicSignature {
 	
 	// we use ECDSA on the curve secp256k1
@@ -24,11 +33,24 @@ public class CryptographicSignature {
 	public static final String TYPE = "EC";
 	public static final String CURVE = "secp256k1";
 	
+	private static final SecureRandom random = new SecureRandom();
+	
 	public static KeyPair generateNewKeyPair() {
+		// secp256k1 curve ECDSA
+		Secp256k1PrivateKey privateKey = new Secp256k1PrivateKey(Secp256k1.newPrivateKey(random));
+		return new KeyPair(privateKey.getPublicKey(), privateKey);
+	}
+	
+	/**
+	 * Generate a key pair for a curve using the JCA provider 
+	 * (e.g. to compare with the provider)
+	 * @param curve
+	 * @return
+	 */
+	public static KeyPair generateNewProviderKeyPair(String curve) {
 		try {
-			// secp256k1 curve ECDSA
 			KeyPairGenerator kpg = KeyPairGenerator.getInstance(TYPE);
-			ECGenParameterSpec kpgparams = new ECGenParameterSpec(CURVE);
+			ECGenParameterSpec kpgparams = new ECGenParameterSpec(curve);
 			kpg.initialize(kpgparams);
 			KeyPair key = kpg.generateKeyPair();
 			return key;
@@ -77,11 +99,7 @@ public class CryptographicSignature {
 			byte[] encoded = new byte[(int) f.length()];
 			fis.read(encoded);
 			fis.close();
-			KeyFactory keyFactory = KeyFactory.getInstance(TYPE);
-			X509EncodedKeySpec publicKeySpec = new X509EncodedKeySpec(
-					encoded);
-			PublicKey pubKey = keyFactory.generatePublic(publicKeySpec);
-			return pubKey;
+			return loadPublicKey(encoded);
 		}catch(Exception e) {
 			throw new RuntimeException(e.getMessage());
 		}
@@ -89,6 +107,10 @@ public class CryptographicSignature {
 	
 	public static PublicKey loadPublicKey(byte[] encoded) {
 		try {
+			PublicKey secp256k1Key = Secp256k1PublicKey.decode(encoded);
+			if(secp256k1Key != null) {
+				return secp256k1Key;
+			}
 			KeyFactory keyFactory = KeyFactory.getInstance(TYPE);
 			X509EncodedKeySpec publicKeySpec = new X509EncodedKeySpec(
 					encoded);
@@ -106,6 +128,10 @@ public class CryptographicSignature {
 			byte[] encoded = new byte[(int) f.length()];
 			fis.read(encoded);
 			fis.close();
+			PrivateKey secp256k1Key = Secp256k1PrivateKey.decode(encoded);
+			if(secp256k1Key != null) {
+				return secp256k1Key;
+			}
 			KeyFactory keyFactory = KeyFactory.getInstance(TYPE);
 			PKCS8EncodedKeySpec privateKeySpec = new PKCS8EncodedKeySpec(
 					encoded);
@@ -117,6 +143,20 @@ public class CryptographicSignature {
 	}
 	
 	public static byte[] sign(byte[] message, PrivateKey privKey) {
+		Secp256k1PrivateKey secp256k1Key = Secp256k1PrivateKey.from(privKey);
+		if(secp256k1Key != null) {
+			return secp256k1Key.sign(message);
+		}
+		return providerSign(message, privKey);
+	}
+	
+	/**
+	 * Sign using the JCA provider (SIGNATURE_ALGO)
+	 * @param message
+	 * @param privKey
+	 * @return
+	 */
+	public static byte[] providerSign(byte[] message, PrivateKey privKey) {
 		try {
 			Signature dsa = Signature.getInstance(SIGNATURE_ALGO);
 			dsa.initSign(privKey);
@@ -130,6 +170,21 @@ public class CryptographicSignature {
 	}
 	
 	public static boolean verify(byte[] message, byte[] signature, PublicKey pubKey) {
+		Secp256k1PublicKey secp256k1Key = Secp256k1PublicKey.from(pubKey);
+		if(secp256k1Key != null) {
+			return secp256k1Key.verify(message, signature);
+		}
+		return providerVerify(message, signature, pubKey);
+	}
+	
+	/**
+	 * Verify using the JCA provider (SIGNATURE_ALGO)
+	 * @param message
+	 * @param signature
+	 * @param pubKey
+	 * @return
+	 */
+	public static boolean providerVerify(byte[] message, byte[] signature, PublicKey pubKey) {
 		try {
 			Signature dsa = Signature.getInstance(SIGNATURE_ALGO);
 			dsa.initVerify(pubKey);
@@ -19,13 +19,24 @@ public class CryptographicUtils {
 	 * @return
 	 */
 	public static byte[] witnessKeyAndValue(byte[] key, byte[] value) {
-		byte[] witnessPreImage = new byte[key.length + value.length];
-		System.arraycopy(key, 0, witnessPreImage, 0, key.length);
-		System.arraycopy(value, 0, witnessPreImage, key.length, value.length);
-		byte[] witness = CryptographicDigest.hash(witnessPreImage);
+		byte[] witness = new byte[CryptographicDigest.getSizeBytes()];
+		CryptographicUtils.witnessKeyAndValue(key, value, witness, 0);
 		return witness;
 	}
 	
+	/**
+	 * Commits to a key and a value, H(key||value), writing 
+	 * the commitment into out[offset:offset+CryptographicDigest.getSizeBytes()]
+	 * 
+	 * @param key
+	 * @param value
+	 * @param out
+	 * @param offset
+	 */
+	public static void witnessKeyAndValue(byte[] key, byte[] value, byte[] out, int offset) {
+		CryptographicDigest.hashInto(key, value, out, offset);
+	}
+	
 	/**
 	 * TODO - need to finalize what this will look like
 	 * 
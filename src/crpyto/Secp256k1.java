@@ -0,0 +1,814 @@
+package crpyto;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.security.spec.ECFieldFp;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.EllipticCurve;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * ECDSA on the curve secp256k1 (y^2 = x^3 + 7 over the field of
+ * Secp256k1Field) without a JCA provider. Signatures are DER encoded
+ * and the message is used as the hash (the same as NONEwithECDSA).
+ *
+ * Verification calculates u1*G + u2*Q. The multiple of the generator
+ * is a sum of points from a precomputed table (one addition per 4 bits,
+ * no doublings). The multiple of the public key uses the GLV endomorphism
+ * (lambda*(x, y) = (beta*x, y)) to split u2 into two scalars of about
+ * 128 bits, which are multiplied at the same time using windowed NAFs
+ * and a table of odd multiples of the key. Calculating the table of a key
+ * costs about as much as a verification, so the tables of recently used
+ * keys are cached.
+ *
+ * Signing uses deterministic nonces (RFC 6979). The operations are not
+ * constant time.
+ *
+ */
+final class Secp256k1 {
+
+	static final BigInteger P = Secp256k1Field.P;
+	static final BigInteger N = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+	static final BigInteger GX = new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16);
+	static final BigInteger GY = new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16);
+	static final ECParameterSpec PARAMS = new ECParameterSpec(
+			new EllipticCurve(new ECFieldFp(P), BigInteger.ZERO, BigInteger.valueOf(7)), new ECPoint(GX, GY), N, 1);
+
+	// the endomorphism: lambda*(x, y) = (beta*x, y), and the
+	// basis (a1, b1), (a2, b2) used to split scalars
+	static final BigInteger LAMBDA = new BigInteger(
+			"5363ad4cc05c30e0a5261c028812645a122e22ea20816678df02967c1b23bd72", 16);
+	static final BigInteger BETA = new BigInteger(
+			"7ae96a2b657c07106e64479eac3434e99cf0497512f58995c1396c28719501ee", 16);
+	private static final BigInteger A1 = new BigInteger("3086d221a7d46bcde86c90e49284eb15", 16);
+	private static final BigInteger B1 = new BigInteger("-e4437ed6010e88286f547fa90abfe4c3", 16);
+	private static final BigInteger A2 = new BigInteger("114ca50f7a8e2f3f657c1108d9d44cfd8", 16);
+	private static final BigInteger B2 = A1;
+	private static final BigInteger HALF_N = N.shiftRight(1);
+	private static final int[] BETA_ELEMENT = Secp256k1Field.fromBigInteger(BETA);
+
+	// the window of the NAFs of the scalars for the public key,
+	// the table has the odd multiples 1Q, 3Q, ..., (2^(WINDOW-1) - 1)Q
+	private static final int WINDOW = 5;
+	private static final int TABLE_SIZE = 1 << (WINDOW - 2);
+
+	// GENERATOR_TABLE[i][j-1] = j * 16^i * G
+	private static final int GENERATOR_WINDOWS = 64;
+	private static final AffinePoint[][] GENERATOR_TABLE = Secp256k1.generatorTable();
+
+	// the tables of the public keys used most recently
+	private static final int MAX_CACHED_TABLES = 1024;
+	private static final Map<ByteBuffer, PublicKeyTable> TABLES = Collections.synchronizedMap(
+			new LinkedHashMap<ByteBuffer, PublicKeyTable>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PublicKeyTable> eldest) {
+					return this.size() > MAX_CACHED_TABLES;
+				}
+			});
+
+	// X.509 / PKCS#8 AlgorithmIdentifier: id-ecPublicKey with the named curve secp256k1
+	private static final byte[] ALGORITHM = { 0x30, 0x10, 0x06, 0x07, 0x2A, (byte) 0x86, 0x48, (byte) 0xCE, 0x3D,
+			0x02, 0x01, 0x06, 0x05, 0x2B, (byte) 0x81, 0x04, 0x00, 0x0A };
+	private static final int COORDINATE_BYTES = 32;
+
+	private Secp256k1() {
+	}
+
+	/**
+	 * A point in affine coordinates
+	 */
+	static final class AffinePoint {
+		final int[] x;
+		final int[] y;
+
+		AffinePoint(int[] x, int[] y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+	/**
+	 * The odd multiples of a public key (and their images
+	 * under the endomorphism)
+	 */
+	static final class PublicKeyTable {
+		private final int[][] x;
+		private final int[][] betaX;
+		private final int[][] y;
+
+		private PublicKeyTable(AffinePoint[] multiples) {
+			this.x = new int[multiples.length][];
+			this.betaX = new int[multiples.length][];
+			this.y = new int[multiples.length][];
+			for (int i = 0; i < multiples.length; i++) {
+				this.x[i] = multiples[i].x;
+				this.y[i] = multiples[i].y;
+				this.betaX[i] = Secp256k1Field.newElement();
+				Secp256k1Field.mul(this.betaX[i], multiples[i].x, BETA_ELEMENT);
+			}
+		}
+	}
+
+	/**
+	 * A (mutable) point in Jacobian coordinates: (x/z^2, y/z^3),
+	 * z = 0 is the point at infinity
+	 */
+	private static final class JacobianPoint {
+		private final int[] x = Secp256k1Field.newElement();
+		private final int[] y = Secp256k1Field.newElement();
+		private final int[] z = Secp256k1Field.newElement();
+
+		private boolean isInfinity() {
+			return Secp256k1Field.isZero(this.z);
+		}
+
+		private JacobianPoint copy() {
+			JacobianPoint copy = new JacobianPoint();
+			Secp256k1Field.copy(copy.x, this.x);
+			Secp256k1Field.copy(copy.y, this.y);
+			Secp256k1Field.copy(copy.z, this.z);
+			return copy;
+		}
+
+		// this = 2 * this (dbl-2009-l, a = 0)
+		private void twice() {
+			if (this.isInfinity()) {
+				return;
+			}
+			int[] a = Secp256k1Field.newElement();
+			int[] b = Secp256k1Field.newElement();
+			int[] c = Secp256k1Field.newElement();
+			int[] d = Secp256k1Field.newElement();
+			int[] e = Secp256k1Field.newElement();
+			Secp256k1Field.sqr(a, this.x);
+			Secp256k1Field.sqr(b, this.y);
+			Secp256k1Field.sqr(c, b);
+			// d = 2 * ((x + b)^2 - a - c)
+			Secp256k1Field.add(d, this.x, b);
+			Secp256k1Field.sqr(d, d);
+			Secp256k1Field.sub(d, d, a);
+			Secp256k1Field.sub(d, d, c);
+			Secp256k1Field.mulSmall(d, d, 2);
+			Secp256k1Field.mulSmall(e, a, 3);
+			// z3 = 2 * y * z
+			Secp256k1Field.mul(this.z, this.y, this.z);
+			Secp256k1Field.mulSmall(this.z, this.z, 2);
+			// x3 = e^2 - 2 * d
+			Secp256k1Field.sqr(this.x, e);
+			Secp256k1Field.mulSmall(a, d, 2);
+			Secp256k1Field.sub(this.x, this.x, a);
+			// y3 = e * (d - x3) - 8 * c
+			Secp256k1Field.sub(d, d, this.x);
+			Secp256k1Field.mul(d, e, d);
+			Secp256k1Field.mulSmall(c, c, 8);
+			Secp256k1Field.sub(this.y, d, c);
+		}
+
+		// this = this + (x2, y2) or this - (x2, y2) (madd-2007-bl)
+		private void add(int[] x2, int[] y2, boolean negate) {
+			int[] qy = y2;
+			if (negate) {
+				qy = Secp256k1Field.newElement();
+				Secp256k1Field.negate(qy, y2);
+			}
+			if (this.isInfinity()) {
+				Secp256k1Field.copy(this.x, x2);
+				Secp256k1Field.copy(this.y, qy);
+				Secp256k1Field.setOne(this.z);
+				return;
+			}
+			int[] z1z1 = Secp256k1Field.newElement();
+			int[] h = Secp256k1Field.newElement();
+			int[] r = Secp256k1Field.newElement();
+			Secp256k1Field.sqr(z1z1, this.z);
+			// h = x2 * z1z1 - x1
+			Secp256k1Field.mul(h, x2, z1z1);
+			Secp256k1Field.sub(h, h, this.x);
+			// r = 2 * (y2 * z1 * z1z1 - y1)
+			Secp256k1Field.mul(r, qy, this.z);
+			Secp256k1Field.mul(r, r, z1z1);
+			Secp256k1Field.sub(r, r, this.y);
+			Secp256k1Field.mulSmall(r, r, 2);
+			if (Secp256k1Field.isZero(h)) {
+				if (Secp256k1Field.isZero(r)) {
+					this.twice();
+				} else {
+					Arrays.fill(this.z, 0);
+				}
+				return;
+			}
+			int[] hh = Secp256k1Field.newElement();
+			int[] i = Secp256k1Field.newElement();
+			int[] j = Secp256k1Field.newElement();
+			int[] v = Secp256k1Field.newElement();
+			Secp256k1Field.sqr(hh, h);
+			Secp256k1Field.mulSmall(i, hh, 4);
+			Secp256k1Field.mul(j, h, i);
+			Secp256k1Field.mul(v, this.x, i);
+			// z3 = (z1 + h)^2 - z1z1 - hh
+			Secp256k1Field.add(this.z, this.z, h);
+			Secp256k1Field.sqr(this.z, this.z);
+			Secp256k1Field.sub(this.z, this.z, z1z1);
+			Secp256k1Field.sub(this.z, this.z, hh);
+			// x3 = r^2 - j - 2 * v
+			Secp256k1Field.sqr(this.x, r);
+			Secp256k1Field.sub(this.x, this.x, j);
+			Secp256k1Field.sub(this.x, this.x, v);
+			Secp256k1Field.sub(this.x, this.x, v);
+			// y3 = r * (v - x3) - 2 * y1 * j
+			Secp256k1Field.mul(j, this.y, j);
+			Secp256k1Field.mulSmall(j, j, 2);
+			Secp256k1Field.sub(v, v, this.x);
+			Secp256k1Field.mul(v, r, v);
+			Secp256k1Field.sub(this.y, v, j);
+		}
+	}
+
+	/**
+	 * Converts the points (none at infinity) to affine
+	 * coordinates with a single inversion
+	 */
+	private static AffinePoint[] toAffine(JacobianPoint[] points) {
+		// prefix[i] = z_0 * ... * z_i
+		int[][] prefix = new int[points.length][];
+		for (int i = 0; i < points.length; i++) {
+			prefix[i] = Secp256k1Field.newElement();
+			if (i == 0) {
+				Secp256k1Field.copy(prefix[i], points[i].z);
+			} else {
+				Secp256k1Field.mul(prefix[i], prefix[i - 1], points[i].z);
+			}
+		}
+		int[] inverse = Secp256k1Field.newElement();
+		Secp256k1Field.invert(inverse, prefix[points.length - 1]);
+		AffinePoint[] affine = new AffinePoint[points.length];
+		int[] zinv = Secp256k1Field.newElement();
+		int[] zinv2 = Secp256k1Field.newElement();
+		for (int i = points.length - 1; i >= 0; i--) {
+			// inverse = 1 / (z_0 * ... * z_i)
+			if (i == 0) {
+				Secp256k1Field.copy(zinv, inverse);
+			} else {
+				Secp256k1Field.mul(zinv, inverse, prefix[i - 1]);
+				Secp256k1Field.mul(inverse, inverse, points[i].z);
+			}
+			Secp256k1Field.sqr(zinv2, zinv);
+			int[] x = Secp256k1Field.newElement();
+			int[] y = Secp256k1Field.newElement();
+			Secp256k1Field.mul(x, points[i].x, zinv2);
+			Secp256k1Field.mul(y, points[i].y, zinv2);
+			Secp256k1Field.mul(y, y, zinv);
+			affine[i] = new AffinePoint(x, y);
+		}
+		return affine;
+	}
+
+	private static AffinePoint[][] generatorTable() {
+		AffinePoint[][] table = new AffinePoint[GENERATOR_WINDOWS][];
+		AffinePoint base = new AffinePoint(Secp256k1Field.fromBigInteger(GX), Secp256k1Field.fromBigInteger(GY));
+		for (int i = 0; i < GENERATOR_WINDOWS; i++) {
+			JacobianPoint[] multiples = new JacobianPoint[16];
+			JacobianPoint current = new JacobianPoint();
+			for (int j = 0; j < 16; j++) {
+				current.add(base.x, base.y, false);
+				multiples[j] = current.copy();
+			}
+			AffinePoint[] affine = Secp256k1.toAffine(multiples);
+			table[i] = Arrays.copyOf(affine, 15);
+			// 16 * base
+			base = affine[15];
+		}
+		return table;
+	}
+
+	/**
+	 * acc = acc + k * G, 0 <= k < 2^256
+	 */
+	private static void addMultipleOfGenerator(JacobianPoint acc, BigInteger k) {
+		byte[] bytes = Secp256k1.toBytes(k);
+		for (int i = 0; i < GENERATOR_WINDOWS; i++) {
+			int b = bytes[COORDINATE_BYTES - 1 - i / 2] & 0xff;
+			int nibble = (i & 1) == 0 ? b & 0x0f : b >>> 4;
+			if (nibble != 0) {
+				AffinePoint point = GENERATOR_TABLE[i][nibble - 1];
+				acc.add(point.x, point.y, false);
+			}
+		}
+	}
+
+	/**
+	 * Split k into k1 + k2 * lambda (mod n) with k1, k2 of about 128 bits
+	 */
+	static BigInteger[] decompose(BigInteger k) {
+		BigInteger c1 = B2.multiply(k).add(HALF_N).divide(N);
+		BigInteger c2 = B1.negate().multiply(k).add(HALF_N).divide(N);
+		BigInteger k1 = k.subtract(c1.multiply(A1)).subtract(c2.multiply(A2));
+		BigInteger k2 = c1.multiply(B1).add(c2.multiply(B2)).negate();
+		return new BigInteger[] { k1, k2 };
+	}
+
+	/**
+	 * The width-w NAF of k >= 0: naf[i] is 0 or odd and |naf[i]| < 2^(w-1)
+	 */
+	static int[] wnaf(BigInteger k, int w) {
+		int[] naf = new int[k.bitLength() + w + 1];
+		int carry = 0;
+		int bit = 0;
+		while (bit < naf.length) {
+			if ((k.testBit(bit) ? 1 : 0) == carry) {
+				bit++;
+				continue;
+			}
+			int word = carry;
+			for (int b = 0; b < w; b++) {
+				if (k.testBit(bit + b)) {
+					word += 1 << b;
+				}
+			}
+			carry = (word >>> (w - 1)) & 1;
+			word -= carry << w;
+			naf[bit] = word;
+			bit += w;
+		}
+		return naf;
+	}
+
+	/**
+	 * acc = acc + k * Q, acc must be the point at infinity
+	 */
+	private static void addMultipleOfKey(JacobianPoint acc, BigInteger k, PublicKeyTable table) {
+		BigInteger[] split = Secp256k1.decompose(k);
+		boolean negate1 = split[0].signum() < 0;
+		boolean negate2 = split[1].signum() < 0;
+		int[] naf1 = Secp256k1.wnaf(split[0].abs(), WINDOW);
+		int[] naf2 = Secp256k1.wnaf(split[1].abs(), WINDOW);
+		for (int i = Math.max(naf1.length, naf2.length) - 1; i >= 0; i--) {
+			acc.twice();
+			int d1 = i < naf1.length ? naf1[i] : 0;
+			if (d1 != 0) {
+				int index = (Math.abs(d1) - 1) / 2;
+				acc.add(table.x[index], table.y[index], (d1 < 0) != negate1);
+			}
+			int d2 = i < naf2.length ? naf2[i] : 0;
+			if (d2 != 0) {
+				int index = (Math.abs(d2) - 1) / 2;
+				acc.add(table.betaX[index], table.y[index], (d2 < 0) != negate2);
+			}
+		}
+	}
+
+	static PublicKeyTable newPublicKeyTable(int[] x, int[] y) {
+		JacobianPoint twice = new JacobianPoint();
+		twice.add(x, y, false);
+		twice.twice();
+		AffinePoint doubled = Secp256k1.toAffine(new JacobianPoint[] { twice })[0];
+		JacobianPoint[] multiples = new JacobianPoint[TABLE_SIZE];
+		JacobianPoint current = new JacobianPoint();
+		current.add(x, y, false);
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			multiples[i] = current.copy();
+			current.add(doubled.x, doubled.y, false);
+		}
+		return new PublicKeyTable(Secp256k1.toAffine(multiples));
+	}
+
+	/**
+	 * The table for the public key (x, y), from the cache if the
+	 * key was used recently
+	 */
+	static PublicKeyTable getPublicKeyTable(int[] x, int[] y) {
+		byte[] point = new byte[2 * COORDINATE_BYTES];
+		Secp256k1Field.toBytes(x, point, 0);
+		Secp256k1Field.toBytes(y, point, COORDINATE_BYTES);
+		ByteBuffer key = ByteBuffer.wrap(point);
+		PublicKeyTable table = TABLES.get(key);
+		if (table == null) {
+			table = Secp256k1.newPublicKeyTable(x, y);
+			TABLES.put(key, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Verify a (DER encoded) signature of message by a public key
+	 * @param message - used as the hash, truncated to 256 bits
+	 * @param signature
+	 * @param table - the table of the public key (see getPublicKeyTable(...))
+	 * @return
+	 */
+	static boolean verify(byte[] message, byte[] signature, PublicKeyTable table) {
+		BigInteger[] rs = Secp256k1.decodeSignature(signature);
+		if (rs == null) {
+			return false;
+		}
+		BigInteger r = rs[0];
+		BigInteger s = rs[1];
+		if (r.signum() <= 0 || r.compareTo(N) >= 0 || s.signum() <= 0 || s.compareTo(N) >= 0) {
+			return false;
+		}
+		BigInteger e = Secp256k1.toScalar(message);
+		BigInteger w = s.modInverse(N);
+		BigInteger u1 = e.multiply(w).mod(N);
+		BigInteger u2 = r.multiply(w).mod(N);
+		JacobianPoint point = new JacobianPoint();
+		Secp256k1.addMultipleOfKey(point, u2, table);
+		Secp256k1.addMultipleOfGenerator(point, u1);
+		if (point.isInfinity()) {
+			return false;
+		}
+		// x / z^2 = r (mod n) without an inversion: x = r * z^2 or
+		// x = (r + n) * z^2 if r + n < p
+		int[] zz = Secp256k1Field.newElement();
+		int[] expected = Secp256k1Field.newElement();
+		Secp256k1Field.sqr(zz, point.z);
+		Secp256k1Field.mul(expected, Secp256k1Field.fromBigInteger(r), zz);
+		if (Secp256k1Field.equals(expected, point.x)) {
+			return true;
+		}
+		BigInteger rn = r.add(N);
+		if (rn.compareTo(P) < 0) {
+			Secp256k1Field.mul(expected, Secp256k1Field.fromBigInteger(rn), zz);
+			return Secp256k1Field.equals(expected, point.x);
+		}
+		return false;
+	}
+
+	/**
+	 * Sign message with the private key d
+	 * @param message - used as the hash, truncated to 256 bits
+	 * @param d
+	 * @return the DER encoded signature
+	 */
+	static byte[] sign(byte[] message, BigInteger d) {
+		BigInteger e = Secp256k1.toScalar(message);
+		NonceGenerator nonces = new NonceGenerator(d, e);
+		while (true) {
+			BigInteger k = nonces.next();
+			AffinePoint point = Secp256k1.multiplyGenerator(k);
+			BigInteger r = Secp256k1Field.toBigInteger(point.x).mod(N);
+			if (r.signum() == 0) {
+				continue;
+			}
+			BigInteger s = k.modInverse(N).multiply(e.add(r.multiply(d))).mod(N);
+			if (s.signum() == 0) {
+				continue;
+			}
+			return Secp256k1.encodeSignature(r, s);
+		}
+	}
+
+	/**
+	 * k * G in affine coordinates, 0 < k < n
+	 */
+	static AffinePoint multiplyGenerator(BigInteger k) {
+		JacobianPoint point = new JacobianPoint();
+		Secp256k1.addMultipleOfGenerator(point, k);
+		return Secp256k1.toAffine(new JacobianPoint[] { point })[0];
+	}
+
+	/**
+	 * A new private key, uniformly random in [1, n)
+	 */
+	static BigInteger newPrivateKey(SecureRandom random) {
+		while (true) {
+			BigInteger d = new BigInteger(256, random);
+			if (d.signum() > 0 && d.compareTo(N) < 0) {
+				return d;
+			}
+		}
+	}
+
+	// the message as a scalar (the leftmost 256 bits)
+	private static BigInteger toScalar(byte[] message) {
+		if (message.length > COORDINATE_BYTES) {
+			message = Arrays.copyOf(message, COORDINATE_BYTES);
+		}
+		return new BigInteger(1, message);
+	}
+
+	// 0 <= k < 2^256 as 32 bytes (big endian)
+	private static byte[] toBytes(BigInteger k) {
+		byte[] bytes = k.toByteArray();
+		if (bytes.length == COORDINATE_BYTES) {
+			return bytes;
+		}
+		byte[] padded = new byte[COORDINATE_BYTES];
+		int length = Math.min(bytes.length, COORDINATE_BYTES);
+		System.arraycopy(bytes, bytes.length - length, padded, COORDINATE_BYTES - length, length);
+		return padded;
+	}
+
+	/**
+	 * Deterministic nonces (RFC 6979, HMAC-SHA256)
+	 */
+	private static final class NonceGenerator {
+		private final Mac mac;
+		private byte[] k;
+		private byte[] v;
+
+		private NonceGenerator(BigInteger d, BigInteger e) {
+			try {
+				this.mac = Mac.getInstance("HmacSHA256");
+			} catch (NoSuchAlgorithmException ex) {
+				throw new RuntimeException(ex.getMessage());
+			}
+			byte[] x = Secp256k1.toBytes(d);
+			byte[] h = Secp256k1.toBytes(e.mod(N));
+			this.v = new byte[32];
+			Arrays.fill(this.v, (byte) 0x01);
+			this.k = new byte[32];
+			this.k = this.hmac(this.k, this.v, new byte[] { 0x00 }, x, h);
+			this.v = this.hmac(this.k, this.v);
+			this.k = this.hmac(this.k, this.v, new byte[] { 0x01 }, x, h);
+			this.v = this.hmac(this.k, this.v);
+		}
+
+		private BigInteger next() {
+			while (true) {
+				this.v = this.hmac(this.k, this.v);
+				BigInteger candidate = new BigInteger(1, this.v);
+				// the next candidate is different even if this one is used
+				this.k = this.hmac(this.k, this.v, new byte[] { 0x00 });
+				this.v = this.hmac(this.k, this.v);
+				if (candidate.signum() > 0 && candidate.compareTo(N) < 0) {
+					return candidate;
+				}
+			}
+		}
+
+		private byte[] hmac(byte[] key, byte[]... data) {
+			try {
+				this.mac.init(new SecretKeySpec(key, "HmacSHA256"));
+			} catch (InvalidKeyException ex) {
+				throw new RuntimeException(ex.getMessage());
+			}
+			for (byte[] d : data) {
+				this.mac.update(d);
+			}
+			return this.mac.doFinal();
+		}
+	}
+
+	/*
+	 * ENCODINGS
+	 */
+
+	static byte[] encodeSignature(BigInteger r, BigInteger s) {
+		byte[] rb = r.toByteArray();
+		byte[] sb = s.toByteArray();
+		byte[] der = new byte[6 + rb.length + sb.length];
+		der[0] = 0x30;
+		der[1] = (byte) (4 + rb.length + sb.length);
+		der[2] = 0x02;
+		der[3] = (byte) rb.length;
+		System.arraycopy(rb, 0, der, 4, rb.length);
+		der[4 + rb.length] = 0x02;
+		der[5 + rb.length] = (byte) sb.length;
+		System.arraycopy(sb, 0, der, 6 + rb.length, sb.length);
+		return der;
+	}
+
+	/**
+	 * Returns {r, s}, or null if the signature is not
+	 * a DER encoded sequence of two integers
+	 */
+	static BigInteger[] decodeSignature(byte[] der) {
+		DerReader reader = new DerReader(der);
+		int end = reader.readLength(0x30);
+		if (end != der.length) {
+			return null;
+		}
+		BigInteger r = reader.readInteger();
+		BigInteger s = reader.readInteger();
+		if (r == null || s == null || reader.position != end) {
+			return null;
+		}
+		return new BigInteger[] { r, s };
+	}
+
+	/**
+	 * The X.509 (SubjectPublicKeyInfo) encoding of the public key (x, y),
+	 * as an uncompressed point
+	 */
+	static byte[] encodePublicKey(int[] x, int[] y) {
+		byte[] encoded = new byte[2 + ALGORITHM.length + 3 + 1 + 2 * COORDINATE_BYTES];
+		encoded[0] = 0x30;
+		encoded[1] = (byte) (encoded.length - 2);
+		System.arraycopy(ALGORITHM, 0, encoded, 2, ALGORITHM.length);
+		int at = 2 + ALGORITHM.length;
+		encoded[at] = 0x03;
+		encoded[at + 1] = (byte) (2 + 2 * COORDINATE_BYTES);
+		encoded[at + 2] = 0x00;
+		encoded[at + 3] = 0x04;
+		Secp256k1Field.toBytes(x, encoded, at + 4);
+		Secp256k1Field.toBytes(y, encoded, at + 4 + COORDINATE_BYTES);
+		return encoded;
+	}
+
+	/**
+	 * Decodes an X.509 encoded secp256k1 public key (an uncompressed or
+	 * compressed point). Returns null if the key is for another curve
+	 * or algorithm.
+	 * @param encoded
+	 * @return
+	 * @throws IllegalArgumentException - if it is a secp256k1 key that is
+	 * not correctly encoded or not on the curve
+	 */
+	static AffinePoint decodePublicKey(byte[] encoded) {
+		DerReader reader = new DerReader(encoded);
+		int end = reader.readLength(0x30);
+		if (end != encoded.length || !reader.skipAlgorithm()) {
+			return null;
+		}
+		int pointEnd = reader.readLength(0x03);
+		if (pointEnd != end || reader.position >= end || encoded[reader.position] != 0x00) {
+			throw new IllegalArgumentException("bad secp256k1 public key");
+		}
+		return Secp256k1.decodePoint(Arrays.copyOfRange(encoded, reader.position + 1, end));
+	}
+
+	private static AffinePoint decodePoint(byte[] point) {
+		if (point.length == 1 + 2 * COORDINATE_BYTES && point[0] == 0x04) {
+			if (!Secp256k1Field.isReduced(point, 1) || !Secp256k1Field.isReduced(point, 1 + COORDINATE_BYTES)) {
+				throw new IllegalArgumentException("bad secp256k1 public key");
+			}
+			AffinePoint decoded = new AffinePoint(Secp256k1Field.fromBytes(point, 1),
+					Secp256k1Field.fromBytes(point, 1 + COORDINATE_BYTES));
+			if (!Secp256k1.isOnCurve(decoded)) {
+				throw new IllegalArgumentException("public key is not on secp256k1");
+			}
+			return decoded;
+		}
+		if (point.length == 1 + COORDINATE_BYTES && (point[0] == 0x02 || point[0] == 0x03)) {
+			if (!Secp256k1Field.isReduced(point, 1)) {
+				throw new IllegalArgumentException("bad secp256k1 public key");
+			}
+			// y = sqrt(x^3 + 7) = (x^3 + 7)^((p + 1) / 4), with the parity in the prefix
+			BigInteger x = new BigInteger(1, Arrays.copyOfRange(point, 1, point.length));
+			BigInteger y = x.pow(3).add(BigInteger.valueOf(7)).mod(P).modPow(P.add(BigInteger.ONE).shiftRight(2), P);
+			if (y.testBit(0) != (point[0] == 0x03)) {
+				y = P.subtract(y).mod(P);
+			}
+			AffinePoint decoded = new AffinePoint(Secp256k1Field.fromBigInteger(x), Secp256k1Field.fromBigInteger(y));
+			if (!Secp256k1.isOnCurve(decoded)) {
+				throw new IllegalArgumentException("public key is not on secp256k1");
+			}
+			return decoded;
+		}
+		throw new IllegalArgumentException("bad secp256k1 public key");
+	}
+
+	static boolean isOnCurve(AffinePoint point) {
+		int[] lhs = Secp256k1Field.newElement();
+		int[] rhs = Secp256k1Field.newElement();
+		int[] seven = Secp256k1Field.newElement();
+		seven[0] = 7;
+		Secp256k1Field.sqr(lhs, point.y);
+		Secp256k1Field.sqr(rhs, point.x);
+		Secp256k1Field.mul(rhs, rhs, point.x);
+		Secp256k1Field.add(rhs, rhs, seven);
+		return Secp256k1Field.equals(lhs, rhs);
+	}
+
+	/**
+	 * The PKCS#8 encoding of the private key d
+	 */
+	static byte[] encodePrivateKey(BigInteger d) {
+		byte[] encoded = new byte[2 + 3 + ALGORITHM.length + 2 + 7 + COORDINATE_BYTES];
+		int at = 0;
+		encoded[at++] = 0x30;
+		encoded[at++] = (byte) (encoded.length - 2);
+		// version 0
+		encoded[at++] = 0x02;
+		encoded[at++] = 0x01;
+		encoded[at++] = 0x00;
+		System.arraycopy(ALGORITHM, 0, encoded, at, ALGORITHM.length);
+		at += ALGORITHM.length;
+		// ECPrivateKey: version 1 and the key
+		encoded[at++] = 0x04;
+		encoded[at++] = (byte) (7 + COORDINATE_BYTES);
+		encoded[at++] = 0x30;
+		encoded[at++] = (byte) (5 + COORDINATE_BYTES);
+		encoded[at++] = 0x02;
+		encoded[at++] = 0x01;
+		encoded[at++] = 0x01;
+		encoded[at++] = 0x04;
+		encoded[at++] = COORDINATE_BYTES;
+		System.arraycopy(Secp256k1.toBytes(d), 0, encoded, at, COORDINATE_BYTES);
+		return encoded;
+	}
+
+	/**
+	 * Decodes a PKCS#8 encoded secp256k1 private key. Returns null if the
+	 * key is for another curve or algorithm.
+	 * @param encoded
+	 * @return
+	 * @throws IllegalArgumentException - if it is a secp256k1 key that is
+	 * not correctly encoded
+	 */
+	static BigInteger decodePrivateKey(byte[] encoded) {
+		DerReader reader = new DerReader(encoded);
+		int end = reader.readLength(0x30);
+		BigInteger version = reader.readInteger();
+		if (end != encoded.length || version == null || !reader.skipAlgorithm()) {
+			return null;
+		}
+		// the optional parameters and public key of the ECPrivateKey are ignored
+		int keyEnd = reader.readLength(0x04);
+		int sequenceEnd = reader.readLength(0x30);
+		BigInteger keyVersion = reader.readInteger();
+		int dEnd = reader.readLength(0x04);
+		if (keyEnd < 0 || sequenceEnd < 0 || dEnd < 0 || keyVersion == null || !keyVersion.equals(BigInteger.ONE)) {
+			throw new IllegalArgumentException("bad secp256k1 private key");
+		}
+		BigInteger d = new BigInteger(1, Arrays.copyOfRange(encoded, reader.position, dEnd));
+		if (d.signum() <= 0 || d.compareTo(N) >= 0) {
+			throw new IllegalArgumentException("bad secp256k1 private key");
+		}
+		return d;
+	}
+
+	/**
+	 * Reads the DER tags used by the keys and signatures
+	 * (definite lengths only)
+	 */
+	private static final class DerReader {
+		private final byte[] der;
+		private int position;
+
+		private DerReader(byte[] der) {
+			this.der = der;
+			this.position = 0;
+		}
+
+		/**
+		 * Reads the tag and the length of the next value and returns
+		 * the position of its end (-1 if the tag does not match or
+		 * the value does not fit)
+		 */
+		private int readLength(int tag) {
+			if (this.position < 0 || this.position + 2 > this.der.length || this.der[this.position] != (byte) tag) {
+				this.position = -1;
+				return -1;
+			}
+			int length = this.der[this.position + 1] & 0xff;
+			this.position += 2;
+			if (length > 0x80) {
+				int bytes = length - 0x80;
+				if (bytes > 2 || this.position + bytes > this.der.length) {
+					this.position = -1;
+					return -1;
+				}
+				length = 0;
+				for (int i = 0; i < bytes; i++) {
+					length = (length << 8) | (this.der[this.position++] & 0xff);
+				}
+			} else if (length == 0x80) {
+				this.position = -1;
+				return -1;
+			}
+			if (this.position + length > this.der.length) {
+				this.position = -1;
+				return -1;
+			}
+			return this.position + length;
+		}
+
+		private BigInteger readInteger() {
+			int end = this.readLength(0x02);
+			if (end < 0 || end == this.position) {
+				return null;
+			}
+			BigInteger value = new BigInteger(Arrays.copyOfRange(this.der, this.position, end));
+			this.position = end;
+			return value;
+		}
+
+		// true if the next value is the AlgorithmIdentifier of secp256k1 keys
+		private boolean skipAlgorithm() {
+			if (this.position < 0 || this.position + ALGORITHM.length > this.der.length) {
+				return false;
+			}
+			for (int i = 0; i < ALGORITHM.length; i++) {
+				if (this.der[this.position + i] != ALGORITHM[i]) {
+					return false;
+				}
+			}
+			this.position += ALGORITHM.length;
+			return true;
+		}
+	}
+
+}
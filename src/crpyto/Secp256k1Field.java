@@ -0,0 +1,278 @@
+package crpyto;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Arithmetic in the field of the curve secp256k1: the integers
+ * modulo p = 2^256 - 2^32 - 977.
+ *
+ * An element is an int[8] of 32-bit limbs, least significant first,
+ * and is always fully reduced (in [0, p)). The operations write the
+ * result into r, which may be the same array as an input.
+ *
+ */
+final class Secp256k1Field {
+
+	static final int LIMBS = 8;
+	static final BigInteger P = BigInteger.ONE.shiftLeft(256).subtract(BigInteger.ONE.shiftLeft(32))
+			.subtract(BigInteger.valueOf(977));
+
+	private static final long MASK = 0xFFFFFFFFL;
+	// 2^256 = 2^32 + 977 (mod p)
+	private static final long REDUCE = 977;
+
+	private Secp256k1Field() {
+	}
+
+	static int[] newElement() {
+		return new int[LIMBS];
+	}
+
+	static int[] fromBigInteger(BigInteger value) {
+		int[] r = new int[LIMBS];
+		BigInteger v = value.mod(P);
+		for (int i = 0; i < LIMBS; i++) {
+			r[i] = v.intValue();
+			v = v.shiftRight(32);
+		}
+		return r;
+	}
+
+	static BigInteger toBigInteger(int[] a) {
+		return new BigInteger(1, Secp256k1Field.toBytes(a));
+	}
+
+	/**
+	 * The element with the (big endian) value of bytes[offset:offset+32],
+	 * which must be less than p
+	 */
+	static int[] fromBytes(byte[] bytes, int offset) {
+		int[] r = new int[LIMBS];
+		for (int i = 0; i < LIMBS; i++) {
+			int at = offset + 4 * (LIMBS - 1 - i);
+			r[i] = ((bytes[at] & 0xff) << 24) | ((bytes[at + 1] & 0xff) << 16) | ((bytes[at + 2] & 0xff) << 8)
+					| (bytes[at + 3] & 0xff);
+		}
+		return r;
+	}
+
+	/**
+	 * Write the (big endian) value of a to bytes[offset:offset+32]
+	 */
+	static void toBytes(int[] a, byte[] bytes, int offset) {
+		for (int i = 0; i < LIMBS; i++) {
+			int at = offset + 4 * (LIMBS - 1 - i);
+			bytes[at] = (byte) (a[i] >>> 24);
+			bytes[at + 1] = (byte) (a[i] >>> 16);
+			bytes[at + 2] = (byte) (a[i] >>> 8);
+			bytes[at + 3] = (byte) a[i];
+		}
+	}
+
+	static byte[] toBytes(int[] a) {
+		byte[] bytes = new byte[4 * LIMBS];
+		Secp256k1Field.toBytes(a, bytes, 0);
+		return bytes;
+	}
+
+	/**
+	 * True if the (big endian) value of bytes[offset:offset+32] is less than p
+	 */
+	static boolean isReduced(byte[] bytes, int offset) {
+		return new BigInteger(1, Arrays.copyOfRange(bytes, offset, offset + 4 * LIMBS)).compareTo(P) < 0;
+	}
+
+	static void copy(int[] r, int[] a) {
+		System.arraycopy(a, 0, r, 0, LIMBS);
+	}
+
+	static void setOne(int[] r) {
+		r[0] = 1;
+		for (int i = 1; i < LIMBS; i++) {
+			r[i] = 0;
+		}
+	}
+
+	static boolean isZero(int[] a) {
+		int bits = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			bits |= a[i];
+		}
+		return bits == 0;
+	}
+
+	static boolean equals(int[] a, int[] b) {
+		int bits = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			bits |= a[i] ^ b[i];
+		}
+		return bits == 0;
+	}
+
+	// true if a (< 2^256) is at least p
+	private static boolean isAtLeastP(int[] a) {
+		for (int i = 2; i < LIMBS; i++) {
+			if (a[i] != -1) {
+				return false;
+			}
+		}
+		long a1 = a[1] & MASK;
+		return a1 > 0xFFFFFFFEL || (a1 == 0xFFFFFFFEL && (a[0] & MASK) >= 0xFFFFFC2FL);
+	}
+
+	// r = r + c * (2^32 + 977) mod 2^256, returns the carry out of 2^256
+	private static long addReduce(int[] r, long c) {
+		long carry = (r[0] & MASK) + c * REDUCE;
+		r[0] = (int) carry;
+		carry = (carry >>> 32) + (r[1] & MASK) + c;
+		r[1] = (int) carry;
+		carry >>>= 32;
+		for (int i = 2; i < LIMBS && carry != 0; i++) {
+			carry += r[i] & MASK;
+			r[i] = (int) carry;
+			carry >>>= 32;
+		}
+		return carry;
+	}
+
+	// reduces r < 2^256 + carry * 2^256 to [0, p)
+	private static void normalize(int[] r, long carry) {
+		// subtracting p is adding 2^32 + 977 and dropping 2^256
+		while (carry != 0) {
+			carry = Secp256k1Field.addReduce(r, carry);
+		}
+		if (Secp256k1Field.isAtLeastP(r)) {
+			Secp256k1Field.addReduce(r, 1);
+		}
+	}
+
+	static void add(int[] r, int[] a, int[] b) {
+		long carry = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			carry += (a[i] & MASK) + (b[i] & MASK);
+			r[i] = (int) carry;
+			carry >>>= 32;
+		}
+		Secp256k1Field.normalize(r, carry);
+	}
+
+	static void sub(int[] r, int[] a, int[] b) {
+		long borrow = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			borrow = (a[i] & MASK) - (b[i] & MASK) + borrow;
+			r[i] = (int) borrow;
+			borrow >>= 32;
+		}
+		if (borrow != 0) {
+			// add p: subtract 2^32 + 977 and drop the borrow from 2^256
+			borrow = (r[0] & MASK) - REDUCE;
+			r[0] = (int) borrow;
+			borrow = (borrow >> 32) + (r[1] & MASK) - 1;
+			r[1] = (int) borrow;
+			borrow >>= 32;
+			for (int i = 2; i < LIMBS && borrow != 0; i++) {
+				borrow += r[i] & MASK;
+				r[i] = (int) borrow;
+				borrow >>= 32;
+			}
+		}
+	}
+
+	static void negate(int[] r, int[] a) {
+		if (Secp256k1Field.isZero(a)) {
+			Secp256k1Field.copy(r, a);
+			return;
+		}
+		int[] zero = new int[LIMBS];
+		Secp256k1Field.sub(r, zero, a);
+	}
+
+	/**
+	 * r = 2a, 3a, ... for small multipliers
+	 */
+	static void mulSmall(int[] r, int[] a, int multiplier) {
+		long carry = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			carry += (a[i] & MASK) * multiplier;
+			r[i] = (int) carry;
+			carry >>>= 32;
+		}
+		Secp256k1Field.normalize(r, carry);
+	}
+
+	static void mul(int[] r, int[] a, int[] b) {
+		// the 512 bit product as 16 limbs (in longs)
+		long[] t = new long[2 * LIMBS];
+		for (int i = 0; i < LIMBS; i++) {
+			long ai = a[i] & MASK;
+			long carry = 0;
+			for (int j = 0; j < LIMBS; j++) {
+				// fits in 64 (unsigned) bits
+				long v = ai * (b[j] & MASK) + t[i + j] + carry;
+				t[i + j] = v & MASK;
+				carry = v >>> 32;
+			}
+			t[i + LIMBS] = carry;
+		}
+		Secp256k1Field.reduce(r, t);
+	}
+
+	static void sqr(int[] r, int[] a) {
+		long[] t = new long[2 * LIMBS];
+		// the cross products once, then doubled
+		for (int i = 0; i < LIMBS; i++) {
+			long ai = a[i] & MASK;
+			long carry = 0;
+			for (int j = i + 1; j < LIMBS; j++) {
+				long v = ai * (a[j] & MASK) + t[i + j] + carry;
+				t[i + j] = v & MASK;
+				carry = v >>> 32;
+			}
+			t[i + LIMBS] = carry;
+		}
+		long carry = 0;
+		for (int k = 0; k < 2 * LIMBS; k++) {
+			long v = (t[k] << 1) + carry;
+			t[k] = v & MASK;
+			carry = v >>> 32;
+		}
+		carry = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			long ai = a[i] & MASK;
+			long v = ai * ai;
+			long lo = t[2 * i] + (v & MASK) + carry;
+			t[2 * i] = lo & MASK;
+			long hi = t[2 * i + 1] + (v >>> 32) + (lo >>> 32);
+			t[2 * i + 1] = hi & MASK;
+			carry = hi >>> 32;
+		}
+		Secp256k1Field.reduce(r, t);
+	}
+
+	// r = t mod p for the 16 limbs of a product
+	private static void reduce(int[] r, long[] t) {
+		// t = low + high * 2^256 = low + high * (2^32 + 977)
+		long carry = 0;
+		for (int i = 0; i < LIMBS; i++) {
+			carry += t[i] + t[i + LIMBS] * REDUCE;
+			if (i > 0) {
+				carry += t[i + LIMBS - 1];
+			}
+			r[i] = (int) carry;
+			carry >>>= 32;
+		}
+		carry += t[2 * LIMBS - 1];
+		// carry is now at most about 2^34
+		Secp256k1Field.normalize(r, carry);
+	}
+
+	/**
+	 * r = 1/a, a must not be zero
+	 */
+	static void invert(int[] r, int[] a) {
+		int[] inverse = Secp256k1Field.fromBigInteger(Secp256k1Field.toBigInteger(a).modInverse(P));
+		Secp256k1Field.copy(r, inverse);
+	}
+
+}
@@ -0,0 +1,109 @@
+package crpyto;
+
+import java.math.BigInteger;
+import java.security.PrivateKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECParameterSpec;
+
+/**
+ * (IMMUTABLE)
+ *
+ * A secp256k1 private key that does not need a JCA provider (see Secp256k1)
+ *
+ */
+final class Secp256k1PrivateKey implements ECPrivateKey {
+
+	private static final long serialVersionUID = 1L;
+
+	private final BigInteger d;
+
+	Secp256k1PrivateKey(BigInteger d) {
+		this.d = d;
+	}
+
+	/**
+	 * Decodes a PKCS#8 encoded secp256k1 private key,
+	 * or returns null if the key is for another curve
+	 * @param encoded
+	 * @return
+	 */
+	static Secp256k1PrivateKey decode(byte[] encoded) {
+		BigInteger d = Secp256k1.decodePrivateKey(encoded);
+		if (d == null) {
+			return null;
+		}
+		return new Secp256k1PrivateKey(d);
+	}
+
+	/**
+	 * Returns the key as a Secp256k1PrivateKey if it is a secp256k1 key
+	 * (e.g. from a JCA provider), or null otherwise
+	 * @param key
+	 * @return
+	 */
+	static Secp256k1PrivateKey from(PrivateKey key) {
+		if (key instanceof Secp256k1PrivateKey) {
+			return (Secp256k1PrivateKey) key;
+		}
+		if (key instanceof ECPrivateKey && Secp256k1PublicKey.isSecp256k1(((ECPrivateKey) key).getParams())) {
+			return new Secp256k1PrivateKey(((ECPrivateKey) key).getS());
+		}
+		return null;
+	}
+
+	/**
+	 * The public key of this private key
+	 * @return
+	 */
+	Secp256k1PublicKey getPublicKey() {
+		return new Secp256k1PublicKey(Secp256k1.multiplyGenerator(this.d));
+	}
+
+	byte[] sign(byte[] message) {
+		return Secp256k1.sign(message, this.d);
+	}
+
+	@Override
+	public BigInteger getS() {
+		return this.d;
+	}
+
+	@Override
+	public ECParameterSpec getParams() {
+		return Secp256k1.PARAMS;
+	}
+
+	@Override
+	public String getAlgorithm() {
+		return "EC";
+	}
+
+	@Override
+	public String getFormat() {
+		return "PKCS#8";
+	}
+
+	@Override
+	public byte[] getEncoded() {
+		return Secp256k1.encodePrivateKey(this.d);
+	}
+
+	@Override
+	public boolean equals(Object arg0) {
+		if (arg0 instanceof Secp256k1PrivateKey) {
+			return this.d.equals(((Secp256k1PrivateKey) arg0).d);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.d.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "<secp256k1 private key>";
+	}
+
+}
@@ -0,0 +1,126 @@
+package crpyto;
+
+import java.math.BigInteger;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+
+/**
+ * (IMMUTABLE)
+ *
+ * A secp256k1 public key that does not need a JCA provider (see Secp256k1).
+ * The table of multiples of the key used for verification is calculated
+ * the first time it is needed and kept with the key.
+ *
+ */
+final class Secp256k1PublicKey implements ECPublicKey {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int[] x;
+	private final int[] y;
+	private transient volatile Secp256k1.PublicKeyTable table;
+
+	Secp256k1PublicKey(Secp256k1.AffinePoint point) {
+		this.x = point.x;
+		this.y = point.y;
+	}
+
+	/**
+	 * Decodes an X.509 encoded secp256k1 public key,
+	 * or returns null if the key is for another curve
+	 * @param encoded
+	 * @return
+	 */
+	static Secp256k1PublicKey decode(byte[] encoded) {
+		Secp256k1.AffinePoint point = Secp256k1.decodePublicKey(encoded);
+		if (point == null) {
+			return null;
+		}
+		return new Secp256k1PublicKey(point);
+	}
+
+	/**
+	 * Returns the key as a Secp256k1PublicKey if it is a secp256k1 key
+	 * (e.g. from a JCA provider), or null otherwise
+	 * @param key
+	 * @return
+	 */
+	static Secp256k1PublicKey from(PublicKey key) {
+		if (key instanceof Secp256k1PublicKey) {
+			return (Secp256k1PublicKey) key;
+		}
+		if (key instanceof ECPublicKey && Secp256k1PublicKey.isSecp256k1(((ECPublicKey) key).getParams())) {
+			ECPoint w = ((ECPublicKey) key).getW();
+			Secp256k1.AffinePoint point = new Secp256k1.AffinePoint(Secp256k1Field.fromBigInteger(w.getAffineX()),
+					Secp256k1Field.fromBigInteger(w.getAffineY()));
+			if (!Secp256k1.isOnCurve(point)) {
+				return null;
+			}
+			return new Secp256k1PublicKey(point);
+		}
+		return null;
+	}
+
+	static boolean isSecp256k1(ECParameterSpec params) {
+		return params != null && params.getCurve().equals(Secp256k1.PARAMS.getCurve())
+				&& params.getGenerator().equals(Secp256k1.PARAMS.getGenerator())
+				&& params.getOrder().equals(Secp256k1.PARAMS.getOrder());
+	}
+
+	boolean verify(byte[] message, byte[] signature) {
+		Secp256k1.PublicKeyTable current = this.table;
+		if (current == null) {
+			current = Secp256k1.getPublicKeyTable(this.x, this.y);
+			this.table = current;
+		}
+		return Secp256k1.verify(message, signature, current);
+	}
+
+	@Override
+	public ECPoint getW() {
+		return new ECPoint(Secp256k1Field.toBigInteger(this.x), Secp256k1Field.toBigInteger(this.y));
+	}
+
+	@Override
+	public ECParameterSpec getParams() {
+		return Secp256k1.PARAMS;
+	}
+
+	@Override
+	public String getAlgorithm() {
+		return "EC";
+	}
+
+	@Override
+	public String getFormat() {
+		return "X.509";
+	}
+
+	@Override
+	public byte[] getEncoded() {
+		return Secp256k1.encodePublicKey(this.x, this.y);
+	}
+
+	@Override
+	public boolean equals(Object arg0) {
+		if (arg0 instanceof Secp256k1PublicKey) {
+			Secp256k1PublicKey key = (Secp256k1PublicKey) arg0;
+			return Secp256k1Field.equals(this.x, key.x) && Secp256k1Field.equals(this.y, key.y);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.x[0] ^ this.y[0];
+	}
+
+	@Override
+	public String toString() {
+		BigInteger x = Secp256k1Field.toBigInteger(this.x);
+		return "<secp256k1 public key x: " + x.toString(16) + ">";
+	}
+
+}
@@ -0,0 +1,254 @@
+package log;
+
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryPartial;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProofs;
+import serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement;
+import serialization.generated.BVerifyAPIMessageSerialization.SignedLogStatement;
+import serialization.generated.MptSerialization;
+
+/**
+ * Audits every log on a server: verifies the proofs for all
+ * of the logs (see BVerifyServer.getAllLogProofs()) in a single pass.
+ *
+ * Instead of a partial MPT for each log the auditor keeps a single
+ * replica of the MPT and applies the changes for each commitment
+ * to it once. The logs are sorted in the order of their leaves, so
+ * the logs whose leaf changed are found while walking the changes
+ * and only these are checked against their witnesses - the value
+ * of any other log is the same as in the previous commitment.
+ *
+ */
+public class BVerifyAuditor {
+
+	// the logs, sorted by ID (the order of the leaves in the MPT)
+	private final byte[][] logIDs;
+	private final List<List<byte[]>> witnesses;
+	private final int[] witnessIdx;
+
+	private final MPTDictionaryPartial replica;
+	private final List<byte[]> commitments;
+
+	private final long durationNanos;
+
+	/**
+	 * Verify the proofs for all of the logs.
+	 * @param proofs - the proofs for the logs, with all of the changes to the MPT
+	 * for each commitment (see BVerifyServer.getAllLogProofs())
+	 * @param requireSignatures
+	 * @throws Exception - if the proof for any log is rejected
+	 */
+	public BVerifyAuditor(LogProofs proofs, boolean requireSignatures) throws Exception {
+		long startTime = System.nanoTime();
+		int nLogs = proofs.getLogsCount();
+
+		// PART 1:
+		// sort the logs, verify the signatures in parallel
+		// with PART 2 and compute the witnesses
+		byte[][] unsortedLogIDs = new byte[nLogs][];
+		List<PublicKey> owners = new ArrayList<>();
+		List<SignedLogStatement> signedStatements = new ArrayList<>();
+		List<Integer> logOfStatement = new ArrayList<>();
+		for(int j = 0; j < nLogs; j++) {
+			LogProof proof = proofs.getLogs(j);
+			if(proof.getFirstCommitmentNumber() != 0) {
+				throw new Exception("bad proof, does not start at the first commitment");
+			}
+			unsortedLogIDs[j] = BVerifyLog.getLogID(proof.getCreateLogStatement());
+			owners.add(BVerifyLog.getOwnerPublicKey(proof.getCreateLogStatement()));
+			for(SignedLogStatement s : proof.getSignedStatementsList()) {
+				signedStatements.add(s);
+				logOfStatement.add(j);
+			}
+		}
+		BVerifyLog.SignatureCheck signatures = new BVerifyLog.SignatureCheck(nLogs + signedStatements.size(), i -> {
+			if(i < nLogs) {
+				return BVerifyLog.verifyCreateLogStatement(proofs.getLogs(i).getCreateLogStatement(),
+						requireSignatures);
+			}
+			int log = logOfStatement.get(i - nLogs);
+			return BVerifyLog.verifyLogStatement(signedStatements.get(i - nLogs), owners.get(log),
+					unsortedLogIDs[log], requireSignatures);
+		});
+		try {
+			Integer[] order = new Integer[nLogs];
+			for(int j = 0; j < nLogs; j++) {
+				order[j] = j;
+			}
+			Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(unsortedLogIDs[a], unsortedLogIDs[b]));
+			List<byte[]> allWitnesses = BVerifyLog.getSignedStatementHashes(signedStatements);
+			// the witnesses of each log start at firstWitness[j]
+			int[] firstWitness = new int[nLogs + 1];
+			for(int j = 0; j < nLogs; j++) {
+				firstWitness[j + 1] = firstWitness[j] + proofs.getLogs(j).getSignedStatementsCount();
+			}
+			this.logIDs = new byte[nLogs][];
+			this.witnesses = new ArrayList<>();
+			for(int j = 0; j < nLogs; j++) {
+				int log = order[j];
+				this.logIDs[j] = unsortedLogIDs[log];
+				if(j > 0 && Arrays.equals(this.logIDs[j - 1], this.logIDs[j])) {
+					throw new Exception("bad proof, duplicate log");
+				}
+				SignedCreateLogStatement signedCreateLogStmt = proofs.getLogs(log).getCreateLogStatement();
+				List<byte[]> logWitnesses = new ArrayList<>();
+				logWitnesses.add(BVerifyLog.getSignedStatementHash(signedCreateLogStmt));
+				logWitnesses.addAll(allWitnesses.subList(firstWitness[log], firstWitness[log + 1]));
+				this.witnesses.add(logWitnesses);
+			}
+			this.witnessIdx = new int[nLogs];
+			Arrays.fill(this.witnessIdx, -1);
+
+			// PART 2:
+			// apply the changes for each commitment to the replica
+			// and check the logs whose leaves changed
+			if(proofs.getProofOfStatementsCount() == 0) {
+				throw new Exception("bad proof, no commitments");
+			}
+			this.commitments = new ArrayList<>();
+			MptSerialization.MerklePrefixTrie first = proofs.getProofOfStatements(0);
+			this.replica = MPTDictionaryPartial.deserialize(first);
+			// server should start with no logs
+			this.checkLogs(first.getRoot(), 0, nLogs, 0, true);
+			this.commitments.add(this.replica.commitment());
+			for(int i = 1; i < proofs.getProofOfStatementsCount(); i++) {
+				signatures.throwIfFailed();
+				MptSerialization.MerklePrefixTrie changes = proofs.getProofOfStatements(i);
+				this.replica.processUpdates(changes);
+				this.checkLogs(changes.getRoot(), 0, nLogs, 0, false);
+				this.commitments.add(this.replica.commitment());
+			}
+			signatures.await();
+		} finally {
+			// stop checking signatures if the proof is rejected
+			signatures.cancel();
+		}
+		this.durationNanos = System.nanoTime() - startTime;
+	}
+
+	/**
+	 * Checks the logs logIDs[from:to] (the logs on the path to node, at depth)
+	 * against the changes in node. Omitted nodes have not changed, so the
+	 * logs below them are not checked.
+	 */
+	private void checkLogs(MptSerialization.Node node, int from, int to, int depth, boolean first)
+			throws Exception {
+		if(from == to) {
+			return;
+		}
+		switch(node.getNodeCase()) {
+		case INTERIOR_NODE:
+			MptSerialization.InteriorNode interior = node.getInteriorNode();
+			int mid = this.split(from, to, depth);
+			if(interior.hasLeft()) {
+				this.checkLogs(interior.getLeft(), from, mid, depth + 1, first);
+			}
+			if(interior.hasRight()) {
+				this.checkLogs(interior.getRight(), mid, to, depth + 1, first);
+			}
+			return;
+		case LEAF:
+			// only the log with the key of the leaf is in the MPT
+			byte[] key = node.getLeaf().getKey().toByteArray();
+			for(int j = from; j < to; j++) {
+				this.checkLog(j, Arrays.equals(key, this.logIDs[j]) ?
+						node.getLeaf().getValue().toByteArray() : null, first);
+			}
+			return;
+		case EMPTYLEAF:
+			for(int j = from; j < to; j++) {
+				this.checkLog(j, null, first);
+			}
+			return;
+		default:
+			// a stub hides the leaves of the logs below it
+			throw new Exception("bad proof, changes do not include the logs");
+		}
+	}
+
+	private void checkLog(int j, byte[] value, boolean first) throws Exception {
+		if(first) {
+			if(value != null) {
+				throw new Exception("bad proof");
+			}
+			return;
+		}
+		this.witnessIdx[j] = BVerifyLog.nextWitnessIdx(this.witnesses.get(j), this.witnessIdx[j], value);
+	}
+
+	/**
+	 * The first log in logIDs[from:to] with bit depth set
+	 * (the logs in the range share the bits above depth)
+	 */
+	private int split(int from, int to, int depth) {
+		int lo = from;
+		int hi = to;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(Utils.getBit(this.logIDs[mid], depth)) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * The number of logs audited
+	 * @return
+	 */
+	public int getNumberOfLogs() {
+		return this.logIDs.length;
+	}
+
+	public List<byte[]> getCommittments(){
+		return new ArrayList<>(this.commitments);
+	}
+
+	/**
+	 * The number of statements of the log that have been
+	 * witnessed as of the last commitment, including the
+	 * create log statement (0 if the log was not audited)
+	 * @param logID
+	 * @return
+	 */
+	public int getWitnessedStatements(byte[] logID) {
+		int j = Arrays.binarySearch(this.logIDs, logID, Arrays::compareUnsigned);
+		if(j < 0) {
+			return 0;
+		}
+		return this.witnessIdx[j] + 1;
+	}
+
+	/**
+	 * The time taken to verify the proofs, in nanoseconds
+	 * @return
+	 */
+	public long getDurationNanos() {
+		return this.durationNanos;
+	}
+
+	/**
+	 * The throughput of the audit: the number of logs
+	 * verified per second
+	 * @return
+	 */
+	public double getLogsPerSecond() {
+		return this.logIDs.length / (Math.max(1, this.durationNanos) / 1e9);
+	}
+
+	@Override
+	public String toString() {
+		return "<BVerifyAuditor [logs: "+this.logIDs.length+" | commitments: "+this.commitments.size()
+			+" | time taken: "+this.durationNanos / 1000000+" ms | logs verified per second: "
+			+Math.round(this.getLogsPerSecond())+"]>";
+	}
+
+}
@@ -1,21 +1,49 @@
 package log;
 
+import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.PublicKey;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
 
 import crpyto.CryptographicDigest;
 import crpyto.CryptographicSignature;
+import mpt.core.InsufficientAuthenticationDataException;
+import mpt.core.InvalidSerializationException;
 import mpt.core.Utils;
 import mpt.dictionary.MPTDictionaryPartial;
 import serialization.generated.BVerifyAPIMessageSerialization.CreateLogStatement;
+import serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint;
 import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProofs;
 import serialization.generated.BVerifyAPIMessageSerialization.LogStatement;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedLogStatement;
 
+/**
+ * Verifies the proof for a log and stores the (verified) statements 
+ * and commitments.
+ * 
+ * A BVerifyLog can be kept as a checkpoint: update(...) verifies an 
+ * incremental proof that continues from the last verified commitment, 
+ * so only the new statements and updates have to be checked. The 
+ * checkpoint can be saved to disk (saveCheckpoint(...)) and restored 
+ * later (loadCheckpoint(...)) without verifying the log again.
+ *
+ */
 public class BVerifyLog {
 
 	private final byte[] logID;
@@ -24,6 +52,11 @@ public class BVerifyLog {
 	private final List<byte[]> statements;
 	private final List<byte[]> commitments;
 	
+	// the client's view of the MPT at the last verified commitment
+	// and the index of the witness it maps the log to (-1 if none)
+	private MPTDictionaryPartial path;
+	private int currentWitnessIdx;
+	
 	private final LogProof proof;
 	
 	public BVerifyLog(LogProof proof, boolean requireSignatures) throws Exception {
@@ -33,10 +66,6 @@ public class BVerifyLog {
 		this.logID = getLogID(signedCreateLogStmt);
 		this.owner = getOwnerPublicKey(signedCreateLogStmt);
 		
-		// PART 1: 
-		// go through the log statements, 
-		// verify the signatures, and compute the witnesses
-		
 		this.witnesses = new ArrayList<>();
 		this.statements = new ArrayList<>();
 		this.commitments = new ArrayList<>();
@@ -48,44 +77,384 @@ public class BVerifyLog {
 		this.witnesses.add(getSignedStatementHash(signedCreateLogStmt));
 		this.statements.add(getStatement(signedCreateLogStmt));
 		
-		for(SignedLogStatement s : proof.getSignedStatementsList()) {
-			if(!verifyLogStatement(s, this.owner, this.logID, requireSignatures)) {
+		if(proof.getFirstCommitmentNumber() != 0) {
+			throw new Exception("bad proof, does not start at the first commitment");
+		}
+		this.path = null;
+		this.currentWitnessIdx = -1;
+		this.verify(proof, requireSignatures);
+	}
+	
+	// a log that has already been verified
+	private BVerifyLog(LogProof proof, List<byte[]> witnesses, List<byte[]> statements, 
+			List<byte[]> commitments, MPTDictionaryPartial path, int currentWitnessIdx) {
+		this.proof = proof;
+		this.logID = getLogID(proof.getCreateLogStatement());
+		this.owner = getOwnerPublicKey(proof.getCreateLogStatement());
+		this.witnesses = witnesses;
+		this.statements = statements;
+		this.commitments = commitments;
+		this.path = path;
+		this.currentWitnessIdx = currentWitnessIdx;
+	}
+	
+	/**
+	 * Verify an incremental proof (see BVerifyServer.getLogProof(logId, sinceCommitmentNumber))
+	 * that continues from the last commitment verified by this log and add the 
+	 * new statements and commitments. If the proof is rejected an exception 
+	 * is thrown and this log is not changed.
+	 * @param incrementalProof
+	 * @param requireSignatures
+	 * @throws Exception - if the proof is rejected
+	 */
+	public void update(LogProof incrementalProof, boolean requireSignatures) throws Exception {
+		if(!Arrays.equals(this.logID, getLogID(incrementalProof.getCreateLogStatement()))) {
+			throw new Exception("bad proof, proof is for a different log");
+		}
+		if(incrementalProof.getFirstCommitmentNumber() != this.commitments.size()) {
+			throw new Exception("bad proof, does not continue from commitment #"+(this.commitments.size()-1));
+		}
+		this.verify(incrementalProof, requireSignatures);
+	}
+	
+	/**
+	 * Verifies the statements and the updates in the proof, 
+	 * starting from the current state of this log, and 
+	 * adds them once the whole proof is verified
+	 */
+	private void verify(LogProof proof, boolean requireSignatures) throws Exception {
+		// PART 1: 
+		// go through the log statements, verify the signatures 
+		// in parallel with PART 2 and compute the witnesses
+		List<SignedLogStatement> signedStatements = proof.getSignedStatementsList();
+		SignatureCheck signatures = new SignatureCheck(signedStatements.size(), 
+				i -> verifyLogStatement(signedStatements.get(i), this.owner, this.logID, requireSignatures));
+		try {
+			List<byte[]> newWitnesses = getSignedStatementHashes(signedStatements);
+			List<byte[]> newStatements = new ArrayList<>();
+			for(SignedLogStatement s : signedStatements) {
+				newStatements.add(getStatement(s));
+			}
+			List<byte[]> allWitnesses = new ArrayList<>(this.witnesses);
+			allWitnesses.addAll(newWitnesses);
+			
+			// PART 2:
+			// check the Merkle proofs and calcualte the 
+			// commitments (the commitments should match what 
+			// has been witnessed in Bitcoin)
+			List<byte[]> newCommitments = new ArrayList<>();
+			int first = 0;
+			MPTDictionaryPartial path;
+			int currentWitnessIdx = this.currentWitnessIdx;
+			byte[] currentWitness = currentWitnessIdx < 0 ? null : allWitnesses.get(currentWitnessIdx);
+			if(this.path == null) {
+				path = MPTDictionaryPartial.deserialize(proof.getProofOfStatements(0));	
+				// server should start with no logs
+				if(!(currentWitness == path.get(logID))) {
+					throw new RuntimeException("bad proof");
+				}
+				newCommitments.add(path.commitment());
+				first = 1;
+			} else {
+				// work on a copy so that this log does 
+				// not change if the proof is rejected
+				path = MPTDictionaryPartial.deserialize(this.path.serialize());
+			}
+			for(int i = first; i < proof.getProofOfStatementsCount(); i++) {
+				signatures.throwIfFailed();
+				path.processUpdates(proof.getProofOfStatements(i));
+				currentWitnessIdx = nextWitnessIdx(allWitnesses, currentWitnessIdx, path.get(logID));
+				newCommitments.add(path.commitment());
+			}
+			signatures.await();
+			
+			this.witnesses.addAll(newWitnesses);
+			this.statements.addAll(newStatements);
+			this.commitments.addAll(newCommitments);
+			this.path = path;
+			this.currentWitnessIdx = currentWitnessIdx;
+		} finally {
+			// stop checking signatures if the proof is rejected
+			signatures.cancel();
+		}
+	}
+	
+	/**
+	 * Checks the signatures of statements in parallel (on the common 
+	 * fork/join pool) while the caller checks the rest of the proof. 
+	 * The check stops at the first bad signature, or once it is cancelled.
+	 */
+	static final class SignatureCheck {
+		
+		private final AtomicBoolean cancelled = new AtomicBoolean(false);
+		private final ForkJoinTask<Boolean> task;
+		
+		/**
+		 * @param n - the number of statements
+		 * @param verify - verifies the signature of the i-th statement
+		 */
+		SignatureCheck(int n, IntPredicate verify) {
+			this.task = ForkJoinPool.commonPool().submit(() -> 
+				IntStream.range(0, n).parallel().allMatch(i -> this.cancelled.get() || verify.test(i)));
+		}
+		
+		/**
+		 * Throws if a bad signature has already been found
+		 */
+		void throwIfFailed() {
+			if(this.task.isDone() && !this.task.join()) {
 				throw new RuntimeException("bad proof");
 			}
-			this.witnesses.add(getSignedStatementHash(s));
-			this.statements.add(getStatement(s));
 		}
 		
-		// PART 2:
-		// check the Merkle proofs and calcualte the 
-		// commitments (the commitments should match what 
-		// has been witnessed in Bitcoin)
+		/**
+		 * Waits for all of the signatures to be checked, 
+		 * throws if any of them is bad
+		 */
+		void await() {
+			if(!this.task.join()) {
+				throw new RuntimeException("bad proof");
+			}
+		}
 		
-		MPTDictionaryPartial path = MPTDictionaryPartial.deserialize(proof.getProofOfStatements(0));	
-		// server should start with no logs
-		byte[] currentWitness = null;
-		int currentWitnessIdx = -1;
-		if(!(currentWitness == path.get(logID))) {
-			throw new RuntimeException("bad proof");
-		}
-		this.commitments.add(path.commitment());
-		for(int i = 1; i < proof.getProofOfStatementsCount(); i++) {
-			path.processUpdates(proof.getProofOfStatements(i));
-			byte[] get = path.get(logID);
-			if(!Arrays.equals(currentWitness, get)) {
-				if(currentWitnessIdx+1 >= this.witnesses.size()) {
-					throw new Exception("bad proof, incorrect witnesss");
+		void cancel() {
+			this.cancelled.set(true);
+		}
+	}
+	
+	/**
+	 * The witnesses (hashes) of the signed statements, in order, 
+	 * calculated in parallel
+	 */
+	static List<byte[]> getSignedStatementHashes(List<SignedLogStatement> signedStatements) {
+		byte[][] hashes = new byte[signedStatements.size()][];
+		IntStream.range(0, hashes.length).parallel().forEach(i -> 
+			hashes[i] = getSignedStatementHash(signedStatements.get(i)));
+		return Arrays.asList(hashes);
+	}
+	
+	/**
+	 * The index of the witness the log maps to after an update: 
+	 * either the current witness or the next one
+	 */
+	static int nextWitnessIdx(List<byte[]> witnesses, int currentWitnessIdx, byte[] value) throws Exception {
+		byte[] currentWitness = currentWitnessIdx < 0 ? null : witnesses.get(currentWitnessIdx);
+		if(Arrays.equals(currentWitness, value)) {
+			return currentWitnessIdx;
+		}
+		if(currentWitnessIdx+1 >= witnesses.size() || !Arrays.equals(witnesses.get(currentWitnessIdx+1), value)) {
+			throw new Exception("bad proof, incorrect witnesss");
+		}
+		return currentWitnessIdx+1;
+	}
+	
+	/**
+	 * Verify the proofs for many logs (see BVerifyServer.getLogProofs(...)). 
+	 * The updates are shared by all of the logs, so they are only 
+	 * processed once. 
+	 * @param proofs
+	 * @param requireSignatures
+	 * @return the verified logs, in the same order as the proofs
+	 * @throws Exception - if the proof for any log is rejected
+	 */
+	public static List<BVerifyLog> verify(LogProofs proofs, boolean requireSignatures) throws Exception {
+		// PART 1: 
+		// go through the statements of each log, verify the 
+		// signatures in parallel with PART 2 and compute the witnesses
+		List<byte[]> logIDs = new ArrayList<>();
+		List<PublicKey> owners = new ArrayList<>();
+		List<List<byte[]>> witnesses = new ArrayList<>();
+		List<List<byte[]>> statements = new ArrayList<>();
+		// the statements of all of the logs, and the log of each
+		List<SignedLogStatement> signedStatements = new ArrayList<>();
+		List<Integer> logOfStatement = new ArrayList<>();
+		for(LogProof proof : proofs.getLogsList()) {
+			SignedCreateLogStatement signedCreateLogStmt = proof.getCreateLogStatement();
+			if(proof.getFirstCommitmentNumber() != 0) {
+				throw new Exception("bad proof, does not start at the first commitment");
+			}
+			logIDs.add(getLogID(signedCreateLogStmt));
+			owners.add(getOwnerPublicKey(signedCreateLogStmt));
+			for(SignedLogStatement s : proof.getSignedStatementsList()) {
+				signedStatements.add(s);
+				logOfStatement.add(logIDs.size()-1);
+			}
+		}
+		int nLogs = logIDs.size();
+		// the create log statements are checked first
+		SignatureCheck signatures = new SignatureCheck(nLogs + signedStatements.size(), i -> {
+			if(i < nLogs) {
+				return verifyCreateLogStatement(proofs.getLogs(i).getCreateLogStatement(), requireSignatures);
+			}
+			int log = logOfStatement.get(i - nLogs);
+			return verifyLogStatement(signedStatements.get(i - nLogs), owners.get(log), logIDs.get(log), 
+					requireSignatures);
+		});
+		try {
+			List<byte[]> allWitnesses = getSignedStatementHashes(signedStatements);
+			int next = 0;
+			for(LogProof proof : proofs.getLogsList()) {
+				SignedCreateLogStatement signedCreateLogStmt = proof.getCreateLogStatement();
+				List<byte[]> logWitnesses = new ArrayList<>();
+				List<byte[]> logStatements = new ArrayList<>();
+				logWitnesses.add(getSignedStatementHash(signedCreateLogStmt));
+				logStatements.add(getStatement(signedCreateLogStmt));
+				for(SignedLogStatement s : proof.getSignedStatementsList()) {
+					logWitnesses.add(allWitnesses.get(next++));
+					logStatements.add(getStatement(s));
+				}
+				witnesses.add(logWitnesses);
+				statements.add(logStatements);
+			}
+			
+			// PART 2: 
+			// check the Merkle proofs for all of the logs 
+			// at once and calculate the commitments
+			if(proofs.getProofOfStatementsCount() == 0) {
+				throw new Exception("bad proof, no commitments");
+			}
+			MPTDictionaryPartial path = MPTDictionaryPartial.deserialize(proofs.getProofOfStatements(0));
+			int[] witnessIdx = new int[nLogs];
+			for(int j = 0; j < nLogs; j++) {
+				// server should start with no logs
+				if(path.get(logIDs.get(j)) != null) {
+					throw new Exception("bad proof");
 				}
-				byte[] nextWitness = this.witnesses.get(currentWitnessIdx+1);
-				if(!Arrays.equals(nextWitness, get)) {
-					throw new Exception("bad proof, incorrect witnesss");
+				witnessIdx[j] = -1;
+			}
+			List<byte[]> commitments = new ArrayList<>();
+			commitments.add(path.commitment());
+			for(int i = 1; i < proofs.getProofOfStatementsCount(); i++) {
+				signatures.throwIfFailed();
+				path.processUpdates(proofs.getProofOfStatements(i));
+				for(int j = 0; j < nLogs; j++) {
+					witnessIdx[j] = nextWitnessIdx(witnesses.get(j), witnessIdx[j], path.get(logIDs.get(j)));
 				}
-				currentWitness = nextWitness;
-				currentWitnessIdx++;
+				commitments.add(path.commitment());
+			}
+			signatures.await();
+			
+			// each log keeps only its own path
+			List<BVerifyLog> logs = new ArrayList<>();
+			for(int j = 0; j < nLogs; j++) {
+				logs.add(new BVerifyLog(proofs.getLogs(j), witnesses.get(j), statements.get(j), 
+						new ArrayList<>(commitments), path.copyPartial(Collections.singletonList(logIDs.get(j))), 
+						witnessIdx[j]));
 			}
-			this.commitments.add(path.commitment());
+			return logs;
+		} finally {
+			// stop checking signatures if the proof is rejected
+			signatures.cancel();
 		}
-		
+	}
+	
+	/**
+	 * Serialize the verified state of this log: the create log statement, 
+	 * the statements, witnesses and commitments, the path at the last 
+	 * commitment and the current witness. The proofs themselves are 
+	 * not included, but all of the statements and commitments are, 
+	 * so the checkpoint grows with the log. See fromCheckpoint(byte[]).
+	 * @return a serialized LogCheckpoint
+	 */
+	public byte[] getCheckpoint() {
+		LogCheckpoint.Builder checkpoint = LogCheckpoint.newBuilder()
+				.setCreateLogStatement(this.proof.getCreateLogStatement());
+		for(byte[] statement : this.statements) {
+			checkpoint.addStatements(ByteString.copyFrom(statement));
+		}
+		for(byte[] witness : this.witnesses) {
+			checkpoint.addWitnesses(ByteString.copyFrom(witness));
+		}
+		for(byte[] commitment : this.commitments) {
+			checkpoint.addCommitments(ByteString.copyFrom(commitment));
+		}
+		return checkpoint.setPath(this.path.serialize())
+				.setWitnessIndex(this.currentWitnessIdx)
+				.build().toByteArray();
+	}
+	
+	/**
+	 * Restore a log from a checkpoint (see getCheckpoint()). The 
+	 * checkpoint is trusted - only its consistency is checked, 
+	 * the statements and commitments are not verified again. 
+	 * Incremental proofs continue from the last commitment 
+	 * in the checkpoint (see update(...)).
+	 * @param checkpoint
+	 * @return
+	 * @throws InvalidSerializationException - if the checkpoint cannot be decoded
+	 */
+	public static BVerifyLog fromCheckpoint(byte[] checkpoint) throws InvalidSerializationException {
+		LogCheckpoint parsed;
+		try {
+			parsed = LogCheckpoint.parseFrom(checkpoint);
+		} catch (InvalidProtocolBufferException e) {
+			throw new InvalidSerializationException(e.getMessage());
+		}
+		if(!parsed.hasCreateLogStatement() || !parsed.hasPath()) {
+			throw new InvalidSerializationException("incomplete checkpoint");
+		}
+		SignedCreateLogStatement signedCreateLogStmt = parsed.getCreateLogStatement();
+		List<byte[]> statements = new ArrayList<>();
+		for(ByteString statement : parsed.getStatementsList()) {
+			statements.add(statement.toByteArray());
+		}
+		List<byte[]> witnesses = new ArrayList<>();
+		for(ByteString witness : parsed.getWitnessesList()) {
+			witnesses.add(witness.toByteArray());
+		}
+		List<byte[]> commitments = new ArrayList<>();
+		for(ByteString commitment : parsed.getCommitmentsList()) {
+			commitments.add(commitment.toByteArray());
+		}
+		MPTDictionaryPartial path = MPTDictionaryPartial.deserialize(parsed.getPath());
+		int currentWitnessIdx = parsed.getWitnessIndex();
+		if(statements.isEmpty() || statements.size() != witnesses.size() || commitments.isEmpty()) {
+			throw new InvalidSerializationException("incomplete checkpoint");
+		}
+		if(!Arrays.equals(statements.get(0), getStatement(signedCreateLogStmt)) || 
+				!Arrays.equals(witnesses.get(0), getSignedStatementHash(signedCreateLogStmt))) {
+			throw new InvalidSerializationException("checkpoint is not for this log");
+		}
+		if(!Arrays.equals(path.commitment(), commitments.get(commitments.size()-1))) {
+			throw new InvalidSerializationException("path does not match the last commitment");
+		}
+		if(currentWitnessIdx < -1 || currentWitnessIdx >= witnesses.size()) {
+			throw new InvalidSerializationException("current witness out of range");
+		}
+		byte[] currentWitness = currentWitnessIdx < 0 ? null : witnesses.get(currentWitnessIdx);
+		try {
+			if(!Arrays.equals(currentWitness, path.get(getLogID(signedCreateLogStmt)))) {
+				throw new InvalidSerializationException("path does not match the current witness");
+			}
+		} catch (InsufficientAuthenticationDataException e) {
+			throw new InvalidSerializationException("path does not include the log");
+		}
+		LogProof proof = LogProof.newBuilder().setCreateLogStatement(signedCreateLogStmt).build();
+		return new BVerifyLog(proof, witnesses, statements, commitments, path, currentWitnessIdx);
+	}
+	
+	/**
+	 * Save a checkpoint of this log (see getCheckpoint()) to file. 
+	 * The file is replaced atomically, so an existing checkpoint 
+	 * is kept if saving fails.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void saveCheckpoint(Path file) throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName()+".tmp");
+		Files.write(tmp, this.getCheckpoint());
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	/**
+	 * Load a checkpoint saved by saveCheckpoint(...)
+	 * @param file
+	 * @return
+	 * @throws IOException - if the file cannot be read
+	 * @throws InvalidSerializationException - if the checkpoint cannot be decoded
+	 */
+	public static BVerifyLog loadCheckpoint(Path file) throws IOException, InvalidSerializationException {
+		return BVerifyLog.fromCheckpoint(Files.readAllBytes(file));
 	}
 	
 	public List<byte[]> getLogStatements(){
@@ -112,6 +481,15 @@ public class BVerifyLog {
 		return new ArrayList<>(this.commitments);
 	}
 	
+	/**
+	 * The number of the last commitment verified, an incremental 
+	 * proof for this log continues from it
+	 * @return
+	 */
+	public int getLastCommitmentNumber() {
+		return this.commitments.size()-1;
+	}
+	
 	@Override
 	public String toString() {
 		String res = "<LogID: "+Utils.byteArrayAsHexString(this.logID)+"\n"
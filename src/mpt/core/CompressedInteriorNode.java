@@ -0,0 +1,411 @@
+package mpt.core;
+
+import crpyto.CryptographicDigest;
+import serialization.generated.MptSerialization;
+
+/**
+ * (MUTABLE)
+ *
+ * Represents a run of interior nodes in the MPT which each have a
+ * single non-empty child. This is what the MPT looks like when the
+ * keys below a location share a long prefix:
+ *
+ *  InteriorNode(EmptyLeafNode, InteriorNode(InteriorNode(..., EmptyLeafNode), EmptyLeafNode))
+ *
+ * Rather than storing an InteriorNode and an EmptyLeafNode for each level
+ * the run is stored as the bits of the (shared) path, and the node
+ * at the end of the path. The run is the exact same MPT as the expanded
+ * chain of interior nodes: it has the same hash, the same serialization,
+ * counts the same number of nodes and is equal to the expanded chain.
+ * Only the hash of the top of the run is stored, the hashes of the levels
+ * below it are recalculated if they are needed.
+ *
+ * getLeftChild() and getRightChild() return a (read-only) view of the level
+ * below: an EmptyLeafNode and either the rest of the run or the child.
+ * The children cannot be set through the Node interface - use setChild()
+ * or expandLevel() instead.
+ *
+ * A run covers at most MAX_LENGTH levels, longer runs are stored as
+ * runs of runs.
+ *
+ */
+public class CompressedInteriorNode implements Node {
+
+	public static final int MAX_LENGTH = Long.SIZE;
+
+	private static final String COMPRESSED_INTERIOR_NODE_MSG = new String("<CompressedInteriorNode>");
+
+	// the top level of the run branches on bit startBit
+	// of the key, the level below on startBit+1 and so on
+	private int startBit;
+	private int length;
+	// the path: the lowest length bits, the top level of the run
+	// is the most significant bit (1 -> the child is on the right)
+	private long path;
+	private Node child;
+
+	private byte[] hash;
+	private boolean recalculateHash;
+	// tracks changes of the interior nodes and the empty
+	// leaves in the run
+	private boolean changed;
+	private boolean emptiesChanged;
+
+	private CompressedInteriorNode(int startBit, int length, long path, Node child,
+			boolean changed, boolean emptiesChanged) {
+		assert length > 0 && length <= MAX_LENGTH;
+		this.startBit = startBit;
+		this.length = length;
+		this.path = path;
+		this.child = child;
+		this.changed = changed;
+		this.emptiesChanged = emptiesChanged;
+		this.recalculateHash = true;
+	}
+
+	/**
+	 * Create a (new) run of interior nodes along the path key[startBit:startBit+length]
+	 * ending at child. Returns child if length is zero.
+	 * @param key - a key whose bits give the path
+	 * @param startBit - the bit the top of the run branches on
+	 * @param length - the number of levels in the run
+	 * @param child - the node at the end of the run
+	 * @return
+	 */
+	public static Node chain(final byte[] key, final int startBit, final int length, final Node child) {
+		Node current = child;
+		int end = startBit + length;
+		// build from the bottom so that only the
+		// top run can be shorter than MAX_LENGTH
+		while (end > startBit) {
+			int runLength = Math.min(MAX_LENGTH, end - startBit);
+			int runStart = end - runLength;
+			current = new CompressedInteriorNode(runStart, runLength,
+					CompressedInteriorNode.getBits(key, runStart, runLength), current, true, true);
+			end = runStart;
+		}
+		return current;
+	}
+
+	/**
+	 * Returns bits key[start:start+length] as the lowest bits of a long,
+	 * key[start] is the most significant
+	 */
+	private static long getBits(final byte[] key, final int start, final int length) {
+		long bits = 0;
+		int end = start + length;
+		int i = start;
+		while (i < end) {
+			int offset = i & 7;
+			int take = Math.min(8 - offset, end - i);
+			int b = ((key[i >>> 3] & 0xff) >>> (8 - offset - take)) & ((1 << take) - 1);
+			bits = (bits << take) | b;
+			i += take;
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the number of levels (from the top) of the run
+	 * that are on the path to key. If this is getLength() the key
+	 * continues to the child, otherwise the key leads to the empty leaf
+	 * at that level.
+	 * @param key
+	 * @return
+	 */
+	public int countMatchingLevels(final byte[] key) {
+		long difference = CompressedInteriorNode.getBits(key, this.startBit, this.length) ^ this.path;
+		if (difference == 0) {
+			return this.length;
+		}
+		return Long.numberOfLeadingZeros(difference) - (Long.SIZE - this.length);
+	}
+
+	/**
+	 * The bit the top level of this run branches on
+	 * @return
+	 */
+	public int getStartBit() {
+		return this.startBit;
+	}
+
+	/**
+	 * The number of interior nodes in this run
+	 * @return
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * The node at the end of the run
+	 * @return
+	 */
+	public Node getChild() {
+		return this.child;
+	}
+
+	/**
+	 * Set the node at the end of the run. This marks every
+	 * level of the run as changed.
+	 * @param child
+	 */
+	public void setChild(Node child) {
+		this.child = child;
+		this.changed = true;
+		this.recalculateHash = true;
+	}
+
+	/**
+	 * Replace the given level of the run with an InteriorNode (so that
+	 * its empty leaf can be replaced). The levels above stay in
+	 * this node and are marked as changed (since the InteriorNode below
+	 * them is about to change). The levels below are moved to a new run
+	 * and are not marked as changed.
+	 *
+	 * If level is zero this node is no longer part of the MPT
+	 * and the returned InteriorNode takes its place.
+	 *
+	 * @param level - in [0, getLength())
+	 * @return the InteriorNode at level
+	 */
+	public InteriorNode expandLevel(final int level) {
+		assert level >= 0 && level < this.length;
+		boolean bit = this.getDirection(level);
+		int below = this.length - level - 1;
+		Node lower = this.child;
+		if (below > 0) {
+			lower = new CompressedInteriorNode(this.startBit + level + 1, below, this.path & ((1L << below) - 1),
+					this.child, this.changed, this.emptiesChanged);
+		}
+		EmptyLeafNode empty = this.newEmptyLeaf();
+		InteriorNode interior = bit ? new InteriorNode(empty, lower) : new InteriorNode(lower, empty);
+		if (level > 0) {
+			this.path = this.path >>> (this.length - level);
+			this.length = level;
+			this.setChild(interior);
+		}
+		return interior;
+	}
+
+	// true if the non-empty child at level is on the right
+	private boolean getDirection(final int level) {
+		return ((this.path >>> (this.length - level - 1)) & 1) == 1;
+	}
+
+	private EmptyLeafNode newEmptyLeaf() {
+		EmptyLeafNode empty = new EmptyLeafNode();
+		if (!this.emptiesChanged) {
+			empty.markUnchangedAll();
+		}
+		return empty;
+	}
+
+	// a view of the level below the top of the run
+	private Node below() {
+		if (this.length == 1) {
+			return this.child;
+		}
+		return new CompressedInteriorNode(this.startBit + 1, this.length - 1, this.path & ((1L << (this.length - 1)) - 1),
+				this.child, this.changed, this.emptiesChanged);
+	}
+
+	@Override
+	public byte[] getValue() {
+		return null;
+	}
+
+	@Override
+	public void setValue(byte[] value) {
+		throw new RuntimeException("tried to set value on an Interior Node");
+	}
+
+	@Override
+	public byte[] getHash() {
+		return this.getHashNoCopy().clone();
+	}
+
+	@Override
+	public byte[] getHashNoCopy() {
+		if (this.recalculateHash) {
+			if (this.hash == null) {
+				this.hash = new byte[CryptographicDigest.getSizeBytes()];
+			}
+			// hash the levels from the bottom up - the input
+			// is read before the output is written so the
+			// hash of each level can overwrite the one below
+			byte[] current = this.child.getHashNoCopy();
+			for (int i = 0; i < this.length; i++) {
+				if (((this.path >>> i) & 1) == 1) {
+					CryptographicDigest.hashInto(EmptyLeafNode.EMPTY_HASH, current, this.hash, 0);
+				} else {
+					CryptographicDigest.hashInto(current, EmptyLeafNode.EMPTY_HASH, this.hash, 0);
+				}
+				current = this.hash;
+			}
+			this.recalculateHash = false;
+		}
+		return this.hash;
+	}
+
+	/**
+	 * Set the hash of the run once it has been calculated elsewhere 
+	 * (e.g. while its levels are visited one by one), so that it 
+	 * is not calculated again. 
+	 * @param hash - must be the hash of the top level of the run
+	 */
+	public void setCalculatedHash(byte[] hash) {
+		if (this.hash == null) {
+			this.hash = new byte[CryptographicDigest.getSizeBytes()];
+		}
+		System.arraycopy(hash, 0, this.hash, 0, this.hash.length);
+		this.recalculateHash = false;
+	}
+
+	@Override
+	public boolean requiresHashRecalculation() {
+		return this.recalculateHash;
+	}
+
+	@Override
+	public int countHashesRequiredForGetHash() {
+		if (this.recalculateHash) {
+			return this.length + this.child.countHashesRequiredForGetHash();
+		}
+		return 0;
+	}
+
+	@Override
+	public byte[] getKey() {
+		return null;
+	}
+
+	@Override
+	public boolean isLeaf() {
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return false;
+	}
+
+	@Override
+	public boolean isStub() {
+		return false;
+	}
+
+	@Override
+	public Node getLeftChild() {
+		if (this.getDirection(0)) {
+			return this.newEmptyLeaf();
+		}
+		return this.below();
+	}
+
+	@Override
+	public Node getRightChild() {
+		if (this.getDirection(0)) {
+			return this.below();
+		}
+		return this.newEmptyLeaf();
+	}
+
+	@Override
+	public void setLeftChild(Node leftChild) {
+		throw new RuntimeException("cannot set children of a compressed interior node");
+	}
+
+	@Override
+	public void setRightChild(Node rightChild) {
+		throw new RuntimeException("cannot set children of a compressed interior node");
+	}
+
+	@Override
+	public boolean changed() {
+		return this.changed;
+	}
+
+	@Override
+	public void markChangedAll() {
+		this.emptiesChanged = true;
+		if (!this.child.changed()) {
+			this.child.markChangedAll();
+		}
+	}
+
+	@Override
+	public void markUnchangedAll() {
+		if (this.child.changed()) {
+			this.child.markUnchangedAll();
+		}
+		this.emptiesChanged = false;
+		this.changed = false;
+	}
+
+	@Override
+	public MptSerialization.Node serialize() {
+		// serialized as the expanded chain of interior nodes
+		MptSerialization.Node current = this.child.serialize();
+		MptSerialization.Node empty = MptSerialization.Node.newBuilder()
+				.setEmptyleaf(MptSerialization.EmptyLeaf.newBuilder())
+				.build();
+		for (int i = 0; i < this.length; i++) {
+			MptSerialization.InteriorNode.Builder builder = MptSerialization.InteriorNode.newBuilder();
+			if (((this.path >>> i) & 1) == 1) {
+				builder.setLeft(empty).setRight(current);
+			} else {
+				builder.setLeft(current).setRight(empty);
+			}
+			current = MptSerialization.Node.newBuilder()
+					.setInteriorNode(builder.build())
+					.build();
+		}
+		return current;
+	}
+
+	@Override
+	public int nodesInSubtree() {
+		return 2 * this.length + this.child.nodesInSubtree();
+	}
+
+	@Override
+	public int interiorNodesInSubtree() {
+		return this.length + this.child.interiorNodesInSubtree();
+	}
+
+	@Override
+	public int emptyLeafNodesInSubtree() {
+		return this.length + this.child.emptyLeafNodesInSubtree();
+	}
+
+	@Override
+	public int nonEmptyLeafNodesInSubtree() {
+		return this.child.nonEmptyLeafNodesInSubtree();
+	}
+
+	@Override
+	public String toString() {
+		return CompressedInteriorNode.COMPRESSED_INTERIOR_NODE_MSG;
+	}
+
+	/**
+	 * Equal to any (compressed or expanded) interior node
+	 * with equal children
+	 */
+	@Override
+	public boolean equals(Object arg0) {
+		if (arg0 instanceof CompressedInteriorNode) {
+			CompressedInteriorNode cin = (CompressedInteriorNode) arg0;
+			if (this.startBit == cin.startBit && this.length == cin.length) {
+				return this.path == cin.path && this.child.equals(cin.child);
+			}
+		}
+		if (arg0 instanceof InteriorNode || arg0 instanceof CompressedInteriorNode) {
+			Node in = (Node) arg0;
+			return this.getLeftChild().equals(in.getLeftChild()) && this.getRightChild().equals(in.getRightChild());
+		}
+		return false;
+	}
+
+}
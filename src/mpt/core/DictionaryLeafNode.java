@@ -4,6 +4,7 @@ import java.util.Arrays;
 
 import com.google.protobuf.ByteString;
 
+import crpyto.CryptographicDigest;
 import crpyto.CryptographicUtils;
 import serialization.generated.MptSerialization;
 
@@ -44,6 +45,21 @@ public class DictionaryLeafNode implements Node {
 		this.changed = true;
 		this.recalculateHash = true;
 	}
+	
+	/**
+	 * Create a (changed) leaf whose hash is already known, 
+	 * e.g. a copy of a leaf with the same key and value.
+	 * @param key
+	 * @param value
+	 * @param commitmentHash - H(key||value)
+	 */
+	public DictionaryLeafNode(byte[] key, byte[] value, byte[] commitmentHash){
+		this.key = key.clone();
+		this.value = value.clone();
+		this.changed = true;
+		this.commitmentHash = commitmentHash.clone();
+		this.recalculateHash = false;
+	}
 		
 	public MptSerialization.Node serialize(){
 		MptSerialization.Node node = MptSerialization.Node
@@ -63,12 +79,21 @@ public class DictionaryLeafNode implements Node {
 		
 	@Override
 	public byte[] getHash() {
+		return this.getHashNoCopy().clone();
+	}
+	
+	@Override
+	public byte[] getHashNoCopy() {
 		if(this.recalculateHash) {
-			// witness
-			this.commitmentHash = CryptographicUtils.witnessKeyAndValue(this.key, this.value);
+			// witness - the buffer is allocated once and 
+			// overwritten if the value changes
+			if(this.commitmentHash == null) {
+				this.commitmentHash = new byte[CryptographicDigest.getSizeBytes()];
+			}
+			CryptographicUtils.witnessKeyAndValue(this.key, this.value, this.commitmentHash, 0);
 			this.recalculateHash = false;
 		}
-		return this.commitmentHash.clone();
+		return this.commitmentHash;
 	}
 
 	@Override
@@ -168,6 +193,11 @@ public class DictionaryLeafNode implements Node {
 		return 0;
 	}
 
+	@Override
+	public boolean requiresHashRecalculation() {
+		return this.recalculateHash;
+	}
+
 	@Override
 	public int nodesInSubtree() {
 		return 1;
@@ -43,6 +43,11 @@ public class EmptyLeafNode implements Node {
 	public byte[] getHash() {
 		return EmptyLeafNode.EMPTY_HASH.clone();
 	}
+	
+	@Override
+	public byte[] getHashNoCopy() {
+		return EmptyLeafNode.EMPTY_HASH;
+	}
 
 	@Override
 	public Node getLeftChild() {
@@ -119,6 +124,11 @@ public class EmptyLeafNode implements Node {
 		return 0;
 	}
 
+	@Override
+	public boolean requiresHashRecalculation() {
+		return false;
+	}
+
 	@Override
 	public int nodesInSubtree() {
 		return 1;
@@ -0,0 +1,72 @@
+package mpt.core;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A fork/join task that recalculates the hashes in the subtree 
+ * rooted at an interior node. 
+ * 
+ * Only subtrees that actually need to be rehashed are split:
+ * if both children of a node must be rehashed they are hashed
+ * in parallel, if only one child must be rehashed the task 
+ * simply continues down that child. Once the estimated number 
+ * of hashes left in a subtree falls below a cutoff the subtree 
+ * is hashed sequentially.
+ * 
+ * The estimate starts from countHashesRequiredForGetHash() at the 
+ * root and is halved each time the work is split in two. Since keys
+ * are cryptographic hashes, the MPT (and the set of changed paths)
+ * is roughly balanced so this is a good estimate without having to 
+ * count each subtree.
+ *
+ */
+class HashTask extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+	
+	// below this many hashes the overhead of forking
+	// outweighs the benefit
+	static final int SEQUENTIAL_CUTOFF = 512;
+	
+	private final InteriorNode node;
+	private final int estimatedHashes;
+	
+	HashTask(InteriorNode node, int estimatedHashes) {
+		this.node = node;
+		this.estimatedHashes = estimatedHashes;
+	}
+	
+	@Override
+	protected void compute() {
+		if (this.estimatedHashes > SEQUENTIAL_CUTOFF && this.node.requiresHashRecalculation()) {
+			InteriorNode left = HashTask.asInteriorRequiringHash(this.node.getLeftChild());
+			InteriorNode right = HashTask.asInteriorRequiringHash(this.node.getRightChild());
+			if (left != null && right != null) {
+				int half = (this.estimatedHashes - 1) / 2;
+				RecursiveAction.invokeAll(new HashTask(left, half), new HashTask(right, half));
+			} else if (left != null) {
+				// only one dirty subtree - keep going 
+				// down it without forking
+				new HashTask(left, this.estimatedHashes - 1).compute();
+			} else if (right != null) {
+				new HashTask(right, this.estimatedHashes - 1).compute();
+			}
+		}
+		// the dirty subtrees have been hashed (or are small enough 
+		// to hash sequentially), so this only hashes what remains
+		this.node.getHashNoCopy();
+	}
+	
+	private static InteriorNode asInteriorRequiringHash(Node n) {
+		// the hash of a compressed run is calculated 
+		// by its parent, so continue down to its child
+		while (n instanceof CompressedInteriorNode && n.requiresHashRecalculation()) {
+			n = ((CompressedInteriorNode) n).getChild();
+		}
+		if (n instanceof InteriorNode && n.requiresHashRecalculation()) {
+			return (InteriorNode) n;
+		}
+		return null;
+	}
+	
+}
@@ -1,9 +1,6 @@
 package mpt.core;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
 
 import crpyto.CryptographicDigest;
 import serialization.generated.MptSerialization;
@@ -41,6 +38,21 @@ public class InteriorNode implements Node {
 		this.recalculateHash = true;
 	}
 	
+	/**
+	 * Create a (changed) interior node whose hash is already known, 
+	 * e.g. a copy of a node with the same children. 
+	 * @param leftChild
+	 * @param rightChild
+	 * @param hash - H(leftChild.getHash()||rightChild.getHash())
+	 */
+	public InteriorNode(Node leftChild, Node rightChild, byte[] hash) {
+		this.leftChild = leftChild;
+		this.rightChild = rightChild;
+		this.changed = true;
+		this.hash = hash.clone();
+		this.recalculateHash = false;
+	}
+	
 	public MptSerialization.Node serialize() {
 		MptSerialization.InteriorNode.Builder builder = MptSerialization.InteriorNode.newBuilder();
 		serialization.generated.MptSerialization.Node leftChildSerialized = this.leftChild.serialize();
@@ -61,50 +73,58 @@ public class InteriorNode implements Node {
 
 	@Override
 	public byte[] getHash() {
+		return this.getHashNoCopy().clone();
+	}
+	
+	@Override
+	public byte[] getHashNoCopy() {
 		// if the hash must be recalculated.
 		if(this.recalculateHash) {
-			byte[] leftChildHash = this.leftChild.getHash();
-			byte[] rightChildHash = this.rightChild.getHash();
-			// commitment: H(leftChildHash || rightChildHash)
-			byte[] commitment = new byte[leftChildHash.length+rightChildHash.length];
-			System.arraycopy(leftChildHash, 0, commitment, 0, leftChildHash.length);
-			System.arraycopy(rightChildHash, 0, commitment, leftChildHash.length, rightChildHash.length);
-			this.hash = CryptographicDigest.hash(commitment);
-			this.recalculateHash = false;
+			byte[] leftChildHash = this.leftChild.getHashNoCopy();
+			byte[] rightChildHash = this.rightChild.getHashNoCopy();
+			this.setHash(leftChildHash, rightChildHash);
 		}
-		return this.hash.clone();
+		return this.hash;
 	}
 	
-	public byte[] getHashParallel(ExecutorService executor) {
-		// if  the hash must be recalculated.
+	private void setHash(byte[] leftChildHash, byte[] rightChildHash) {
+		// the hash buffer is allocated once and then 
+		// overwritten each time the hash is recalculated
+		if(this.hash == null) {
+			this.hash = new byte[CryptographicDigest.getSizeBytes()];
+		}
+		// commitment: H(leftChildHash || rightChildHash)
+		CryptographicDigest.hashInto(leftChildHash, rightChildHash, this.hash, 0);
+		this.recalculateHash = false;
+	}
+	
+	/**
+	 * Calculate the hash of this node, rehashing the changed 
+	 * subtrees in parallel on the provided fork/join pool.
+	 * @param pool
+	 * @return
+	 */
+	public byte[] getHashParallel(ForkJoinPool pool) {
+		return this.getHashParallel(pool, this.countHashesRequiredForGetHash());
+	}
+	
+	/**
+	 * Same as getHashParallel(pool) for callers that already 
+	 * know countHashesRequiredForGetHash()
+	 * @param pool
+	 * @param hashesRequired
+	 * @return
+	 */
+	public byte[] getHashParallel(ForkJoinPool pool, int hashesRequired) {
 		if(this.recalculateHash) {
-			Callable<byte[]> leftTask = () -> {
-				return this.leftChild.getHash();
-			};			
-			Callable<byte[]> rightTask = () -> {
-				return this.rightChild.getHash();
-			};
-			Future<byte[]> leftTaskRes = executor.submit(leftTask);
-			Future<byte[]> rightTaskRes = executor.submit(rightTask);
-			
-			byte[] leftChildHash;
-			byte[] rightChildHash;
-			try {
-				rightChildHash = rightTaskRes.get();
-				leftChildHash = leftTaskRes.get();
-			} catch (InterruptedException | ExecutionException e) {
-				e.printStackTrace();
-				throw new RuntimeException(e.getMessage());
-			}
-			
-			// commitment: H(leftChildHash || rightChildHash)
-			byte[] commitment = new byte[leftChildHash.length+rightChildHash.length];
-			System.arraycopy(leftChildHash, 0, commitment, 0, leftChildHash.length);
-			System.arraycopy(rightChildHash, 0, commitment, leftChildHash.length, rightChildHash.length);
-			this.hash = CryptographicDigest.hash(commitment);
-			this.recalculateHash = false;
+			pool.invoke(new HashTask(this, hashesRequired));
 		}
-		return this.hash.clone();	
+		return this.getHash();
+	}
+	
+	@Override
+	public boolean requiresHashRecalculation() {
+		return this.recalculateHash;
 	}
 
 	@Override
@@ -159,6 +179,10 @@ public class InteriorNode implements Node {
 			boolean rightEquals = this.rightChild.equals(in.rightChild);
 			return leftEquals && rightEquals;
 		}
+		// the same MPT can be stored compressed
+		if (arg0 instanceof CompressedInteriorNode) {
+			return arg0.equals(this);
+		}
 		return false;
 	}
 
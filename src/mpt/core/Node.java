@@ -33,12 +33,30 @@ public interface Node {
 	 */
 	byte[] getHash();
 	
+	/**
+	 * Get the hash of this node WITHOUT copying it. The 
+	 * returned array is owned by the node and MUST NOT 
+	 * be modified (or retained, since it may be overwritten 
+	 * when the hash is recalculated). Used internally 
+	 * to calculate hashes without allocating.
+	 * @return
+	 */
+	byte[] getHashNoCopy();
+	
 	/**
 	 * Count the number of hashes required to calculate 
 	 * getHash()
 	 * @return
 	 */
 	int countHashesRequiredForGetHash();
+	
+	/**
+	 * Returns true if the hash of this node is out of date 
+	 * and must be recalculated by getHash() (this does not 
+	 * look at the children)
+	 * @return
+	 */
+	boolean requiresHashRecalculation();
 
 	/**
 	 * Get the key stored at this node, if it exists. This is only 
@@ -42,6 +42,11 @@ public class SetLeafNode implements Node{
 	public byte[] getHash() {
 		return this.value.clone();
 	}
+	
+	@Override
+	public byte[] getHashNoCopy() {
+		return this.value;
+	}
 
 	@Override
 	public byte[] getKey() {
@@ -130,6 +135,11 @@ public class SetLeafNode implements Node{
 		return 0;
 	}
 	
+	@Override
+	public boolean requiresHashRecalculation() {
+		return false;
+	}
+
 	@Override
 	public int nodesInSubtree() {
 		return 1;
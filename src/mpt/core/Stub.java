@@ -26,6 +26,11 @@ public class Stub implements Node {
 		return this.hash.clone();
 	}
 	
+	@Override
+	public byte[] getHashNoCopy() {
+		return this.hash;
+	}
+	
 	public static Stub deserialize(byte[] raw) {
 		return null;
 	}
@@ -124,7 +129,13 @@ public class Stub implements Node {
 
 	@Override
 	public int countHashesRequiredForGetHash() {
-		throw new RuntimeException("cannot count hashes for stubs");
+		// the hash of a stub is never recalculated
+		return 0;
+	}
+
+	@Override
+	public boolean requiresHashRecalculation() {
+		return false;
 	}
 
 	@Override
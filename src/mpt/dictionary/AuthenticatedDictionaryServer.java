@@ -1,6 +1,8 @@
 package mpt.dictionary;
 
-import java.util.concurrent.ExecutorService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import serialization.generated.MptSerialization;
 
@@ -55,6 +57,19 @@ public interface AuthenticatedDictionaryServer {
 	 * (e.g. the hash of some other string)
 	 */
 	public void insert(final byte[] key, final byte[] value);
+	
+	/**
+	 * Insert a batch of (key, value) mappings into the dictionary.
+	 * The result (including which nodes are recorded as changed) 
+	 * is exactly the same as calling insert(key, value) on each 
+	 * mapping in order, but implementations can apply the batch 
+	 * more efficiently, e.g. by sorting it and visiting shared 
+	 * path prefixes only once.
+	 * 
+	 * @param kvpairs - the (key, value) mappings to insert. If a key 
+	 * appears more than once, the last value is the one stored.
+	 */
+	public void insertAll(final List<Map.Entry<byte[], byte[]>> kvpairs);
 		
 	/**
 	 * Get the value mapped to by key or null if the 
@@ -90,13 +105,14 @@ public interface AuthenticatedDictionaryServer {
 	
 	/**
 	 * Calculates the commitment in parallel using the provided
-	 * worker threads. It only makes sense to parallelize calculation
-	 * for large dictionaries, otherwise the overhead of coordinating 
-	 * the threads will out-weight the benefits.
+	 * fork/join pool. Only subtrees that have changed are split 
+	 * across the workers and small subtrees are hashed sequentially, 
+	 * since for those the overhead of coordinating the threads 
+	 * would out-weight the benefits.
 	 * @param workers
 	 * @return
 	 */
-	public byte[] commitmentParallelized(ExecutorService workers);
+	public byte[] commitmentParallelized(ForkJoinPool workers);
 	
 	
 	/**
@@ -0,0 +1,84 @@
+package mpt.dictionary;
+
+/**
+ * The result of committing the changes to a MPT
+ * (see MPTDictionaryFull.commit): the commitment, the
+ * delta of the changes and statistics about the commit.
+ *
+ * @author henryaspegren
+ *
+ */
+public class CommitResult {
+
+	private final byte[] commitment;
+	private final MPTDictionaryDelta delta;
+	private final int totalNodes;
+	private final int hashesCalculated;
+	private final int changedNodes;
+	private final int stubs;
+
+	CommitResult(byte[] commitment, MPTDictionaryDelta delta, int totalNodes,
+			int hashesCalculated, int changedNodes, int stubs) {
+		this.commitment = commitment;
+		this.delta = delta;
+		this.totalNodes = totalNodes;
+		this.hashesCalculated = hashesCalculated;
+		this.changedNodes = changedNodes;
+		this.stubs = stubs;
+	}
+
+	/**
+	 * The commitment (the hash of the root)
+	 * @return
+	 */
+	public byte[] getCommitment() {
+		return this.commitment.clone();
+	}
+
+	/**
+	 * The changes since the previous commit
+	 * @return
+	 */
+	public MPTDictionaryDelta getDelta() {
+		return this.delta;
+	}
+
+	/**
+	 * The total number of nodes in the MPT
+	 * @return
+	 */
+	public int getTotalNodes() {
+		return this.totalNodes;
+	}
+
+	/**
+	 * The number of hashes calculated by the commit
+	 * @return
+	 */
+	public int getHashesCalculated() {
+		return this.hashesCalculated;
+	}
+
+	/**
+	 * The number of changed nodes (the nodes in the delta that are not stubs)
+	 * @return
+	 */
+	public int getChangedNodes() {
+		return this.changedNodes;
+	}
+
+	/**
+	 * The number of stubs in the delta
+	 * @return
+	 */
+	public int getStubs() {
+		return this.stubs;
+	}
+
+	@Override
+	public String toString() {
+		return "<CommitResult [total nodes: " + this.totalNodes + " | hashes calculated: " + this.hashesCalculated
+				+ " | changed nodes: " + this.changedNodes + " | stubs: " + this.stubs + "]>";
+	}
+
+}
@@ -0,0 +1,234 @@
+package mpt.dictionary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The deltas of a MPT, one for each epoch (commitment), in order.
+ *
+ * Either all of the deltas are kept on the heap, or they are spilled
+ * to append-only segment files in a directory and only the most recent
+ * epochs are also kept on the heap. Segments are memory mapped
+ * (FileChannel.map) and older deltas are read directly from the
+ * mapped segments without copying them (see MPTDictionaryDelta.readFrom).
+ * An index maps each epoch to the segment and the offset of its delta.
+ *
+ * The history is not recovered from the segment files - existing
+ * segment files in the directory are overwritten.
+ *
+ * Deltas are added by a single writer and can be read concurrently
+ * without locking (for epochs that have been added and safely published).
+ *
+ * @author henryaspegren
+ *
+ */
+public class DeltaHistory {
+
+	public static final long DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Path directory;
+	private final int epochsOnHeap;
+	private final long segmentBytes;
+
+	// all of the deltas if they are kept on the heap
+	private volatile MPTDictionaryDelta[] deltas;
+	// the most recent deltas if they are spilled to segments,
+	// the delta for an epoch is at epoch % epochsOnHeap
+	private final AtomicReferenceArray<Epoch> recent;
+
+	// the segment and offset of the delta for each epoch.
+	// The arrays are grown by copying them so a reader
+	// holding an older copy can still read the offsets in it
+	private volatile int[] segmentOfEpoch;
+	private volatile int[] offsetOfEpoch;
+	private final List<MappedByteBuffer> segments;
+	private MappedByteBuffer currentSegment;
+	private int currentSegmentPosition;
+
+	private volatile int size;
+
+	private static class Epoch {
+		final int epoch;
+		final MPTDictionaryDelta delta;
+
+		Epoch(int epoch, MPTDictionaryDelta delta) {
+			this.epoch = epoch;
+			this.delta = delta;
+		}
+	}
+
+	/**
+	 * Create a history that keeps all of the deltas on the heap
+	 */
+	public DeltaHistory() {
+		this.directory = null;
+		this.epochsOnHeap = Integer.MAX_VALUE;
+		this.segmentBytes = 0;
+		this.deltas = new MPTDictionaryDelta[INITIAL_CAPACITY];
+		this.recent = null;
+		this.segments = null;
+		this.size = 0;
+	}
+
+	/**
+	 * Create a history that spills the deltas to segment files
+	 * @param directory - the directory for the segment files
+	 * @param epochsOnHeap - the number of recent epochs to also keep on the heap
+	 */
+	public DeltaHistory(Path directory, int epochsOnHeap) {
+		this(directory, epochsOnHeap, DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * Create a history that spills the deltas to segment files
+	 * @param directory - the directory for the segment files
+	 * @param epochsOnHeap - the number of recent epochs to also keep on the heap
+	 * @param segmentBytes - the size of each segment file (larger
+	 * deltas get a segment of their own)
+	 */
+	public DeltaHistory(Path directory, int epochsOnHeap, long segmentBytes) {
+		if (epochsOnHeap < 1 || segmentBytes < 1 || segmentBytes > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("invalid delta history configuration");
+		}
+		this.directory = directory;
+		this.epochsOnHeap = epochsOnHeap;
+		this.segmentBytes = segmentBytes;
+		this.deltas = null;
+		this.recent = new AtomicReferenceArray<>(epochsOnHeap);
+		this.segmentOfEpoch = new int[INITIAL_CAPACITY];
+		this.offsetOfEpoch = new int[INITIAL_CAPACITY];
+		this.segments = new CopyOnWriteArrayList<>();
+		this.currentSegment = null;
+		this.currentSegmentPosition = 0;
+		this.size = 0;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Add the delta for the next epoch. Only called by the writer.
+	 * @param delta
+	 */
+	public void add(MPTDictionaryDelta delta) {
+		int epoch = this.size;
+		if (this.directory == null) {
+			MPTDictionaryDelta[] current = this.deltas;
+			if (epoch == current.length) {
+				current = Arrays.copyOf(current, 2 * epoch);
+			}
+			current[epoch] = delta;
+			this.deltas = current;
+			this.size++;
+			return;
+		}
+		int bytes = delta.getEncodedSizeInBytes();
+		if (this.currentSegment == null || this.currentSegmentPosition + bytes > this.currentSegment.capacity()) {
+			this.currentSegment = this.newSegment(Math.max(this.segmentBytes, bytes));
+			this.segments.add(this.currentSegment);
+			this.currentSegmentPosition = 0;
+		}
+		ByteBuffer out = this.currentSegment.duplicate();
+		out.position(this.currentSegmentPosition);
+		delta.writeTo(out);
+		int[] segmentOfEpoch = this.segmentOfEpoch;
+		int[] offsetOfEpoch = this.offsetOfEpoch;
+		if (epoch == segmentOfEpoch.length) {
+			segmentOfEpoch = Arrays.copyOf(segmentOfEpoch, 2 * epoch);
+			offsetOfEpoch = Arrays.copyOf(offsetOfEpoch, 2 * epoch);
+		}
+		segmentOfEpoch[epoch] = this.segments.size() - 1;
+		offsetOfEpoch[epoch] = this.currentSegmentPosition;
+		this.offsetOfEpoch = offsetOfEpoch;
+		this.segmentOfEpoch = segmentOfEpoch;
+		this.currentSegmentPosition += bytes;
+		this.recent.set(epoch % this.epochsOnHeap, new Epoch(epoch, delta));
+		this.size++;
+	}
+
+	private MappedByteBuffer newSegment(long bytes) {
+		Path file = this.directory.resolve(String.format("segment-%06d.deltas", this.segments.size()));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			// the mapping stays valid after the channel is closed
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Returns the delta for an epoch. Recent epochs are on the heap,
+	 * older ones are read from the mapped segments. Safe for concurrent calls.
+	 * @param epoch
+	 * @return
+	 */
+	public MPTDictionaryDelta get(int epoch) {
+		if (epoch < 0 || epoch >= this.size) {
+			throw new IndexOutOfBoundsException("no delta for epoch " + epoch);
+		}
+		if (this.directory == null) {
+			return this.deltas[epoch];
+		}
+		Epoch recent = this.recent.get(epoch % this.epochsOnHeap);
+		if (recent != null && recent.epoch == epoch) {
+			return recent.delta;
+		}
+		int offset = this.offsetOfEpoch[epoch];
+		ByteBuffer segment = this.segments.get(this.segmentOfEpoch[epoch]).duplicate();
+		segment.position(offset);
+		return MPTDictionaryDelta.readFrom(segment);
+	}
+
+	/**
+	 * The number of epochs
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * The number of segment files
+	 * @return
+	 */
+	public int countSegments() {
+		return this.segments == null ? 0 : this.segments.size();
+	}
+
+	/**
+	 * The (approximate) memory used on the heap by the deltas.
+	 * @return
+	 */
+	public long getSizeInBytesOnHeap() {
+		long bytes = 0;
+		if (this.directory == null) {
+			MPTDictionaryDelta[] current = this.deltas;
+			for (int i = 0; i < this.size; i++) {
+				bytes += current[i].getSizeInBytes();
+			}
+			return bytes;
+		}
+		for (int i = 0; i < this.recent.length(); i++) {
+			Epoch recent = this.recent.get(i);
+			if (recent != null) {
+				bytes += recent.delta.getSizeInBytes();
+			}
+		}
+		return bytes;
+	}
+
+}
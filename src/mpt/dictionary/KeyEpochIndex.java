@@ -0,0 +1,112 @@
+package mpt.dictionary;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index from each key to the epochs (the positions of the deltas
+ * in the history of a MPT) in which the leaf of the key changed. In all
+ * other epochs only interior nodes on the path of the key changed, so
+ * proofs can use MPTDictionaryDelta.getPathUpdates(key), which only
+ * walks that path and is the same for all keys under the first unchanged 
+ * node (so it can be cached once for all of them), and only calculate 
+ * the full updates for the epochs in the index.
+ *
+ * Epochs are added in order by a single writer and can
+ * be read concurrently without locking.
+ *
+ * @author henryaspegren
+ *
+ */
+public class KeyEpochIndex {
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	private final Map<ByteBuffer, Epochs> keyToEpochs;
+	private int lastEpoch;
+
+	// append only. The array is grown by copying it so a reader
+	// holding an older copy can still read the epochs in it
+	private static class Epochs {
+		volatile int[] epochs = new int[INITIAL_CAPACITY];
+		volatile int size = 0;
+
+		void add(int epoch) {
+			int[] current = this.epochs;
+			if (this.size == current.length) {
+				current = Arrays.copyOf(current, 2 * this.size);
+			}
+			current[this.size] = epoch;
+			this.epochs = current;
+			this.size++;
+		}
+	}
+
+	public KeyEpochIndex() {
+		this.keyToEpochs = new ConcurrentHashMap<>();
+		this.lastEpoch = -1;
+	}
+
+	/**
+	 * Index the keys that changed in the delta for the next
+	 * epoch. Only called by the writer.
+	 * @param epoch - the epoch of the delta, must be greater
+	 * than any previously added epoch
+	 * @param delta
+	 */
+	public void add(int epoch, MPTDictionaryDelta delta) {
+		if (epoch <= this.lastEpoch) {
+			throw new RuntimeException("epoch "+epoch+" already indexed");
+		}
+		for (byte[] key : delta.getChangedKeys()) {
+			this.keyToEpochs.computeIfAbsent(ByteBuffer.wrap(key), k -> new Epochs()).add(epoch);
+		}
+		this.lastEpoch = epoch;
+	}
+
+	/**
+	 * Returns the epochs in [from, to] in which the leaf of the
+	 * key changed, in order. Safe for concurrent calls.
+	 * @param key
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public int[] getEpochs(byte[] key, int from, int to) {
+		Epochs epochs = this.keyToEpochs.get(ByteBuffer.wrap(key));
+		if (epochs == null) {
+			return new int[0];
+		}
+		// read the size first, the array is at least as new
+		int size = epochs.size;
+		int[] current = epochs.epochs;
+		int start = KeyEpochIndex.firstAtLeast(current, size, from);
+		int end = KeyEpochIndex.firstAtLeast(current, size, to + 1);
+		return Arrays.copyOfRange(current, start, Math.max(start, end));
+	}
+
+	private static int firstAtLeast(int[] epochs, int size, int epoch) {
+		int lo = 0;
+		int hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (epochs[mid] < epoch) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * The number of keys in the index
+	 * @return
+	 */
+	public int size() {
+		return this.keyToEpochs.size();
+	}
+
+}
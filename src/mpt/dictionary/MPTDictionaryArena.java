@@ -0,0 +1,656 @@
+package mpt.dictionary;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import crpyto.CryptographicDigest;
+import mpt.core.InvalidSerializationException;
+import mpt.core.Utils;
+import serialization.generated.MptSerialization;
+
+/**
+ * An array-backed Merkle Prefix Trie (MPT). This stores exactly
+ * the same mappings and produces exactly the same commitments
+ * and serializations as MPTDictionaryFull but does not
+ * allocate an object per node.
+ *
+ * Instead nodes live in an "arena" of primitive arrays and are
+ * referred to by their (int) index:
+ *
+ * 		type[i]				- EMPTY, LEAF or INTERIOR
+ * 		flags[i]			- changed / hash must be recalculated
+ * 		left[i], right[i]	- children of an interior node. For a leaf
+ * 							  left[i] is the slot holding its key and value
+ * 		hashes[4i..4i+3]	- the 32 byte hash packed into 4 longs
+ *
+ * Keys and values of leaves are stored together (key||value)
+ * in a single byte array, one 64 byte slot per leaf. Removed
+ * nodes and slots are put on a free list and are reused by
+ * later insertions.
+ *
+ * This class is NOT thread safe.
+ *
+ */
+public class MPTDictionaryArena implements AuthenticatedDictionaryServer {
+
+	private static final Logger LOGGER = Logger.getLogger(MPTDictionaryArena.class.getName());
+
+	private static final int HASH_BYTES = CryptographicDigest.getSizeBytes();
+	private static final int HASH_LONGS = HASH_BYTES / Long.BYTES;
+	private static final int SLOT_BYTES = 2 * HASH_BYTES;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int NONE = -1;
+	private static final int INITIAL_PATH_LENGTH = 32;
+
+	// node types
+	private static final byte EMPTY = 0;
+	private static final byte LEAF = 1;
+	private static final byte INTERIOR = 2;
+
+	// node flags
+	private static final byte CHANGED = 1;
+	private static final byte RECALCULATE_HASH = 2;
+
+	// the nodes
+	private byte[] type;
+	private byte[] flags;
+	private int[] left;
+	private int[] right;
+	private long[] hashes;
+	// nodes [0, nodesAllocated) have been handed out at
+	// least once, free nodes are linked through left[]
+	private int nodesAllocated;
+	private int freeNode;
+	// nodes currently in the MPT (allocated and not freed)
+	private int liveNodes;
+
+	// key || value of the leaves
+	private byte[] slots;
+	private int slotsAllocated;
+	private int[] freeSlots;
+	private int freeSlotsCount;
+
+	// we require that the root is always an interior node
+	private int root;
+	private int size;
+
+	// scratch space for hashing
+	private final byte[] scratch;
+
+	/**
+	 * Create an empty array-backed Merkle Prefix Trie
+	 */
+	public MPTDictionaryArena() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Create an empty array-backed Merkle Prefix Trie with
+	 * space pre-allocated for the given number of nodes. The
+	 * arena grows as needed.
+	 * @param initialCapacity - number of nodes to pre-allocate
+	 */
+	public MPTDictionaryArena(int initialCapacity) {
+		int capacity = Math.max(initialCapacity, 3);
+		this.type = new byte[capacity];
+		this.flags = new byte[capacity];
+		this.left = new int[capacity];
+		this.right = new int[capacity];
+		this.hashes = new long[capacity * HASH_LONGS];
+		this.nodesAllocated = 0;
+		this.liveNodes = 0;
+		this.freeNode = NONE;
+		int slotCapacity = Math.max(capacity / 2, 1);
+		this.slots = new byte[slotCapacity * SLOT_BYTES];
+		this.slotsAllocated = 0;
+		this.freeSlots = new int[slotCapacity];
+		this.freeSlotsCount = 0;
+		this.scratch = new byte[SLOT_BYTES];
+		this.root = this.allocateInterior(this.allocateEmpty(), this.allocateEmpty());
+		this.size = 0;
+	}
+
+	@Override
+	public void insert(final byte[] key, final byte[] value) {
+		assert key.length == HASH_BYTES;
+		assert value.length == HASH_BYTES;
+		LOGGER.log(Level.FINE,
+				"insert(" + Utils.byteArrayAsHexString(key) + ") = " + Utils.byteArrayAsHexString(value));
+		int currentNode = this.root;
+		int currentBitIndex = -1;
+		while (true) {
+			// the current node is always an interior node on the path
+			// and it will be changed
+			this.flags[currentNode] = CHANGED | RECALCULATE_HASH;
+			boolean bit = Utils.getBit(key, currentBitIndex + 1);
+			int child = bit ? this.right[currentNode] : this.left[currentNode];
+			if (this.type[child] == INTERIOR) {
+				currentNode = child;
+				currentBitIndex++;
+				continue;
+			}
+			int newChild = this.insertAtLeaf(key, value, currentBitIndex + 1, child);
+			if (bit) {
+				this.right[currentNode] = newChild;
+			} else {
+				this.left[currentNode] = newChild;
+			}
+			return;
+		}
+	}
+
+	/**
+	 * Inserts the batch in key order. Consecutive keys share 
+	 * most of their path, so this keeps the traversal in the 
+	 * part of the arena that was just visited.
+	 */
+	@Override
+	public void insertAll(final List<Map.Entry<byte[], byte[]>> kvpairs) {
+		for (Map.Entry<byte[], byte[]> kvpair : MPTDictionaryFull.sortByKey(kvpairs)) {
+			this.insert(kvpair.getKey(), kvpair.getValue());
+		}
+	}
+
+	/**
+	 * Insert the mapping at the (possibly empty) leaf,
+	 * returning the node that should replace it.
+	 */
+	private int insertAtLeaf(final byte[] key, final byte[] value, final int currentBitIndex, final int leaf) {
+		if (this.type[leaf] == EMPTY) {
+			// if the current leaf is empty, just replace it
+			this.freeNode(leaf);
+			this.size++;
+			return this.allocateLeaf(key, value);
+		}
+		int slot = this.left[leaf];
+		// this key is already in the tree, update existing mapping
+		if (this.keyEquals(slot, key)) {
+			int valueOffset = slot * SLOT_BYTES + HASH_BYTES;
+			if (!Arrays.equals(this.slots, valueOffset, valueOffset + HASH_BYTES, value, 0, HASH_BYTES)) {
+				System.arraycopy(value, 0, this.slots, valueOffset, HASH_BYTES);
+				this.flags[leaf] = CHANGED | RECALCULATE_HASH;
+			}
+			return leaf;
+		}
+		// otherwise we need to "split" - the existing leaf is
+		// marked as changed since it moves in the MPT
+		this.flags[leaf] |= CHANGED;
+		this.size++;
+		return this.split(leaf, this.allocateLeaf(key, value), key, currentBitIndex);
+	}
+
+	private int split(final int existing, final int added, final byte[] addedKey, final int currentBitIndex) {
+		int existingOffset = this.left[existing] * SLOT_BYTES;
+		// find the first bit (below the current location) where the keys differ
+		int bitIndex = currentBitIndex + 1;
+		while (this.getSlotBit(existingOffset, bitIndex) == Utils.getBit(addedKey, bitIndex)) {
+			bitIndex++;
+		}
+		boolean addedBit = Utils.getBit(addedKey, bitIndex);
+		int node = addedBit ? this.allocateInterior(existing, added) : this.allocateInterior(added, existing);
+		// and then build the path of shared bits back up
+		for (int i = bitIndex - 1; i > currentBitIndex; i--) {
+			if (Utils.getBit(addedKey, i)) {
+				node = this.allocateInterior(this.allocateEmpty(), node);
+			} else {
+				node = this.allocateInterior(node, this.allocateEmpty());
+			}
+		}
+		return node;
+	}
+
+	@Override
+	public byte[] get(final byte[] key) {
+		assert key.length == HASH_BYTES;
+		int currentNode = this.root;
+		int currentBitIndex = -1;
+		while (this.type[currentNode] == INTERIOR) {
+			boolean bit = Utils.getBit(key, currentBitIndex + 1);
+			currentNode = bit ? this.right[currentNode] : this.left[currentNode];
+			currentBitIndex++;
+		}
+		if (this.type[currentNode] == LEAF) {
+			int slot = this.left[currentNode];
+			if (this.keyEquals(slot, key)) {
+				int valueOffset = slot * SLOT_BYTES + HASH_BYTES;
+				return Arrays.copyOfRange(this.slots, valueOffset, valueOffset + HASH_BYTES);
+			}
+		}
+		// otherwise key not in the MPT - return null;
+		return null;
+	}
+
+	@Override
+	public void delete(final byte[] key) {
+		assert key.length == HASH_BYTES;
+		LOGGER.log(Level.FINE, "delete(" + Utils.byteArrayAsHexString(key) + ")");
+		this.deleteHelper(key);
+	}
+
+	/**
+	 * Mirrors MPTDictionaryFull.deleteHelper exactly, so that
+	 * the same nodes are collapsed and marked as changed. Nodes
+	 * that are removed from the tree are returned to the free list.
+	 * 
+	 * The path to the key is walked down and kept on a stack, then 
+	 * walked back up while the interior nodes above the deleted 
+	 * leaf collapse.
+	 */
+	private void deleteHelper(final byte[] key) {
+		int[] path = new int[INITIAL_PATH_LENGTH];
+		int pathLength = 0;
+		int currentNode = this.root;
+		while (this.type[currentNode] == INTERIOR) {
+			if (pathLength == path.length) {
+				path = Arrays.copyOf(path, 2 * path.length);
+			}
+			path[pathLength] = currentNode;
+			// the node at depth d branches on bit d
+			currentNode = Utils.getBit(key, pathLength) ? this.right[currentNode] : this.left[currentNode];
+			pathLength++;
+		}
+		if (this.type[currentNode] == LEAF && this.keyEquals(this.left[currentNode], key)) {
+			// the leaf becomes an empty leaf
+			this.freeSlot(this.left[currentNode]);
+			this.type[currentNode] = EMPTY;
+			this.flags[currentNode] = CHANGED;
+			this.clearHash(currentNode);
+			this.size--;
+		}
+		// the node that replaces the child of the parent
+		int newChild = currentNode;
+		while (pathLength > 0) {
+			int parent = path[--pathLength];
+			boolean isRoot = pathLength == 0;
+			boolean bit = Utils.getBit(key, pathLength);
+			int sibling = bit ? this.left[parent] : this.right[parent];
+			// if the sibling is empty and the new child is a leaf
+			// we push the new child back up the MPT
+			if (this.type[sibling] == EMPTY && this.type[newChild] != INTERIOR && !isRoot) {
+				this.freeNode(sibling);
+				this.freeNode(parent);
+				continue;
+			}
+			// if the new child is empty and the sibling is a leaf
+			// we push the sibling back up the MPT
+			if (this.type[newChild] == EMPTY && this.type[sibling] != INTERIOR && !isRoot) {
+				this.flags[sibling] |= CHANGED;
+				this.freeNode(newChild);
+				this.freeNode(parent);
+				newChild = sibling;
+				continue;
+			}
+			if (bit) {
+				this.right[parent] = newChild;
+			} else {
+				this.left[parent] = newChild;
+			}
+			this.flags[parent] = CHANGED | RECALCULATE_HASH;
+			newChild = parent;
+		}
+	}
+
+	@Override
+	public byte[] commitment() {
+		this.calculateHash(this.root, this.scratch);
+		return this.getHash(this.root);
+	}
+
+	@Override
+	public byte[] commitmentParallelized(ForkJoinPool workers) {
+		if ((this.flags[this.root] & RECALCULATE_HASH) != 0) {
+			workers.invoke(new HashTask(this.root, this.countHashesRequired(this.root)));
+		}
+		return this.getHash(this.root);
+	}
+
+	/**
+	 * Rehashes the subtree rooted at an interior node, splitting
+	 * the work only where both children must be rehashed. Subtrees
+	 * are disjoint so they can be hashed concurrently as long as
+	 * each task uses its own buffer.
+	 */
+	private class HashTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+		private static final int SEQUENTIAL_CUTOFF = 512;
+
+		private final int node;
+		private final int estimatedHashes;
+
+		private HashTask(int node, int estimatedHashes) {
+			this.node = node;
+			this.estimatedHashes = estimatedHashes;
+		}
+
+		@Override
+		protected void compute() {
+			byte[] buffer = new byte[SLOT_BYTES];
+			if (this.estimatedHashes > SEQUENTIAL_CUTOFF) {
+				int leftChild = MPTDictionaryArena.this.left[this.node];
+				int rightChild = MPTDictionaryArena.this.right[this.node];
+				boolean leftDirty = MPTDictionaryArena.this.isInteriorRequiringHash(leftChild);
+				boolean rightDirty = MPTDictionaryArena.this.isInteriorRequiringHash(rightChild);
+				if (leftDirty && rightDirty) {
+					int half = (this.estimatedHashes - 1) / 2;
+					RecursiveAction.invokeAll(new HashTask(leftChild, half), new HashTask(rightChild, half));
+				} else if (leftDirty) {
+					new HashTask(leftChild, this.estimatedHashes - 1).compute();
+				} else if (rightDirty) {
+					new HashTask(rightChild, this.estimatedHashes - 1).compute();
+				}
+			}
+			MPTDictionaryArena.this.calculateHash(this.node, buffer);
+		}
+	}
+
+	private boolean isInteriorRequiringHash(int node) {
+		return this.type[node] == INTERIOR && (this.flags[node] & RECALCULATE_HASH) != 0;
+	}
+
+	private int countHashesRequired(int node) {
+		if ((this.flags[node] & RECALCULATE_HASH) == 0) {
+			return 0;
+		}
+		if (this.type[node] == LEAF) {
+			return 1;
+		}
+		return 1 + this.countHashesRequired(this.left[node]) + this.countHashesRequired(this.right[node]);
+	}
+
+	private void calculateHash(final int node, final byte[] buffer) {
+		if ((this.flags[node] & RECALCULATE_HASH) == 0) {
+			return;
+		}
+		if (this.type[node] == LEAF) {
+			// witness: H(key||value)
+			CryptographicDigest.hashInto(this.slots, this.left[node] * SLOT_BYTES, SLOT_BYTES, buffer, 0);
+		} else {
+			// commitment: H(leftChildHash || rightChildHash)
+			this.calculateHash(this.left[node], buffer);
+			this.calculateHash(this.right[node], buffer);
+			this.unpackHash(this.left[node], buffer, 0);
+			this.unpackHash(this.right[node], buffer, HASH_BYTES);
+			CryptographicDigest.hashInto(buffer, 0, SLOT_BYTES, buffer, 0);
+		}
+		this.packHash(node, buffer, 0);
+		this.flags[node] &= ~RECALCULATE_HASH;
+	}
+
+	@Override
+	public void reset() {
+		this.markUnchangedAll(this.root);
+	}
+
+	private void markUnchangedAll(final int node) {
+		if (this.type[node] == INTERIOR) {
+			if ((this.flags[this.left[node]] & CHANGED) != 0) {
+				this.markUnchangedAll(this.left[node]);
+			}
+			if ((this.flags[this.right[node]] & CHANGED) != 0) {
+				this.markUnchangedAll(this.right[node]);
+			}
+		}
+		this.flags[node] &= ~CHANGED;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the total number of nodes of any kind
+	 * currently in the MPT
+	 * @return
+	 */
+	public int countNodes() {
+		return this.liveNodes;
+	}
+
+	/**
+	 * Returns the number of bytes of the arrays backing
+	 * this MPT (this includes pre-allocated space)
+	 * @return
+	 */
+	public long arenaSizeInBytes() {
+		return (long) this.type.length + this.flags.length +
+				(long) Integer.BYTES * (this.left.length + this.right.length + this.freeSlots.length) +
+				(long) Long.BYTES * this.hashes.length + this.slots.length;
+	}
+
+	@Override
+	public MptSerialization.MerklePrefixTrie serialize() {
+		MptSerialization.Node rootSerialization = this.serializeNode(this.root);
+		MptSerialization.MerklePrefixTrie.Builder builder = MptSerialization.MerklePrefixTrie.newBuilder();
+		builder.setRoot(rootSerialization);
+		return builder.build();
+	}
+
+	private MptSerialization.Node serializeNode(final int node) {
+		switch (this.type[node]) {
+		case INTERIOR:
+			return MptSerialization.Node.newBuilder()
+					.setInteriorNode(MptSerialization.InteriorNode.newBuilder()
+							.setLeft(this.serializeNode(this.left[node]))
+							.setRight(this.serializeNode(this.right[node])))
+					.build();
+		case LEAF:
+			int offset = this.left[node] * SLOT_BYTES;
+			return MptSerialization.Node.newBuilder()
+					.setLeaf(MptSerialization.Leaf.newBuilder()
+							.setKey(ByteString.copyFrom(this.slots, offset, HASH_BYTES))
+							.setValue(ByteString.copyFrom(this.slots, offset + HASH_BYTES, HASH_BYTES)))
+					.build();
+		default:
+			return MptSerialization.Node.newBuilder()
+					.setEmptyleaf(MptSerialization.EmptyLeaf.newBuilder())
+					.build();
+		}
+	}
+
+	/**
+	 * Deserialize an array-backed MPT from bytes
+	 * @param asbytes
+	 * @return
+	 * @throws InvalidSerializationException - if the serialization cannot be decoded
+	 */
+	public static MPTDictionaryArena deserialize(byte[] asbytes) throws InvalidSerializationException {
+		try {
+			MptSerialization.MerklePrefixTrie mpt = MptSerialization.MerklePrefixTrie.parseFrom(asbytes);
+			return MPTDictionaryArena.deserialize(mpt);
+		} catch (InvalidProtocolBufferException e) {
+			throw new InvalidSerializationException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Deserialize an array-backed MPT from a protobuf encoding
+	 * (the same encoding used by MPTDictionaryFull)
+	 * @param mpt - a protobuf mpt encoding
+	 * @return
+	 * @throws InvalidSerializationException - if it cannot be parsed
+	 */
+	public static MPTDictionaryArena deserialize(MptSerialization.MerklePrefixTrie mpt)
+			throws InvalidSerializationException {
+		if (!mpt.hasRoot()) {
+			throw new InvalidSerializationException("no root included");
+		}
+		if (mpt.getRoot().getNodeCase() != MptSerialization.Node.NodeCase.INTERIOR_NODE) {
+			throw new InvalidSerializationException("root is not an interior node!");
+		}
+		MPTDictionaryArena arena = new MPTDictionaryArena();
+		arena.freeNode(arena.left[arena.root]);
+		arena.freeNode(arena.right[arena.root]);
+		arena.freeNode(arena.root);
+		arena.root = arena.parseNode(mpt.getRoot());
+		return arena;
+	}
+
+	private int parseNode(MptSerialization.Node nodeSerialization) throws InvalidSerializationException {
+		switch (nodeSerialization.getNodeCase()) {
+		case INTERIOR_NODE:
+			MptSerialization.InteriorNode in = nodeSerialization.getInteriorNode();
+			if (!in.hasLeft() || !in.hasRight()) {
+				throw new InvalidSerializationException("interior node does not have both children");
+			}
+			int leftChild = this.parseNode(in.getLeft());
+			int rightChild = this.parseNode(in.getRight());
+			return this.allocateInterior(leftChild, rightChild);
+		case STUB:
+			throw new InvalidSerializationException("serialized full mpt should not have stubs");
+		case LEAF:
+			MptSerialization.Leaf leaf = nodeSerialization.getLeaf();
+			if (leaf.getKey().size() != HASH_BYTES || leaf.getValue().size() != HASH_BYTES) {
+				throw new InvalidSerializationException("dictionary leaf must have key and value");
+			}
+			this.size++;
+			return this.allocateLeaf(leaf.getKey().toByteArray(), leaf.getValue().toByteArray());
+		case EMPTYLEAF:
+			return this.allocateEmpty();
+		case NODE_NOT_SET:
+			throw new InvalidSerializationException("no node included - fatal error");
+		default:
+			throw new InvalidSerializationException("?????");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "<MPTDictionaryArena nodes: " + this.countNodes() + " entries: " + this.size + ">";
+	}
+
+	/*
+	 * ARENA MANAGEMENT
+	 */
+
+	private int allocateNode(byte nodeType, byte nodeFlags) {
+		int node;
+		if (this.freeNode != NONE) {
+			node = this.freeNode;
+			this.freeNode = this.left[node];
+		} else {
+			if (this.nodesAllocated == this.type.length) {
+				this.growNodes();
+			}
+			node = this.nodesAllocated++;
+		}
+		this.liveNodes++;
+		this.type[node] = nodeType;
+		this.flags[node] = nodeFlags;
+		this.clearHash(node);
+		return node;
+	}
+
+	private int allocateEmpty() {
+		// an empty leaf has the all zeros hash
+		// which never needs to be recalculated
+		return this.allocateNode(EMPTY, CHANGED);
+	}
+
+	private int allocateInterior(int leftChild, int rightChild) {
+		int node = this.allocateNode(INTERIOR, (byte) (CHANGED | RECALCULATE_HASH));
+		this.left[node] = leftChild;
+		this.right[node] = rightChild;
+		return node;
+	}
+
+	private int allocateLeaf(final byte[] key, final byte[] value) {
+		int node = this.allocateNode(LEAF, (byte) (CHANGED | RECALCULATE_HASH));
+		int slot = this.allocateSlot();
+		System.arraycopy(key, 0, this.slots, slot * SLOT_BYTES, HASH_BYTES);
+		System.arraycopy(value, 0, this.slots, slot * SLOT_BYTES + HASH_BYTES, HASH_BYTES);
+		this.left[node] = slot;
+		this.right[node] = NONE;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		if (this.type[node] == LEAF) {
+			this.freeSlot(this.left[node]);
+		}
+		this.type[node] = EMPTY;
+		this.left[node] = this.freeNode;
+		this.freeNode = node;
+		this.liveNodes--;
+	}
+
+	private int allocateSlot() {
+		if (this.freeSlotsCount > 0) {
+			return this.freeSlots[--this.freeSlotsCount];
+		}
+		if (this.slotsAllocated * SLOT_BYTES == this.slots.length) {
+			int slotCapacity = this.slotsAllocated + (this.slotsAllocated >> 1) + 1;
+			this.slots = Arrays.copyOf(this.slots, slotCapacity * SLOT_BYTES);
+			this.freeSlots = Arrays.copyOf(this.freeSlots, slotCapacity);
+		}
+		return this.slotsAllocated++;
+	}
+
+	private void freeSlot(int slot) {
+		this.freeSlots[this.freeSlotsCount++] = slot;
+	}
+
+	private void growNodes() {
+		int capacity = this.type.length + (this.type.length >> 1);
+		this.type = Arrays.copyOf(this.type, capacity);
+		this.flags = Arrays.copyOf(this.flags, capacity);
+		this.left = Arrays.copyOf(this.left, capacity);
+		this.right = Arrays.copyOf(this.right, capacity);
+		this.hashes = Arrays.copyOf(this.hashes, capacity * HASH_LONGS);
+	}
+
+	/*
+	 * KEYS AND HASHES
+	 */
+
+	private boolean keyEquals(int slot, final byte[] key) {
+		int offset = slot * SLOT_BYTES;
+		return Arrays.equals(this.slots, offset, offset + HASH_BYTES, key, 0, HASH_BYTES);
+	}
+
+	private boolean getSlotBit(int slotOffset, int index) {
+		return Utils.getBit(this.slots[slotOffset + (index >>> 3)], 7 - (index & 7));
+	}
+
+	private byte[] getHash(int node) {
+		byte[] hash = new byte[HASH_BYTES];
+		this.unpackHash(node, hash, 0);
+		return hash;
+	}
+
+	private void clearHash(int node) {
+		Arrays.fill(this.hashes, node * HASH_LONGS, (node + 1) * HASH_LONGS, 0L);
+	}
+
+	private void packHash(int node, final byte[] src, int offset) {
+		int base = node * HASH_LONGS;
+		for (int i = 0; i < HASH_LONGS; i++) {
+			long word = 0;
+			for (int j = 0; j < Long.BYTES; j++) {
+				word = (word << 8) | (src[offset + i * Long.BYTES + j] & 0xFFL);
+			}
+			this.hashes[base + i] = word;
+		}
+	}
+
+	private void unpackHash(int node, final byte[] dst, int offset) {
+		int base = node * HASH_LONGS;
+		for (int i = 0; i < HASH_LONGS; i++) {
+			long word = this.hashes[base + i];
+			for (int j = Long.BYTES - 1; j >= 0; j--) {
+				dst[offset + i * Long.BYTES + j] = (byte) word;
+				word >>>= 8;
+			}
+		}
+	}
+
+}
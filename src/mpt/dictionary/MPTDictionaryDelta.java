@@ -1,10 +1,19 @@
 package mpt.dictionary;
 
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 import com.google.protobuf.ByteString;
 
+import crpyto.CryptographicDigest;
+import mpt.core.CompressedInteriorNode;
 import mpt.core.DictionaryLeafNode;
 import mpt.core.EmptyLeafNode;
 import mpt.core.InteriorNode;
@@ -21,12 +30,50 @@ import serialization.generated.MptSerialization;
  * This information can be used to construct update proofs for
  * clients 
  * 
+ * Deltas are kept for every commitment, so they are stored in a compact 
+ * flat form rather than as nodes: the types of the nodes in pre-order 
+ * (2 bits per node) and a single byte array with the record for 
+ * each node, in the same order:
+ * 
+ * 		interior:	hash | index of right child | offset of right child record
+ * 		stub:		hash
+ * 		empty leaf:	(nothing)
+ * 		leaf:		hash | key | value length | value
+ * 
+ * The left child of an interior node is the next node. getUpdates 
+ * walks this form directly. The flat form can be written to a buffer 
+ * (e.g. a file) with writeTo and used from it without copying with readFrom.
+ * 
+ * All hashes in the delta are calculated when it is constructed 
+ * and it is never modified, so once it has been (safely) published 
+ * getUpdates can be called concurrently.
+ * 
  * @author henryaspegren
  *
  */
 public class MPTDictionaryDelta implements AuthenticatedDictionaryChanges {
 	
-	protected InteriorNode root;
+	// marks where the children of an interior node (whose 
+	// hash is not known) have been copied
+	private static final Object COPY_INTERIOR = new Object();
+	
+	private static final int INTERIOR = 0;
+	private static final int STUB = 1;
+	private static final int EMPTY = 2;
+	private static final int LEAF = 3;
+	
+	private static final int HASH_BYTES = CryptographicDigest.getSizeBytes();
+	private static final int INTERIOR_BYTES = HASH_BYTES + 8;
+	
+	// the size of the header written by writeTo
+	private static final int HEADER_BYTES = 12;
+	
+	// the type of each node in pre-order, 2 bits per node
+	private final LongBuffer types;
+	// the record of each node in pre-order. Only 
+	// absolute reads are used so it can be shared by readers
+	private final ByteBuffer data;
+	private final int numberOfNodes;
 	
 	/**
 	 * Construct a MerklePrefixTrieDelta from a full MPT. It only copies
@@ -35,9 +82,95 @@ public class MPTDictionaryDelta implements AuthenticatedDictionaryChanges {
 	 * @param mpt - The MPT to copy changes from
 	 */
 	public MPTDictionaryDelta(MPTDictionaryFull mpt) {
+		this(MPTDictionaryDelta.copyChanges(mpt));
+	}
+	
+	/**
+	 * Same as MPTDictionaryDelta(mpt), but the changed subtrees are 
+	 * copied in parallel on the workers. The delta is identical 
+	 * (it has the same flat form) to the one copied sequentially.
+	 * @param mpt - The MPT to copy changes from
+	 * @param workers
+	 */
+	public MPTDictionaryDelta(MPTDictionaryFull mpt, ForkJoinPool workers) {
+		this(MPTDictionaryDelta.copyChangesParallel(mpt, workers));
+	}
+	
+	private static Encoder copyChanges(MPTDictionaryFull mpt) {
+		// the stubs store the hashes of unchanged subtrees - calculate 
+		// them through the MPT so that it can keep track of stale hashes
+		mpt.commitment();
 		//InteriorNode copiedRootOnlyChanges = (InteriorNode) MPTDictionaryDelta.copyChangesOnlyHelper(mpt.root);
 		InteriorNode copiedRootOnlyChanges = (InteriorNode) MPTDictionaryDelta.copyChangesOnlyHelperRoot(mpt.root);
-		this.root = copiedRootOnlyChanges;
+		return MPTDictionaryDelta.encode(copiedRootOnlyChanges);
+	}
+	
+	private static Encoder copyChangesParallel(MPTDictionaryFull mpt, ForkJoinPool workers) {
+		mpt.commitmentParallelized(workers);
+		// split a few levels deeper than needed to give every 
+		// worker a subtree, so that uneven subtrees balance out
+		int forkDepth = 32 - Integer.numberOfLeadingZeros(workers.getParallelism()) + CopyTask.EXTRA_LEVELS;
+		List<Encoder> pieces = workers.invoke(new CopyTask(mpt.root, 0, forkDepth));
+		Encoder encoder = new Encoder();
+		for (Encoder piece : pieces) {
+			encoder.append(piece);
+		}
+		return encoder;
+	}
+	
+	private MPTDictionaryDelta(Encoder encoder) {
+		this.types = LongBuffer.wrap(Arrays.copyOf(encoder.types, (encoder.numberOfNodes + 31) / 32));
+		this.data = ByteBuffer.wrap(Arrays.copyOf(encoder.data, encoder.size));
+		this.numberOfNodes = encoder.numberOfNodes;
+	}
+	
+	private MPTDictionaryDelta(LongBuffer types, ByteBuffer data, int numberOfNodes) {
+		this.types = types;
+		this.data = data;
+		this.numberOfNodes = numberOfNodes;
+	}
+	
+	/**
+	 * Use a delta written by writeTo(...) directly from the buffer, 
+	 * without copying it (e.g. from a memory mapped file). The buffer 
+	 * must not be modified while the delta is used.
+	 * @param buffer - contains the delta, starting at its position
+	 * @return
+	 */
+	public static MPTDictionaryDelta readFrom(ByteBuffer buffer) {
+		int position = buffer.position();
+		int numberOfNodes = buffer.getInt(position);
+		int typesLength = buffer.getInt(position + 4);
+		int dataLength = buffer.getInt(position + 8);
+		ByteBuffer types = buffer.duplicate();
+		types.position(position + HEADER_BYTES).limit(position + HEADER_BYTES + 8 * typesLength);
+		ByteBuffer data = buffer.duplicate();
+		data.position(position + HEADER_BYTES + 8 * typesLength).limit(position + HEADER_BYTES 
+				+ 8 * typesLength + dataLength);
+		return new MPTDictionaryDelta(types.slice().asLongBuffer(), data.slice(), numberOfNodes);
+	}
+	
+	/**
+	 * Write the flat form of this delta into the buffer at its 
+	 * position (see readFrom)
+	 * @param buffer - must have getEncodedSizeInBytes() remaining
+	 */
+	public void writeTo(ByteBuffer buffer) {
+		buffer.putInt(this.numberOfNodes);
+		buffer.putInt(this.types.limit());
+		buffer.putInt(this.data.limit());
+		for (int i = 0; i < this.types.limit(); i++) {
+			buffer.putLong(this.types.get(i));
+		}
+		buffer.put(this.data.duplicate());
+	}
+	
+	/**
+	 * The number of bytes written by writeTo
+	 * @return
+	 */
+	public int getEncodedSizeInBytes() {
+		return HEADER_BYTES + 8 * this.types.limit() + this.data.limit();
 	}
 	
 	//here we assume that this is a root node, i.e. an InteriorNode!
@@ -45,28 +178,521 @@ public class MPTDictionaryDelta implements AuthenticatedDictionaryChanges {
 		
 		Node leftChild = MPTDictionaryDelta.copyChangesOnlyHelper(currentNode.getLeftChild());
 		Node rightChild = MPTDictionaryDelta.copyChangesOnlyHelper(currentNode.getRightChild());
-		return new InteriorNode(leftChild, rightChild);
+		return new InteriorNode(leftChild, rightChild, currentNode.getHashNoCopy());
+		
+	}
+
+	/**
+	 * Copies the subtree in post-order with an explicit stack: the 
+	 * copy of an interior node is built once both children are copied.
+	 * Hashes are copied from the MPT, except for the levels of 
+	 * compressed runs (which only store the hash of the top level) 
+	 * which are hashed as they are copied.
+	 */
+	private static Node copyChangesOnlyHelper(final Node subtreeRoot) {
+		// holds nodes to copy, and COPY_INTERIOR (or the hash of the 
+		// interior node) once the children of an interior node are on it
+		Deque<Object> toCopy = new ArrayDeque<>();
+		Deque<Node> copied = new ArrayDeque<>();
+		toCopy.push(subtreeRoot);
+		while (!toCopy.isEmpty()) {
+			Object next = toCopy.pop();
+			if (next == COPY_INTERIOR) {
+				Node rightChild = copied.pop();
+				Node leftChild = copied.pop();
+				InteriorNode copy = new InteriorNode(leftChild, rightChild);
+				copy.getHashNoCopy();
+				copied.push(copy);
+				continue;
+			}
+			if (next instanceof byte[]) {
+				Node rightChild = copied.pop();
+				Node leftChild = copied.pop();
+				copied.push(new InteriorNode(leftChild, rightChild, (byte[]) next));
+				continue;
+			}
+			Node currentNode = (Node) next;
+			if (!currentNode.changed()) {
+				copied.push(new Stub(currentNode.getHash()));
+			} else if (currentNode.isLeaf()) {
+				if (currentNode.isEmpty()) {
+					copied.push(new EmptyLeafNode());
+				} else {
+					copied.push(new DictionaryLeafNode(currentNode.getKey(), currentNode.getValue(), 
+							currentNode.getHashNoCopy()));
+				}
+			} else {
+				toCopy.push(currentNode.requiresHashRecalculation() ? COPY_INTERIOR : currentNode.getHashNoCopy());
+				toCopy.push(currentNode.getRightChild());
+				toCopy.push(currentNode.getLeftChild());
+			}
+		}
+		return copied.pop();
+	}
+
+	/**
+	 * A fork/join task that copies and writes the changes in the subtree 
+	 * rooted at currentNode. Changed interior nodes above forkDepth 
+	 * are written as a record of their own and their children are copied 
+	 * in parallel, below it (or if the hash of the node is not stored, 
+	 * as in compressed runs) the subtree is copied sequentially. 
+	 * Returns the pieces of the flat form in pre-order; positions in 
+	 * each piece are relative to the start of the piece.
+	 */
+	private static class CopyTask extends RecursiveTask<List<Encoder>> {
+		
+		private static final long serialVersionUID = 1L;
 		
+		// levels to split beyond log2(parallelism)
+		static final int EXTRA_LEVELS = 3;
+		
+		private final Node currentNode;
+		private final int depth;
+		private final int forkDepth;
+		
+		CopyTask(Node currentNode, int depth, int forkDepth) {
+			this.currentNode = currentNode;
+			this.depth = depth;
+			this.forkDepth = forkDepth;
+		}
+		
+		@Override
+		protected List<Encoder> compute() {
+			// the root is always copied as an interior node 
+			// (see copyChangesOnlyHelperRoot)
+			boolean fork = this.depth == 0 || (this.depth < this.forkDepth && this.currentNode.changed() 
+					&& !this.currentNode.isLeaf() && !this.currentNode.requiresHashRecalculation());
+			if (!fork) {
+				List<Encoder> pieces = new ArrayList<>(1);
+				pieces.add(MPTDictionaryDelta.encode(MPTDictionaryDelta.copyChangesOnlyHelper(this.currentNode)));
+				return pieces;
+			}
+			CopyTask left = new CopyTask(this.currentNode.getLeftChild(), this.depth + 1, this.forkDepth);
+			CopyTask right = new CopyTask(this.currentNode.getRightChild(), this.depth + 1, this.forkDepth);
+			left.fork();
+			List<Encoder> rightPieces = right.compute();
+			List<Encoder> leftPieces = left.join();
+			int leftNodes = 0;
+			int leftBytes = 0;
+			for (Encoder piece : leftPieces) {
+				leftNodes += piece.numberOfNodes;
+				leftBytes += piece.size;
+			}
+			Encoder record = new Encoder(1, INTERIOR_BYTES);
+			record.addNode(INTERIOR, INTERIOR_BYTES);
+			record.writeBytes(this.currentNode.getHashNoCopy());
+			record.addPointer(record.size);
+			record.writeInt(1 + leftNodes);
+			record.writeInt(INTERIOR_BYTES + leftBytes);
+			List<Encoder> pieces = new ArrayList<>(1 + leftPieces.size() + rightPieces.size());
+			pieces.add(record);
+			pieces.addAll(leftPieces);
+			pieces.addAll(rightPieces);
+			return pieces;
+		}
 	}
 
-	private static Node copyChangesOnlyHelper(final Node currentNode) {
-		//System.out.println("In MPTDictionaryDelta: copy changes for node " + currentNode);
-		if(!currentNode.changed()) {
-			//System.out.println("creating stub in copyChangesOnlyHelper");
-			return new Stub(currentNode.getHash());
+	/**
+	 * Commits the changes to the MPT with the root: calculates the stale 
+	 * hashes, writes the delta and marks the nodes unchanged in a single 
+	 * visit of each changed node (see MPTDictionaryFull.commit). 
+	 * The delta is the same as MPTDictionaryDelta(mpt) followed by 
+	 * mpt.reset(). If workers is not null the changed subtrees 
+	 * near the root are committed in parallel.
+	 */
+	static CommitResult commit(final InteriorNode root, final ForkJoinPool workers, final int totalNodes) {
+		CommitTask task;
+		List<Encoder> pieces;
+		if (workers == null) {
+			task = new CommitTask(root, 0, 0);
+			pieces = task.compute();
+		} else {
+			int forkDepth = 32 - Integer.numberOfLeadingZeros(workers.getParallelism()) + CopyTask.EXTRA_LEVELS;
+			task = new CommitTask(root, 0, forkDepth);
+			pieces = workers.invoke(task);
+		}
+		Encoder encoder = new Encoder();
+		for (Encoder piece : pieces) {
+			encoder.append(piece);
 		}
-		if (currentNode.isLeaf()) {
-			if (currentNode.isEmpty()) {
-				return new EmptyLeafNode();
+		return new CommitResult(root.getHash(), new MPTDictionaryDelta(encoder), totalNodes, 
+				task.hashesCalculated, task.changedNodes, task.stubs);
+	}
+	
+	/**
+	 * A fork/join task that commits the changes in the subtree rooted at 
+	 * currentNode and returns the pieces of the flat form (as CopyTask). 
+	 * Changed interior nodes above forkDepth are committed after their 
+	 * children, which are committed in parallel, below it the subtree is 
+	 * committed sequentially by commitHelper. The root is always 
+	 * written as an interior node.
+	 */
+	private static class CommitTask extends RecursiveTask<List<Encoder>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Node currentNode;
+		private final int depth;
+		private final int forkDepth;
+		// the work done by this task and its subtasks
+		int hashesCalculated;
+		int changedNodes;
+		int stubs;
+		
+		CommitTask(Node currentNode, int depth, int forkDepth) {
+			this.currentNode = currentNode;
+			this.depth = depth;
+			this.forkDepth = forkDepth;
+		}
+		
+		@Override
+		protected List<Encoder> compute() {
+			List<Encoder> pieces = new ArrayList<>();
+			boolean fork = this.depth < this.forkDepth && (this.depth == 0 || 
+					(this.currentNode.changed() && this.currentNode instanceof InteriorNode));
+			if (!fork) {
+				pieces.add(MPTDictionaryDelta.commitHelper(this.currentNode, this.depth == 0, this));
+				return pieces;
 			}
-			if (currentNode.changed()) {
-				return new DictionaryLeafNode(currentNode.getKey(), currentNode.getValue());
+			CommitTask left = new CommitTask(this.currentNode.getLeftChild(), this.depth + 1, this.forkDepth);
+			CommitTask right = new CommitTask(this.currentNode.getRightChild(), this.depth + 1, this.forkDepth);
+			left.fork();
+			List<Encoder> rightPieces = right.compute();
+			List<Encoder> leftPieces = left.join();
+			int leftNodes = 0;
+			int leftBytes = 0;
+			for (Encoder piece : leftPieces) {
+				leftNodes += piece.numberOfNodes;
+				leftBytes += piece.size;
 			}
-			return new Stub(currentNode.getHash());
+			// the children have been committed so this is 
+			// at most a single hash
+			if (this.currentNode.requiresHashRecalculation()) {
+				this.hashesCalculated++;
+			}
+			Encoder record = new Encoder(1, INTERIOR_BYTES);
+			record.addNode(INTERIOR, INTERIOR_BYTES);
+			record.writeBytes(this.currentNode.getHashNoCopy());
+			record.addPointer(record.size);
+			record.writeInt(1 + leftNodes);
+			record.writeInt(INTERIOR_BYTES + leftBytes);
+			this.currentNode.markUnchangedAll();
+			this.hashesCalculated += left.hashesCalculated + right.hashesCalculated;
+			this.changedNodes += 1 + left.changedNodes + right.changedNodes;
+			this.stubs += left.stubs + right.stubs;
+			pieces.add(record);
+			pieces.addAll(leftPieces);
+			pieces.addAll(rightPieces);
+			return pieces;
 		}
-		Node leftChild = MPTDictionaryDelta.copyChangesOnlyHelper(currentNode.getLeftChild());
-		Node rightChild = MPTDictionaryDelta.copyChangesOnlyHelper(currentNode.getRightChild());
-		return new InteriorNode(leftChild, rightChild);
+	}
+	
+	/**
+	 * A node to commit, or (once its children have been 
+	 * committed) an interior node to finish
+	 */
+	private static final class Visit {
+		final Node node;
+		// where to write the position of the node (-1 for left children)
+		final int position;
+		// a level of a compressed run below the top (that is not in the MPT)
+		final boolean view;
+		// the offset of the record of an interior node (-1 until its children are visited)
+		int record = -1;
+		
+		Visit(Node node, int position, boolean view) {
+			this.node = node;
+			this.position = position;
+			this.view = view;
+		}
+	}
+	
+	/**
+	 * Commits the subtree in a single pass with an explicit stack. 
+	 * Nodes are written in pre-order as they are visited, the hash of a changed 
+	 * interior node is written into its record (and the node is marked unchanged) 
+	 * once both of its children are committed. The hashes of the children 
+	 * are kept on a stack so that the levels of compressed runs are 
+	 * each hashed once and the hash of the top of the run is set from them.
+	 */
+	private static Encoder commitHelper(final Node subtreeRoot, final boolean isRoot, final CommitTask stats) {
+		Encoder encoder = new Encoder();
+		Deque<Visit> toVisit = new ArrayDeque<>();
+		Deque<byte[]> hashes = new ArrayDeque<>();
+		toVisit.push(new Visit(subtreeRoot, -1, false));
+		while (!toVisit.isEmpty()) {
+			Visit visit = toVisit.pop();
+			Node currentNode = visit.node;
+			if (visit.record >= 0) {
+				byte[] rightHash = hashes.pop();
+				byte[] leftHash = hashes.pop();
+				byte[] hash;
+				if (visit.view || (currentNode instanceof CompressedInteriorNode 
+						&& currentNode.requiresHashRecalculation())) {
+					hash = new byte[HASH_BYTES];
+					CryptographicDigest.hashInto(leftHash, rightHash, hash, 0);
+					stats.hashesCalculated++;
+					if (!visit.view) {
+						((CompressedInteriorNode) currentNode).setCalculatedHash(hash);
+					}
+				} else {
+					if (currentNode.requiresHashRecalculation()) {
+						stats.hashesCalculated++;
+					}
+					hash = currentNode.getHashNoCopy();
+				}
+				System.arraycopy(hash, 0, encoder.data, visit.record, HASH_BYTES);
+				if (!visit.view) {
+					currentNode.markUnchangedAll();
+				}
+				stats.changedNodes++;
+				hashes.push(hash);
+				continue;
+			}
+			if (visit.position >= 0) {
+				MPTDictionaryDelta.putInt(encoder.data, visit.position, encoder.numberOfNodes);
+				MPTDictionaryDelta.putInt(encoder.data, visit.position + 4, encoder.size);
+			}
+			boolean root = isRoot && currentNode == subtreeRoot;
+			if (!currentNode.changed() && !root) {
+				// (the levels below an expanded level of a run 
+				// are unchanged, but their hash is not stored)
+				stats.hashesCalculated += currentNode.countHashesRequiredForGetHash();
+				byte[] hash = currentNode.getHashNoCopy();
+				encoder.addNode(STUB, HASH_BYTES);
+				encoder.writeBytes(hash);
+				stats.stubs++;
+				hashes.push(hash);
+			} else if (currentNode.isEmpty()) {
+				encoder.addNode(EMPTY, 0);
+				currentNode.markUnchangedAll();
+				stats.changedNodes++;
+				hashes.push(currentNode.getHashNoCopy());
+			} else if (currentNode.isLeaf()) {
+				if (currentNode.requiresHashRecalculation()) {
+					stats.hashesCalculated++;
+				}
+				byte[] hash = currentNode.getHashNoCopy();
+				byte[] value = currentNode.getValue();
+				encoder.addNode(LEAF, 2 * HASH_BYTES + 4 + value.length);
+				encoder.writeBytes(hash);
+				encoder.writeBytes(currentNode.getKey());
+				encoder.writeInt(value.length);
+				encoder.writeBytes(value);
+				currentNode.markUnchangedAll();
+				stats.changedNodes++;
+				hashes.push(hash);
+			} else {
+				encoder.addNode(INTERIOR, INTERIOR_BYTES);
+				visit.record = encoder.size;
+				encoder.size += INTERIOR_BYTES;
+				encoder.addPointer(visit.record + HASH_BYTES);
+				toVisit.push(visit);
+				Node leftChild = currentNode.getLeftChild();
+				Node rightChild = currentNode.getRightChild();
+				toVisit.push(new Visit(rightChild, visit.record + HASH_BYTES, 
+						MPTDictionaryDelta.isView(currentNode, rightChild)));
+				toVisit.push(new Visit(leftChild, -1, MPTDictionaryDelta.isView(currentNode, leftChild)));
+			}
+		}
+		return encoder;
+	}
+	
+	// true if child is the view of the level below 
+	// the top of a compressed run (rather than a node in the MPT)
+	private static boolean isView(final Node parent, final Node child) {
+		return parent instanceof CompressedInteriorNode && child instanceof CompressedInteriorNode 
+				&& child != ((CompressedInteriorNode) parent).getChild();
+	}
+
+	/**
+	 * Writes the flat form of a (copied) delta
+	 */
+	private static class Encoder {
+		long[] types;
+		byte[] data;
+		int size = 0;
+		int numberOfNodes = 0;
+		// where the positions of right children are written
+		int[] pointers = new int[16];
+		int numberOfPointers = 0;
+		
+		Encoder() {
+			this(512, 1024);
+		}
+		
+		Encoder(int nodes, int bytes) {
+			this.types = new long[(nodes + 31) / 32];
+			this.data = new byte[bytes];
+		}
+		
+		
+		void addNode(int type, int recordBytes) {
+			if (this.numberOfNodes == 32 * this.types.length) {
+				this.types = Arrays.copyOf(this.types, 2 * this.types.length);
+			}
+			this.types[this.numberOfNodes >>> 5] |= ((long) type) << ((this.numberOfNodes & 31) * 2);
+			this.numberOfNodes++;
+			if (this.size + recordBytes > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(2 * this.data.length, this.size + recordBytes));
+			}
+		}
+		
+		void writeBytes(byte[] bytes) {
+			System.arraycopy(bytes, 0, this.data, this.size, bytes.length);
+			this.size += bytes.length;
+		}
+		
+		void writeInt(int value) {
+			MPTDictionaryDelta.putInt(this.data, this.size, value);
+			this.size += 4;
+		}
+		
+		void addPointer(int position) {
+			if (this.numberOfPointers == this.pointers.length) {
+				this.pointers = Arrays.copyOf(this.pointers, 2 * this.pointers.length);
+			}
+			this.pointers[this.numberOfPointers++] = position;
+		}
+		
+		/**
+		 * Appends the nodes written by another encoder, whose 
+		 * positions are relative to its start
+		 */
+		void append(Encoder piece) {
+			int nodes = this.numberOfNodes + piece.numberOfNodes;
+			int words = (piece.numberOfNodes + 31) / 32;
+			if ((nodes + 31) / 32 + 1 > this.types.length) {
+				this.types = Arrays.copyOf(this.types, Math.max(2 * this.types.length, (nodes + 31) / 32 + 1));
+			}
+			int word = this.numberOfNodes >>> 5;
+			int shift = (this.numberOfNodes & 31) * 2;
+			for (int i = 0; i < words; i++) {
+				// the unused bits of the last word are 0
+				this.types[word + i] |= piece.types[i] << shift;
+				if (shift != 0) {
+					this.types[word + i + 1] |= piece.types[i] >>> (64 - shift);
+				}
+			}
+			if (this.size + piece.size > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(2 * this.data.length, this.size + piece.size));
+			}
+			System.arraycopy(piece.data, 0, this.data, this.size, piece.size);
+			for (int i = 0; i < piece.numberOfPointers; i++) {
+				int position = this.size + piece.pointers[i];
+				MPTDictionaryDelta.putInt(this.data, position, 
+						MPTDictionaryDelta.getInt(this.data, position) + this.numberOfNodes);
+				MPTDictionaryDelta.putInt(this.data, position + 4, 
+						MPTDictionaryDelta.getInt(this.data, position + 4) + this.size);
+				this.addPointer(position);
+			}
+			this.numberOfNodes = nodes;
+			this.size += piece.size;
+		}
+	}
+	
+	/**
+	 * Writes the nodes in pre-order with an explicit stack. The position 
+	 * of the right child of an interior node is filled in once its left 
+	 * subtree has been written.
+	 */
+	private static Encoder encode(final Node root) {
+		Encoder encoder = new Encoder();
+		Deque<Node> toWrite = new ArrayDeque<>();
+		// where to write the position of the node (-1 for left children)
+		Deque<Integer> positions = new ArrayDeque<>();
+		toWrite.push(root);
+		positions.push(-1);
+		while (!toWrite.isEmpty()) {
+			Node currentNode = toWrite.pop();
+			int position = positions.pop();
+			if (position >= 0) {
+				MPTDictionaryDelta.putInt(encoder.data, position, encoder.numberOfNodes);
+				MPTDictionaryDelta.putInt(encoder.data, position + 4, encoder.size);
+			}
+			if (currentNode.isStub()) {
+				encoder.addNode(STUB, HASH_BYTES);
+				encoder.writeBytes(currentNode.getHashNoCopy());
+			} else if (currentNode.isEmpty()) {
+				encoder.addNode(EMPTY, 0);
+			} else if (currentNode.isLeaf()) {
+				byte[] value = currentNode.getValue();
+				encoder.addNode(LEAF, 2 * HASH_BYTES + 4 + value.length);
+				encoder.writeBytes(currentNode.getHashNoCopy());
+				encoder.writeBytes(currentNode.getKey());
+				encoder.writeInt(value.length);
+				encoder.writeBytes(value);
+			} else {
+				encoder.addNode(INTERIOR, INTERIOR_BYTES);
+				encoder.writeBytes(currentNode.getHashNoCopy());
+				toWrite.push(currentNode.getRightChild());
+				positions.push(encoder.size);
+				encoder.addPointer(encoder.size);
+				encoder.size += 8;
+				toWrite.push(currentNode.getLeftChild());
+				positions.push(-1);
+			}
+		}
+		return encoder;
+	}
+	
+	private static void putInt(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) (value >>> 24);
+		bytes[offset + 1] = (byte) (value >>> 16);
+		bytes[offset + 2] = (byte) (value >>> 8);
+		bytes[offset + 3] = (byte) value;
+	}
+	
+	private static int getInt(byte[] bytes, int offset) {
+		return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) 
+				| ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+	}
+	
+	private int getInt(int offset) {
+		return this.data.getInt(offset);
+	}
+	
+	private int getType(int node) {
+		return (int) (this.types.get(node >>> 5) >>> ((node & 31) * 2)) & 3;
+	}
+	
+	private ByteString getBytes(int offset, int length) {
+		ByteBuffer bytes = this.data.duplicate();
+		bytes.position(offset).limit(offset + length);
+		return ByteString.copyFrom(bytes);
+	}
+	
+	/**
+	 * The size of the record of a node
+	 */
+	private int getRecordBytes(int type, int offset) {
+		switch (type) {
+		case INTERIOR:
+			return INTERIOR_BYTES;
+		case STUB:
+			return HASH_BYTES;
+		case EMPTY:
+			return 0;
+		default:
+			return 2 * HASH_BYTES + 4 + this.getInt(offset + 2 * HASH_BYTES);
+		}
+	}
+	
+	/**
+	 * The (approximate) memory used by this delta (or the space in the 
+	 * buffer it was read from)
+	 * @return
+	 */
+	public long getSizeInBytes() {
+		return this.data.limit() + 8L * this.types.limit();
+	}
+	
+	/**
+	 * The number of nodes (changed nodes and stubs) in this delta
+	 * @return
+	 */
+	public int countNodes() {
+		return this.numberOfNodes;
 	}
 
 	@Override
@@ -78,83 +704,269 @@ public class MPTDictionaryDelta implements AuthenticatedDictionaryChanges {
 	
 	@Override
 	public MptSerialization.MerklePrefixTrie getUpdates(final List<byte[]> keys) {
-		MptSerialization.Node root = MPTDictionaryDelta.getUpdatesHelper(keys, -1, this.root);
+		MptSerialization.Node root = this.getUpdatesHelper(keys.toArray(new byte[keys.size()][]), false);
 		MptSerialization.MerklePrefixTrie tree = MptSerialization.MerklePrefixTrie.newBuilder()
 				.setRoot(root)
 				.build();
 		return tree;
 	}
 	
-	private static MptSerialization.Node getUpdatesHelper(final List<byte[]> matchingKeys, 
-			final int currentBitIndex, final Node currentNode){
+	/**
+	 * Returns the updates for a client that tracks every key (a replica 
+	 * of the whole MPT): every changed node is included, unchanged 
+	 * nodes are omitted since the replica already has them. 
+	 * The updates for the first commitment are the whole MPT.
+	 * @return
+	 */
+	public MptSerialization.MerklePrefixTrie getAllUpdates() {
+		MptSerialization.Node root = this.getUpdatesHelper(new byte[0][], true);
+		return MptSerialization.MerklePrefixTrie.newBuilder()
+				.setRoot(root)
+				.build();
+	}
+	
+	/**
+	 * Returns the depth of the first unchanged node (a stub) on the
+	 * path of the key, or -1 if the leaf on the path of the key changed.
+	 * getPathUpdates(key) is the same for every key that shares its
+	 * first getUnchangedDepth(key) bits, so it can be shared between them.
+	 * Safe for concurrent calls.
+	 * @param key
+	 * @return
+	 */
+	public int getUnchangedDepth(final byte[] key) {
+		int node = 0;
+		int offset = 0;
+		int depth = 0;
+		while (this.getType(node) == INTERIOR) {
+			if (Utils.getBit(key, depth)) {
+				node = this.getInt(offset + HASH_BYTES);
+				offset = this.getInt(offset + HASH_BYTES + 4);
+			} else {
+				node++;
+				offset += INTERIOR_BYTES;
+			}
+			depth++;
+		}
+		return this.getType(node) == STUB ? depth : -1;
+	}
+
+	/**
+	 * Returns the same updates as getUpdates(key), for a key that is 
+	 * not in getChangedKeys() (most keys in most deltas). Only the interior 
+	 * nodes near the root of such a path have changed, so the updates are 
+	 * built directly from the path down to the first unchanged node: 
+	 * the changed interior nodes on it and a stub (or an empty leaf) 
+	 * for each of their other children. Nothing is kept between calls.
+	 * 
+	 * If the leaf on the path of the key did change this just calls 
+	 * getUpdates(key). Safe for concurrent calls.
+	 * @param key
+	 * @return
+	 */
+	public MptSerialization.MerklePrefixTrie getPathUpdates(final byte[] key) {
+		final int maxDepth = CryptographicDigest.getSizeBits() + 1;
+		// the index and the record offset of the interior node at each depth
+		int[] nodes = new int[maxDepth];
+		int[] offsets = new int[maxDepth];
+		int node = 0;
+		int offset = 0;
+		int depth = 0;
+		while (this.getType(node) == INTERIOR) {
+			nodes[depth] = node;
+			offsets[depth] = offset;
+			if (Utils.getBit(key, depth)) {
+				node = this.getInt(offset + HASH_BYTES);
+				offset = this.getInt(offset + HASH_BYTES + 4);
+			} else {
+				node++;
+				offset += INTERIOR_BYTES;
+			}
+			depth++;
+		}
+		if (this.getType(node) != STUB) {
+			return this.getUpdates(key);
+		}
+		// the first unchanged node is cached on the client
+		MptSerialization.Node update = null;
+		while (depth > 0) {
+			depth--;
+			int leftChild = nodes[depth] + 1;
+			int leftOffset = offsets[depth] + INTERIOR_BYTES;
+			int rightChild = this.getInt(offsets[depth] + HASH_BYTES);
+			int rightOffset = this.getInt(offsets[depth] + HASH_BYTES + 4);
+			MptSerialization.Node left;
+			MptSerialization.Node right;
+			if (Utils.getBit(key, depth)) {
+				left = this.getUpdate(this.getType(leftChild), leftOffset, false);
+				right = update;
+			} else {
+				left = update;
+				right = this.getUpdate(this.getType(rightChild), rightOffset, false);
+			}
+			MptSerialization.InteriorNode.Builder builder = MptSerialization.InteriorNode.newBuilder();
+			if (left != null) {
+				builder.setLeft(left);
+			}
+			if (right != null) {
+				builder.setRight(right);
+			}
+			update = MptSerialization.Node.newBuilder().setInteriorNode(builder).build();
+		}
+		return MptSerialization.MerklePrefixTrie.newBuilder()
+				.setRoot(update)
+				.build();
+	}
+	
+	/**
+	 * Returns the keys of the leaves that changed in this delta: 
+	 * keys that were inserted or updated and keys whose leaf was moved 
+	 * by other inserts or deletes. For any other key the leaf is 
+	 * unchanged and only interior nodes on its path (if any) changed.
+	 * @return
+	 */
+	public List<byte[]> getChangedKeys() {
+		// the records are in pre-order, so this is a single scan
+		List<byte[]> keys = new ArrayList<>();
+		int offset = 0;
+		for (int node = 0; node < this.numberOfNodes; node++) {
+			int type = this.getType(node);
+			if (type == LEAF) {
+				keys.add(this.getBytes(offset + HASH_BYTES, HASH_BYTES).toByteArray());
+			}
+			offset += this.getRecordBytes(type, offset);
+		}
+		return keys;
+	}
+	
+	/**
+	 * Walks the delta depth first with an explicit stack (the delta has 
+	 * one interior node per bit so it is at most getSizeBits() deep). 
+	 * The keys are partitioned in place: the keys on the path to 
+	 * the node at depth d are keys[from[d]:to[d]]. If allKeys is 
+	 * set every path is treated as having a matching key.
+	 */
+	private MptSerialization.Node getUpdatesHelper(final byte[][] keys, final boolean allKeys) {
+		final int maxDepth = CryptographicDigest.getSizeBits() + 1;
+		// the index and the record offset of the node at each depth
+		int[] nodes = new int[maxDepth];
+		int[] offsets = new int[maxDepth];
+		int[] from = new int[maxDepth];
+		int[] to = new int[maxDepth];
+		// the first key on the right of the interior node at each depth
+		int[] mid = new int[maxDepth];
+		boolean[] visitingRight = new boolean[maxDepth];
+		MptSerialization.InteriorNode.Builder[] builders = new MptSerialization.InteriorNode.Builder[maxDepth];
+		nodes[0] = 0;
+		offsets[0] = 0;
+		from[0] = 0;
+		to[0] = keys.length;
+		int depth = 0;
+		while (true) {
+			// visit the node at depth for the first time
+			int type = this.getType(nodes[depth]);
+			boolean hasMatchingKeys = allKeys || from[depth] < to[depth];
+			if (type == INTERIOR && hasMatchingKeys) {
+				// subcase: have a matching key and at intermediate node
+				// divide up keys into those that match the left prefix (...0)
+				// and those that match the right prefix (...1)
+				mid[depth] = MPTDictionaryDelta.partition(keys, from[depth], to[depth], depth);
+				builders[depth] = MptSerialization.InteriorNode.newBuilder();
+				visitingRight[depth] = false;
+				// the left child is the next node
+				nodes[depth + 1] = nodes[depth] + 1;
+				offsets[depth + 1] = offsets[depth] + INTERIOR_BYTES;
+				from[depth + 1] = from[depth];
+				to[depth + 1] = mid[depth];
+				depth++;
+				continue;
+			}
+			MptSerialization.Node update = this.getUpdate(type, offsets[depth], hasMatchingKeys);
+			// go back up until there is a right child to visit
+			while (true) {
+				if (depth == 0) {
+					return update;
+				}
+				depth--;
+				// omit unchanged stubs since they are cached on the client 
+				if (!visitingRight[depth]) {
+					if (update != null) {
+						builders[depth].setLeft(update);
+					}
+					break;
+				}
+				if (update != null) {
+					builders[depth].setRight(update);
+				}
+				update = MptSerialization.Node.newBuilder().setInteriorNode(builders[depth]).build();
+				builders[depth] = null;
+			}
+			visitingRight[depth] = true;
+			nodes[depth + 1] = this.getInt(offsets[depth] + HASH_BYTES);
+			offsets[depth + 1] = this.getInt(offsets[depth] + HASH_BYTES + 4);
+			from[depth + 1] = mid[depth];
+			to[depth + 1] = to[depth];
+			depth++;
+		}
+	}
+	
+	/**
+	 * The update for a stub, a leaf or a node with no keys on its path 
+	 * (nodes whose children are not needed). Returns null for a stub.
+	 */
+	private MptSerialization.Node getUpdate(final int type, final int offset, final boolean hasMatchingKeys) {
 		// case: stub - this location has not changed 
 		// 				--> avoid re-transmitting it by caching it on the client 
-		if(currentNode.isStub()) {
+		if(type == STUB) {
 			return null;
 		}
 		// case: non-stub - this location has changed 
-		// subcase: no matching keys - value is not needed
-		if(matchingKeys.size() == 0) {
-			// if empty, just send empty node
-			if(currentNode.isEmpty()) {
-				return MptSerialization.Node.newBuilder()
-						.setEmptyleaf(MptSerialization.EmptyLeaf.newBuilder())
-						.build();
-			}
-			// if non-empty send stub
+		// if empty, just send empty node
+		if(type == EMPTY) {
 			return MptSerialization.Node.newBuilder()
-					.setStub(MptSerialization.Stub.newBuilder()
-							.setHash(ByteString.copyFrom(currentNode.getHash())))
+					.setEmptyleaf(MptSerialization.EmptyLeaf.newBuilder())
 					.build();
 		}
-		// subcase: have a matching key and at end of path 
-		if(currentNode.isLeaf()) {
-			// if empty, just send empty node
-			if(currentNode.isEmpty()) {
-				return MptSerialization.Node.newBuilder().setEmptyleaf(
-						MptSerialization.EmptyLeaf.newBuilder()).build();
-			}
-			// if non-empty send entire leaf (since value needed)
-			return MptSerialization.Node.newBuilder().setLeaf(
-						MptSerialization.Leaf.newBuilder()
-							.setKey(ByteString.copyFrom(currentNode.getKey()))
-							.setValue(ByteString.copyFrom(currentNode.getValue())))
+		// subcase: no matching keys - value is not needed, send stub
+		if(!hasMatchingKeys) {
+			return MptSerialization.Node.newBuilder()
+					.setStub(MptSerialization.Stub.newBuilder()
+							.setHash(this.getBytes(offset, HASH_BYTES)))
 					.build();
 		}
-		// subcase: have a matching leaf and at intermediate node
-		
-		// divide up keys into those that match the right prefix (...1)
-		// and those that match the left prefix (...0)
-		List<byte[]> matchRight = new ArrayList<byte[]>();
-		List<byte[]> matchLeft = new ArrayList<byte[]>();
-		for(byte[] key : matchingKeys) {
-			final boolean bit = Utils.getBit(key, currentBitIndex + 1);
-			if(bit) {
-				matchRight.add(key);
-			}else {
-				matchLeft.add(key);
+		// subcase: have a matching key and at end of path, 
+		// send entire leaf (since value needed)
+		int valueLength = this.getInt(offset + 2 * HASH_BYTES);
+		return MptSerialization.Node.newBuilder().setLeaf(
+					MptSerialization.Leaf.newBuilder()
+						.setKey(this.getBytes(offset + HASH_BYTES, HASH_BYTES))
+						.setValue(this.getBytes(offset + 2 * HASH_BYTES + 4, valueLength)))
+				.build();
+	}
+	
+	/**
+	 * Reorders keys[from:to] so that the keys with bit bitIndex 0 come 
+	 * first. Returns the index of the first key with bit bitIndex 1.
+	 */
+	private static int partition(final byte[][] keys, final int from, final int to, final int bitIndex) {
+		int lo = from;
+		int hi = to;
+		while (lo < hi) {
+			if (Utils.getBit(keys[lo], bitIndex)) {
+				hi--;
+				byte[] tmp = keys[lo];
+				keys[lo] = keys[hi];
+				keys[hi] = tmp;
+			} else {
+				lo++;
 			}
 		}
-		MptSerialization.Node left = MPTDictionaryDelta.getUpdatesHelper(matchLeft, currentBitIndex+1, 
-				currentNode.getLeftChild());
-		MptSerialization.Node right = MPTDictionaryDelta.getUpdatesHelper(matchRight, currentBitIndex+1, 
-				currentNode.getRightChild());
-		
-		// create an interior node to return
-		MptSerialization.InteriorNode.Builder interiorBuilder = MptSerialization.InteriorNode.newBuilder();
-		// omit unchanged stubs since they are cached on the client 
-		if(right != null) {
-			interiorBuilder.setRight(right);
-		}
-		if(left != null) {
-			interiorBuilder.setLeft(left);
-		}
-		return MptSerialization.Node.newBuilder().setInteriorNode(interiorBuilder).build();
+		return lo;
 	}
-		
+
 	@Override
 	public String toString() {
-		return "<MPTDictionaryDelta \n"+MPTDictionaryFull.toStringHelper("+", this.root)+"\n>";
+		return "<MPTDictionaryDelta nodes: "+this.numberOfNodes+" | bytes: "+this.getSizeInBytes()+">";
 	}
 
 }
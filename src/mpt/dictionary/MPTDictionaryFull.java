@@ -1,13 +1,22 @@
 package mpt.dictionary;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import crpyto.CryptographicDigest;
+import mpt.core.CompressedInteriorNode;
 import mpt.core.DictionaryLeafNode;
 import mpt.core.EmptyLeafNode;
 import mpt.core.InteriorNode;
@@ -25,6 +34,11 @@ import serialization.generated.MptSerialization;
  *  allow for lazy recalculation of hashes and 
  *  to keep track of updates. 
  *  
+ *  Runs of interior nodes with a single non-empty 
+ *  child (created when keys share a long prefix) are 
+ *  stored as a CompressedInteriorNode. This does not 
+ *  change the MPT, its hashes or its serialization.
+ *  
  *  MPT use structural equality
  *
  * @author Henry Aspegren, Chung Eun (Christina) Lee
@@ -33,16 +47,32 @@ import serialization.generated.MptSerialization;
 public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 
 	private static final Logger LOGGER = Logger.getLogger(MPTDictionaryFull.class.getName());
+	
+	// enough for the path to a key in an MPT with millions of keys, 
+	// deeper paths (keys with long shared prefixes) grow the stack
+	private static final int INITIAL_PATH_LENGTH = 32;
+	
+	// keys compared as unsigned bytes, i.e. as bit strings
+	private static final Comparator<Map.Entry<byte[], byte[]>> KEY_ORDER = 
+			Comparator.comparing(Map.Entry::getKey, Arrays::compareUnsigned);
 
 	// we require that the root is always an interior node
 	// at index -1, empty prefix (which I usually represent by +)
 	protected InteriorNode root;
+	
+	// the size of the MPT and the number of stale hashes, 
+	// kept up to date by every update
+	private final Counts counts;
 
 	/**
 	 * Create an empty Merkle Prefix Trie
 	 */
 	public MPTDictionaryFull() {
 		this.root = new InteriorNode(new EmptyLeafNode(), new EmptyLeafNode());
+		this.counts = new Counts();
+		this.counts.interiorNodes = 1;
+		this.counts.emptyLeafNodes = 2;
+		this.counts.staleHashes = 1;
 	}
 
 	/**
@@ -52,6 +82,77 @@ public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 	 */
 	private MPTDictionaryFull(InteriorNode root) {
 		this.root = root;
+		this.counts = new Counts();
+		this.counts.interiorNodes = root.interiorNodesInSubtree();
+		this.counts.emptyLeafNodes = root.emptyLeafNodesInSubtree();
+		this.counts.nonEmptyLeafNodes = root.nonEmptyLeafNodesInSubtree();
+		this.counts.staleHashes = root.countHashesRequiredForGetHash();
+	}
+	
+	/**
+	 * The number of nodes of each kind (counting each level of 
+	 * a CompressedInteriorNode as an interior node and an empty leaf)
+	 * and the number of stale hashes (countHashesRequiredForGetHash() of the root).
+	 * 
+	 * The MPT keeps these up to date as it is updated so that they do 
+	 * not require a traversal. The helpers record the nodes they add, 
+	 * remove and make stale. The parallel batch insert keeps separate 
+	 * counts for each task and adds them up when the tasks are joined.
+	 */
+	private static class Counts {
+		int interiorNodes;
+		int emptyLeafNodes;
+		int nonEmptyLeafNodes;
+		int staleHashes;
+		
+		/**
+		 * Call before an interior node (or run) is updated
+		 * since this makes its hash (or hashes) stale
+		 */
+		void markStale(final Node node) {
+			if (!node.requiresHashRecalculation()) {
+				this.staleHashes += MPTDictionaryFull.levels(node);
+			}
+		}
+		
+		/**
+		 * Call when a run of the given number of levels 
+		 * is added to the MPT
+		 */
+		void addRun(final int levels) {
+			this.interiorNodes += levels;
+			this.emptyLeafNodes += levels;
+			this.staleHashes += levels;
+		}
+		
+		/**
+		 * Call when an interior node (or run) and the empty 
+		 * leaf (or leaves) next to its single remaining child 
+		 * are removed from the MPT
+		 */
+		void removeLevels(final Node node) {
+			int levels = MPTDictionaryFull.levels(node);
+			this.interiorNodes -= levels;
+			this.emptyLeafNodes -= levels;
+			if (node.requiresHashRecalculation()) {
+				this.staleHashes -= levels;
+			}
+		}
+		
+		void add(final Counts other) {
+			this.interiorNodes += other.interiorNodes;
+			this.emptyLeafNodes += other.emptyLeafNodes;
+			this.nonEmptyLeafNodes += other.nonEmptyLeafNodes;
+			this.staleHashes += other.staleHashes;
+		}
+	}
+	
+	// the number of interior nodes represented by node
+	private static int levels(final Node node) {
+		if (node instanceof CompressedInteriorNode) {
+			return ((CompressedInteriorNode) node).getLength();
+		}
+		return 1;
 	}
 
 	@Override
@@ -60,7 +161,7 @@ public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 		assert value.length == CryptographicDigest.getSizeBytes();
 		LOGGER.log(Level.FINE,
 				"insert(" + Utils.byteArrayAsHexString(key) +") = " + Utils.byteArrayAsHexString(value));
-		MPTDictionaryFull.insertHelper(key, value, -1, this.root);
+		MPTDictionaryFull.insertHelper(key, value, -1, this.root, this.counts);
 	}
 
 	/**
@@ -72,77 +173,485 @@ public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 	 * so, if currentNode is not a leaf, 
 	 * we're trying to add a child node to currentNode, whose branch is key[currentBitIndex + 1]
 	 * 
+	 * The path is walked in a loop: each interior node on the path 
+	 * is updated in place, so only the node above the leaf (and 
+	 * the node above an expanded run) needs its child replaced.
+	 * 
 	 * @param key
 	 * @param value
 	 * @param currentBitIndex
 	 * @param currentNode the 
-	 * @return
+	 * @param counts - updated with the nodes added and the hashes made stale
+	 * @return the subtree that replaces currentNode
 	 */
 	private static Node insertHelper(final byte[] key, final byte[] value, 
-			final int currentBitIndex, final Node currentNode) {
+			final int currentBitIndex, final Node currentNode, final Counts counts) {
+		Node subtree = currentNode;
+		// the interior node (or run) above node, null if node is currentNode
+		Node parent = null;
+		boolean isRightChild = false;
+		Node node = currentNode;
+		int bitIndex = currentBitIndex;
+		while (!node.isLeaf()) {
+			counts.markStale(node);
+			if (node instanceof CompressedInteriorNode) {
+				CompressedInteriorNode run = (CompressedInteriorNode) node;
+				int matching = run.countMatchingLevels(key);
+				if (matching == run.getLength()) {
+					// skip to the end of the run
+					run.setChild(run.getChild());
+					parent = run;
+					node = run.getChild();
+					bitIndex += matching;
+					continue;
+				}
+				// the key leads to an empty leaf in the run
+				InteriorNode level = run.expandLevel(matching);
+				if (matching == 0) {
+					// the run is no longer part of the MPT
+					if (parent == null) {
+						subtree = level;
+					} else {
+						MPTDictionaryFull.setChild(parent, isRightChild, level);
+					}
+				}
+				node = level;
+				bitIndex += matching;
+				continue;
+			}
+			boolean bit = Utils.getBit(key, bitIndex + 1);
+			/*
+			 * Encoding: if bit is 1 -> go right if bit is 0 -> go left
+			 */
+			Node child = bit ? node.getRightChild() : node.getLeftChild();
+			// the child is updated in place below, setting it 
+			// again marks this node as changed
+			MPTDictionaryFull.setChild(node, bit, child);
+			parent = node;
+			isRightChild = bit;
+			node = child;
+			bitIndex++;
+		}
 		// when we hit a leaf we know where we need to insert
+		Node newLeaf = MPTDictionaryFull.insertAtLeaf(key, value, bitIndex, node, counts);
+		if (parent == null) {
+			return newLeaf;
+		}
+		MPTDictionaryFull.setChild(parent, isRightChild, newLeaf);
+		return subtree;
+	}
+	
+	/**
+	 * Insert the mapping at leaf (at currentBitIndex) and return 
+	 * the node that replaces the leaf
+	 */
+	private static Node insertAtLeaf(final byte[] key, final byte[] value, 
+			final int currentBitIndex, final Node currentNode, final Counts counts) {
+		// this key is already in the tree, update existing mapping
+		if (Arrays.equals(currentNode.getKey(), key)) {
+			// update the value
+			boolean stale = currentNode.requiresHashRecalculation();
+			currentNode.setValue(value);
+			if (!stale && currentNode.requiresHashRecalculation()) {
+				counts.staleHashes++;
+			}
+			return currentNode;
+		}
+		// if the key is not in the tree add it
+		DictionaryLeafNode nodeToAdd = new DictionaryLeafNode(key, value);
+		counts.nonEmptyLeafNodes++;
+		counts.staleHashes++;
+		if (currentNode.isEmpty()) {
+			// if the current leaf is empty, just replace it
+			counts.emptyLeafNodes--;
+			return nodeToAdd;
+		}
+		// otherwise we need to "split"
+		DictionaryLeafNode currentLeafNode = (DictionaryLeafNode) currentNode;
+		// mark the current node as "changed" even though 
+		// its value hasn't since it is now in a new location 
+		// in the MPT
+		currentLeafNode.markChangedAll();
+		return MPTDictionaryFull.split(currentLeafNode, nodeToAdd, currentBitIndex, counts);
+	}
+	
+	/**
+	 * Set the child of parent (an interior node or a run) on 
+	 * the given side (ignored for a run) to child
+	 */
+	private static void setChild(final Node parent, final boolean isRightChild, final Node child) {
+		if (parent instanceof CompressedInteriorNode) {
+			((CompressedInteriorNode) parent).setChild(child);
+		} else if (isRightChild) {
+			parent.setRightChild(child);
+		} else {
+			parent.setLeftChild(child);
+		}
+	}
+
+	@Override
+	public void insertAll(final List<Map.Entry<byte[], byte[]>> kvpairs) {
+		LOGGER.log(Level.FINE, "insertAll(" + kvpairs.size() + " entries)");
+		if (kvpairs.isEmpty()) {
+			return;
+		}
+		MPTDictionaryFull.insertAllHelper(MPTDictionaryFull.sortByKey(kvpairs), 0, kvpairs.size(), -1, this.root, 
+				this.counts);
+	}
+	
+	/**
+	 * Returns a copy of the batch sorted by key. Keys are sorted as 
+	 * unsigned bytes which is the same as sorting them as bit strings, 
+	 * so in the sorted batch all keys with the same prefix are adjacent.
+	 * The sort is stable so repeated keys stay in the order they were given.
+	 */
+	static List<Map.Entry<byte[], byte[]>> sortByKey(final List<Map.Entry<byte[], byte[]>> kvpairs) {
+		List<Map.Entry<byte[], byte[]>> sorted = new ArrayList<>(kvpairs);
+		sorted.sort(KEY_ORDER);
+		return sorted;
+	}
+	
+	/**
+	 * Insert a batch of key-value pairs using the workers. The result 
+	 * is the same as insertAll(kvpairs).
+	 * 
+	 * The sorted batch is split on the first bits of the key. Keys 
+	 * with different prefixes are inserted into disjoint subtrees, so each 
+	 * subtree is updated by its own fork/join task and only the interior 
+	 * nodes above the split (the top levels) are updated after the tasks join.
+	 * 
+	 * @param kvpairs
+	 * @param workers
+	 */
+	public void insertAllParallelized(final List<Map.Entry<byte[], byte[]>> kvpairs, ForkJoinPool workers) {
+		LOGGER.log(Level.FINE, "insertAllParallelized(" + kvpairs.size() + " entries)");
+		if (kvpairs.isEmpty()) {
+			return;
+		}
+		// sort on the pool as well (Arrays.parallelSort uses the 
+		// pool of the worker that calls it)
+		List<Map.Entry<byte[], byte[]>> sorted = workers.invoke(
+				ForkJoinTask.adapt(() -> MPTDictionaryFull.sortByKeyParallel(kvpairs)));
+		// split a few levels deeper than needed to give every 
+		// worker a subtree, so that uneven subtrees balance out
+		int forkDepth = 32 - Integer.numberOfLeadingZeros(workers.getParallelism()) + InsertAllTask.EXTRA_LEVELS;
+		InsertAllTask task = new InsertAllTask(sorted, 0, sorted.size(), -1, this.root, forkDepth);
+		workers.invoke(task);
+		this.counts.add(task.counts);
+	}
+	
+	/**
+	 * Same as sortByKey, but sorts using Arrays.parallelSort (which is also stable)
+	 */
+	private static List<Map.Entry<byte[], byte[]>> sortByKeyParallel(final List<Map.Entry<byte[], byte[]>> kvpairs) {
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Map.Entry<byte[], byte[]>[] sorted = kvpairs.toArray(new Map.Entry[kvpairs.size()]);
+		Arrays.parallelSort(sorted, KEY_ORDER);
+		return Arrays.asList(sorted);
+	}
+	
+	/**
+	 * A fork/join task that inserts sorted[from:to] into the subtree 
+	 * rooted at currentNode and returns the new subtree (see insertAllHelper). 
+	 * While the next bit is above forkDepth the range is partitioned on it 
+	 * and the two halves are inserted in parallel. Below forkDepth, or once the 
+	 * range is small, it is inserted sequentially.
+	 */
+	private static class InsertAllTask extends RecursiveTask<Node> {
+
+		private static final long serialVersionUID = 1L;
+		
+		// levels to split beyond log2(parallelism)
+		static final int EXTRA_LEVELS = 3;
+		// below this many entries the overhead of forking 
+		// outweighs the benefit
+		static final int SEQUENTIAL_CUTOFF = 1024;
+		
+		private final List<Map.Entry<byte[], byte[]>> sorted;
+		private final int from;
+		private final int to;
+		private final int currentBitIndex;
+		private final Node currentNode;
+		private final int forkDepth;
+		// the changes made by this task and its subtasks
+		private final Counts counts;
+		
+		InsertAllTask(List<Map.Entry<byte[], byte[]>> sorted, int from, int to, int currentBitIndex, 
+				Node currentNode, int forkDepth) {
+			this.sorted = sorted;
+			this.from = from;
+			this.to = to;
+			this.currentBitIndex = currentBitIndex;
+			this.currentNode = currentNode;
+			this.forkDepth = forkDepth;
+			this.counts = new Counts();
+		}
+		
+		@Override
+		protected Node compute() {
+			if (this.currentBitIndex + 1 >= this.forkDepth || this.to - this.from <= SEQUENTIAL_CUTOFF ||
+					(this.currentNode.isLeaf() && 
+							MPTDictionaryFull.isSingleKey(this.sorted, this.from, this.to, this.currentNode))) {
+				return MPTDictionaryFull.insertAllHelper(this.sorted, this.from, this.to, 
+						this.currentBitIndex, this.currentNode, this.counts);
+			}
+			// find the interior node where the range is 
+			// partitioned (see insertAllHelper)
+			if (this.currentNode.isLeaf()) {
+				int splitBitIndex = MPTDictionaryFull.firstDifferentBit(this.sorted, this.from, this.to, 
+						this.currentNode, this.currentBitIndex);
+				InteriorNode splitNode = MPTDictionaryFull.pushDown(this.currentNode, splitBitIndex - 1, this.counts);
+				this.insertIntoChildren(splitNode, splitBitIndex - 1);
+				return MPTDictionaryFull.chain(this.sorted.get(this.from).getKey(), this.currentBitIndex, 
+						splitBitIndex, splitNode, this.counts);
+			}
+			this.counts.markStale(this.currentNode);
+			if (this.currentNode instanceof CompressedInteriorNode) {
+				CompressedInteriorNode run = (CompressedInteriorNode) this.currentNode;
+				int matching = MPTDictionaryFull.countMatchingLevels(this.sorted, this.from, this.to, run);
+				if (matching == run.getLength()) {
+					InsertAllTask childTask = new InsertAllTask(this.sorted, this.from, this.to, 
+							this.currentBitIndex + matching, run.getChild(), this.forkDepth);
+					run.setChild(childTask.compute());
+					this.counts.add(childTask.counts);
+					return run;
+				}
+				InteriorNode level = run.expandLevel(matching);
+				this.insertIntoChildren(level, this.currentBitIndex + matching);
+				return matching == 0 ? level : run;
+			}
+			this.insertIntoChildren(this.currentNode, this.currentBitIndex);
+			return this.currentNode;
+		}
+		
+		// partition the range on the next bit and 
+		// insert the two halves in parallel
+		private void insertIntoChildren(Node node, int bitIndex) {
+			int mid = MPTDictionaryFull.partition(this.sorted, this.from, this.to, bitIndex);
+			InsertAllTask left = null;
+			InsertAllTask right = null;
+			if (this.from < mid) {
+				left = new InsertAllTask(this.sorted, this.from, mid, bitIndex + 1,
+						node.getLeftChild(), this.forkDepth);
+			}
+			if (mid < this.to) {
+				right = new InsertAllTask(this.sorted, mid, this.to, bitIndex + 1,
+						node.getRightChild(), this.forkDepth);
+			}
+			if (left != null && right != null) {
+				RecursiveTask.invokeAll(left, right);
+			} else if (left != null) {
+				left.invoke();
+			} else {
+				right.invoke();
+			}
+			// the subtrees are done, only this node is 
+			// updated (by this thread)
+			if (left != null) {
+				node.setLeftChild(left.join());
+				this.counts.add(left.counts);
+			}
+			if (right != null) {
+				node.setRightChild(right.join());
+				this.counts.add(right.counts);
+			}
+		}
+	}
+	
+	/**
+	 * Insert sorted[from:to] in a single traversal. At each interior node the
+	 * (sorted) range is partitioned on the next bit, so the shared prefix of the 
+	 * keys is only visited once.
+	 * 
+	 * path to currentNode = key[:currentBitIndex + 1] for every key in the range
+	 */
+	private static Node insertAllHelper(final List<Map.Entry<byte[], byte[]>> sorted, final int from, final int to,
+			final int currentBitIndex, Node currentNode, final Counts counts) {
+		if (to - from == 1) {
+			return MPTDictionaryFull.insertHelper(sorted.get(from).getKey(), sorted.get(from).getValue(), 
+					currentBitIndex, currentNode, counts);
+		}
 		if (currentNode.isLeaf()) {
-			// this key is already in the tree, update existing mapping
-			if (Arrays.equals(currentNode.getKey(), key)) {
-				// update the value
-				currentNode.setValue(value);
+			if (MPTDictionaryFull.isSingleKey(sorted, from, to, currentNode)) {
+				// the same key repeated - just apply the updates in order
+				for (int i = from; i < to; i++) {
+					currentNode = MPTDictionaryFull.insertHelper(sorted.get(i).getKey(), sorted.get(i).getValue(),
+							currentBitIndex, currentNode, counts);
+				}
 				return currentNode;
 			}
-			// if the key is not in the tree add it
-			DictionaryLeafNode nodeToAdd = new DictionaryLeafNode(key, value);
-			if (currentNode.isEmpty()) {
-				// if the current leaf is empty, just replace it
-				return nodeToAdd;
+			// the keys collide until the first bit where they differ
+			int splitBitIndex = MPTDictionaryFull.firstDifferentBit(sorted, from, to, currentNode, currentBitIndex);
+			InteriorNode splitNode = MPTDictionaryFull.pushDown(currentNode, splitBitIndex - 1, counts);
+			MPTDictionaryFull.insertAllHelper(sorted, from, to, splitBitIndex - 1, splitNode, counts);
+			return MPTDictionaryFull.chain(sorted.get(from).getKey(), currentBitIndex, splitBitIndex, splitNode, counts);
+		}
+		counts.markStale(currentNode);
+		if (currentNode instanceof CompressedInteriorNode) {
+			CompressedInteriorNode run = (CompressedInteriorNode) currentNode;
+			int matching = MPTDictionaryFull.countMatchingLevels(sorted, from, to, run);
+			if (matching == run.getLength()) {
+				// skip to the end of the run
+				Node newChild = MPTDictionaryFull.insertAllHelper(sorted, from, to, currentBitIndex + matching, 
+						run.getChild(), counts);
+				run.setChild(newChild);
+				return run;
 			}
-			// otherwise we need to "split"
-			DictionaryLeafNode currentLeafNode = (DictionaryLeafNode) currentNode;
-			// mark the current node as "changed" even though 
-			// its value hasn't since it is now in a new location 
-			// in the MPT
-			currentLeafNode.markChangedAll();
-			return MPTDictionaryFull.split(currentLeafNode, nodeToAdd, currentBitIndex);
-		}
-		boolean bit = Utils.getBit(key, currentBitIndex + 1);
-		/*
-		 * Encoding: if bit is 1 -> go right if bit is 0 -> go left
-		 */
-		if (bit) {
-			Node newRightChild = MPTDictionaryFull.insertHelper(key, value, currentBitIndex + 1,
-					currentNode.getRightChild());
-			// update the right child
+			// some keys lead to an empty leaf in the run
+			InteriorNode level = run.expandLevel(matching);
+			MPTDictionaryFull.insertAllHelper(sorted, from, to, currentBitIndex + matching, level, counts);
+			return matching == 0 ? level : run;
+		}
+		int lo = MPTDictionaryFull.partition(sorted, from, to, currentBitIndex);
+		if (from < lo) {
+			Node newLeftChild = MPTDictionaryFull.insertAllHelper(sorted, from, lo, currentBitIndex + 1,
+					currentNode.getLeftChild(), counts);
+			currentNode.setLeftChild(newLeftChild);
+		}
+		if (lo < to) {
+			Node newRightChild = MPTDictionaryFull.insertAllHelper(sorted, lo, to, currentBitIndex + 1,
+					currentNode.getRightChild(), counts);
 			currentNode.setRightChild(newRightChild);
-			return currentNode;
-
 		}
-		Node newLeftChild = MPTDictionaryFull.insertHelper(key, value, currentBitIndex + 1, currentNode.getLeftChild());
-		currentNode.setLeftChild(newLeftChild);
 		return currentNode;
 	}
-
-	private static Node split(final DictionaryLeafNode a, final DictionaryLeafNode b, final int currentBitIndex) {
-		assert !Arrays.equals(a.getKey(), b.getKey());
-		boolean bitA = Utils.getBit(a.getKey(), currentBitIndex + 1);
-		boolean bitB = Utils.getBit(b.getKey(), currentBitIndex + 1);
-		// still collision, split again
-		if (bitA == bitB) {
-			// recursively split
-			Node res;
-			if (bitA) {
-				// if bit is 1 add on the right
-				res = MPTDictionaryFull.split(a, b, currentBitIndex + 1);
-				return new InteriorNode(new EmptyLeafNode(), res);
+	
+	/**
+	 * Returns the first bit index > currentBitIndex at which the keys in 
+	 * sorted[from:to] and the key at leaf (if not empty) differ. The keys 
+	 * are sorted so this is where the first and last keys differ or 
+	 * where the first key and the key at the leaf differ.
+	 */
+	private static int firstDifferentBit(final List<Map.Entry<byte[], byte[]>> sorted, final int from, final int to, 
+			final Node leaf, final int currentBitIndex) {
+		byte[] firstKey = sorted.get(from).getKey();
+		byte[] lastKey = sorted.get(to - 1).getKey();
+		int bitIndex = CryptographicDigest.getSizeBits();
+		if (!Arrays.equals(firstKey, lastKey)) {
+			bitIndex = MPTDictionaryFull.firstDifferentBit(firstKey, lastKey, currentBitIndex + 1);
+		}
+		if (!leaf.isEmpty() && !Arrays.equals(firstKey, leaf.getKey())) {
+			bitIndex = Math.min(bitIndex, MPTDictionaryFull.firstDifferentBit(firstKey, leaf.getKey(), 
+					currentBitIndex + 1));
+		}
+		return bitIndex;
+	}
+	
+	/**
+	 * Returns the number of levels of the run that are on the path 
+	 * to every key in sorted[from:to]. Since the keys are sorted 
+	 * this is the minimum for the first and last keys.
+	 */
+	private static int countMatchingLevels(final List<Map.Entry<byte[], byte[]>> sorted, final int from, 
+			final int to, final CompressedInteriorNode run) {
+		return Math.min(run.countMatchingLevels(sorted.get(from).getKey()), 
+				run.countMatchingLevels(sorted.get(to - 1).getKey()));
+	}
+	
+	/**
+	 * True if the only key in sorted[from:to] and at leaf is the same 
+	 * single key (or leaf is empty)
+	 */
+	private static boolean isSingleKey(final List<Map.Entry<byte[], byte[]>> sorted, final int from, final int to, 
+			final Node leaf) {
+		byte[] firstKey = sorted.get(from).getKey();
+		return Arrays.equals(firstKey, sorted.get(to - 1).getKey()) && 
+				(leaf.isEmpty() || Arrays.equals(firstKey, leaf.getKey()));
+	}
+	
+	/**
+	 * Called when at least two distinct keys will end up under leaf
+	 * and they first differ at bit currentBitIndex + 1, so there 
+	 * must be an interior node that branches on that bit. An existing 
+	 * leaf is pushed down below it (and marked as "changed"
+	 * since it is now in a new location in the MPT)
+	 */
+	private static InteriorNode pushDown(final Node leaf, final int currentBitIndex, final Counts counts) {
+		Node leftChild = new EmptyLeafNode();
+		Node rightChild = new EmptyLeafNode();
+		// either way there is one more interior node and one more 
+		// empty leaf (an empty leaf is replaced by two)
+		counts.interiorNodes++;
+		counts.emptyLeafNodes++;
+		counts.staleHashes++;
+		if (!leaf.isEmpty()) {
+			leaf.markChangedAll();
+			if (Utils.getBit(leaf.getKey(), currentBitIndex + 1)) {
+				rightChild = leaf;
+			} else {
+				leftChild = leaf;
 			}
-			// if bit is 0 add on the left
-			res = split(a, b, currentBitIndex + 1);
-			return new InteriorNode(res, new EmptyLeafNode());
 		}
-		// no collision
-		if (bitA) {
+		return new InteriorNode(leftChild, rightChild);
+	}
+	
+	/**
+	 * All keys in sorted[from:to] share key[:currentBitIndex+1], so the keys 
+	 * with next bit 0 come before those with next bit 1. Returns the index 
+	 * of the first key with next bit 1 (or to if there is none)
+	 */
+	private static int partition(final List<Map.Entry<byte[], byte[]>> sorted, final int from, final int to,
+			final int currentBitIndex) {
+		int lo = from;
+		int hi = to;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (Utils.getBit(sorted.get(mid).getKey(), currentBitIndex + 1)) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	private static Node split(final DictionaryLeafNode a, final DictionaryLeafNode b, final int currentBitIndex, 
+			final Counts counts) {
+		assert !Arrays.equals(a.getKey(), b.getKey());
+		byte[] keyA = a.getKey();
+		byte[] keyB = b.getKey();
+		// the keys collide until the first bit where they differ
+		int firstDifferentBit = MPTDictionaryFull.firstDifferentBit(keyA, keyB, currentBitIndex + 1);
+		Node splitNode;
+		if (Utils.getBit(keyA, firstDifferentBit)) {
 			// bitA is 1, bitB is 0
-			return new InteriorNode(b, a);
+			splitNode = new InteriorNode(b, a);
+		} else {
+			// bitA is 0, bitB is 1
+			splitNode = new InteriorNode(a, b);
+		}
+		counts.interiorNodes++;
+		counts.staleHashes++;
+		// the collisions are a run of interior nodes
+		// with a single child
+		return MPTDictionaryFull.chain(keyA, currentBitIndex, firstDifferentBit, splitNode, counts);
+	}
+	
+	/**
+	 * Returns the run of interior nodes from currentNode (at currentBitIndex) down to 
+	 * splitNode (which branches on bit splitBitIndex). Returns splitNode if there
+	 * are no levels in between.
+	 */
+	private static Node chain(final byte[] key, final int currentBitIndex, final int splitBitIndex, 
+			final Node splitNode, final Counts counts) {
+		int levels = splitBitIndex - currentBitIndex - 1;
+		counts.addRun(levels);
+		return CompressedInteriorNode.chain(key, currentBitIndex + 1, levels, splitNode);
+	}
+	
+	/**
+	 * Returns the first bit index >= fromBit at which a and b differ. 
+	 * a and b must not be equal.
+	 */
+	private static int firstDifferentBit(final byte[] a, final byte[] b, final int fromBit) {
+		int byteIndex = fromBit >>> 3;
+		// ignore the bits before fromBit in the first byte
+		int difference = ((a[byteIndex] ^ b[byteIndex]) & 0xff) & (0xff >>> (fromBit & 7));
+		while (difference == 0) {
+			byteIndex++;
+			difference = (a[byteIndex] ^ b[byteIndex]) & 0xff;
 		}
-		// bitA is 0, bitB is 1
-		return new InteriorNode(a, b);
+		return byteIndex * 8 + Integer.numberOfLeadingZeros(difference) - 24;
 	}
 
 	@Override
@@ -151,91 +660,210 @@ public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 		return MPTDictionaryFull.getHelper(this.root, key, -1);
 	}
 
-	private static byte[] getHelper(final Node currentNode, final byte[] key, final int currentBitIndex) {
-		if (currentNode.isLeaf()) {
-			if (!currentNode.isEmpty()) {
-				// if the current node is NonEmpty and matches the Key
-				if (Arrays.equals(currentNode.getKey(), key)) {
-					return currentNode.getValue();
+	private static byte[] getHelper(final Node rootNode, final byte[] key, final int rootBitIndex) {
+		Node currentNode = rootNode;
+		int currentBitIndex = rootBitIndex;
+		while (!currentNode.isLeaf()) {
+			if (currentNode instanceof CompressedInteriorNode) {
+				CompressedInteriorNode run = (CompressedInteriorNode) currentNode;
+				if (run.countMatchingLevels(key) < run.getLength()) {
+					// the key leads to an empty leaf in the run
+					return null;
 				}
+				currentBitIndex += run.getLength();
+				currentNode = run.getChild();
+				continue;
 			}
-			// otherwise key not in the MPT - return null;
-			return null;
+			boolean bit = Utils.getBit(key, currentBitIndex + 1);
+			currentBitIndex++;
+			currentNode = bit ? currentNode.getRightChild() : currentNode.getLeftChild();
 		}
-		boolean bit = Utils.getBit(key, currentBitIndex + 1);
-		if (bit) {
-			return MPTDictionaryFull.getHelper(currentNode.getRightChild(), key, currentBitIndex + 1);
+		if (!currentNode.isEmpty()) {
+			// if the current node is NonEmpty and matches the Key
+			if (Arrays.equals(currentNode.getKey(), key)) {
+				return currentNode.getValue();
+			}
 		}
-		return MPTDictionaryFull.getHelper(currentNode.getLeftChild(), key, currentBitIndex + 1);
+		// otherwise key not in the MPT - return null;
+		return null;
 	}
 	
 	@Override
 	public void delete(final byte[] key) {
 		assert key.length == CryptographicDigest.getSizeBytes();
 		LOGGER.log(Level.FINE, "delete(" + Utils.byteArrayAsHexString(key) + ")");
-		MPTDictionaryFull.deleteHelper(key, -1, this.root, true);
+		MPTDictionaryFull.deleteHelper(key, -1, this.root, true, this.counts);
 	}
 
+	/**
+	 * Delete key from the subtree rooted at currentNode and return the 
+	 * subtree that replaces it. 
+	 * 
+	 * The path to the key is walked down and every node on it is updated 
+	 * (as it is for an insert) and kept on a stack. Deleting a leaf can 
+	 * collapse the interior nodes above it, so the path is then walked back 
+	 * up while the nodes collapse. Nodes that collapse are removed from 
+	 * the MPT so it does not matter that they were updated.
+	 */
 	private static Node deleteHelper(final byte[] key, final int currentBitIndex, final Node currentNode, 
-			final boolean isRoot) {
-		if (currentNode.isLeaf()) {
-			if (!currentNode.isEmpty()) {
-				if (Arrays.equals(currentNode.getKey(), key)) {
-					return new EmptyLeafNode();
+			final boolean isRoot, final Counts counts) {
+		Node[] path = new Node[INITIAL_PATH_LENGTH];
+		int pathLength = 0;
+		Node node = currentNode;
+		int bitIndex = currentBitIndex;
+		while (!node.isLeaf()) {
+			counts.markStale(node);
+			Node child;
+			if (node instanceof CompressedInteriorNode) {
+				CompressedInteriorNode run = (CompressedInteriorNode) node;
+				int matching = run.countMatchingLevels(key);
+				if (matching < run.getLength()) {
+					// the key is not in the tree, but the path to the 
+					// empty leaf it leads to is updated (as it is for 
+					// any other interior node)
+					InteriorNode level = run.expandLevel(matching);
+					if (matching > 0) {
+						return currentNode;
+					}
+					// the level takes the place of the run
+					if (pathLength == 0) {
+						return level;
+					}
+					MPTDictionaryFull.setChild(path[pathLength - 1], Utils.getBit(key, bitIndex), level);
+					return currentNode;
 				}
+				child = run.getChild();
+				run.setChild(child);
+				bitIndex += matching;
+			} else {
+				boolean bit = Utils.getBit(key, bitIndex + 1);
+				child = bit ? node.getRightChild() : node.getLeftChild();
+				MPTDictionaryFull.setChild(node, bit, child);
+				bitIndex++;
 			}
-			// otherwise the key is not in the tree and nothing needs to be done
-			return currentNode;
+			if (pathLength == path.length) {
+				path = Arrays.copyOf(path, 2 * path.length);
+			}
+			path[pathLength++] = node;
+			node = child;
 		}
-		// we have to watch out to make sure that if this is the root node
-		// that we return an InteriorNode and don't propagate up an empty node
-		boolean bit = Utils.getBit(key, currentBitIndex + 1);
-		Node leftChild = currentNode.getLeftChild();
-		Node rightChild = currentNode.getRightChild();
-		if (bit) {
-			// delete key from the right subtree
-			Node newRightChild = MPTDictionaryFull.deleteHelper(key, currentBitIndex + 1, rightChild, false);
-			// if left subtree is empty, and rightChild is leaf
-			// we push the newRightChild back up the MPT
-			if (leftChild.isEmpty() && newRightChild.isLeaf() && !isRoot) {
-				return newRightChild;
+		// the leaf (or the empty leaf that replaces it) 
+		// is pushed up while the nodes above it collapse
+		Node newChild = MPTDictionaryFull.deleteAtLeaf(key, node, counts);
+		while (pathLength > 0) {
+			Node parent = path[--pathLength];
+			Node collapsed = MPTDictionaryFull.collapse(key, bitIndex, parent, newChild, 
+					isRoot && pathLength == 0, counts);
+			if (collapsed == null) {
+				MPTDictionaryFull.setChild(parent, Utils.getBit(key, bitIndex), newChild);
+				return currentNode;
 			}
-			// if newRightChild is empty, and leftChild is a leaf
-			// we push the leftChild back up the MPT
-			if (newRightChild.isEmpty() && leftChild.isLeaf() && !isRoot) {
-				// we also mark the left subtree as changed 
-				// since its entire position has changed
-				leftChild.markChangedAll();
-				return leftChild;
+			newChild = collapsed;
+			bitIndex -= MPTDictionaryFull.levels(parent);
+		}
+		return newChild;
+	}
+	
+	/**
+	 * Returns the node that replaces leaf once key is deleted
+	 */
+	private static Node deleteAtLeaf(final byte[] key, final Node leaf, final Counts counts) {
+		if (!leaf.isEmpty()) {
+			if (Arrays.equals(leaf.getKey(), key)) {
+				counts.nonEmptyLeafNodes--;
+				counts.emptyLeafNodes++;
+				if (leaf.requiresHashRecalculation()) {
+					counts.staleHashes--;
+				}
+				return new EmptyLeafNode();
 			}
-			// otherwise just update current (interior) node's
-			// right child
-			currentNode.setRightChild(newRightChild);
-			return currentNode;
 		}
-		Node newLeftChild = MPTDictionaryFull.deleteHelper(key, currentBitIndex + 1, leftChild, false);
-		if (rightChild.isEmpty() && newLeftChild.isLeaf() && !isRoot) {
-			return newLeftChild;
+		// otherwise the key is not in the tree and nothing needs to be done
+		return leaf;
+	}
+	
+	/**
+	 * The child of currentNode (at childBitIndex) on the path to key 
+	 * has been replaced by leaf. If currentNode collapses returns 
+	 * the leaf that is pushed up to replace it, otherwise returns null. 
+	 */
+	private static Node collapse(final byte[] key, final int childBitIndex, final Node currentNode, 
+			final Node leaf, final boolean isRoot, final Counts counts) {
+		// every level of a run has an empty sibling so 
+		// the leaf is pushed up the entire run
+		if (currentNode instanceof CompressedInteriorNode) {
+			counts.removeLevels(currentNode);
+			return leaf;
 		}
-		if (newLeftChild.isEmpty() && rightChild.isLeaf() && !isRoot) {
-			rightChild.markChangedAll();
-			return rightChild;
+		// we have to watch out to make sure that if this is the root node
+		// that we return an InteriorNode and don't propagate up an empty node
+		if (isRoot) {
+			return null;
 		}
-		currentNode.setLeftChild(newLeftChild);
-		return currentNode;
-	};
+		Node sibling = Utils.getBit(key, childBitIndex) ? currentNode.getLeftChild() : currentNode.getRightChild();
+		// if the sibling is empty we push the leaf back up the MPT
+		if (sibling.isEmpty()) {
+			counts.removeLevels(currentNode);
+			return leaf;
+		}
+		// if the leaf is empty, and the sibling is a leaf
+		// we push the sibling back up the MPT
+		if (leaf.isEmpty() && sibling.isLeaf()) {
+			// we also mark the sibling as changed 
+			// since its entire position has changed
+			sibling.markChangedAll();
+			counts.removeLevels(currentNode);
+			return sibling;
+		}
+		return null;
+	}
 
 	@Override
 	public byte[] commitment() {
-		return this.root.getHash();
+		byte[] commitment = this.root.getHash();
+		this.counts.staleHashes = 0;
+		return commitment;
 	};
 	
-	public byte[] commitmentParallelized(ExecutorService workers) {
-		return this.root.getHashParallel(workers);
+	public byte[] commitmentParallelized(ForkJoinPool workers) {
+		byte[] commitment = this.root.getHashParallel(workers, this.counts.staleHashes);
+		this.counts.staleHashes = 0;
+		return commitment;
+	}
+	
+	/**
+	 * Commit the changes since the last reset in a single traversal 
+	 * of the changed nodes. This is the same as commitment(), 
+	 * new MPTDictionaryDelta(this) and reset(), but each changed 
+	 * node is only visited once: its hash is recalculated, it is written 
+	 * to the delta and it is marked unchanged in the same visit.
+	 * @return the commitment, the delta and statistics about the commit
+	 */
+	public CommitResult commit() {
+		CommitResult result = MPTDictionaryDelta.commit(this.root, null, this.countNodes());
+		this.counts.staleHashes = 0;
+		return result;
+	}
+	
+	/**
+	 * Same as commit(), but the changed subtrees 
+	 * near the root are committed in parallel on the workers.
+	 * @param workers
+	 * @return
+	 */
+	public CommitResult commitParallelized(ForkJoinPool workers) {
+		CommitResult result = MPTDictionaryDelta.commit(this.root, workers, this.countNodes());
+		this.counts.staleHashes = 0;
+		return result;
 	}
 	
+	/**
+	 * Returns the number of hashes that must be calculated 
+	 * to recalculate the commitment. This is O(1).
+	 * @return
+	 */
 	public int countHashesRequiredToCommit() {
-		return this.root.countHashesRequiredForGetHash();
+		return this.counts.staleHashes;
 	}
 
 	@Override
@@ -243,31 +871,54 @@ public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 		this.root.markUnchangedAll();
 	};
 	
-	private static Node parseNode(MptSerialization.Node nodeSerialization) throws InvalidSerializationException {
-		switch (nodeSerialization.getNodeCase()) {
-		case INTERIOR_NODE:
-			MptSerialization.InteriorNode in = nodeSerialization.getInteriorNode();
-			if(!in.hasLeft() || !in.hasRight()) {
-				throw new InvalidSerializationException("interior node does not have both children");
+	/**
+	 * Parses the serialized subtree in post-order with an explicit stack: 
+	 * an interior node is built once both of its children are parsed
+	 */
+	private static Node parseNode(MptSerialization.Node rootSerialization) throws InvalidSerializationException {
+		// holds nodes to parse, and interior nodes (MptSerialization.InteriorNode)
+		// waiting for their children
+		Deque<Object> toParse = new ArrayDeque<>();
+		Deque<Node> parsed = new ArrayDeque<>();
+		toParse.push(rootSerialization);
+		while (!toParse.isEmpty()) {
+			Object next = toParse.pop();
+			if (next instanceof MptSerialization.InteriorNode) {
+				Node right = parsed.pop();
+				Node left = parsed.pop();
+				parsed.push(new InteriorNode(left, right));
+				continue;
 			}
-			Node left = MPTDictionaryFull.parseNode(in.getLeft());
-			Node right = MPTDictionaryFull.parseNode(in.getRight());
-			return new InteriorNode(left, right);
-		case STUB:
-			throw new InvalidSerializationException("serialized full mpt should not have stubs");
-		case LEAF:
-			MptSerialization.Leaf leaf = nodeSerialization.getLeaf();
-			if (leaf.getKey().isEmpty() || leaf.getValue().isEmpty()) {
-				throw new InvalidSerializationException("dictionary leaf must have key and value");
+			MptSerialization.Node nodeSerialization = (MptSerialization.Node) next;
+			switch (nodeSerialization.getNodeCase()) {
+			case INTERIOR_NODE:
+				MptSerialization.InteriorNode in = nodeSerialization.getInteriorNode();
+				if(!in.hasLeft() || !in.hasRight()) {
+					throw new InvalidSerializationException("interior node does not have both children");
+				}
+				toParse.push(in);
+				toParse.push(in.getRight());
+				toParse.push(in.getLeft());
+				break;
+			case STUB:
+				throw new InvalidSerializationException("serialized full mpt should not have stubs");
+			case LEAF:
+				MptSerialization.Leaf leaf = nodeSerialization.getLeaf();
+				if (leaf.getKey().isEmpty() || leaf.getValue().isEmpty()) {
+					throw new InvalidSerializationException("dictionary leaf must have key and value");
+				}
+				parsed.push(new DictionaryLeafNode(leaf.getKey().toByteArray(), leaf.getValue().toByteArray()));
+				break;
+			case EMPTYLEAF:
+				parsed.push(new EmptyLeafNode());
+				break;
+			case NODE_NOT_SET:
+				throw new InvalidSerializationException("no node included - fatal error");
+			default:
+				throw new InvalidSerializationException("?????");
 			}
-			return new DictionaryLeafNode(leaf.getKey().toByteArray(), leaf.getValue().toByteArray());
-		case EMPTYLEAF:
-			return new EmptyLeafNode();
-		case NODE_NOT_SET:
-			throw new InvalidSerializationException("no node included - fatal error");
-		default:
-			throw new InvalidSerializationException("?????");
 		}
+		return parsed.pop();
 	}
 	
 	/**
@@ -336,38 +987,38 @@ public class MPTDictionaryFull implements AuthenticatedDictionaryServer {
 	
 	/**
 	 * Returns the total number of 
-	 * nodes of any kind in the MPT
+	 * nodes of any kind in the MPT. This is O(1).
 	 * @return
 	 */
 	public int countNodes() {
-		return this.root.nodesInSubtree();
+		return this.counts.interiorNodes + this.counts.emptyLeafNodes + this.counts.nonEmptyLeafNodes;
 	}
 	
 	/**
 	 * Returns the total number of interior nodes
-	 * in the MPT
+	 * in the MPT. This is O(1).
 	 * @return
 	 */
 	public int countInteriorNodes() {
-		return this.root.interiorNodesInSubtree();
+		return this.counts.interiorNodes;
 	}
 	
 	/**
 	 * Returns the total number of 
-	 * empty nodes in the MPT
+	 * empty nodes in the MPT. This is O(1).
 	 * @return
 	 */
 	public int countEmptyLeafNodes() {
-		return this.root.emptyLeafNodesInSubtree();
+		return this.counts.emptyLeafNodes;
 	}
 	
 	/**
 	 * Returns the total number of 
-	 * non-empty nodes in the MPT
+	 * non-empty nodes in the MPT. This is O(1).
 	 * @return
 	 */
 	public int countNonEmptyLeafNodes() {
-		return this.root.nonEmptyLeafNodesInSubtree();
+		return this.counts.nonEmptyLeafNodes;
 	}
 	
 	@Override
@@ -1,10 +1,15 @@
 package mpt.dictionary;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
 
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
 
 import crpyto.CryptographicDigest;
 import mpt.core.EmptyLeafNode;
@@ -39,6 +44,9 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 	 * @param fullMPT - full MPT to copy from
 	 */
 	public MPTDictionaryPartial(MPTDictionaryFull fullMPT) {
+		// the stubs store hashes - calculate them through 
+		// the MPT so that it can keep track of stale hashes
+		fullMPT.commitment();
 		// just copies the root
 		this.root = new InteriorNode(new Stub(fullMPT.root.getLeftChild().getHash()),
 				new Stub(fullMPT.root.getRightChild().getHash()));
@@ -59,6 +67,7 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 		assert key.length == CryptographicDigest.getSizeBytes();
 		List<byte[]> keys = new ArrayList<>();
 		keys.add(key);
+		fullMPT.commitment();
 		Node root = MPTDictionaryPartial.copyMultiplePaths(keys, fullMPT.root, -1);
 		//this.root = (InteriorNode) root;
 		this.root = root;
@@ -77,16 +86,43 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 		for(byte[] key : keys) {
 			assert key.length == CryptographicDigest.getSizeBytes();
 		}
+		fullMPT.commitment();
 		Node root = MPTDictionaryPartial.copyMultiplePaths(keys, fullMPT.root, -1);
 		//Node root = MPTDictionaryPartial.copyMultiplePathsRoot(keys, fullMPT.root, -1);
 		//this.root = (InteriorNode) root;
 		this.root = root;
 	}
 	
-	private MPTDictionaryPartial(InteriorNode root) {
+	private MPTDictionaryPartial(Node root) {
 		this.root = root;
 	}
 	
+	/**
+	 * Create a partial MPT that contains the specified key mappings 
+	 * from an MPT whose hashes have already been calculated 
+	 * and which is not modified while it is copied (a committed version)
+	 * @param root - the root of the MPT to copy from
+	 * @param keys - the key mappings to copy
+	 * @return
+	 */
+	static MPTDictionaryPartial copyPaths(final Node root, final List<byte[]> keys) {
+		for(byte[] key : keys) {
+			assert key.length == CryptographicDigest.getSizeBytes();
+		}
+		return new MPTDictionaryPartial(MPTDictionaryPartial.copyMultiplePaths(keys, root, -1));
+	}
+	
+	/**
+	 * Create a partial MPT that contains only some of the key mappings
+	 * in this partial MPT, along with the required authentication information
+	 * @param keys - the key mappings to copy, must be in this partial MPT
+	 * @return
+	 */
+	public MPTDictionaryPartial copyPartial(final List<byte[]> keys) {
+		this.commitment();
+		return MPTDictionaryPartial.copyPaths(this.root, keys);
+	}
+
 	private static Node copyMultiplePaths(final List<byte[]> matchingKeys, final Node copyNode, final int currentBitIndex) {
 		// case: if this is not on the path to the key hash 
 		if(matchingKeys.size() == 0) {
@@ -128,27 +164,27 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 		return MPTDictionaryPartial.getHelper(this.root, key, -1);
 	}
 
-	private static byte[] getHelper(final Node currentNode, final byte[] key, final int currentBitIndex) 
+	private static byte[] getHelper(final Node rootNode, final byte[] key, final int rootBitIndex) 
 			throws InsufficientAuthenticationDataException {
-		if (currentNode.isStub()) {
-			throw new InsufficientAuthenticationDataException(
-					"stub encountered at: " + Utils.byteArrayPrefixAsBitString(key, currentBitIndex));
-		}
-		if (currentNode.isLeaf()) {
-			if (!currentNode.isEmpty()) {
-				// if the current node is NonEmpty and matches the Key
-				if (Arrays.equals(currentNode.getKey(), key)) {
-					return currentNode.getValue();
-				}
+		Node currentNode = rootNode;
+		int currentBitIndex = rootBitIndex;
+		while (!currentNode.isLeaf()) {
+			if (currentNode.isStub()) {
+				throw new InsufficientAuthenticationDataException(
+						"stub encountered at: " + Utils.byteArrayPrefixAsBitString(key, currentBitIndex));
 			}
-			// otherwise key not in the MPT - return null;
-			return null;
+			boolean bit = Utils.getBit(key, currentBitIndex + 1);
+			currentBitIndex++;
+			currentNode = bit ? currentNode.getRightChild() : currentNode.getLeftChild();
 		}
-		boolean bit = Utils.getBit(key, currentBitIndex + 1);
-		if (bit) {
-			return MPTDictionaryPartial.getHelper(currentNode.getRightChild(), key, currentBitIndex + 1);
+		if (!currentNode.isEmpty()) {
+			// if the current node is NonEmpty and matches the Key
+			if (Arrays.equals(currentNode.getKey(), key)) {
+				return currentNode.getValue();
+			}
 		}
-		return MPTDictionaryPartial.getHelper(currentNode.getLeftChild(), key, currentBitIndex + 1);
+		// otherwise key not in the MPT - return null;
+		return null;
 	}
 	
 	public byte[] commitment() {
@@ -156,19 +192,43 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 	}
 	
 	/**
-	 * Deserialize a partial MPT from bytes
+	 * Deserialize a partial MPT from bytes (without 
+	 * parsing the protobuf representation first)
 	 * @param asbytes
 	 * @return
 	 * @throws InvalidSerializationException - if the serialization cannot be decoded
 	 */
 	public static MPTDictionaryPartial deserialize(byte[] asbytes) throws InvalidSerializationException {
-		MptSerialization.MerklePrefixTrie mpt;
-		try {
-			mpt = MptSerialization.MerklePrefixTrie.parseFrom(asbytes);
-			return MPTDictionaryPartial.deserialize(mpt);
-		} catch (InvalidProtocolBufferException e) {
-			throw new InvalidSerializationException(e.getMessage());
+		return MPTDictionaryPartial.deserialize(CodedInputStream.newInstance(asbytes));
+	}
+	
+	/**
+	 * Deserialize a partial MPT from the bytes remaining in the buffer
+	 * @param buffer
+	 * @return
+	 * @throws InvalidSerializationException - if the serialization cannot be decoded
+	 */
+	public static MPTDictionaryPartial deserialize(ByteBuffer buffer) throws InvalidSerializationException {
+		return MPTDictionaryPartial.deserialize(CodedInputStream.newInstance(buffer));
+	}
+	
+	/**
+	 * Deserialize a partial MPT from a serialized MerklePrefixTrie 
+	 * that is read directly from the input, without building the protobuf 
+	 * representation (see parseNode(CodedInputStream, Node)).
+	 * @param input - contains the serialized MerklePrefixTrie (until its end)
+	 * @return
+	 * @throws InvalidSerializationException - if it cannot properly be decoded
+	 */
+	public static MPTDictionaryPartial deserialize(CodedInputStream input) throws InvalidSerializationException {
+		Node root = MPTDictionaryPartial.parseMerklePrefixTrie(input, null, null);
+		if (root == null) {
+			throw new InvalidSerializationException("no root included");
+		}
+		if (!(root instanceof InteriorNode)) {
+			throw new InvalidSerializationException("root is not an interior node!");
 		}
+		return new MPTDictionaryPartial(root);
 	}
 	
 	/**
@@ -196,53 +256,311 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 		if(!updates.hasRoot()) {
 			throw new InvalidSerializationException("update has no root");
 		}
-		Node newRoot = MPTDictionaryPartial.parseNodeUsingCachedValues(this.root, updates.getRoot());
-		//System.out.println(updates.getRoot());
-		//this.root = (InteriorNode) newRoot;
-		this.root = newRoot;
+		// nodes are updated in place, if the update is 
+		// rejected the partial MPT is restored
+		Deque<Node[]> undo = new ArrayDeque<>();
+		try {
+			this.root = MPTDictionaryPartial.parseNodeUsingCachedValues(this.root, updates.getRoot(), undo);
+		} catch (InvalidSerializationException | RuntimeException e) {
+			MPTDictionaryPartial.rollBack(undo);
+			throw e;
+		}
 	}
 	
-	private static Node parseNode(MptSerialization.Node nodeSerialization) throws InvalidSerializationException {
-		switch (nodeSerialization.getNodeCase()) {
-		case INTERIOR_NODE:
-			MptSerialization.InteriorNode in = nodeSerialization.getInteriorNode();
-			if(!in.hasLeft() || !in.hasRight()) {
-				throw new InvalidSerializationException("interior node does not have both children");
+	/**
+	 * Same as processUpdates(MerklePrefixTrie), but the update is read directly 
+	 * from the bytes remaining in the buffer, without building the protobuf 
+	 * representation (see parseNode(CodedInputStream, Node)).
+	 * @param buffer
+	 * @throws InvalidSerializationException
+	 */
+	public void processUpdates(ByteBuffer buffer) throws InvalidSerializationException {
+		this.processUpdates(CodedInputStream.newInstance(buffer));
+	}
+	
+	/**
+	 * Same as processUpdates(MerklePrefixTrie), but the update is read directly 
+	 * from the input, without building the protobuf representation 
+	 * (see parseNode(CodedInputStream, Node)).
+	 * @param input - contains the serialized MerklePrefixTrie (until its end)
+	 * @throws InvalidSerializationException
+	 */
+	public void processUpdates(CodedInputStream input) throws InvalidSerializationException {
+		Deque<Node[]> undo = new ArrayDeque<>();
+		try {
+			Node newRoot = MPTDictionaryPartial.parseMerklePrefixTrie(input, this.root, undo);
+			if (newRoot == null) {
+				throw new InvalidSerializationException("update has no root");
 			}
-			Node left = MPTDictionaryPartial.parseNode(in.getLeft());
-			Node right = MPTDictionaryPartial.parseNode(in.getRight());
-			return new InteriorNode(left, right);
-		case STUB:
-			MptSerialization.Stub stub = nodeSerialization.getStub();
-			if (stub.getHash().isEmpty()) {
-				throw new InvalidSerializationException("stub doesn't have a hash");
+			this.root = newRoot;
+		} catch (InvalidSerializationException | RuntimeException e) {
+			MPTDictionaryPartial.rollBack(undo);
+			throw e;
+		}
+	}
+	
+	// the fields of the messages in mpt.proto (all of them are length delimited)
+	private static final int MPT_ROOT = (1 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int NODE_INTERIOR_NODE = (1 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int NODE_LEAF = (2 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int NODE_STUB = (3 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int NODE_EMPTYLEAF = (4 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int INTERIOR_NODE_LEFT = (1 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int INTERIOR_NODE_RIGHT = (2 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int LEAF_KEY = (1 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int LEAF_VALUE = (2 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	private static final int STUB_HASH = (1 << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+	
+	/**
+	 * Reads a serialized MerklePrefixTrie and returns its root (or 
+	 * null if it has none). If cachedRoot is not null the MerklePrefixTrie 
+	 * is an update and omitted children are taken from the cached nodes. 
+	 */
+	private static Node parseMerklePrefixTrie(final CodedInputStream input, final Node cachedRoot, 
+			final Deque<Node[]> undo) throws InvalidSerializationException {
+		try {
+			Node root = null;
+			int tag;
+			while ((tag = input.readTag()) != 0) {
+				if (tag != MPT_ROOT) {
+					input.skipField(tag);
+					continue;
+				}
+				if (root != null) {
+					throw new InvalidSerializationException("more than one root included");
+				}
+				int limit = input.pushLimit(input.readRawVarint32());
+				root = MPTDictionaryPartial.parseNode(input, cachedRoot, undo);
+				input.popLimit(limit);
 			}
-			return new Stub(stub.getHash().toByteArray());
-		case LEAF:
-			MptSerialization.Leaf leaf = nodeSerialization.getLeaf();
-			if (leaf.getKey().isEmpty() || leaf.getValue().isEmpty()) {
-				throw new InvalidSerializationException("leaf doesn't have required keyhash and value");
+			return root;
+		} catch (IOException e) {
+			throw new InvalidSerializationException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * An interior node whose children are being read
+	 */
+	private static final class Frame {
+		// the cached node in its place (or null)
+		final Node cached;
+		// the limit to restore once the InteriorNode message is read
+		final int limit;
+		Node left;
+		Node right;
+		// true while the left child is read
+		boolean readingLeft;
+		// the limit to restore once the child being read is read
+		int childLimit;
+		
+		Frame(Node cached, int limit) {
+			this.cached = cached;
+			this.limit = limit;
+		}
+	}
+	
+	/**
+	 * Reads a serialized Node (up to the current limit of the input) 
+	 * with an explicit stack of the interior nodes whose children are 
+	 * being read. Nodes are built as they are read, no protobuf 
+	 * messages are created. If cachedNode is not null this is an 
+	 * update (see parseNodeUsingCachedValues) otherwise it is a full 
+	 * serialization (see parseNode(MptSerialization.Node)).
+	 */
+	private static Node parseNode(final CodedInputStream input, final Node cachedNode, final Deque<Node[]> undo) 
+			throws IOException, InvalidSerializationException {
+		final boolean update = cachedNode != null;
+		Deque<Frame> open = new ArrayDeque<>();
+		Node parsed = MPTDictionaryPartial.startNode(input, cachedNode, update, open);
+		while (true) {
+			if (parsed != null) {
+				if (open.isEmpty()) {
+					return parsed;
+				}
+				Frame parent = open.peek();
+				if (parent.readingLeft) {
+					parent.left = parsed;
+				} else {
+					parent.right = parsed;
+				}
+				input.popLimit(parent.childLimit);
+				parsed = null;
+			}
+			Frame current = open.peek();
+			int tag = input.readTag();
+			if (tag == INTERIOR_NODE_LEFT || tag == INTERIOR_NODE_RIGHT) {
+				current.readingLeft = tag == INTERIOR_NODE_LEFT;
+				if ((current.readingLeft ? current.left : current.right) != null) {
+					throw new InvalidSerializationException("interior node has more than one child on a side");
+				}
+				Node cachedChild = null;
+				if (current.cached != null) {
+					cachedChild = current.readingLeft ? current.cached.getLeftChild() : current.cached.getRightChild();
+				}
+				current.childLimit = input.pushLimit(input.readRawVarint32());
+				parsed = MPTDictionaryPartial.startNode(input, cachedChild, update, open);
+			} else if (tag != 0) {
+				input.skipField(tag);
+			} else {
+				// end of the InteriorNode message
+				input.popLimit(current.limit);
+				MPTDictionaryPartial.endNode(input);
+				open.pop();
+				Node left = current.left;
+				Node right = current.right;
+				if (!update) {
+					if (left == null || right == null) {
+						throw new InvalidSerializationException("interior node does not have both children");
+					}
+					parsed = new InteriorNode(left, right);
+					continue;
+				}
+				if (current.cached != null) {
+					left = left == null ? current.cached.getLeftChild() : left;
+					right = right == null ? current.cached.getRightChild() : right;
+				}
+				parsed = MPTDictionaryPartial.updateInterior(current.cached, left, right, undo);
+			}
+		}
+	}
+	
+	/**
+	 * Reads the start of a Node message. Returns the node if it is a leaf 
+	 * or a stub, or pushes a frame and returns null if it is an interior node
+	 */
+	private static Node startNode(final CodedInputStream input, final Node cachedNode, final boolean update, 
+			final Deque<Frame> open) throws IOException, InvalidSerializationException {
+		while (true) {
+			int tag = input.readTag();
+			if (tag == 0) {
+				throw new InvalidSerializationException(update ? "tried to use a cached node that is not present" :
+					"no node included - fatal error");
+			}
+			if (tag == NODE_INTERIOR_NODE) {
+				open.push(new Frame(cachedNode, input.pushLimit(input.readRawVarint32())));
+				return null;
+			}
+			Node node;
+			if (tag == NODE_LEAF) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				byte[] key = null;
+				byte[] value = null;
+				while ((tag = input.readTag()) != 0) {
+					if (tag == LEAF_KEY) {
+						key = input.readByteArray();
+					} else if (tag == LEAF_VALUE) {
+						value = input.readByteArray();
+					} else {
+						input.skipField(tag);
+					}
+				}
+				input.popLimit(limit);
+				if (key == null || value == null) {
+					throw new InvalidSerializationException("leaf doesn't have required keyhash and value");
+				}
+				node = MPTDictionaryPartial.updateLeaf(cachedNode, key, value);
+			} else if (tag == NODE_STUB) {
+				int limit = input.pushLimit(input.readRawVarint32());
+				byte[] hash = null;
+				while ((tag = input.readTag()) != 0) {
+					if (tag == STUB_HASH) {
+						hash = input.readByteArray();
+					} else {
+						input.skipField(tag);
+					}
+				}
+				input.popLimit(limit);
+				if (hash == null) {
+					throw new InvalidSerializationException("stub doesn't have a hash");
+				}
+				node = MPTDictionaryPartial.updateStub(cachedNode, hash);
+			} else if (tag == NODE_EMPTYLEAF) {
+				input.skipField(tag);
+				node = MPTDictionaryPartial.updateEmpty(cachedNode);
+			} else {
+				input.skipField(tag);
+				continue;
+			}
+			MPTDictionaryPartial.endNode(input);
+			return node;
+		}
+	}
+	
+	/**
+	 * Reads the rest of a Node message once its node has been read
+	 */
+	private static void endNode(final CodedInputStream input) throws IOException, InvalidSerializationException {
+		int tag;
+		while ((tag = input.readTag()) != 0) {
+			if (tag == NODE_INTERIOR_NODE || tag == NODE_LEAF || tag == NODE_STUB || tag == NODE_EMPTYLEAF) {
+				throw new InvalidSerializationException("more than one node included");
+			}
+			input.skipField(tag);
+		}
+	}
+	
+	/**
+	 * Parses the serialized subtree in post-order with an explicit stack: 
+	 * an interior node is built once both of its children are parsed
+	 */
+	private static Node parseNode(MptSerialization.Node rootSerialization) throws InvalidSerializationException {
+		// holds nodes to parse, and interior nodes (MptSerialization.InteriorNode)
+		// waiting for their children
+		Deque<Object> toParse = new ArrayDeque<>();
+		Deque<Node> parsed = new ArrayDeque<>();
+		toParse.push(rootSerialization);
+		while (!toParse.isEmpty()) {
+			Object next = toParse.pop();
+			if (next instanceof MptSerialization.InteriorNode) {
+				Node right = parsed.pop();
+				Node left = parsed.pop();
+				parsed.push(new InteriorNode(left, right));
+				continue;
+			}
+			MptSerialization.Node nodeSerialization = (MptSerialization.Node) next;
+			switch (nodeSerialization.getNodeCase()) {
+			case INTERIOR_NODE:
+				MptSerialization.InteriorNode in = nodeSerialization.getInteriorNode();
+				if(!in.hasLeft() || !in.hasRight()) {
+					throw new InvalidSerializationException("interior node does not have both children");
+				}
+				toParse.push(in);
+				toParse.push(in.getRight());
+				toParse.push(in.getLeft());
+				break;
+			case STUB:
+				MptSerialization.Stub stub = nodeSerialization.getStub();
+				if (stub.getHash().isEmpty()) {
+					throw new InvalidSerializationException("stub doesn't have a hash");
+				}
+				parsed.push(new Stub(stub.getHash().toByteArray()));
+				break;
+			case LEAF:
+				MptSerialization.Leaf leaf = nodeSerialization.getLeaf();
+				if (leaf.getKey().isEmpty() || leaf.getValue().isEmpty()) {
+					throw new InvalidSerializationException("leaf doesn't have required keyhash and value");
+				}
+				parsed.push(new DictionaryLeafNode(leaf.getKey().toByteArray(), leaf.getValue().toByteArray()));
+				break;
+			case EMPTYLEAF:
+				parsed.push(new EmptyLeafNode());
+				break;
+			case NODE_NOT_SET:
+				throw new InvalidSerializationException("no node included - fatal error");
+			default:
+				throw new InvalidSerializationException("?????");
 			}
-			return new DictionaryLeafNode(leaf.getKey().toByteArray(), leaf.getValue().toByteArray());
-		case EMPTYLEAF:
-			return new EmptyLeafNode();
-		case NODE_NOT_SET:
-			throw new InvalidSerializationException("no node included - fatal error");
-		default:
-			throw new InvalidSerializationException("?????");
 		}
+		return parsed.pop();
 	}
 	
-	private static Node parseNodeUsingCachedValues(Node currentNode, MptSerialization.Node updatedNode)
-			throws InvalidSerializationException {
+	private static Node parseNodeUsingCachedValues(Node currentNode, MptSerialization.Node updatedNode, 
+			Deque<Node[]> undo) throws InvalidSerializationException {
 		switch(updatedNode.getNodeCase()) {
 		case EMPTYLEAF:
-			//System.out.println(updatedNode);
-			//System.out.println("is empty leaf");
-			return new EmptyLeafNode();
+			return MPTDictionaryPartial.updateEmpty(currentNode);
 		case INTERIOR_NODE:
-			//System.out.println(updatedNode);
-			//System.out.println("is interior node");
 			// the case here requires more care, since a child might be omitted, 
 			// in which case the client should use the current value (this 
 			// is a caching scheme for efficiency)
@@ -254,22 +572,19 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 				right = currentNode.getRightChild();	
 			}
 			if(interiorNode.hasLeft()) {
-				left = MPTDictionaryPartial.parseNodeUsingCachedValues(left, interiorNode.getLeft());
+				left = MPTDictionaryPartial.parseNodeUsingCachedValues(left, interiorNode.getLeft(), undo);
 			}
 			if(interiorNode.hasRight()) {
-				right = MPTDictionaryPartial.parseNodeUsingCachedValues(right, interiorNode.getRight());
+				right = MPTDictionaryPartial.parseNodeUsingCachedValues(right, interiorNode.getRight(), undo);
 			}
-			return new InteriorNode(left, right);
+			return MPTDictionaryPartial.updateInterior(currentNode, left, right, undo);
 		case LEAF:
-			//System.out.println(updatedNode);
-			//System.out.println("is leaf");
 			MptSerialization.Leaf leaf = updatedNode.getLeaf();
-			return new DictionaryLeafNode(leaf.getKey().toByteArray(), leaf.getValue().toByteArray());
+			return MPTDictionaryPartial.updateLeaf(currentNode, leaf.getKey().toByteArray(), 
+					leaf.getValue().toByteArray());
 		case STUB:
-			//System.out.println(updatedNode);
-			//System.out.println("is STUB");
 			MptSerialization.Stub stub = updatedNode.getStub();
-			return new Stub(stub.getHash().toByteArray());
+			return MPTDictionaryPartial.updateStub(currentNode, stub.getHash().toByteArray());
 		case NODE_NOT_SET:
 			throw new InvalidSerializationException("tried to use a cached node that is not present");
 		default:
@@ -277,6 +592,75 @@ public class MPTDictionaryPartial implements AuthenticatedDictionaryClient {
 		}
 	}
 	
+	/*
+	 * The update* methods return the node that replaces the cached node (null 
+	 * if there is none) after an update. The cached node is kept if the update 
+	 * does not change it, and cached interior nodes are updated in place, 
+	 * so that unchanged nodes keep their hashes and only the 
+	 * hashes of changed nodes are recalculated. 
+	 */
+	
+	private static Node updateEmpty(final Node cached) {
+		if (cached != null && cached.isEmpty()) {
+			return cached;
+		}
+		return new EmptyLeafNode();
+	}
+	
+	private static Node updateLeaf(final Node cached, final byte[] key, final byte[] value) {
+		if (cached != null && cached.isLeaf() && !cached.isEmpty() && Arrays.equals(cached.getKey(), key) 
+				&& Arrays.equals(cached.getValue(), value)) {
+			return cached;
+		}
+		return new DictionaryLeafNode(key, value);
+	}
+	
+	private static Node updateStub(final Node cached, final byte[] hash) {
+		if (cached != null && cached.isStub() && Arrays.equals(cached.getHashNoCopy(), hash)) {
+			return cached;
+		}
+		return new Stub(hash);
+	}
+	
+	/**
+	 * Sets the children of a cached interior node that changed (or were 
+	 * updated in place, so their hash is stale). The previous children 
+	 * are pushed onto undo so that the update can be rolled back.
+	 */
+	private static Node updateInterior(final Node cached, final Node left, final Node right, 
+			final Deque<Node[]> undo) throws InvalidSerializationException {
+		if (left == null || right == null) {
+			throw new InvalidSerializationException("tried to use a cached node that is not present");
+		}
+		if (!(cached instanceof InteriorNode)) {
+			return new InteriorNode(left, right);
+		}
+		Node previousLeft = cached.getLeftChild();
+		Node previousRight = cached.getRightChild();
+		if (left != previousLeft || right != previousRight) {
+			undo.push(new Node[] {cached, previousLeft, previousRight});
+		}
+		if (left != previousLeft || left.requiresHashRecalculation()) {
+			cached.setLeftChild(left);
+		}
+		if (right != previousRight || right.requiresHashRecalculation()) {
+			cached.setRightChild(right);
+		}
+		return cached;
+	}
+	
+	/**
+	 * Restores the children of the interior nodes 
+	 * changed by an update, in reverse order
+	 */
+	private static void rollBack(final Deque<Node[]> undo) {
+		while (!undo.isEmpty()) {
+			Node[] change = undo.pop();
+			change[0].setLeftChild(change[1]);
+			change[0].setRightChild(change[2]);
+		}
+	}
+	
 	@Override
 	public MptSerialization.MerklePrefixTrie serialize() {
 		MptSerialization.Node rootSerialization = this.root.serialize();
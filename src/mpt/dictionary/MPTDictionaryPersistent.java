@@ -0,0 +1,524 @@
+package mpt.dictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.protobuf.ByteString;
+
+import crpyto.CryptographicDigest;
+import mpt.core.DictionaryLeafNode;
+import mpt.core.EmptyLeafNode;
+import mpt.core.InteriorNode;
+import mpt.core.Node;
+import mpt.core.Utils;
+import serialization.generated.MptSerialization;
+
+/**
+ * A persistent (path-copying) Merkle Prefix Trie (MPT). This
+ * stores exactly the same mappings and produces exactly the
+ * same commitments as MPTDictionaryFull.
+ *
+ * Updates are made to a working version of the MPT. Calling commit()
+ * calculates its hashes and publishes it as an immutable Version.
+ * Nodes of a committed version are never modified again: an update
+ * copies the path from the root to the leaf it changes and
+ * the copy shares every other subtree with the committed version.
+ *
+ * Nodes created since the last commit belong only to the working
+ * version, so they are updated in place rather than copied again.
+ * These are exactly the nodes whose hash has not been calculated yet
+ * (requiresHashRecalculation()), since commit() calculates all of them.
+ *
+ * Every committed version can be read (get, partial MPTs, updates
+ * for clients) from any thread without locking, while the writer
+ * keeps updating the working version. Only one thread may update
+ * the working version and call commit() at a time.
+ *
+ * Unlike MPTDictionaryFull the nodes do not track changes and
+ * runs of interior nodes are not compressed.
+ * The changes made by a version are found by comparing it with
+ * the previous version: a subtree is unchanged if the previous
+ * version has the very same node at the same location.
+ *
+ * Committed versions are kept until they are released
+ * (releaseVersionsBefore(epoch)).
+ *
+ * This is a standalone structure: LogManager still keeps an
+ * MPTDictionaryFull and the history of its deltas.
+ *
+ */
+public class MPTDictionaryPersistent {
+
+	private static final Logger LOGGER = Logger.getLogger(MPTDictionaryPersistent.class.getName());
+
+	private static final int INITIAL_PATH_LENGTH = 32;
+	private static final int INITIAL_VERSIONS = 64;
+
+	// the working version
+	private InteriorNode root;
+	private int size;
+
+	// the committed versions, versions[i].getEpoch() == i for
+	// i < countVersions. The array is only appended to (it is copied
+	// when it grows), released versions are set to null
+	private volatile Version[] versions;
+	private volatile int countVersions;
+	private int firstRetainedVersion;
+	// the root of the latest committed version
+	private InteriorNode committedRoot;
+
+	/**
+	 * Create an empty persistent Merkle Prefix Trie with no committed versions
+	 */
+	public MPTDictionaryPersistent() {
+		this.root = new InteriorNode(new EmptyLeafNode(), new EmptyLeafNode());
+		this.size = 0;
+		this.versions = new Version[INITIAL_VERSIONS];
+		this.countVersions = 0;
+		this.firstRetainedVersion = 0;
+		this.committedRoot = null;
+	}
+
+	/**
+	 * An immutable, committed version of the MPT. Safe for concurrent use.
+	 *
+	 * getUpdates(keys) returns the updates that bring a client
+	 * from the previous version to this one (for the first version,
+	 * the updates are the client's entire partial MPT).
+	 */
+	public static final class Version implements AuthenticatedDictionaryChanges {
+
+		private final int epoch;
+		private final InteriorNode root;
+		// null for the first version
+		private final InteriorNode previousRoot;
+		private final byte[] commitment;
+		private final int size;
+
+		private Version(int epoch, InteriorNode root, InteriorNode previousRoot, byte[] commitment, int size) {
+			this.epoch = epoch;
+			this.root = root;
+			this.previousRoot = previousRoot;
+			this.commitment = commitment;
+			this.size = size;
+		}
+
+		/**
+		 * The number of commits before this one
+		 * @return
+		 */
+		public int getEpoch() {
+			return this.epoch;
+		}
+
+		public byte[] commitment() {
+			return this.commitment.clone();
+		}
+
+		public int size() {
+			return this.size;
+		}
+
+		/**
+		 * Get the value mapped to by key in this version or null if the
+		 * key is not mapped to anything.
+		 * @param key
+		 * @return
+		 */
+		public byte[] get(final byte[] key) {
+			assert key.length == CryptographicDigest.getSizeBytes();
+			return MPTDictionaryPersistent.getHelper(this.root, key);
+		}
+
+		/**
+		 * Create a partial MPT of this version that contains the specified
+		 * key mappings (see MPTDictionaryPartial(MPTDictionaryFull, List<byte[]>))
+		 * @param keys
+		 * @return
+		 */
+		public MPTDictionaryPartial getPartial(final List<byte[]> keys) {
+			return MPTDictionaryPartial.copyPaths(this.root, keys);
+		}
+
+		@Override
+		public MptSerialization.MerklePrefixTrie getUpdates(final byte[] key) {
+			List<byte[]> keys = new ArrayList<byte[]>();
+			keys.add(key);
+			return this.getUpdates(keys);
+		}
+
+		@Override
+		public MptSerialization.MerklePrefixTrie getUpdates(final List<byte[]> keys) {
+			MptSerialization.Node root = MPTDictionaryPersistent.getUpdatesHelper(keys, this.root,
+					this.previousRoot, -1);
+			if (root == null) {
+				// nothing has changed - an interior node with
+				// no children tells the client to keep its MPT
+				root = MptSerialization.Node.newBuilder()
+						.setInteriorNode(MptSerialization.InteriorNode.newBuilder())
+						.build();
+			}
+			return MptSerialization.MerklePrefixTrie.newBuilder()
+					.setRoot(root)
+					.build();
+		}
+
+		@Override
+		public String toString() {
+			return "<MPTDictionaryPersistent.Version " + this.epoch + " \n"
+					+ MPTDictionaryFull.toStringHelper("+", this.root) + "\n>";
+		}
+	}
+
+	/**
+	 * Insert a (key,value) mapping into the working version
+	 * @param key
+	 * @param value
+	 */
+	public void insert(final byte[] key, final byte[] value) {
+		assert key.length == CryptographicDigest.getSizeBytes();
+		assert value.length == CryptographicDigest.getSizeBytes();
+		LOGGER.log(Level.FINE,
+				"insert(" + Utils.byteArrayAsHexString(key) +") = " + Utils.byteArrayAsHexString(value));
+		Node[] path = new Node[INITIAL_PATH_LENGTH];
+		int pathLength = 0;
+		Node node = this.root;
+		while (!node.isLeaf()) {
+			if (pathLength == path.length) {
+				path = Arrays.copyOf(path, 2 * path.length);
+			}
+			path[pathLength++] = node;
+			node = Utils.getBit(key, pathLength - 1) ? node.getRightChild() : node.getLeftChild();
+		}
+		Node newChild = this.insertAtLeaf(key, value, pathLength - 1, node);
+		if (newChild != node) {
+			this.copyPath(key, path, pathLength, newChild);
+		}
+	}
+
+	/**
+	 * Insert a batch of (key, value) mappings into the working version.
+	 * The first insert on each path copies it, the rest of the batch
+	 * updates the copies in place.
+	 * @param kvpairs - if a key appears more than once, the last value is the one stored.
+	 */
+	public void insertAll(final List<Map.Entry<byte[], byte[]>> kvpairs) {
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			this.insert(kv.getKey(), kv.getValue());
+		}
+	}
+
+	/**
+	 * Returns the node that replaces leaf (at currentBitIndex)
+	 * once the mapping is inserted, or leaf if nothing changes
+	 */
+	private Node insertAtLeaf(final byte[] key, final byte[] value, final int currentBitIndex,
+			final Node leaf) {
+		if (Arrays.equals(leaf.getKey(), key)) {
+			if (Arrays.equals(leaf.getValue(), value)) {
+				return leaf;
+			}
+			if (MPTDictionaryPersistent.isWorking(leaf)) {
+				leaf.setValue(value);
+				return leaf;
+			}
+			return new DictionaryLeafNode(key, value);
+		}
+		this.size++;
+		DictionaryLeafNode nodeToAdd = new DictionaryLeafNode(key, value);
+		if (leaf.isEmpty()) {
+			return nodeToAdd;
+		}
+		// the keys collide until the first bit where they differ,
+		// the existing leaf is shared with the committed versions
+		Node splitNode;
+		int bitIndex = currentBitIndex + 1;
+		boolean bitLeaf = Utils.getBit(leaf.getKey(), bitIndex);
+		boolean bitNew = Utils.getBit(key, bitIndex);
+		while (bitLeaf == bitNew) {
+			bitIndex++;
+			bitLeaf = Utils.getBit(leaf.getKey(), bitIndex);
+			bitNew = Utils.getBit(key, bitIndex);
+		}
+		splitNode = bitNew ? new InteriorNode(leaf, nodeToAdd) : new InteriorNode(nodeToAdd, leaf);
+		// the run of interior nodes with a single child
+		for (int i = bitIndex - 1; i > currentBitIndex; i--) {
+			splitNode = Utils.getBit(key, i) ? new InteriorNode(new EmptyLeafNode(), splitNode) :
+				new InteriorNode(splitNode, new EmptyLeafNode());
+		}
+		return splitNode;
+	}
+
+	/**
+	 * Delete the key (and its mapping), if it exists, from the working version
+	 * @param key
+	 */
+	public void delete(final byte[] key) {
+		assert key.length == CryptographicDigest.getSizeBytes();
+		LOGGER.log(Level.FINE, "delete(" + Utils.byteArrayAsHexString(key) + ")");
+		Node[] path = new Node[INITIAL_PATH_LENGTH];
+		int pathLength = 0;
+		Node node = this.root;
+		while (!node.isLeaf()) {
+			if (pathLength == path.length) {
+				path = Arrays.copyOf(path, 2 * path.length);
+			}
+			path[pathLength++] = node;
+			node = Utils.getBit(key, pathLength - 1) ? node.getRightChild() : node.getLeftChild();
+		}
+		if (node.isEmpty() || !Arrays.equals(node.getKey(), key)) {
+			// the key is not in the MPT - nothing changes
+			return;
+		}
+		this.size--;
+		// the empty leaf (or the leaf that replaces it) is pushed up
+		// while the interior nodes above it collapse - the root never does
+		Node newChild = new EmptyLeafNode();
+		while (pathLength > 1) {
+			Node parent = path[pathLength - 1];
+			boolean bit = Utils.getBit(key, pathLength - 1);
+			Node sibling = bit ? parent.getLeftChild() : parent.getRightChild();
+			// if the sibling is empty the leaf is pushed up, if the
+			// leaf is empty and the sibling is a leaf the sibling is
+			if (!sibling.isEmpty() && !(newChild.isEmpty() && sibling.isLeaf())) {
+				break;
+			}
+			if (newChild.isEmpty()) {
+				newChild = sibling;
+			}
+			pathLength--;
+		}
+		this.copyPath(key, path, pathLength, newChild);
+	}
+
+	/**
+	 * The child of path[pathLength - 1] on the path to key has been replaced by
+	 * newChild. Replaces (or, if they belong to the working version, updates)
+	 * the interior nodes on the path up to the root.
+	 */
+	private void copyPath(final byte[] key, final Node[] path, int pathLength, Node newChild) {
+		while (pathLength > 0) {
+			Node parent = path[--pathLength];
+			boolean bit = Utils.getBit(key, pathLength);
+			if (MPTDictionaryPersistent.isWorking(parent)) {
+				// all nodes above parent belong to the working version as
+				// well and already lead to it, so we are done
+				if (bit) {
+					parent.setRightChild(newChild);
+				} else {
+					parent.setLeftChild(newChild);
+				}
+				return;
+			}
+			newChild = bit ? new InteriorNode(parent.getLeftChild(), newChild) :
+				new InteriorNode(newChild, parent.getRightChild());
+		}
+		this.root = (InteriorNode) newChild;
+	}
+
+	/**
+	 * True if node belongs only to the working version and can be
+	 * updated in place. Every ancestor of such a node does too.
+	 */
+	private static boolean isWorking(final Node node) {
+		return node.requiresHashRecalculation();
+	}
+
+	/**
+	 * Get the value mapped to by key in the working version, or null
+	 * if the key is not mapped to anything.
+	 * @param key
+	 * @return
+	 */
+	public byte[] get(final byte[] key) {
+		assert key.length == CryptographicDigest.getSizeBytes();
+		return MPTDictionaryPersistent.getHelper(this.root, key);
+	}
+
+	private static byte[] getHelper(final Node root, final byte[] key) {
+		Node currentNode = root;
+		int currentBitIndex = -1;
+		while (!currentNode.isLeaf()) {
+			currentBitIndex++;
+			currentNode = Utils.getBit(key, currentBitIndex) ? currentNode.getRightChild() :
+				currentNode.getLeftChild();
+		}
+		if (!currentNode.isEmpty() && Arrays.equals(currentNode.getKey(), key)) {
+			return currentNode.getValue();
+		}
+		return null;
+	}
+
+	/**
+	 * Calculate the hashes of the working version and publish
+	 * it as the next committed version.
+	 * @return the committed version
+	 */
+	public Version commit() {
+		return this.publish(this.root.getHash());
+	}
+
+	/**
+	 * Same as commit() but the hashes are calculated on the
+	 * provided fork/join pool
+	 * @param workers
+	 * @return the committed version
+	 */
+	public Version commitParallelized(ForkJoinPool workers) {
+		return this.publish(this.root.getHashParallel(workers));
+	}
+
+	private Version publish(byte[] commitment) {
+		int epoch = this.countVersions;
+		Version version = new Version(epoch, this.root, this.committedRoot, commitment, this.size);
+		Version[] current = this.versions;
+		if (epoch == current.length) {
+			current = Arrays.copyOf(current, 2 * epoch);
+		}
+		current[epoch] = version;
+		this.versions = current;
+		this.countVersions++;
+		this.committedRoot = this.root;
+		LOGGER.log(Level.FINE, "commit #" + epoch + ": " + Utils.byteArrayAsHexString(commitment));
+		return version;
+	}
+
+	/**
+	 * Stop keeping the committed versions before epoch (the latest
+	 * version is always kept) so that the nodes only they use can be
+	 * garbage collected. The oldest version that is kept still refers
+	 * to the root of the version before it to calculate its updates.
+	 * Only one thread may call this, along with the updates and commits.
+	 * @param epoch
+	 */
+	public void releaseVersionsBefore(int epoch) {
+		int end = Math.min(epoch, this.countVersions - 1);
+		Version[] current = this.versions;
+		for (int i = this.firstRetainedVersion; i < end; i++) {
+			current[i] = null;
+		}
+		this.firstRetainedVersion = Math.max(this.firstRetainedVersion, end);
+	}
+
+	/**
+	 * Returns the committed version with the given epoch. Safe to call
+	 * concurrently with updates and commits.
+	 * @param epoch
+	 * @return
+	 * @throws IndexOutOfBoundsException - if there is no such version
+	 * or it has been released
+	 */
+	public Version getVersion(int epoch) {
+		if (epoch < 0 || epoch >= this.countVersions) {
+			throw new IndexOutOfBoundsException("no version for epoch " + epoch);
+		}
+		Version version = this.versions[epoch];
+		if (version == null) {
+			throw new IndexOutOfBoundsException("version for epoch " + epoch + " has been released");
+		}
+		return version;
+	}
+
+	/**
+	 * Returns the most recently committed version, or null if
+	 * nothing has been committed. Safe to call concurrently
+	 * with updates and commits.
+	 * @return
+	 */
+	public Version getLatestVersion() {
+		int count = this.countVersions;
+		return count == 0 ? null : this.versions[count - 1];
+	}
+
+	/**
+	 * The number of committed versions
+	 * @return
+	 */
+	public int countVersions() {
+		return this.countVersions;
+	}
+
+	/**
+	 * Returns the number of distinct (key,value) entries
+	 * in the working version.
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * The update for the subtree rooted at node (at currentBitIndex) for a client
+	 * that tracks keys and has the previous version cached. previous is
+	 * the node at the same location in the previous version (null if there is none).
+	 * Returns null if the subtree has not changed, since it is cached on the client.
+	 *
+	 * The MPT has one interior node per bit so this is at most getSizeBits() deep.
+	 */
+	private static MptSerialization.Node getUpdatesHelper(final List<byte[]> keys, final Node node,
+			final Node previous, final int currentBitIndex) {
+		// case: the same node - this location has not changed
+		// 		--> avoid re-transmitting it by caching it on the client
+		if (node == previous) {
+			return null;
+		}
+		if (node.isEmpty()) {
+			return MptSerialization.Node.newBuilder()
+					.setEmptyleaf(MptSerialization.EmptyLeaf.newBuilder())
+					.build();
+		}
+		// no matching keys - value is not needed, send stub
+		if (keys.isEmpty()) {
+			return MptSerialization.Node.newBuilder()
+					.setStub(MptSerialization.Stub.newBuilder()
+							.setHash(ByteString.copyFrom(node.getHashNoCopy())))
+					.build();
+		}
+		// at the end of the path send the entire leaf
+		if (node.isLeaf()) {
+			return MptSerialization.Node.newBuilder().setLeaf(
+					MptSerialization.Leaf.newBuilder()
+						.setKey(ByteString.copyFrom(node.getKey()))
+						.setValue(ByteString.copyFrom(node.getValue())))
+				.build();
+		}
+		List<byte[]> matchLeft = new ArrayList<>();
+		List<byte[]> matchRight = new ArrayList<>();
+		for (byte[] key : keys) {
+			if (Utils.getBit(key, currentBitIndex + 1)) {
+				matchRight.add(key);
+			} else {
+				matchLeft.add(key);
+			}
+		}
+		Node previousLeft = null;
+		Node previousRight = null;
+		if (previous != null && !previous.isLeaf()) {
+			previousLeft = previous.getLeftChild();
+			previousRight = previous.getRightChild();
+		}
+		MptSerialization.InteriorNode.Builder builder = MptSerialization.InteriorNode.newBuilder();
+		MptSerialization.Node left = MPTDictionaryPersistent.getUpdatesHelper(matchLeft, node.getLeftChild(),
+				previousLeft, currentBitIndex + 1);
+		if (left != null) {
+			builder.setLeft(left);
+		}
+		MptSerialization.Node right = MPTDictionaryPersistent.getUpdatesHelper(matchRight, node.getRightChild(),
+				previousRight, currentBitIndex + 1);
+		if (right != null) {
+			builder.setRight(right);
+		}
+		return MptSerialization.Node.newBuilder().setInteriorNode(builder).build();
+	}
+
+	@Override
+	public String toString() {
+		return "<MPTDictionaryPersistent \n"+MPTDictionaryFull.toStringHelper("+", this.root)+"\n>";
+	}
+
+}
@@ -2556,6 +2556,11 @@ public final class BVerifyAPIMessageSerialization {
      */
     serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getProofOfStatementsOrBuilder(
         int index);
+
+    /**
+     * <code>int32 first_commitment_number = 5;</code>
+     */
+    int getFirstCommitmentNumber();
   }
   /**
    * <pre>
@@ -2563,6 +2568,13 @@ public final class BVerifyAPIMessageSerialization {
    * 	Proof For A Log.
    *	This is the proof of 
    *	non-equivocation for the log.
+   *	proof_of_statements[i] is the update for 
+   *	commitment first_commitment_number + i. 
+   *	A full proof starts at commitment 0, 
+   *	an incremental proof continues from a 
+   *	commitment the client has already verified 
+   *	and only includes the statements 
+   *	committed after it.
    * </pre>
    *
    * Protobuf type {@code serialization.generated.LogProof}
@@ -2580,6 +2592,7 @@ public final class BVerifyAPIMessageSerialization {
       logId_ = com.google.protobuf.ByteString.EMPTY;
       signedStatements_ = java.util.Collections.emptyList();
       proofOfStatements_ = java.util.Collections.emptyList();
+      firstCommitmentNumber_ = 0;
     }
 
     @java.lang.Override
@@ -2649,6 +2662,11 @@ public final class BVerifyAPIMessageSerialization {
                   input.readMessage(serialization.generated.MptSerialization.MerklePrefixTrie.parser(), extensionRegistry));
               break;
             }
+            case 40: {
+
+              firstCommitmentNumber_ = input.readInt32();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -2780,6 +2798,15 @@ public final class BVerifyAPIMessageSerialization {
       return proofOfStatements_.get(index);
     }
 
+    public static final int FIRST_COMMITMENT_NUMBER_FIELD_NUMBER = 5;
+    private int firstCommitmentNumber_;
+    /**
+     * <code>int32 first_commitment_number = 5;</code>
+     */
+    public int getFirstCommitmentNumber() {
+      return firstCommitmentNumber_;
+    }
+
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
@@ -2804,6 +2831,9 @@ public final class BVerifyAPIMessageSerialization {
       for (int i = 0; i < proofOfStatements_.size(); i++) {
         output.writeMessage(4, proofOfStatements_.get(i));
       }
+      if (firstCommitmentNumber_ != 0) {
+        output.writeInt32(5, firstCommitmentNumber_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -2828,6 +2858,10 @@ public final class BVerifyAPIMessageSerialization {
         size += com.google.protobuf.CodedOutputStream
           .computeMessageSize(4, proofOfStatements_.get(i));
       }
+      if (firstCommitmentNumber_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeInt32Size(5, firstCommitmentNumber_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -2855,6 +2889,8 @@ public final class BVerifyAPIMessageSerialization {
           .equals(other.getSignedStatementsList());
       result = result && getProofOfStatementsList()
           .equals(other.getProofOfStatementsList());
+      result = result && (getFirstCommitmentNumber()
+          == other.getFirstCommitmentNumber());
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -2880,6 +2916,8 @@ public final class BVerifyAPIMessageSerialization {
         hash = (37 * hash) + PROOF_OF_STATEMENTS_FIELD_NUMBER;
         hash = (53 * hash) + getProofOfStatementsList().hashCode();
       }
+      hash = (37 * hash) + FIRST_COMMITMENT_NUMBER_FIELD_NUMBER;
+      hash = (53 * hash) + getFirstCommitmentNumber();
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -2979,6 +3017,13 @@ public final class BVerifyAPIMessageSerialization {
      * 	Proof For A Log.
      *	This is the proof of 
      *	non-equivocation for the log.
+     *	proof_of_statements[i] is the update for 
+     *	commitment first_commitment_number + i. 
+     *	A full proof starts at commitment 0, 
+     *	an incremental proof continues from a 
+     *	commitment the client has already verified 
+     *	and only includes the statements 
+     *	committed after it.
      * </pre>
      *
      * Protobuf type {@code serialization.generated.LogProof}
@@ -3038,6 +3083,8 @@ public final class BVerifyAPIMessageSerialization {
         } else {
           proofOfStatementsBuilder_.clear();
         }
+        firstCommitmentNumber_ = 0;
+
         return this;
       }
 
@@ -3086,6 +3133,7 @@ public final class BVerifyAPIMessageSerialization {
         } else {
           result.proofOfStatements_ = proofOfStatementsBuilder_.build();
         }
+        result.firstCommitmentNumber_ = firstCommitmentNumber_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -3186,6 +3234,9 @@ public final class BVerifyAPIMessageSerialization {
             }
           }
         }
+        if (other.getFirstCommitmentNumber() != 0) {
+          setFirstCommitmentNumber(other.getFirstCommitmentNumber());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -3839,6 +3890,32 @@ public final class BVerifyAPIMessageSerialization {
         }
         return proofOfStatementsBuilder_;
       }
+
+      private int firstCommitmentNumber_ ;
+      /**
+       * <code>int32 first_commitment_number = 5;</code>
+       */
+      public int getFirstCommitmentNumber() {
+        return firstCommitmentNumber_;
+      }
+      /**
+       * <code>int32 first_commitment_number = 5;</code>
+       */
+      public Builder setFirstCommitmentNumber(int value) {
+        
+        firstCommitmentNumber_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>int32 first_commitment_number = 5;</code>
+       */
+      public Builder clearFirstCommitmentNumber() {
+        
+        firstCommitmentNumber_ = 0;
+        onChanged();
+        return this;
+      }
       public final Builder setUnknownFields(
           final com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFieldsProto3(unknownFields);
@@ -3888,103 +3965,2612 @@ public final class BVerifyAPIMessageSerialization {
 
   }
 
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_serialization_generated_SignedCreateLogStatement_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_serialization_generated_SignedCreateLogStatement_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_serialization_generated_CreateLogStatement_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_serialization_generated_CreateLogStatement_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_serialization_generated_LogStatement_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_serialization_generated_LogStatement_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_serialization_generated_SignedLogStatement_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_serialization_generated_SignedLogStatement_fieldAccessorTable;
-  private static final com.google.protobuf.Descriptors.Descriptor
-    internal_static_serialization_generated_LogProof_descriptor;
-  private static final 
-    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
-      internal_static_serialization_generated_LogProof_fieldAccessorTable;
+  public interface LogProofsOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:serialization.generated.LogProofs)
+      com.google.protobuf.MessageOrBuilder {
 
-  public static com.google.protobuf.Descriptors.FileDescriptor
-      getDescriptor() {
-    return descriptor;
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    java.util.List<serialization.generated.BVerifyAPIMessageSerialization.LogProof> 
+        getLogsList();
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    serialization.generated.BVerifyAPIMessageSerialization.LogProof getLogs(int index);
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    int getLogsCount();
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    java.util.List<? extends serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder> 
+        getLogsOrBuilderList();
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder getLogsOrBuilder(
+        int index);
+
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    java.util.List<serialization.generated.MptSerialization.MerklePrefixTrie> 
+        getProofOfStatementsList();
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    serialization.generated.MptSerialization.MerklePrefixTrie getProofOfStatements(int index);
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    int getProofOfStatementsCount();
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    java.util.List<? extends serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> 
+        getProofOfStatementsOrBuilderList();
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getProofOfStatementsOrBuilder(
+        int index);
   }
-  private static  com.google.protobuf.Descriptors.FileDescriptor
-      descriptor;
-  static {
-    java.lang.String[] descriptorData = {
-      "\n\037protos/bverifyprotocolapi.proto\022\027seria" +
-      "lization.generated\032\020protos/mpt.proto\"x\n\030" +
-      "SignedCreateLogStatement\022I\n\024create_log_s" +
-      "tatement\030\001 \001(\0132+.serialization.generated" +
-      ".CreateLogStatement\022\021\n\tsignature\030\002 \001(\014\"O" +
-      "\n\022CreateLogStatement\022\036\n\026controlling_publ" +
-      "ic_key\030\001 \001(\014\022\031\n\021initial_statement\030\002 \001(\014\"" +
-      "?\n\014LogStatement\022\016\n\006log_id\030\001 \001(\014\022\020\n\010statm" +
-      "ent\030\002 \001(\014\022\r\n\005index\030\003 \001(\005\"a\n\022SignedLogSta" +
-      "tement\0228\n\tstatement\030\001 \001(\0132%.serializatio" +
-      "n.generated.LogStatement\022\021\n\tsignature\030\002 " +
-      "\001(\014\"\373\001\n\010LogProof\022\016\n\006log_id\030\001 \001(\014\022O\n\024crea" +
-      "te_log_statement\030\002 \001(\01321.serialization.g" +
-      "enerated.SignedCreateLogStatement\022F\n\021sig" +
-      "ned_statements\030\003 \003(\0132+.serialization.gen" +
-      "erated.SignedLogStatement\022F\n\023proof_of_st" +
-      "atements\030\004 \003(\0132).serialization.generated" +
-      ".MerklePrefixTrieB B\036BVerifyAPIMessageSe" +
-      "rializationb\006proto3"
-    };
-    com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
-        new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
-          public com.google.protobuf.ExtensionRegistry assignDescriptors(
-              com.google.protobuf.Descriptors.FileDescriptor root) {
-            descriptor = root;
-            return null;
+  /**
+   * <pre>
+   **
+   *	Proofs For Many Logs.
+   *	logs[j] is the proof for the j'th log
+   *	without its proof_of_statements. Instead
+   *	proof_of_statements[i] is a single
+   *	update for all of the logs, for
+   *	commitment i.
+   * </pre>
+   *
+   * Protobuf type {@code serialization.generated.LogProofs}
+   */
+  public  static final class LogProofs extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:serialization.generated.LogProofs)
+      LogProofsOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use LogProofs.newBuilder() to construct.
+    private LogProofs(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private LogProofs() {
+      logs_ = java.util.Collections.emptyList();
+      proofOfStatements_ = java.util.Collections.emptyList();
+    }
+
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private LogProofs(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new java.lang.NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownFieldProto3(
+                  input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              if (!((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+                logs_ = new java.util.ArrayList<serialization.generated.BVerifyAPIMessageSerialization.LogProof>();
+                mutable_bitField0_ |= 0x00000001;
+              }
+              logs_.add(
+                  input.readMessage(serialization.generated.BVerifyAPIMessageSerialization.LogProof.parser(), extensionRegistry));
+              break;
+            }
+            case 18: {
+              if (!((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
+                proofOfStatements_ = new java.util.ArrayList<serialization.generated.MptSerialization.MerklePrefixTrie>();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              proofOfStatements_.add(
+                  input.readMessage(serialization.generated.MptSerialization.MerklePrefixTrie.parser(), extensionRegistry));
+              break;
+            }
           }
-        };
-    com.google.protobuf.Descriptors.FileDescriptor
-      .internalBuildGeneratedFileFrom(descriptorData,
-        new com.google.protobuf.Descriptors.FileDescriptor[] {
-          serialization.generated.MptSerialization.getDescriptor(),
-        }, assigner);
-    internal_static_serialization_generated_SignedCreateLogStatement_descriptor =
-      getDescriptor().getMessageTypes().get(0);
-    internal_static_serialization_generated_SignedCreateLogStatement_fieldAccessorTable = new
-      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
-        internal_static_serialization_generated_SignedCreateLogStatement_descriptor,
-        new java.lang.String[] { "CreateLogStatement", "Signature", });
-    internal_static_serialization_generated_CreateLogStatement_descriptor =
-      getDescriptor().getMessageTypes().get(1);
-    internal_static_serialization_generated_CreateLogStatement_fieldAccessorTable = new
-      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
-        internal_static_serialization_generated_CreateLogStatement_descriptor,
-        new java.lang.String[] { "ControllingPublicKey", "InitialStatement", });
-    internal_static_serialization_generated_LogStatement_descriptor =
-      getDescriptor().getMessageTypes().get(2);
-    internal_static_serialization_generated_LogStatement_fieldAccessorTable = new
-      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
-        internal_static_serialization_generated_LogStatement_descriptor,
-        new java.lang.String[] { "LogId", "Statment", "Index", });
-    internal_static_serialization_generated_SignedLogStatement_descriptor =
-      getDescriptor().getMessageTypes().get(3);
-    internal_static_serialization_generated_SignedLogStatement_fieldAccessorTable = new
-      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
-        internal_static_serialization_generated_SignedLogStatement_descriptor,
-        new java.lang.String[] { "Statement", "Signature", });
-    internal_static_serialization_generated_LogProof_descriptor =
-      getDescriptor().getMessageTypes().get(4);
-    internal_static_serialization_generated_LogProof_fieldAccessorTable = new
-      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
-        internal_static_serialization_generated_LogProof_descriptor,
-        new java.lang.String[] { "LogId", "CreateLogStatement", "SignedStatements", "ProofOfStatements", });
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000001) == 0x00000001)) {
+          logs_ = java.util.Collections.unmodifiableList(logs_);
+        }
+        if (((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
+          proofOfStatements_ = java.util.Collections.unmodifiableList(proofOfStatements_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogProofs_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogProofs_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              serialization.generated.BVerifyAPIMessageSerialization.LogProofs.class, serialization.generated.BVerifyAPIMessageSerialization.LogProofs.Builder.class);
+    }
+
+    public static final int LOGS_FIELD_NUMBER = 1;
+    private java.util.List<serialization.generated.BVerifyAPIMessageSerialization.LogProof> logs_;
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    public java.util.List<serialization.generated.BVerifyAPIMessageSerialization.LogProof> getLogsList() {
+      return logs_;
+    }
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    public java.util.List<? extends serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder> 
+        getLogsOrBuilderList() {
+      return logs_;
+    }
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    public int getLogsCount() {
+      return logs_.size();
+    }
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    public serialization.generated.BVerifyAPIMessageSerialization.LogProof getLogs(int index) {
+      return logs_.get(index);
+    }
+    /**
+     * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+     */
+    public serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder getLogsOrBuilder(
+        int index) {
+      return logs_.get(index);
+    }
+
+    public static final int PROOF_OF_STATEMENTS_FIELD_NUMBER = 2;
+    private java.util.List<serialization.generated.MptSerialization.MerklePrefixTrie> proofOfStatements_;
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    public java.util.List<serialization.generated.MptSerialization.MerklePrefixTrie> getProofOfStatementsList() {
+      return proofOfStatements_;
+    }
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    public java.util.List<? extends serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> 
+        getProofOfStatementsOrBuilderList() {
+      return proofOfStatements_;
+    }
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    public int getProofOfStatementsCount() {
+      return proofOfStatements_.size();
+    }
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    public serialization.generated.MptSerialization.MerklePrefixTrie getProofOfStatements(int index) {
+      return proofOfStatements_.get(index);
+    }
+    /**
+     * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+     */
+    public serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getProofOfStatementsOrBuilder(
+        int index) {
+      return proofOfStatements_.get(index);
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      for (int i = 0; i < logs_.size(); i++) {
+        output.writeMessage(1, logs_.get(i));
+      }
+      for (int i = 0; i < proofOfStatements_.size(); i++) {
+        output.writeMessage(2, proofOfStatements_.get(i));
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      for (int i = 0; i < logs_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, logs_.get(i));
+      }
+      for (int i = 0; i < proofOfStatements_.size(); i++) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(2, proofOfStatements_.get(i));
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof serialization.generated.BVerifyAPIMessageSerialization.LogProofs)) {
+        return super.equals(obj);
+      }
+      serialization.generated.BVerifyAPIMessageSerialization.LogProofs other = (serialization.generated.BVerifyAPIMessageSerialization.LogProofs) obj;
+
+      boolean result = true;
+      result = result && getLogsList()
+          .equals(other.getLogsList());
+      result = result && getProofOfStatementsList()
+          .equals(other.getProofOfStatementsList());
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (getLogsCount() > 0) {
+        hash = (37 * hash) + LOGS_FIELD_NUMBER;
+        hash = (53 * hash) + getLogsList().hashCode();
+      }
+      if (getProofOfStatementsCount() > 0) {
+        hash = (37 * hash) + PROOF_OF_STATEMENTS_FIELD_NUMBER;
+        hash = (53 * hash) + getProofOfStatementsList().hashCode();
+      }
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(serialization.generated.BVerifyAPIMessageSerialization.LogProofs prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * <pre>
+     **
+     *	Proofs For Many Logs.
+     *	logs[j] is the proof for the j'th log
+     *	without its proof_of_statements. Instead
+     *	proof_of_statements[i] is a single
+     *	update for all of the logs, for
+     *	commitment i.
+     * </pre>
+     *
+     * Protobuf type {@code serialization.generated.LogProofs}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:serialization.generated.LogProofs)
+        serialization.generated.BVerifyAPIMessageSerialization.LogProofsOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogProofs_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogProofs_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                serialization.generated.BVerifyAPIMessageSerialization.LogProofs.class, serialization.generated.BVerifyAPIMessageSerialization.LogProofs.Builder.class);
+      }
+
+      // Construct using serialization.generated.BVerifyAPIMessageSerialization.LogProofs.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+          getLogsFieldBuilder();
+          getProofOfStatementsFieldBuilder();
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        if (logsBuilder_ == null) {
+          logs_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+        } else {
+          logsBuilder_.clear();
+        }
+        if (proofOfStatementsBuilder_ == null) {
+          proofOfStatements_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000002);
+        } else {
+          proofOfStatementsBuilder_.clear();
+        }
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogProofs_descriptor;
+      }
+
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProofs getDefaultInstanceForType() {
+        return serialization.generated.BVerifyAPIMessageSerialization.LogProofs.getDefaultInstance();
+      }
+
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProofs build() {
+        serialization.generated.BVerifyAPIMessageSerialization.LogProofs result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProofs buildPartial() {
+        serialization.generated.BVerifyAPIMessageSerialization.LogProofs result = new serialization.generated.BVerifyAPIMessageSerialization.LogProofs(this);
+        int from_bitField0_ = bitField0_;
+        if (logsBuilder_ == null) {
+          if (((bitField0_ & 0x00000001) == 0x00000001)) {
+            logs_ = java.util.Collections.unmodifiableList(logs_);
+            bitField0_ = (bitField0_ & ~0x00000001);
+          }
+          result.logs_ = logs_;
+        } else {
+          result.logs_ = logsBuilder_.build();
+        }
+        if (proofOfStatementsBuilder_ == null) {
+          if (((bitField0_ & 0x00000002) == 0x00000002)) {
+            proofOfStatements_ = java.util.Collections.unmodifiableList(proofOfStatements_);
+            bitField0_ = (bitField0_ & ~0x00000002);
+          }
+          result.proofOfStatements_ = proofOfStatements_;
+        } else {
+          result.proofOfStatements_ = proofOfStatementsBuilder_.build();
+        }
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof serialization.generated.BVerifyAPIMessageSerialization.LogProofs) {
+          return mergeFrom((serialization.generated.BVerifyAPIMessageSerialization.LogProofs)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(serialization.generated.BVerifyAPIMessageSerialization.LogProofs other) {
+        if (other == serialization.generated.BVerifyAPIMessageSerialization.LogProofs.getDefaultInstance()) return this;
+        if (logsBuilder_ == null) {
+          if (!other.logs_.isEmpty()) {
+            if (logs_.isEmpty()) {
+              logs_ = other.logs_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+            } else {
+              ensureLogsIsMutable();
+              logs_.addAll(other.logs_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.logs_.isEmpty()) {
+            if (logsBuilder_.isEmpty()) {
+              logsBuilder_.dispose();
+              logsBuilder_ = null;
+              logs_ = other.logs_;
+              bitField0_ = (bitField0_ & ~0x00000001);
+              logsBuilder_ = 
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getLogsFieldBuilder() : null;
+            } else {
+              logsBuilder_.addAllMessages(other.logs_);
+            }
+          }
+        }
+        if (proofOfStatementsBuilder_ == null) {
+          if (!other.proofOfStatements_.isEmpty()) {
+            if (proofOfStatements_.isEmpty()) {
+              proofOfStatements_ = other.proofOfStatements_;
+              bitField0_ = (bitField0_ & ~0x00000002);
+            } else {
+              ensureProofOfStatementsIsMutable();
+              proofOfStatements_.addAll(other.proofOfStatements_);
+            }
+            onChanged();
+          }
+        } else {
+          if (!other.proofOfStatements_.isEmpty()) {
+            if (proofOfStatementsBuilder_.isEmpty()) {
+              proofOfStatementsBuilder_.dispose();
+              proofOfStatementsBuilder_ = null;
+              proofOfStatements_ = other.proofOfStatements_;
+              bitField0_ = (bitField0_ & ~0x00000002);
+              proofOfStatementsBuilder_ = 
+                com.google.protobuf.GeneratedMessageV3.alwaysUseFieldBuilders ?
+                   getProofOfStatementsFieldBuilder() : null;
+            } else {
+              proofOfStatementsBuilder_.addAllMessages(other.proofOfStatements_);
+            }
+          }
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        serialization.generated.BVerifyAPIMessageSerialization.LogProofs parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (serialization.generated.BVerifyAPIMessageSerialization.LogProofs) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private java.util.List<serialization.generated.BVerifyAPIMessageSerialization.LogProof> logs_ =
+        java.util.Collections.emptyList();
+      private void ensureLogsIsMutable() {
+        if (!((bitField0_ & 0x00000001) == 0x00000001)) {
+          logs_ = new java.util.ArrayList<serialization.generated.BVerifyAPIMessageSerialization.LogProof>(logs_);
+          bitField0_ |= 0x00000001;
+         }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          serialization.generated.BVerifyAPIMessageSerialization.LogProof, serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder, serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder> logsBuilder_;
+
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public java.util.List<serialization.generated.BVerifyAPIMessageSerialization.LogProof> getLogsList() {
+        if (logsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(logs_);
+        } else {
+          return logsBuilder_.getMessageList();
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public int getLogsCount() {
+        if (logsBuilder_ == null) {
+          return logs_.size();
+        } else {
+          return logsBuilder_.getCount();
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProof getLogs(int index) {
+        if (logsBuilder_ == null) {
+          return logs_.get(index);
+        } else {
+          return logsBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder setLogs(
+          int index, serialization.generated.BVerifyAPIMessageSerialization.LogProof value) {
+        if (logsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureLogsIsMutable();
+          logs_.set(index, value);
+          onChanged();
+        } else {
+          logsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder setLogs(
+          int index, serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder builderForValue) {
+        if (logsBuilder_ == null) {
+          ensureLogsIsMutable();
+          logs_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          logsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder addLogs(serialization.generated.BVerifyAPIMessageSerialization.LogProof value) {
+        if (logsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureLogsIsMutable();
+          logs_.add(value);
+          onChanged();
+        } else {
+          logsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder addLogs(
+          int index, serialization.generated.BVerifyAPIMessageSerialization.LogProof value) {
+        if (logsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureLogsIsMutable();
+          logs_.add(index, value);
+          onChanged();
+        } else {
+          logsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder addLogs(
+          serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder builderForValue) {
+        if (logsBuilder_ == null) {
+          ensureLogsIsMutable();
+          logs_.add(builderForValue.build());
+          onChanged();
+        } else {
+          logsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder addLogs(
+          int index, serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder builderForValue) {
+        if (logsBuilder_ == null) {
+          ensureLogsIsMutable();
+          logs_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          logsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder addAllLogs(
+          java.lang.Iterable<? extends serialization.generated.BVerifyAPIMessageSerialization.LogProof> values) {
+        if (logsBuilder_ == null) {
+          ensureLogsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, logs_);
+          onChanged();
+        } else {
+          logsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder clearLogs() {
+        if (logsBuilder_ == null) {
+          logs_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000001);
+          onChanged();
+        } else {
+          logsBuilder_.clear();
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public Builder removeLogs(int index) {
+        if (logsBuilder_ == null) {
+          ensureLogsIsMutable();
+          logs_.remove(index);
+          onChanged();
+        } else {
+          logsBuilder_.remove(index);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder getLogsBuilder(
+          int index) {
+        return getLogsFieldBuilder().getBuilder(index);
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder getLogsOrBuilder(
+          int index) {
+        if (logsBuilder_ == null) {
+          return logs_.get(index);  } else {
+          return logsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public java.util.List<? extends serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder> 
+           getLogsOrBuilderList() {
+        if (logsBuilder_ != null) {
+          return logsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(logs_);
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder addLogsBuilder() {
+        return getLogsFieldBuilder().addBuilder(
+            serialization.generated.BVerifyAPIMessageSerialization.LogProof.getDefaultInstance());
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder addLogsBuilder(
+          int index) {
+        return getLogsFieldBuilder().addBuilder(
+            index, serialization.generated.BVerifyAPIMessageSerialization.LogProof.getDefaultInstance());
+      }
+      /**
+       * <code>repeated .serialization.generated.LogProof logs = 1;</code>
+       */
+      public java.util.List<serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder> 
+           getLogsBuilderList() {
+        return getLogsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          serialization.generated.BVerifyAPIMessageSerialization.LogProof, serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder, serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder> 
+          getLogsFieldBuilder() {
+        if (logsBuilder_ == null) {
+          logsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              serialization.generated.BVerifyAPIMessageSerialization.LogProof, serialization.generated.BVerifyAPIMessageSerialization.LogProof.Builder, serialization.generated.BVerifyAPIMessageSerialization.LogProofOrBuilder>(
+                  logs_,
+                  ((bitField0_ & 0x00000001) == 0x00000001),
+                  getParentForChildren(),
+                  isClean());
+          logs_ = null;
+        }
+        return logsBuilder_;
+      }
+
+      private java.util.List<serialization.generated.MptSerialization.MerklePrefixTrie> proofOfStatements_ =
+        java.util.Collections.emptyList();
+      private void ensureProofOfStatementsIsMutable() {
+        if (!((bitField0_ & 0x00000002) == 0x00000002)) {
+          proofOfStatements_ = new java.util.ArrayList<serialization.generated.MptSerialization.MerklePrefixTrie>(proofOfStatements_);
+          bitField0_ |= 0x00000002;
+         }
+      }
+
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          serialization.generated.MptSerialization.MerklePrefixTrie, serialization.generated.MptSerialization.MerklePrefixTrie.Builder, serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> proofOfStatementsBuilder_;
+
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public java.util.List<serialization.generated.MptSerialization.MerklePrefixTrie> getProofOfStatementsList() {
+        if (proofOfStatementsBuilder_ == null) {
+          return java.util.Collections.unmodifiableList(proofOfStatements_);
+        } else {
+          return proofOfStatementsBuilder_.getMessageList();
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public int getProofOfStatementsCount() {
+        if (proofOfStatementsBuilder_ == null) {
+          return proofOfStatements_.size();
+        } else {
+          return proofOfStatementsBuilder_.getCount();
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrie getProofOfStatements(int index) {
+        if (proofOfStatementsBuilder_ == null) {
+          return proofOfStatements_.get(index);
+        } else {
+          return proofOfStatementsBuilder_.getMessage(index);
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder setProofOfStatements(
+          int index, serialization.generated.MptSerialization.MerklePrefixTrie value) {
+        if (proofOfStatementsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.set(index, value);
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.setMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder setProofOfStatements(
+          int index, serialization.generated.MptSerialization.MerklePrefixTrie.Builder builderForValue) {
+        if (proofOfStatementsBuilder_ == null) {
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.set(index, builderForValue.build());
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.setMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder addProofOfStatements(serialization.generated.MptSerialization.MerklePrefixTrie value) {
+        if (proofOfStatementsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.add(value);
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.addMessage(value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder addProofOfStatements(
+          int index, serialization.generated.MptSerialization.MerklePrefixTrie value) {
+        if (proofOfStatementsBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.add(index, value);
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.addMessage(index, value);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder addProofOfStatements(
+          serialization.generated.MptSerialization.MerklePrefixTrie.Builder builderForValue) {
+        if (proofOfStatementsBuilder_ == null) {
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.add(builderForValue.build());
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.addMessage(builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder addProofOfStatements(
+          int index, serialization.generated.MptSerialization.MerklePrefixTrie.Builder builderForValue) {
+        if (proofOfStatementsBuilder_ == null) {
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.add(index, builderForValue.build());
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.addMessage(index, builderForValue.build());
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder addAllProofOfStatements(
+          java.lang.Iterable<? extends serialization.generated.MptSerialization.MerklePrefixTrie> values) {
+        if (proofOfStatementsBuilder_ == null) {
+          ensureProofOfStatementsIsMutable();
+          com.google.protobuf.AbstractMessageLite.Builder.addAll(
+              values, proofOfStatements_);
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.addAllMessages(values);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder clearProofOfStatements() {
+        if (proofOfStatementsBuilder_ == null) {
+          proofOfStatements_ = java.util.Collections.emptyList();
+          bitField0_ = (bitField0_ & ~0x00000002);
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.clear();
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public Builder removeProofOfStatements(int index) {
+        if (proofOfStatementsBuilder_ == null) {
+          ensureProofOfStatementsIsMutable();
+          proofOfStatements_.remove(index);
+          onChanged();
+        } else {
+          proofOfStatementsBuilder_.remove(index);
+        }
+        return this;
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrie.Builder getProofOfStatementsBuilder(
+          int index) {
+        return getProofOfStatementsFieldBuilder().getBuilder(index);
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getProofOfStatementsOrBuilder(
+          int index) {
+        if (proofOfStatementsBuilder_ == null) {
+          return proofOfStatements_.get(index);  } else {
+          return proofOfStatementsBuilder_.getMessageOrBuilder(index);
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public java.util.List<? extends serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> 
+           getProofOfStatementsOrBuilderList() {
+        if (proofOfStatementsBuilder_ != null) {
+          return proofOfStatementsBuilder_.getMessageOrBuilderList();
+        } else {
+          return java.util.Collections.unmodifiableList(proofOfStatements_);
+        }
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrie.Builder addProofOfStatementsBuilder() {
+        return getProofOfStatementsFieldBuilder().addBuilder(
+            serialization.generated.MptSerialization.MerklePrefixTrie.getDefaultInstance());
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrie.Builder addProofOfStatementsBuilder(
+          int index) {
+        return getProofOfStatementsFieldBuilder().addBuilder(
+            index, serialization.generated.MptSerialization.MerklePrefixTrie.getDefaultInstance());
+      }
+      /**
+       * <code>repeated .serialization.generated.MerklePrefixTrie proof_of_statements = 2;</code>
+       */
+      public java.util.List<serialization.generated.MptSerialization.MerklePrefixTrie.Builder> 
+           getProofOfStatementsBuilderList() {
+        return getProofOfStatementsFieldBuilder().getBuilderList();
+      }
+      private com.google.protobuf.RepeatedFieldBuilderV3<
+          serialization.generated.MptSerialization.MerklePrefixTrie, serialization.generated.MptSerialization.MerklePrefixTrie.Builder, serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> 
+          getProofOfStatementsFieldBuilder() {
+        if (proofOfStatementsBuilder_ == null) {
+          proofOfStatementsBuilder_ = new com.google.protobuf.RepeatedFieldBuilderV3<
+              serialization.generated.MptSerialization.MerklePrefixTrie, serialization.generated.MptSerialization.MerklePrefixTrie.Builder, serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder>(
+                  proofOfStatements_,
+                  ((bitField0_ & 0x00000002) == 0x00000002),
+                  getParentForChildren(),
+                  isClean());
+          proofOfStatements_ = null;
+        }
+        return proofOfStatementsBuilder_;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFieldsProto3(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:serialization.generated.LogProofs)
+    }
+
+    // @@protoc_insertion_point(class_scope:serialization.generated.LogProofs)
+    private static final serialization.generated.BVerifyAPIMessageSerialization.LogProofs DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new serialization.generated.BVerifyAPIMessageSerialization.LogProofs();
+    }
+
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogProofs getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    private static final com.google.protobuf.Parser<LogProofs>
+        PARSER = new com.google.protobuf.AbstractParser<LogProofs>() {
+      public LogProofs parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new LogProofs(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<LogProofs> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<LogProofs> getParserForType() {
+      return PARSER;
+    }
+
+    public serialization.generated.BVerifyAPIMessageSerialization.LogProofs getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+  public interface LogCheckpointOrBuilder extends
+      // @@protoc_insertion_point(interface_extends:serialization.generated.LogCheckpoint)
+      com.google.protobuf.MessageOrBuilder {
+
+    /**
+     * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+     */
+    boolean hasCreateLogStatement();
+    /**
+     * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+     */
+    serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement getCreateLogStatement();
+    /**
+     * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+     */
+    serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatementOrBuilder getCreateLogStatementOrBuilder();
+
+    /**
+     * <code>repeated bytes statements = 2;</code>
+     */
+    java.util.List<com.google.protobuf.ByteString> getStatementsList();
+    /**
+     * <code>repeated bytes statements = 2;</code>
+     */
+    int getStatementsCount();
+    /**
+     * <code>repeated bytes statements = 2;</code>
+     */
+    com.google.protobuf.ByteString getStatements(int index);
+
+    /**
+     * <code>repeated bytes witnesses = 3;</code>
+     */
+    java.util.List<com.google.protobuf.ByteString> getWitnessesList();
+    /**
+     * <code>repeated bytes witnesses = 3;</code>
+     */
+    int getWitnessesCount();
+    /**
+     * <code>repeated bytes witnesses = 3;</code>
+     */
+    com.google.protobuf.ByteString getWitnesses(int index);
+
+    /**
+     * <code>repeated bytes commitments = 4;</code>
+     */
+    java.util.List<com.google.protobuf.ByteString> getCommitmentsList();
+    /**
+     * <code>repeated bytes commitments = 4;</code>
+     */
+    int getCommitmentsCount();
+    /**
+     * <code>repeated bytes commitments = 4;</code>
+     */
+    com.google.protobuf.ByteString getCommitments(int index);
+
+    /**
+     * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+     */
+    boolean hasPath();
+    /**
+     * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+     */
+    serialization.generated.MptSerialization.MerklePrefixTrie getPath();
+    /**
+     * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+     */
+    serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getPathOrBuilder();
+
+    /**
+     * <code>sint32 witness_index = 6;</code>
+     */
+    int getWitnessIndex();
+  }
+  /**
+   * <pre>
+   **
+   *	Checkpoint Of A Verified Log.
+   *	This is the state kept by a client 
+   *	to continue verifying the log from 
+   *	its last commitment without the 
+   *	proofs (see BVerifyLog.getCheckpoint()).
+   *	path is the path for the log at the 
+   *	last commitment and witness_index is 
+   *	the index of the current witness 
+   *	(-1 if there is none).
+   * </pre>
+   *
+   * Protobuf type {@code serialization.generated.LogCheckpoint}
+   */
+  public  static final class LogCheckpoint extends
+      com.google.protobuf.GeneratedMessageV3 implements
+      // @@protoc_insertion_point(message_implements:serialization.generated.LogCheckpoint)
+      LogCheckpointOrBuilder {
+  private static final long serialVersionUID = 0L;
+    // Use LogCheckpoint.newBuilder() to construct.
+    private LogCheckpoint(com.google.protobuf.GeneratedMessageV3.Builder<?> builder) {
+      super(builder);
+    }
+    private LogCheckpoint() {
+      statements_ = java.util.Collections.emptyList();
+      witnesses_ = java.util.Collections.emptyList();
+      commitments_ = java.util.Collections.emptyList();
+      witnessIndex_ = 0;
+    }
+
+    @java.lang.Override
+    public final com.google.protobuf.UnknownFieldSet
+    getUnknownFields() {
+      return this.unknownFields;
+    }
+    private LogCheckpoint(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      this();
+      if (extensionRegistry == null) {
+        throw new java.lang.NullPointerException();
+      }
+      int mutable_bitField0_ = 0;
+      com.google.protobuf.UnknownFieldSet.Builder unknownFields =
+          com.google.protobuf.UnknownFieldSet.newBuilder();
+      try {
+        boolean done = false;
+        while (!done) {
+          int tag = input.readTag();
+          switch (tag) {
+            case 0:
+              done = true;
+              break;
+            default: {
+              if (!parseUnknownFieldProto3(
+                  input, unknownFields, extensionRegistry, tag)) {
+                done = true;
+              }
+              break;
+            }
+            case 10: {
+              serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.Builder subBuilder = null;
+              if (createLogStatement_ != null) {
+                subBuilder = createLogStatement_.toBuilder();
+              }
+              createLogStatement_ = input.readMessage(serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.parser(), extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(createLogStatement_);
+                createLogStatement_ = subBuilder.buildPartial();
+              }
+
+              break;
+            }
+            case 18: {
+              if (!((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
+                statements_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                mutable_bitField0_ |= 0x00000002;
+              }
+              statements_.add(input.readBytes());
+              break;
+            }
+            case 26: {
+              if (!((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+                witnesses_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                mutable_bitField0_ |= 0x00000004;
+              }
+              witnesses_.add(input.readBytes());
+              break;
+            }
+            case 34: {
+              if (!((mutable_bitField0_ & 0x00000008) == 0x00000008)) {
+                commitments_ = new java.util.ArrayList<com.google.protobuf.ByteString>();
+                mutable_bitField0_ |= 0x00000008;
+              }
+              commitments_.add(input.readBytes());
+              break;
+            }
+            case 42: {
+              serialization.generated.MptSerialization.MerklePrefixTrie.Builder subBuilder = null;
+              if (path_ != null) {
+                subBuilder = path_.toBuilder();
+              }
+              path_ = input.readMessage(serialization.generated.MptSerialization.MerklePrefixTrie.parser(), extensionRegistry);
+              if (subBuilder != null) {
+                subBuilder.mergeFrom(path_);
+                path_ = subBuilder.buildPartial();
+              }
+
+              break;
+            }
+            case 48: {
+
+              witnessIndex_ = input.readSInt32();
+              break;
+            }
+          }
+        }
+      } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+        throw e.setUnfinishedMessage(this);
+      } catch (java.io.IOException e) {
+        throw new com.google.protobuf.InvalidProtocolBufferException(
+            e).setUnfinishedMessage(this);
+      } finally {
+        if (((mutable_bitField0_ & 0x00000002) == 0x00000002)) {
+          statements_ = java.util.Collections.unmodifiableList(statements_);
+        }
+        if (((mutable_bitField0_ & 0x00000004) == 0x00000004)) {
+          witnesses_ = java.util.Collections.unmodifiableList(witnesses_);
+        }
+        if (((mutable_bitField0_ & 0x00000008) == 0x00000008)) {
+          commitments_ = java.util.Collections.unmodifiableList(commitments_);
+        }
+        this.unknownFields = unknownFields.build();
+        makeExtensionsImmutable();
+      }
+    }
+    public static final com.google.protobuf.Descriptors.Descriptor
+        getDescriptor() {
+      return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogCheckpoint_descriptor;
+    }
+
+    protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+        internalGetFieldAccessorTable() {
+      return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogCheckpoint_fieldAccessorTable
+          .ensureFieldAccessorsInitialized(
+              serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.class, serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.Builder.class);
+    }
+
+    private int bitField0_;
+    public static final int CREATE_LOG_STATEMENT_FIELD_NUMBER = 1;
+    private serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement createLogStatement_;
+    /**
+     * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+     */
+    public boolean hasCreateLogStatement() {
+      return createLogStatement_ != null;
+    }
+    /**
+     * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+     */
+    public serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement getCreateLogStatement() {
+      return createLogStatement_ == null ? serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.getDefaultInstance() : createLogStatement_;
+    }
+    /**
+     * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+     */
+    public serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatementOrBuilder getCreateLogStatementOrBuilder() {
+      return getCreateLogStatement();
+    }
+
+    public static final int STATEMENTS_FIELD_NUMBER = 2;
+    private java.util.List<com.google.protobuf.ByteString> statements_;
+    /**
+     * <code>repeated bytes statements = 2;</code>
+     */
+    public java.util.List<com.google.protobuf.ByteString>
+        getStatementsList() {
+      return statements_;
+    }
+    /**
+     * <code>repeated bytes statements = 2;</code>
+     */
+    public int getStatementsCount() {
+      return statements_.size();
+    }
+    /**
+     * <code>repeated bytes statements = 2;</code>
+     */
+    public com.google.protobuf.ByteString getStatements(int index) {
+      return statements_.get(index);
+    }
+
+    public static final int WITNESSES_FIELD_NUMBER = 3;
+    private java.util.List<com.google.protobuf.ByteString> witnesses_;
+    /**
+     * <code>repeated bytes witnesses = 3;</code>
+     */
+    public java.util.List<com.google.protobuf.ByteString>
+        getWitnessesList() {
+      return witnesses_;
+    }
+    /**
+     * <code>repeated bytes witnesses = 3;</code>
+     */
+    public int getWitnessesCount() {
+      return witnesses_.size();
+    }
+    /**
+     * <code>repeated bytes witnesses = 3;</code>
+     */
+    public com.google.protobuf.ByteString getWitnesses(int index) {
+      return witnesses_.get(index);
+    }
+
+    public static final int COMMITMENTS_FIELD_NUMBER = 4;
+    private java.util.List<com.google.protobuf.ByteString> commitments_;
+    /**
+     * <code>repeated bytes commitments = 4;</code>
+     */
+    public java.util.List<com.google.protobuf.ByteString>
+        getCommitmentsList() {
+      return commitments_;
+    }
+    /**
+     * <code>repeated bytes commitments = 4;</code>
+     */
+    public int getCommitmentsCount() {
+      return commitments_.size();
+    }
+    /**
+     * <code>repeated bytes commitments = 4;</code>
+     */
+    public com.google.protobuf.ByteString getCommitments(int index) {
+      return commitments_.get(index);
+    }
+
+    public static final int PATH_FIELD_NUMBER = 5;
+    private serialization.generated.MptSerialization.MerklePrefixTrie path_;
+    /**
+     * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+     */
+    public boolean hasPath() {
+      return path_ != null;
+    }
+    /**
+     * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+     */
+    public serialization.generated.MptSerialization.MerklePrefixTrie getPath() {
+      return path_ == null ? serialization.generated.MptSerialization.MerklePrefixTrie.getDefaultInstance() : path_;
+    }
+    /**
+     * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+     */
+    public serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getPathOrBuilder() {
+      return getPath();
+    }
+
+    public static final int WITNESS_INDEX_FIELD_NUMBER = 6;
+    private int witnessIndex_;
+    /**
+     * <code>sint32 witness_index = 6;</code>
+     */
+    public int getWitnessIndex() {
+      return witnessIndex_;
+    }
+
+    private byte memoizedIsInitialized = -1;
+    public final boolean isInitialized() {
+      byte isInitialized = memoizedIsInitialized;
+      if (isInitialized == 1) return true;
+      if (isInitialized == 0) return false;
+
+      memoizedIsInitialized = 1;
+      return true;
+    }
+
+    public void writeTo(com.google.protobuf.CodedOutputStream output)
+                        throws java.io.IOException {
+      if (createLogStatement_ != null) {
+        output.writeMessage(1, getCreateLogStatement());
+      }
+      for (int i = 0; i < statements_.size(); i++) {
+        output.writeBytes(2, statements_.get(i));
+      }
+      for (int i = 0; i < witnesses_.size(); i++) {
+        output.writeBytes(3, witnesses_.get(i));
+      }
+      for (int i = 0; i < commitments_.size(); i++) {
+        output.writeBytes(4, commitments_.get(i));
+      }
+      if (path_ != null) {
+        output.writeMessage(5, getPath());
+      }
+      if (witnessIndex_ != 0) {
+        output.writeSInt32(6, witnessIndex_);
+      }
+      unknownFields.writeTo(output);
+    }
+
+    public int getSerializedSize() {
+      int size = memoizedSize;
+      if (size != -1) return size;
+
+      size = 0;
+      if (createLogStatement_ != null) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(1, getCreateLogStatement());
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < statements_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(statements_.get(i));
+        }
+        size += dataSize;
+        size += 1 * getStatementsList().size();
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < witnesses_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(witnesses_.get(i));
+        }
+        size += dataSize;
+        size += 1 * getWitnessesList().size();
+      }
+      {
+        int dataSize = 0;
+        for (int i = 0; i < commitments_.size(); i++) {
+          dataSize += com.google.protobuf.CodedOutputStream
+            .computeBytesSizeNoTag(commitments_.get(i));
+        }
+        size += dataSize;
+        size += 1 * getCommitmentsList().size();
+      }
+      if (path_ != null) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeMessageSize(5, getPath());
+      }
+      if (witnessIndex_ != 0) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeSInt32Size(6, witnessIndex_);
+      }
+      size += unknownFields.getSerializedSize();
+      memoizedSize = size;
+      return size;
+    }
+
+    @java.lang.Override
+    public boolean equals(final java.lang.Object obj) {
+      if (obj == this) {
+       return true;
+      }
+      if (!(obj instanceof serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint)) {
+        return super.equals(obj);
+      }
+      serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint other = (serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint) obj;
+
+      boolean result = true;
+      result = result && (hasCreateLogStatement() == other.hasCreateLogStatement());
+      if (hasCreateLogStatement()) {
+        result = result && getCreateLogStatement()
+            .equals(other.getCreateLogStatement());
+      }
+      result = result && getStatementsList()
+          .equals(other.getStatementsList());
+      result = result && getWitnessesList()
+          .equals(other.getWitnessesList());
+      result = result && getCommitmentsList()
+          .equals(other.getCommitmentsList());
+      result = result && (hasPath() == other.hasPath());
+      if (hasPath()) {
+        result = result && getPath()
+            .equals(other.getPath());
+      }
+      result = result && (getWitnessIndex()
+          == other.getWitnessIndex());
+      result = result && unknownFields.equals(other.unknownFields);
+      return result;
+    }
+
+    @java.lang.Override
+    public int hashCode() {
+      if (memoizedHashCode != 0) {
+        return memoizedHashCode;
+      }
+      int hash = 41;
+      hash = (19 * hash) + getDescriptor().hashCode();
+      if (hasCreateLogStatement()) {
+        hash = (37 * hash) + CREATE_LOG_STATEMENT_FIELD_NUMBER;
+        hash = (53 * hash) + getCreateLogStatement().hashCode();
+      }
+      if (getStatementsCount() > 0) {
+        hash = (37 * hash) + STATEMENTS_FIELD_NUMBER;
+        hash = (53 * hash) + getStatementsList().hashCode();
+      }
+      if (getWitnessesCount() > 0) {
+        hash = (37 * hash) + WITNESSES_FIELD_NUMBER;
+        hash = (53 * hash) + getWitnessesList().hashCode();
+      }
+      if (getCommitmentsCount() > 0) {
+        hash = (37 * hash) + COMMITMENTS_FIELD_NUMBER;
+        hash = (53 * hash) + getCommitmentsList().hashCode();
+      }
+      if (hasPath()) {
+        hash = (37 * hash) + PATH_FIELD_NUMBER;
+        hash = (53 * hash) + getPath().hashCode();
+      }
+      hash = (37 * hash) + WITNESS_INDEX_FIELD_NUMBER;
+      hash = (53 * hash) + getWitnessIndex();
+      hash = (29 * hash) + unknownFields.hashCode();
+      memoizedHashCode = hash;
+      return hash;
+    }
+
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        java.nio.ByteBuffer data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        java.nio.ByteBuffer data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        com.google.protobuf.ByteString data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        com.google.protobuf.ByteString data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(byte[] data)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        byte[] data,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws com.google.protobuf.InvalidProtocolBufferException {
+      return PARSER.parseFrom(data, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseDelimitedFrom(java.io.InputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseDelimitedFrom(
+        java.io.InputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseDelimitedWithIOException(PARSER, input, extensionRegistry);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        com.google.protobuf.CodedInputStream input)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input);
+    }
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parseFrom(
+        com.google.protobuf.CodedInputStream input,
+        com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+        throws java.io.IOException {
+      return com.google.protobuf.GeneratedMessageV3
+          .parseWithIOException(PARSER, input, extensionRegistry);
+    }
+
+    public Builder newBuilderForType() { return newBuilder(); }
+    public static Builder newBuilder() {
+      return DEFAULT_INSTANCE.toBuilder();
+    }
+    public static Builder newBuilder(serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint prototype) {
+      return DEFAULT_INSTANCE.toBuilder().mergeFrom(prototype);
+    }
+    public Builder toBuilder() {
+      return this == DEFAULT_INSTANCE
+          ? new Builder() : new Builder().mergeFrom(this);
+    }
+
+    @java.lang.Override
+    protected Builder newBuilderForType(
+        com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+      Builder builder = new Builder(parent);
+      return builder;
+    }
+    /**
+     * <pre>
+     **
+     *	Checkpoint Of A Verified Log.
+     *	This is the state kept by a client 
+     *	to continue verifying the log from 
+     *	its last commitment without the 
+     *	proofs (see BVerifyLog.getCheckpoint()).
+     *	path is the path for the log at the 
+     *	last commitment and witness_index is 
+     *	the index of the current witness 
+     *	(-1 if there is none).
+     * </pre>
+     *
+     * Protobuf type {@code serialization.generated.LogCheckpoint}
+     */
+    public static final class Builder extends
+        com.google.protobuf.GeneratedMessageV3.Builder<Builder> implements
+        // @@protoc_insertion_point(builder_implements:serialization.generated.LogCheckpoint)
+        serialization.generated.BVerifyAPIMessageSerialization.LogCheckpointOrBuilder {
+      public static final com.google.protobuf.Descriptors.Descriptor
+          getDescriptor() {
+        return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogCheckpoint_descriptor;
+      }
+
+      protected com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+          internalGetFieldAccessorTable() {
+        return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogCheckpoint_fieldAccessorTable
+            .ensureFieldAccessorsInitialized(
+                serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.class, serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.Builder.class);
+      }
+
+      // Construct using serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.newBuilder()
+      private Builder() {
+        maybeForceBuilderInitialization();
+      }
+
+      private Builder(
+          com.google.protobuf.GeneratedMessageV3.BuilderParent parent) {
+        super(parent);
+        maybeForceBuilderInitialization();
+      }
+      private void maybeForceBuilderInitialization() {
+        if (com.google.protobuf.GeneratedMessageV3
+                .alwaysUseFieldBuilders) {
+        }
+      }
+      public Builder clear() {
+        super.clear();
+        if (createLogStatementBuilder_ == null) {
+          createLogStatement_ = null;
+        } else {
+          createLogStatement_ = null;
+          createLogStatementBuilder_ = null;
+        }
+        statements_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        witnesses_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000004);
+        commitments_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000008);
+        if (pathBuilder_ == null) {
+          path_ = null;
+        } else {
+          path_ = null;
+          pathBuilder_ = null;
+        }
+        witnessIndex_ = 0;
+
+        return this;
+      }
+
+      public com.google.protobuf.Descriptors.Descriptor
+          getDescriptorForType() {
+        return serialization.generated.BVerifyAPIMessageSerialization.internal_static_serialization_generated_LogCheckpoint_descriptor;
+      }
+
+      public serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint getDefaultInstanceForType() {
+        return serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.getDefaultInstance();
+      }
+
+      public serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint build() {
+        serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint result = buildPartial();
+        if (!result.isInitialized()) {
+          throw newUninitializedMessageException(result);
+        }
+        return result;
+      }
+
+      public serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint buildPartial() {
+        serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint result = new serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint(this);
+        int from_bitField0_ = bitField0_;
+        int to_bitField0_ = 0;
+        if (createLogStatementBuilder_ == null) {
+          result.createLogStatement_ = createLogStatement_;
+        } else {
+          result.createLogStatement_ = createLogStatementBuilder_.build();
+        }
+        if (((bitField0_ & 0x00000002) == 0x00000002)) {
+          statements_ = java.util.Collections.unmodifiableList(statements_);
+          bitField0_ = (bitField0_ & ~0x00000002);
+        }
+        result.statements_ = statements_;
+        if (((bitField0_ & 0x00000004) == 0x00000004)) {
+          witnesses_ = java.util.Collections.unmodifiableList(witnesses_);
+          bitField0_ = (bitField0_ & ~0x00000004);
+        }
+        result.witnesses_ = witnesses_;
+        if (((bitField0_ & 0x00000008) == 0x00000008)) {
+          commitments_ = java.util.Collections.unmodifiableList(commitments_);
+          bitField0_ = (bitField0_ & ~0x00000008);
+        }
+        result.commitments_ = commitments_;
+        if (pathBuilder_ == null) {
+          result.path_ = path_;
+        } else {
+          result.path_ = pathBuilder_.build();
+        }
+        result.witnessIndex_ = witnessIndex_;
+        result.bitField0_ = to_bitField0_;
+        onBuilt();
+        return result;
+      }
+
+      public Builder clone() {
+        return (Builder) super.clone();
+      }
+      public Builder setField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.setField(field, value);
+      }
+      public Builder clearField(
+          com.google.protobuf.Descriptors.FieldDescriptor field) {
+        return (Builder) super.clearField(field);
+      }
+      public Builder clearOneof(
+          com.google.protobuf.Descriptors.OneofDescriptor oneof) {
+        return (Builder) super.clearOneof(oneof);
+      }
+      public Builder setRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          int index, java.lang.Object value) {
+        return (Builder) super.setRepeatedField(field, index, value);
+      }
+      public Builder addRepeatedField(
+          com.google.protobuf.Descriptors.FieldDescriptor field,
+          java.lang.Object value) {
+        return (Builder) super.addRepeatedField(field, value);
+      }
+      public Builder mergeFrom(com.google.protobuf.Message other) {
+        if (other instanceof serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint) {
+          return mergeFrom((serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint)other);
+        } else {
+          super.mergeFrom(other);
+          return this;
+        }
+      }
+
+      public Builder mergeFrom(serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint other) {
+        if (other == serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint.getDefaultInstance()) return this;
+        if (other.hasCreateLogStatement()) {
+          mergeCreateLogStatement(other.getCreateLogStatement());
+        }
+        if (!other.statements_.isEmpty()) {
+          if (statements_.isEmpty()) {
+            statements_ = other.statements_;
+            bitField0_ = (bitField0_ & ~0x00000002);
+          } else {
+            ensureStatementsIsMutable();
+            statements_.addAll(other.statements_);
+          }
+          onChanged();
+        }
+        if (!other.witnesses_.isEmpty()) {
+          if (witnesses_.isEmpty()) {
+            witnesses_ = other.witnesses_;
+            bitField0_ = (bitField0_ & ~0x00000004);
+          } else {
+            ensureWitnessesIsMutable();
+            witnesses_.addAll(other.witnesses_);
+          }
+          onChanged();
+        }
+        if (!other.commitments_.isEmpty()) {
+          if (commitments_.isEmpty()) {
+            commitments_ = other.commitments_;
+            bitField0_ = (bitField0_ & ~0x00000008);
+          } else {
+            ensureCommitmentsIsMutable();
+            commitments_.addAll(other.commitments_);
+          }
+          onChanged();
+        }
+        if (other.hasPath()) {
+          mergePath(other.getPath());
+        }
+        if (other.getWitnessIndex() != 0) {
+          setWitnessIndex(other.getWitnessIndex());
+        }
+        this.mergeUnknownFields(other.unknownFields);
+        onChanged();
+        return this;
+      }
+
+      public final boolean isInitialized() {
+        return true;
+      }
+
+      public Builder mergeFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws java.io.IOException {
+        serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint parsedMessage = null;
+        try {
+          parsedMessage = PARSER.parsePartialFrom(input, extensionRegistry);
+        } catch (com.google.protobuf.InvalidProtocolBufferException e) {
+          parsedMessage = (serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint) e.getUnfinishedMessage();
+          throw e.unwrapIOException();
+        } finally {
+          if (parsedMessage != null) {
+            mergeFrom(parsedMessage);
+          }
+        }
+        return this;
+      }
+      private int bitField0_;
+
+      private serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement createLogStatement_ = null;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement, serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.Builder, serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatementOrBuilder> createLogStatementBuilder_;
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public boolean hasCreateLogStatement() {
+        return createLogStatementBuilder_ != null || createLogStatement_ != null;
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement getCreateLogStatement() {
+        if (createLogStatementBuilder_ == null) {
+          return createLogStatement_ == null ? serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.getDefaultInstance() : createLogStatement_;
+        } else {
+          return createLogStatementBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public Builder setCreateLogStatement(serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement value) {
+        if (createLogStatementBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          createLogStatement_ = value;
+          onChanged();
+        } else {
+          createLogStatementBuilder_.setMessage(value);
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public Builder setCreateLogStatement(
+          serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.Builder builderForValue) {
+        if (createLogStatementBuilder_ == null) {
+          createLogStatement_ = builderForValue.build();
+          onChanged();
+        } else {
+          createLogStatementBuilder_.setMessage(builderForValue.build());
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public Builder mergeCreateLogStatement(serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement value) {
+        if (createLogStatementBuilder_ == null) {
+          if (createLogStatement_ != null) {
+            createLogStatement_ =
+              serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.newBuilder(createLogStatement_).mergeFrom(value).buildPartial();
+          } else {
+            createLogStatement_ = value;
+          }
+          onChanged();
+        } else {
+          createLogStatementBuilder_.mergeFrom(value);
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public Builder clearCreateLogStatement() {
+        if (createLogStatementBuilder_ == null) {
+          createLogStatement_ = null;
+          onChanged();
+        } else {
+          createLogStatement_ = null;
+          createLogStatementBuilder_ = null;
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.Builder getCreateLogStatementBuilder() {
+        
+        onChanged();
+        return getCreateLogStatementFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      public serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatementOrBuilder getCreateLogStatementOrBuilder() {
+        if (createLogStatementBuilder_ != null) {
+          return createLogStatementBuilder_.getMessageOrBuilder();
+        } else {
+          return createLogStatement_ == null ?
+              serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.getDefaultInstance() : createLogStatement_;
+        }
+      }
+      /**
+       * <code>.serialization.generated.SignedCreateLogStatement create_log_statement = 1;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement, serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.Builder, serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatementOrBuilder> 
+          getCreateLogStatementFieldBuilder() {
+        if (createLogStatementBuilder_ == null) {
+          createLogStatementBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement, serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement.Builder, serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatementOrBuilder>(
+                  getCreateLogStatement(),
+                  getParentForChildren(),
+                  isClean());
+          createLogStatement_ = null;
+        }
+        return createLogStatementBuilder_;
+      }
+
+      private java.util.List<com.google.protobuf.ByteString> statements_ = java.util.Collections.emptyList();
+      private void ensureStatementsIsMutable() {
+        if (!((bitField0_ & 0x00000002) == 0x00000002)) {
+          statements_ = new java.util.ArrayList<com.google.protobuf.ByteString>(statements_);
+          bitField0_ |= 0x00000002;
+         }
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public java.util.List<com.google.protobuf.ByteString>
+          getStatementsList() {
+        return java.util.Collections.unmodifiableList(statements_);
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public int getStatementsCount() {
+        return statements_.size();
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public com.google.protobuf.ByteString getStatements(int index) {
+        return statements_.get(index);
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public Builder setStatements(
+          int index, com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureStatementsIsMutable();
+        statements_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public Builder addStatements(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureStatementsIsMutable();
+        statements_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public Builder addAllStatements(
+          java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+        ensureStatementsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, statements_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes statements = 2;</code>
+       */
+      public Builder clearStatements() {
+        statements_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000002);
+        onChanged();
+        return this;
+      }
+
+      private java.util.List<com.google.protobuf.ByteString> witnesses_ = java.util.Collections.emptyList();
+      private void ensureWitnessesIsMutable() {
+        if (!((bitField0_ & 0x00000004) == 0x00000004)) {
+          witnesses_ = new java.util.ArrayList<com.google.protobuf.ByteString>(witnesses_);
+          bitField0_ |= 0x00000004;
+         }
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public java.util.List<com.google.protobuf.ByteString>
+          getWitnessesList() {
+        return java.util.Collections.unmodifiableList(witnesses_);
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public int getWitnessesCount() {
+        return witnesses_.size();
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public com.google.protobuf.ByteString getWitnesses(int index) {
+        return witnesses_.get(index);
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public Builder setWitnesses(
+          int index, com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureWitnessesIsMutable();
+        witnesses_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public Builder addWitnesses(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureWitnessesIsMutable();
+        witnesses_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public Builder addAllWitnesses(
+          java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+        ensureWitnessesIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, witnesses_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes witnesses = 3;</code>
+       */
+      public Builder clearWitnesses() {
+        witnesses_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000004);
+        onChanged();
+        return this;
+      }
+
+      private java.util.List<com.google.protobuf.ByteString> commitments_ = java.util.Collections.emptyList();
+      private void ensureCommitmentsIsMutable() {
+        if (!((bitField0_ & 0x00000008) == 0x00000008)) {
+          commitments_ = new java.util.ArrayList<com.google.protobuf.ByteString>(commitments_);
+          bitField0_ |= 0x00000008;
+         }
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public java.util.List<com.google.protobuf.ByteString>
+          getCommitmentsList() {
+        return java.util.Collections.unmodifiableList(commitments_);
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public int getCommitmentsCount() {
+        return commitments_.size();
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public com.google.protobuf.ByteString getCommitments(int index) {
+        return commitments_.get(index);
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public Builder setCommitments(
+          int index, com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureCommitmentsIsMutable();
+        commitments_.set(index, value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public Builder addCommitments(com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  ensureCommitmentsIsMutable();
+        commitments_.add(value);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public Builder addAllCommitments(
+          java.lang.Iterable<? extends com.google.protobuf.ByteString> values) {
+        ensureCommitmentsIsMutable();
+        com.google.protobuf.AbstractMessageLite.Builder.addAll(
+            values, commitments_);
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>repeated bytes commitments = 4;</code>
+       */
+      public Builder clearCommitments() {
+        commitments_ = java.util.Collections.emptyList();
+        bitField0_ = (bitField0_ & ~0x00000008);
+        onChanged();
+        return this;
+      }
+
+      private serialization.generated.MptSerialization.MerklePrefixTrie path_ = null;
+      private com.google.protobuf.SingleFieldBuilderV3<
+          serialization.generated.MptSerialization.MerklePrefixTrie, serialization.generated.MptSerialization.MerklePrefixTrie.Builder, serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> pathBuilder_;
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public boolean hasPath() {
+        return pathBuilder_ != null || path_ != null;
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrie getPath() {
+        if (pathBuilder_ == null) {
+          return path_ == null ? serialization.generated.MptSerialization.MerklePrefixTrie.getDefaultInstance() : path_;
+        } else {
+          return pathBuilder_.getMessage();
+        }
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public Builder setPath(serialization.generated.MptSerialization.MerklePrefixTrie value) {
+        if (pathBuilder_ == null) {
+          if (value == null) {
+            throw new NullPointerException();
+          }
+          path_ = value;
+          onChanged();
+        } else {
+          pathBuilder_.setMessage(value);
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public Builder setPath(
+          serialization.generated.MptSerialization.MerklePrefixTrie.Builder builderForValue) {
+        if (pathBuilder_ == null) {
+          path_ = builderForValue.build();
+          onChanged();
+        } else {
+          pathBuilder_.setMessage(builderForValue.build());
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public Builder mergePath(serialization.generated.MptSerialization.MerklePrefixTrie value) {
+        if (pathBuilder_ == null) {
+          if (path_ != null) {
+            path_ =
+              serialization.generated.MptSerialization.MerklePrefixTrie.newBuilder(path_).mergeFrom(value).buildPartial();
+          } else {
+            path_ = value;
+          }
+          onChanged();
+        } else {
+          pathBuilder_.mergeFrom(value);
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public Builder clearPath() {
+        if (pathBuilder_ == null) {
+          path_ = null;
+          onChanged();
+        } else {
+          path_ = null;
+          pathBuilder_ = null;
+        }
+
+        return this;
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrie.Builder getPathBuilder() {
+        
+        onChanged();
+        return getPathFieldBuilder().getBuilder();
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      public serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder getPathOrBuilder() {
+        if (pathBuilder_ != null) {
+          return pathBuilder_.getMessageOrBuilder();
+        } else {
+          return path_ == null ?
+              serialization.generated.MptSerialization.MerklePrefixTrie.getDefaultInstance() : path_;
+        }
+      }
+      /**
+       * <code>.serialization.generated.MerklePrefixTrie path = 5;</code>
+       */
+      private com.google.protobuf.SingleFieldBuilderV3<
+          serialization.generated.MptSerialization.MerklePrefixTrie, serialization.generated.MptSerialization.MerklePrefixTrie.Builder, serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder> 
+          getPathFieldBuilder() {
+        if (pathBuilder_ == null) {
+          pathBuilder_ = new com.google.protobuf.SingleFieldBuilderV3<
+              serialization.generated.MptSerialization.MerklePrefixTrie, serialization.generated.MptSerialization.MerklePrefixTrie.Builder, serialization.generated.MptSerialization.MerklePrefixTrieOrBuilder>(
+                  getPath(),
+                  getParentForChildren(),
+                  isClean());
+          path_ = null;
+        }
+        return pathBuilder_;
+      }
+
+      private int witnessIndex_ ;
+      /**
+       * <code>sint32 witness_index = 6;</code>
+       */
+      public int getWitnessIndex() {
+        return witnessIndex_;
+      }
+      /**
+       * <code>sint32 witness_index = 6;</code>
+       */
+      public Builder setWitnessIndex(int value) {
+        
+        witnessIndex_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>sint32 witness_index = 6;</code>
+       */
+      public Builder clearWitnessIndex() {
+        
+        witnessIndex_ = 0;
+        onChanged();
+        return this;
+      }
+      public final Builder setUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.setUnknownFieldsProto3(unknownFields);
+      }
+
+      public final Builder mergeUnknownFields(
+          final com.google.protobuf.UnknownFieldSet unknownFields) {
+        return super.mergeUnknownFields(unknownFields);
+      }
+
+
+      // @@protoc_insertion_point(builder_scope:serialization.generated.LogCheckpoint)
+    }
+
+    // @@protoc_insertion_point(class_scope:serialization.generated.LogCheckpoint)
+    private static final serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint DEFAULT_INSTANCE;
+    static {
+      DEFAULT_INSTANCE = new serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint();
+    }
+
+    public static serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint getDefaultInstance() {
+      return DEFAULT_INSTANCE;
+    }
+
+    private static final com.google.protobuf.Parser<LogCheckpoint>
+        PARSER = new com.google.protobuf.AbstractParser<LogCheckpoint>() {
+      public LogCheckpoint parsePartialFrom(
+          com.google.protobuf.CodedInputStream input,
+          com.google.protobuf.ExtensionRegistryLite extensionRegistry)
+          throws com.google.protobuf.InvalidProtocolBufferException {
+        return new LogCheckpoint(input, extensionRegistry);
+      }
+    };
+
+    public static com.google.protobuf.Parser<LogCheckpoint> parser() {
+      return PARSER;
+    }
+
+    @java.lang.Override
+    public com.google.protobuf.Parser<LogCheckpoint> getParserForType() {
+      return PARSER;
+    }
+
+    public serialization.generated.BVerifyAPIMessageSerialization.LogCheckpoint getDefaultInstanceForType() {
+      return DEFAULT_INSTANCE;
+    }
+
+  }
+
+
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_SignedCreateLogStatement_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_SignedCreateLogStatement_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_CreateLogStatement_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_CreateLogStatement_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_LogStatement_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_LogStatement_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_SignedLogStatement_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_SignedLogStatement_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_LogProof_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_LogProof_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_LogProofs_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_LogProofs_fieldAccessorTable;
+  private static final com.google.protobuf.Descriptors.Descriptor
+    internal_static_serialization_generated_LogCheckpoint_descriptor;
+  private static final 
+    com.google.protobuf.GeneratedMessageV3.FieldAccessorTable
+      internal_static_serialization_generated_LogCheckpoint_fieldAccessorTable;
+
+  public static com.google.protobuf.Descriptors.FileDescriptor
+      getDescriptor() {
+    return descriptor;
+  }
+  private static  com.google.protobuf.Descriptors.FileDescriptor
+      descriptor;
+  static {
+    java.lang.String[] descriptorData = {
+      "\n\037protos/bverifyprotocolapi.proto\022\027seria" +
+      "lization.generated\032\020protos/mpt.proto\"x\n\030" +
+      "SignedCreateLogStatement\022I\n\024create_log_s" +
+      "tatement\030\001 \001(\0132+.serialization.generated" +
+      ".CreateLogStatement\022\021\n\tsignature\030\002 \001(\014\"O" +
+      "\n\022CreateLogStatement\022\036\n\026controlling_publ" +
+      "ic_key\030\001 \001(\014\022\031\n\021initial_statement\030\002 \001(\014\"" +
+      "?\n\014LogStatement\022\016\n\006log_id\030\001 \001(\014\022\020\n\010statm" +
+      "ent\030\002 \001(\014\022\r\n\005index\030\003 \001(\005\"a\n\022SignedLogSta" +
+      "tement\0228\n\tstatement\030\001 \001(\0132%.serializatio" +
+      "n.generated.LogStatement\022\021\n\tsignature\030\002 " +
+      "\001(\014\"\234\002\n\010LogProof\022\016\n\006log_id\030\001 \001(\014\022O\n\024crea" +
+      "te_log_statement\030\002 \001(\01321.serialization.g" +
+      "enerated.SignedCreateLogStatement\022F\n\021sig" +
+      "ned_statements\030\003 \003(\0132+.serialization.gen" +
+      "erated.SignedLogStatement\022F\n\023proof_of_st" +
+      "atements\030\004 \003(\0132).serialization.generated" +
+      ".MerklePrefixTrie\022\037\n\027first_commitment_nu" +
+      "mber\030\005 \001(\005\"\204\001\n\tLogProofs\022/\n\004logs\030\001 \003(\0132!" +
+      ".serialization.generated.LogProof\022F\n\023pro" +
+      "of_of_statements\030\002 \003(\0132).serialization.g" +
+      "enerated.MerklePrefixTrie\"\354\001\n\rLogCheckpo" +
+      "int\022O\n\024create_log_statement\030\001 \001(\01321.seri" +
+      "alization.generated.SignedCreateLogState" +
+      "ment\022\022\n\nstatements\030\002 \003(\014\022\021\n\twitnesses\030\003 " +
+      "\003(\014\022\023\n\013commitments\030\004 \003(\014\0227\n\004path\030\005 \001(\0132)" +
+      ".serialization.generated.MerklePrefixTri" +
+      "e\022\025\n\rwitness_index\030\006 \001(\021B B\036BVerifyAPIMe" +
+      "ssageSerializationb\006proto3"
+    };
+    com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
+        new com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
+          public com.google.protobuf.ExtensionRegistry assignDescriptors(
+              com.google.protobuf.Descriptors.FileDescriptor root) {
+            descriptor = root;
+            return null;
+          }
+        };
+    com.google.protobuf.Descriptors.FileDescriptor
+      .internalBuildGeneratedFileFrom(descriptorData,
+        new com.google.protobuf.Descriptors.FileDescriptor[] {
+          serialization.generated.MptSerialization.getDescriptor(),
+        }, assigner);
+    internal_static_serialization_generated_SignedCreateLogStatement_descriptor =
+      getDescriptor().getMessageTypes().get(0);
+    internal_static_serialization_generated_SignedCreateLogStatement_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_SignedCreateLogStatement_descriptor,
+        new java.lang.String[] { "CreateLogStatement", "Signature", });
+    internal_static_serialization_generated_CreateLogStatement_descriptor =
+      getDescriptor().getMessageTypes().get(1);
+    internal_static_serialization_generated_CreateLogStatement_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_CreateLogStatement_descriptor,
+        new java.lang.String[] { "ControllingPublicKey", "InitialStatement", });
+    internal_static_serialization_generated_LogStatement_descriptor =
+      getDescriptor().getMessageTypes().get(2);
+    internal_static_serialization_generated_LogStatement_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_LogStatement_descriptor,
+        new java.lang.String[] { "LogId", "Statment", "Index", });
+    internal_static_serialization_generated_SignedLogStatement_descriptor =
+      getDescriptor().getMessageTypes().get(3);
+    internal_static_serialization_generated_SignedLogStatement_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_SignedLogStatement_descriptor,
+        new java.lang.String[] { "Statement", "Signature", });
+    internal_static_serialization_generated_LogProof_descriptor =
+      getDescriptor().getMessageTypes().get(4);
+    internal_static_serialization_generated_LogProof_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_LogProof_descriptor,
+        new java.lang.String[] { "LogId", "CreateLogStatement", "SignedStatements", "ProofOfStatements", "FirstCommitmentNumber", });
+    internal_static_serialization_generated_LogProofs_descriptor =
+      getDescriptor().getMessageTypes().get(5);
+    internal_static_serialization_generated_LogProofs_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_LogProofs_descriptor,
+        new java.lang.String[] { "Logs", "ProofOfStatements", });
+    internal_static_serialization_generated_LogCheckpoint_descriptor =
+      getDescriptor().getMessageTypes().get(6);
+    internal_static_serialization_generated_LogCheckpoint_fieldAccessorTable = new
+      com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
+        internal_static_serialization_generated_LogCheckpoint_descriptor,
+        new java.lang.String[] { "CreateLogStatement", "Statements", "Witnesses", "Commitments", "Path", "WitnessIndex", });
     serialization.generated.MptSerialization.getDescriptor();
   }
 
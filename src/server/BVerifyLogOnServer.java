@@ -1,8 +1,7 @@
 package server;
 
 import java.security.PublicKey;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import crpyto.CryptographicDigest;
 import crpyto.CryptographicSignature;
@@ -12,55 +11,183 @@ import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedLogStatement;
 
+/**
+ * A log stored on the server.
+ *
+ * Statements are added and committed by a single writer (holding
+ * the LogManager lock). Each statement records the commitment
+ * it was committed in, so that proofs for a committed commitment
+ * can be built without locking while the writer keeps adding statements.
+ *
+ * @author henryaspegren
+ *
+ */
 public class BVerifyLogOnServer {
 
+	private static final int UNCOMMITTED = -1;
+	private static final int INITIAL_CAPACITY = 8;
+
 	private final byte[] logID;
 	private final PublicKey ownerPublicKey;
 	private final SignedCreateLogStatement signedCreateLogStatement;
-	private final List<SignedLogStatement> signedLogStatements;
-				
+	private volatile int createCommittedAt;
+
+	// append only. The arrays are grown by copying them so a reader
+	// holding an older copy can still read the statements in it
+	private volatile Statements statements;
+	private int size;
+
+	private static class Statements {
+		final SignedLogStatement[] signedLogStatements;
+		// the commitment number each statement was committed in
+		final int[] committedAt;
+
+		Statements(SignedLogStatement[] signedLogStatements, int[] committedAt) {
+			this.signedLogStatements = signedLogStatements;
+			this.committedAt = committedAt;
+		}
+	}
+
 	public BVerifyLogOnServer(SignedCreateLogStatement createLogStmt) {
 		this.signedCreateLogStatement = createLogStmt;
 		CreateLogStatement stmt = createLogStmt.getCreateLogStatement();
 		this.ownerPublicKey = CryptographicSignature.loadPublicKey(
 				stmt.getControllingPublicKey().toByteArray());
 		this.logID = CryptographicDigest.hash(stmt.toByteArray());
-		this.signedLogStatements = new ArrayList<>();
+		this.createCommittedAt = UNCOMMITTED;
+		this.statements = BVerifyLogOnServer.newStatements(new SignedLogStatement[INITIAL_CAPACITY], 
+				new int[INITIAL_CAPACITY], 0);
+		this.size = 0;
 	}
-	
+
+	/**
+	 * Add a new (uncommitted) statement. Only called by the writer.
+	 * @param s
+	 */
 	public void addLogStatement(SignedLogStatement s) {
-		this.signedLogStatements.add(s);
+		Statements current = this.statements;
+		if (this.size == current.signedLogStatements.length) {
+			int capacity = 2 * this.size;
+			current = BVerifyLogOnServer.newStatements(Arrays.copyOf(current.signedLogStatements, capacity),
+					Arrays.copyOf(current.committedAt, capacity), this.size);
+		}
+		current.signedLogStatements[this.size] = s;
+		this.statements = current;
+		this.size++;
 	}
-	
-	public List<SignedLogStatement> getSignedLogStatements(){
-		return this.signedLogStatements;
+
+	/**
+	 * Record that the uncommitted statements (and the create
+	 * statement, if it is not yet committed) have been committed
+	 * in the given commitment. Only called by the writer.
+	 * @param commitmentNumber
+	 */
+	public void markCommitted(int commitmentNumber) {
+		if (this.createCommittedAt == UNCOMMITTED) {
+			this.createCommittedAt = commitmentNumber;
+		}
+		Statements current = this.statements;
+		for (int i = this.size - 1; i >= 0 && current.committedAt[i] == UNCOMMITTED; i--) {
+			current.committedAt[i] = commitmentNumber;
+		}
 	}
-	
+
+	/**
+	 * True if this log was created in or before the given commitment
+	 * @param commitmentNumber
+	 * @return
+	 */
+	public boolean isCommitted(int commitmentNumber) {
+		int committedAt = this.createCommittedAt;
+		return committedAt != UNCOMMITTED && committedAt <= commitmentNumber;
+	}
+
+	/**
+	 * Returns the number of statements (not including the create
+	 * statement) committed in or before the given commitment.
+	 * Safe for concurrent calls.
+	 * @param commitmentNumber
+	 * @return
+	 */
+	public int getNumberOfCommittedStatements(int commitmentNumber) {
+		return BVerifyLogOnServer.countCommitted(this.statements, commitmentNumber);
+	}
+
+	private static int countCommitted(Statements current, int commitmentNumber) {
+		// statements are committed in order so this is a binary search
+		// for the first statement committed after commitmentNumber
+		// (slots past the last statement are UNCOMMITTED)
+		int lo = 0;
+		int hi = current.committedAt.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int committedAt = current.committedAt[mid];
+			if (committedAt == UNCOMMITTED || committedAt > commitmentNumber) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	private static Statements newStatements(SignedLogStatement[] signedLogStatements, int[] committedAt, int from) {
+		Arrays.fill(committedAt, from, committedAt.length, UNCOMMITTED);
+		return new Statements(signedLogStatements, committedAt);
+	}
+
 	public SignedCreateLogStatement getSignedCreateLogStatement() {
 		return this.signedCreateLogStatement;
 	}
-	
+
+	/**
+	 * Index of the last statement added (committed or not),
+	 * only called by the writer
+	 * @return
+	 */
 	public int getLastStatementIndex() {
-		return this.signedLogStatements.size();
+		return this.size;
 	}
-	
+
 	public int getTotalNumberOfStatements() {
-		return this.signedLogStatements.size()+1;
+		return this.size+1;
 	}
-	
+
 	public byte[] getID() {
 		return this.logID;
 	}
-	
+
 	public PublicKey getOwnerPublicKey() {
 		return this.ownerPublicKey;
 	}
+
+	/**
+	 * Start a proof that contains the statements committed in or
+	 * before the given commitment. Safe for concurrent calls.
+	 * @param commitmentNumber
+	 * @return
+	 */
+	public LogProof.Builder getProofBuilder(int commitmentNumber) {
+		return this.getProofBuilder(-1, commitmentNumber);
+	}
 	
-	public LogProof.Builder getProofBuilder() {
+	/**
+	 * Start an incremental proof that contains the statements committed 
+	 * after sinceCommitmentNumber, in or before commitmentNumber. 
+	 * Safe for concurrent calls.
+	 * @param sinceCommitmentNumber
+	 * @param commitmentNumber
+	 * @return
+	 */
+	public LogProof.Builder getProofBuilder(int sinceCommitmentNumber, int commitmentNumber) {
+		Statements current = this.statements;
+		int from = BVerifyLogOnServer.countCommitted(current, sinceCommitmentNumber);
+		int to = BVerifyLogOnServer.countCommitted(current, commitmentNumber);
 		return LogProof.newBuilder().setCreateLogStatement(this.signedCreateLogStatement)
-				.addAllSignedStatements(this.signedLogStatements);
+				.addAllSignedStatements(Arrays.asList(current.signedLogStatements).subList(from, to))
+				.setFirstCommitmentNumber(sinceCommitmentNumber + 1);
 	}
-	
+
 	@Override
 	public String toString() {
 		String res = "<logID: "+Utils.byteArrayAsHexString(this.logID)
@@ -68,5 +195,5 @@ public class BVerifyLogOnServer {
 				+" with "+this.getTotalNumberOfStatements()+" statements>";
 		return res;
 	}
-	
+
 }
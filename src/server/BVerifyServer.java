@@ -4,7 +4,9 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import mpt.dictionary.DeltaHistory;
 import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProofs;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedLogStatement;
 
@@ -17,9 +19,26 @@ public class BVerifyServer {
 	private final LogManager logManager;
 		
 	public BVerifyServer(int batchSize, boolean requireSignatures) {
+		this(batchSize, requireSignatures, new ProofFragmentCache(LogManager.DEFAULT_PROOF_CACHE_BYTES, 
+				ProofFragmentCache.Eviction.TINY_LFU));
+	} 
+	
+	public BVerifyServer(int batchSize, boolean requireSignatures, ProofFragmentCache proofCache) {
+		this(batchSize, requireSignatures, proofCache, false);
+	} 
+	
+	public BVerifyServer(int batchSize, boolean requireSignatures, ProofFragmentCache proofCache, 
+			boolean precomputeProofs) {
+		this(batchSize, requireSignatures, proofCache, precomputeProofs, new DeltaHistory());
+	}
+	
+	public BVerifyServer(int batchSize, boolean requireSignatures, ProofFragmentCache proofCache, 
+			boolean precomputeProofs, DeltaHistory deltaHistory) {
 		logger.log(Level.INFO, "...starting a b_verify server"
-				+ " (batch size: "+batchSize+" | require signatures: "+requireSignatures+")");
-		this.logManager = new LogManager(batchSize, requireSignatures);	
+				+ " (batch size: "+batchSize+" | require signatures: "+requireSignatures
+				+ " | precompute proofs: "+precomputeProofs+")");
+		this.logManager = new LogManager(batchSize, requireSignatures, proofCache, precomputeProofs, 
+				deltaHistory);	
 		this.logManager.commit();
 	} 
 	
@@ -35,9 +54,50 @@ public class BVerifyServer {
 		return this.logManager.commitNewLogStatement(newSignedStatement);
 	}
 	
+	/**
+	 * Returns the proof for the log as of the last commitment
+	 * (or null if the log has not been committed yet). Does not
+	 * block while updates are being made or committed.
+	 * @param logId
+	 * @return
+	 */
 	public LogProof getLogProof(byte[] logId) {
 		return this.logManager.getLogProof(logId);
 	}
+	
+	/**
+	 * Returns an incremental proof for the log, containing only the statements 
+	 * and updates after a commitment the client has already verified 
+	 * (or null if the log has not been committed yet).
+	 * @param logId
+	 * @param sinceCommitmentNumber - the last commitment verified by the client
+	 * @return
+	 */
+	public LogProof getLogProof(byte[] logId, int sinceCommitmentNumber) {
+		return this.logManager.getLogProof(logId, sinceCommitmentNumber);
+	}
+
+	/**
+	 * Returns the proofs for many logs as of the last commitment, sharing 
+	 * a single update for all of the logs for each commitment
+	 * (or null if any of the logs has not been committed yet). 
+	 * Verify with BVerifyLog.verify(...)
+	 * @param logIds
+	 * @return
+	 */
+	public LogProofs getLogProofs(List<byte[]> logIds) {
+		return this.logManager.getLogProofs(logIds);
+	}
+
+	/**
+	 * Returns the proofs for every log as of the last commitment, with 
+	 * all of the changes to the MPT for each commitment. 
+	 * Verify with BVerifyAuditor
+	 * @return
+	 */
+	public LogProofs getAllLogProofs() {
+		return this.logManager.getAllLogProofs();
+	}
 
 	public List<byte[]> commitments() {
 		return this.logManager.getCommitments();
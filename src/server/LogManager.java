@@ -6,19 +6,25 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import log.BVerifyLog;
 import mpt.core.Utils;
+import mpt.dictionary.CommitResult;
+import mpt.dictionary.DeltaHistory;
+import mpt.dictionary.KeyEpochIndex;
 import mpt.dictionary.MPTDictionaryDelta;
 import mpt.dictionary.MPTDictionaryFull;
 import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProofs;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedCreateLogStatement;
 import serialization.generated.BVerifyAPIMessageSerialization.SignedLogStatement;
 
@@ -41,6 +47,10 @@ import serialization.generated.BVerifyAPIMessageSerialization.SignedLogStatement
  * 
  * 							Merkle Proofs to Commitments
  * 				
+ * Updates are made while holding the lock on the LogManager. Each
+ * commit appends the commitment and then publishes the number of 
+ * commitments, so proofs and commitments are read without taking 
+ * the lock and always reflect a single commitment.
  * 
  * @author henryaspegren
  *
@@ -59,7 +69,15 @@ public class LogManager {
 	 * 
 	 */
 	private final MPTDictionaryFull mpt;
-	private final List<MPTDictionaryDelta> mptdeltas;
+	private final DeltaHistory mptdeltas;
+	// the commitments in which the leaf of each log changed
+	private final KeyEpochIndex keyEpochs;
+	// updates for a log from a delta for the commitments in keyEpochs, 
+	// and the path updates shared between logs for the others
+	private final ProofFragmentCache proofCache;
+	// accepted (logID, witness) updates, applied 
+	// to the MPT as a single batch on commit
+	private final List<Map.Entry<byte[], byte[]>> uncommittedInserts;
 
 	/*
 	 * COMMITMENTS
@@ -67,7 +85,17 @@ public class LogManager {
 	 * 	since the code to create and broadcast 
 	 * 	a Bitcoin tx is pretty trivial we omit it)
 	 */
-	private final List<byte[]> commitments;
+	// only appended to (and copied when it grows), 
+	// commitments[i] is commitment #i
+	private volatile byte[][] commitments;
+	
+	/*
+	 * COMMITTED STATE
+	 * (read without locking)
+	 * the commitments [0, committedCount) and the deltas 
+	 * for them in mptdeltas have been published
+	 */
+	private volatile int committedCount;
 	
 	/*
 	 * PARAMETERS
@@ -79,12 +107,56 @@ public class LogManager {
 	private final Set<ByteBuffer> logIDsWithUncomittedModifications;
 	private final int TARGET_BATCH_SIZE;	
 	private final boolean REQUIRE_SIGNATURES;
+	// if true, after each commit the updates for the logs 
+	// that changed are calculated before clients ask for them
+	private final boolean PRECOMPUTE_PROOFS;
+	private final ForkJoinPool workers;
 	private int totalLogs;
 	private int totalLogStatements;
 
+	private static final int INITIAL_COMMITMENTS = 64;
+	
+	// the default size of the proof cache
+	public static final long DEFAULT_PROOF_CACHE_BYTES = 64 * 1024 * 1024;
+	
 	public LogManager(int batchSize, boolean requireSigs) {
+		this(batchSize, requireSigs, new ProofFragmentCache(DEFAULT_PROOF_CACHE_BYTES, 
+				ProofFragmentCache.Eviction.TINY_LFU));
+	}
+	
+	public LogManager(int batchSize, boolean requireSigs, ProofFragmentCache proofCache) {
+		this(batchSize, requireSigs, proofCache, false);
+	}
+	
+	/**
+	 * Create a LogManager
+	 * @param batchSize - the number of updates in each commitment
+	 * @param requireSigs - if true, statements must be signed
+	 * @param proofCache - caches the updates for proofs
+	 * @param precomputeProofs - if true, after each commit the updates for 
+	 * the logs that changed are added to the proofCache (in the 
+	 * background). The memory used is bounded by the proofCache.
+	 */
+	public LogManager(int batchSize, boolean requireSigs, ProofFragmentCache proofCache, 
+			boolean precomputeProofs) {
+		this(batchSize, requireSigs, proofCache, precomputeProofs, new DeltaHistory());
+	}
+	
+	/**
+	 * Create a LogManager
+	 * @param batchSize - the number of updates in each commitment
+	 * @param requireSigs - if true, statements must be signed
+	 * @param proofCache - caches the updates for proofs
+	 * @param precomputeProofs - if true, after each commit the updates for 
+	 * the logs that changed are added to the proofCache (in the 
+	 * background). The memory used is bounded by the proofCache.
+	 * @param mptdeltas - an empty history, to store the deltas on the heap 
+	 * or spill them to disk
+	 */
+	public LogManager(int batchSize, boolean requireSigs, ProofFragmentCache proofCache, 
+			boolean precomputeProofs, DeltaHistory mptdeltas) {
 		logger.log(Level.FINE, "...creating LogManager");
-		this.logIdToLog = new HashMap<>();
+		this.logIdToLog = new ConcurrentHashMap<>();
 		this.logIDsWithUncomittedModifications = new HashSet<>();
 		// initialize the stats to
 		logger.log(Level.FINE, "...initializing stats");
@@ -93,10 +165,16 @@ public class LogManager {
 		this.uncommittedUpdates = 0;
 		this.TARGET_BATCH_SIZE = batchSize;
 		this.REQUIRE_SIGNATURES = requireSigs;
+		this.PRECOMPUTE_PROOFS = precomputeProofs;
+		this.workers = ForkJoinPool.commonPool();
 		logger.log(Level.FINE, "...initializing empty authentication information");
 		this.mpt = new MPTDictionaryFull();
-		this.mptdeltas = new ArrayList<>();
-		this.commitments = new ArrayList<>();		
+		this.mptdeltas = mptdeltas;
+		this.keyEpochs = new KeyEpochIndex();
+		this.proofCache = proofCache;
+		this.uncommittedInserts = new ArrayList<>();
+		this.commitments = new byte[INITIAL_COMMITMENTS][];
+		this.committedCount = 0;
 		logger.log(Level.FINE, "...log manager created");
 	}
 	
@@ -143,7 +221,7 @@ public class LogManager {
 			// accepted, create the log
 			this.logIDsWithUncomittedModifications.add(logIDKey);
 			this.logIdToLog.put(logIDKey, newLog);
-			this.mpt.insert(logID, witness);
+			this.uncommittedInserts.add(Map.entry(logID, witness));
 			this.totalLogs++;
 			this.totalLogStatements++;
 			this.uncommittedUpdates++;
@@ -194,7 +272,7 @@ public class LogManager {
 			this.logIdToLog.put(logIDKey, log);
 			this.logIDsWithUncomittedModifications.add(logIDKey);
 			byte[] witness = BVerifyLog.getSignedStatementHash(newLogStatement);
-			this.mpt.insert(logID, witness);
+			this.uncommittedInserts.add(Map.entry(logID, witness));
 			this.totalLogStatements++;
 			this.uncommittedUpdates++;
 			// commit if we have enough updates
@@ -206,62 +284,187 @@ public class LogManager {
 		return true;
 	}
 		
-	public void commit() {
+	public synchronized void commit() {
 		logger.log(Level.INFO, "committing!");
-		// print info for benchmarking
-		// and time the commitment
-		int totalNumberOfNodes = this.mpt.countNodes();
-		int totalNumberOfHashesNeededToCommit = this.mpt.countHashesRequiredToCommit();;
-		logger.log(Level.INFO, "...[total updates to commit: "+this.uncommittedUpdates+
-				" | total nodes in MPT: "+totalNumberOfNodes+
-				" | number of hashes needed to commit: "+totalNumberOfHashesNeededToCommit+
-				"]");
 		long startTime = System.currentTimeMillis();
+		// apply the batch of updates
+		this.mpt.insertAllParallelized(this.uncommittedInserts, this.workers);
+		this.uncommittedInserts.clear();
 		
 		// actual commit procedure
-		// update required data structures, add the commitment
-		MPTDictionaryDelta delta = new MPTDictionaryDelta(this.mpt);
-		this.mptdeltas.add(delta);
-		this.mpt.reset();
-		
 		// Normally this commitment would also be witnessed to Bitcoin
 		// but for clarity and modularity, that code must 
-		// be included elsewhere
-		byte[] commitment = this.mpt.commitment();
+		// be included elsewhere. The commitment, the delta and
+		// the reset are done in a single traversal of the changes
+		CommitResult result = this.mpt.commitParallelized(this.workers);
+		byte[] commitment = result.getCommitment();
+		
+		// update required data structures, add the commitment
+		MPTDictionaryDelta delta = result.getDelta();
+		this.mptdeltas.add(delta);
 		
-		this.commitments.add(commitment);
+		int commitmentNumber = this.committedCount;
+		byte[][] current = this.commitments;
+		if(commitmentNumber == current.length) {
+			current = Arrays.copyOf(current, 2 * commitmentNumber);
+		}
+		current[commitmentNumber] = commitment;
+		this.commitments = current;
+		this.keyEpochs.add(commitmentNumber, delta);
+		List<byte[]> modifiedLogIDs = new ArrayList<>();
+		for(ByteBuffer logIDKey : this.logIDsWithUncomittedModifications) {
+			BVerifyLogOnServer log = this.logIdToLog.get(logIDKey);
+			log.markCommitted(commitmentNumber);
+			modifiedLogIDs.add(log.getID());
+		}
 		this.logIDsWithUncomittedModifications.clear();
+		int updatesCommitted = this.uncommittedUpdates;
 		this.uncommittedUpdates = 0;
 		
+		// publish the committed state
+		this.committedCount = commitmentNumber + 1;
+		
+		// precompute the updates for the logs that changed, 
+		// without delaying the next commit
+		if(this.PRECOMPUTE_PROOFS) {
+			this.workers.execute(() -> {
+				int precomputed = this.proofCache.precompute(commitmentNumber, delta, modifiedLogIDs);
+				logger.log(Level.FINE, "...precomputed "+precomputed+" of "+modifiedLogIDs.size()
+					+" updates for commitment #"+commitmentNumber);
+			});
+		}
+		
 		long endTime = System.currentTimeMillis();
 		long duration = endTime - startTime;
 		// print the stats
 		NumberFormat formatter = new DecimalFormat("#0.000");
 		String timeTaken = formatter.format(duration / 1000d)+ " seconds";
+		logger.log(Level.INFO, "...[total updates committed: "+updatesCommitted+
+				" | total nodes in MPT: "+result.getTotalNodes()+
+				" | hashes calculated: "+result.getHashesCalculated()+
+				" | changed nodes: "+result.getChangedNodes()+
+				"]");
 		logger.log(Level.INFO, "...time taken to commit: "+timeTaken);
 		logger.log(Level.INFO, "...[logs: "+this.totalLogs+" | statements: "+this.totalLogStatements
 			+" | at "+LocalDateTime.now()+"]");
 		logger.log(Level.INFO, "...commitment #"+this.getCurrentCommitmentNumber()+": "+Utils.byteArrayAsHexString(commitment));
+		logger.log(Level.FINE, "..."+this.proofCache);
 	}
 	
+	/**
+	 * Returns the proof for the log as of the last commitment, or null if 
+	 * the log has not been committed. Safe for concurrent calls, 
+	 * does not take the lock.
+	 * @param logId
+	 * @return
+	 */
 	public LogProof getLogProof(byte[] logId) {
-		logger.log(Level.FINE, "log proof request recieved");
+		return this.getLogProof(logId, -1);
+	}
+	
+	/**
+	 * Returns an incremental proof for the log for a client that has 
+	 * already verified the log up to (and including) sinceCommitmentNumber. 
+	 * It only contains the statements committed after that commitment and 
+	 * the updates for the commitments after it, so it can be verified with 
+	 * BVerifyLog.update(...). If sinceCommitmentNumber is -1 this is the full proof.
+	 * 
+	 * Returns null if the log has not been committed. Safe for 
+	 * concurrent calls, does not take the lock.
+	 * @param logId
+	 * @param sinceCommitmentNumber - the last commitment the client has verified
+	 * @return
+	 */
+	public LogProof getLogProof(byte[] logId, int sinceCommitmentNumber) {
+		logger.log(Level.FINE, "log proof request recieved (since commitment #"+sinceCommitmentNumber+")");
+		int commitmentNumber = this.committedCount - 1;
 		ByteBuffer key = ByteBuffer.wrap(logId);
-		LogProof.Builder proof = this.logIdToLog.get(key).getProofBuilder();
+		BVerifyLogOnServer log = this.logIdToLog.get(key);
+		if(log == null || !log.isCommitted(commitmentNumber)) {
+			return null;
+		}
+		int since = Math.max(-1, Math.min(sinceCommitmentNumber, commitmentNumber));
+		LogProof.Builder proof = log.getProofBuilder(since, commitmentNumber);
 		// add the authentication information
-		// to complete the proof 
-		for(MPTDictionaryDelta delta : this.mptdeltas) {
-			proof.addProofOfStatements(delta.getUpdates(logId));
+		// to complete the proof - only the commitments in which 
+		// the leaf of the log changed need updates just for this log, 
+		// in the others the updates are shared with the logs under 
+		// the same unchanged node
+		int[] leafChanged = this.keyEpochs.getEpochs(logId, since + 1, commitmentNumber);
+		int next = 0;
+		for(int i = since + 1; i <= commitmentNumber; i++) {
+			MPTDictionaryDelta delta = this.mptdeltas.get(i);
+			if(next < leafChanged.length && leafChanged[next] == i) {
+				proof.addProofOfStatements(this.proofCache.getUpdates(i, delta, logId));
+				next++;
+			} else {
+				proof.addProofOfStatements(this.proofCache.getPathUpdates(i, delta, logId));
+			}
 		}
 		return proof.build();
 	}
 	
+	/**
+	 * Returns the proofs for many logs as of the last commitment, 
+	 * with a single update for all of the logs for each commitment 
+	 * (see BVerifyLog.verify(LogProofs, ...)). Returns null if any 
+	 * of the logs has not been committed. Safe for concurrent calls, 
+	 * does not take the lock.
+	 * @param logIds
+	 * @return
+	 */
+	public LogProofs getLogProofs(List<byte[]> logIds) {
+		logger.log(Level.FINE, "log proofs request recieved for "+logIds.size()+" logs");
+		int commitmentNumber = this.committedCount - 1;
+		LogProofs.Builder proofs = LogProofs.newBuilder();
+		for(byte[] logId : logIds) {
+			BVerifyLogOnServer log = this.logIdToLog.get(ByteBuffer.wrap(logId));
+			if(log == null || !log.isCommitted(commitmentNumber)) {
+				return null;
+			}
+			proofs.addLogs(log.getProofBuilder(commitmentNumber));
+		}
+		for(int i = 0; i <= commitmentNumber; i++) {
+			proofs.addProofOfStatements(this.mptdeltas.get(i).getUpdates(logIds));
+		}
+		return proofs.build();
+	}
+	
+	/**
+	 * Returns the proofs for every committed log as of the last commitment 
+	 * for an auditor (see BVerifyAuditor). The updates for each commitment 
+	 * are the whole delta (see MPTDictionaryDelta.getAllUpdates()) rather 
+	 * than the updates for the logs. Safe for concurrent calls, 
+	 * does not take the lock.
+	 * @return
+	 */
+	public LogProofs getAllLogProofs() {
+		logger.log(Level.FINE, "all log proofs request recieved");
+		int commitmentNumber = this.committedCount - 1;
+		LogProofs.Builder proofs = LogProofs.newBuilder();
+		for(BVerifyLogOnServer log : this.logIdToLog.values()) {
+			if(log.isCommitted(commitmentNumber)) {
+				proofs.addLogs(log.getProofBuilder(commitmentNumber));
+			}
+		}
+		for(int i = 0; i <= commitmentNumber; i++) {
+			proofs.addProofOfStatements(this.mptdeltas.get(i).getAllUpdates());
+		}
+		return proofs.build();
+	}
+	
+	public ProofFragmentCache getProofCache() {
+		return this.proofCache;
+	}
+	
 	public int getCurrentCommitmentNumber() {
-		return this.commitments.size()-1;
+		return this.committedCount - 1;
 	}
 	
 	public List<byte[]> getCommitments(){
-		return new ArrayList<>(this.commitments);
+		// read the count first, the array is at least that long
+		int count = this.committedCount;
+		return new ArrayList<>(Arrays.asList(this.commitments).subList(0, count));
 	}	
 	
 }
@@ -0,0 +1,426 @@
+package server;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import mpt.dictionary.MPTDictionaryDelta;
+import serialization.generated.MptSerialization.MerklePrefixTrie;
+
+/**
+ * A bounded cache of the updates for a key from a delta, keyed by
+ * (epoch of the delta, key). Deltas are never modified once committed
+ * so cached updates never need to be invalidated. The updates are
+ * kept serialized and parsed when they are requested, so each entry
+ * is weighed by the bytes it actually keeps on the heap and the cache
+ * is kept under a maximum number of bytes.
+ *
+ * Updates for a key whose leaf did not change in a delta (see 
+ * MPTDictionaryDelta.getPathUpdates(key)) are the same for every key 
+ * under the first unchanged node on its path, so they are keyed by 
+ * (epoch, prefix of the key down to that node) instead and shared by 
+ * all of these keys. They are requested for almost every commitment of 
+ * every proof and parsing them costs as much as building them, so they 
+ * are kept parsed and weighed by their (estimated) size as objects.
+ *
+ * Two eviction policies are supported:
+ * 	- LRU: evict the least recently used entry
+ * 	- TINY_LFU: (W-TinyLFU) new entries go into a small LRU window. An entry
+ * 		leaving the window is only admitted into the main LRU if it has been
+ * 		requested more often than the entry it would evict, as estimated by
+ * 		a count-min sketch. This keeps hot logs cached during scans of
+ * 		logs that are only requested once.
+ *
+ * Safe for concurrent calls. Updates are calculated outside of the lock.
+ *
+ * @author henryaspegren
+ *
+ */
+public class ProofFragmentCache {
+
+	public enum Eviction {
+		LRU, TINY_LFU
+	}
+
+	// approximate memory used by an entry in addition to the serialized 
+	// updates and the key: the array headers, the Key and Fragment 
+	// objects and the entry of the LinkedHashMap
+	private static final int ENTRY_OVERHEAD_BYTES = 160;
+	// approximate memory used by parsed updates per serialized byte: 
+	// every interior node, stub and hash is a separate object (measured 
+	// at about 5.3 for path updates)
+	private static final int PARSED_BYTES_PER_SERIALIZED_BYTE = 6;
+	// the share of the cache used for the window (TINY_LFU)
+	private static final int WINDOW_PERCENT = 1;
+	// the share of the cache that updates precomputed for a 
+	// single delta can use
+	private static final int PRECOMPUTE_PERCENT = 50;
+
+	private final Eviction eviction;
+	private final long maximumBytes;
+	private final long maximumWindowBytes;
+	// access ordered - the eldest entry is the least recently used.
+	// LRU only uses main
+	private final LinkedHashMap<Key, Fragment> window;
+	private final LinkedHashMap<Key, Fragment> main;
+	private final FrequencySketch sketch;
+	private long windowBytes;
+	private long mainBytes;
+
+	/*
+	 * METRICS
+	 */
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private static class Key {
+		final int epoch;
+		final byte[] key;
+		// the number of bits of the key for path updates, -1 
+		// for the updates for the whole key
+		final int prefixBits;
+		final int hash;
+
+		Key(int epoch, byte[] key) {
+			this.epoch = epoch;
+			// copied so the caller can reuse its array
+			this.key = key.clone();
+			this.prefixBits = -1;
+			this.hash = 31 * epoch + Arrays.hashCode(this.key);
+		}
+
+		Key(int epoch, byte[] key, int prefixBits) {
+			this.epoch = epoch;
+			this.key = Arrays.copyOf(key, (prefixBits + 7) / 8);
+			if (prefixBits % 8 != 0) {
+				// clear the bits after the prefix
+				this.key[this.key.length - 1] &= 0xFF << (8 - prefixBits % 8);
+			}
+			this.prefixBits = prefixBits;
+			this.hash = 31 * (31 * epoch + prefixBits) + Arrays.hashCode(this.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (other instanceof Key) {
+				Key k = (Key) other;
+				return this.epoch == k.epoch && this.prefixBits == k.prefixBits
+						&& Arrays.equals(this.key, k.key);
+			}
+			return false;
+		}
+	}
+
+	private static class Fragment {
+		// either the serialized updates or the parsed updates (path updates)
+		final byte[] serializedUpdates;
+		final MerklePrefixTrie parsedUpdates;
+		final int bytes;
+
+		Fragment(MerklePrefixTrie updates, Key key) {
+			this.serializedUpdates = updates.toByteArray();
+			this.parsedUpdates = null;
+			this.bytes = this.serializedUpdates.length + key.key.length + ENTRY_OVERHEAD_BYTES;
+		}
+
+		Fragment(Key key, MerklePrefixTrie parsedUpdates) {
+			this.serializedUpdates = null;
+			this.parsedUpdates = parsedUpdates;
+			this.bytes = parsedUpdates.getSerializedSize() * PARSED_BYTES_PER_SERIALIZED_BYTE
+					+ key.key.length + ENTRY_OVERHEAD_BYTES;
+		}
+
+		MerklePrefixTrie getUpdates() {
+			if (this.parsedUpdates != null) {
+				return this.parsedUpdates;
+			}
+			try {
+				return MerklePrefixTrie.parseFrom(this.serializedUpdates);
+			} catch (InvalidProtocolBufferException e) {
+				// serialized by the cache, so this cannot happen
+				throw new RuntimeException(e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Create a cache
+	 * @param maximumBytes - the maximum (approximate) size of the cached updates
+	 * @param eviction - the eviction policy
+	 */
+	public ProofFragmentCache(long maximumBytes, Eviction eviction) {
+		this.eviction = eviction;
+		this.maximumBytes = maximumBytes;
+		this.maximumWindowBytes = eviction == Eviction.TINY_LFU ? maximumBytes * WINDOW_PERCENT / 100 : 0;
+		this.window = new LinkedHashMap<>(16, 0.75f, true);
+		this.main = new LinkedHashMap<>(16, 0.75f, true);
+		this.sketch = eviction == Eviction.TINY_LFU ? new FrequencySketch(maximumBytes) : null;
+	}
+
+	/**
+	 * Returns delta.getUpdates(key), from the cache if possible.
+	 * @param epoch - the epoch of the delta
+	 * @param delta
+	 * @param key
+	 * @return
+	 */
+	public MerklePrefixTrie getUpdates(int epoch, MPTDictionaryDelta delta, byte[] key) {
+		Key cacheKey = new Key(epoch, key);
+		Fragment fragment = this.get(cacheKey);
+		if (fragment != null) {
+			return fragment.getUpdates();
+		}
+		MerklePrefixTrie updates = delta.getUpdates(key);
+		this.put(cacheKey, new Fragment(updates, cacheKey));
+		return updates;
+	}
+
+	/**
+	 * Returns delta.getPathUpdates(key), from the cache if possible. 
+	 * The updates are shared by all keys under the first unchanged 
+	 * node on the path of the key. If the leaf of the key changed in 
+	 * the delta this is getUpdates(epoch, delta, key).
+	 * @param epoch - the epoch of the delta
+	 * @param delta
+	 * @param key
+	 * @return
+	 */
+	public MerklePrefixTrie getPathUpdates(int epoch, MPTDictionaryDelta delta, byte[] key) {
+		int depth = delta.getUnchangedDepth(key);
+		if (depth < 0) {
+			return this.getUpdates(epoch, delta, key);
+		}
+		Key cacheKey = new Key(epoch, key, depth);
+		Fragment fragment = this.get(cacheKey);
+		if (fragment != null) {
+			return fragment.getUpdates();
+		}
+		MerklePrefixTrie updates = delta.getPathUpdates(key);
+		this.put(cacheKey, new Fragment(cacheKey, updates));
+		return updates;
+	}
+
+	/**
+	 * Calculate and cache the updates for the keys from a delta (in 
+	 * parallel, on the pool running this call), for clients 
+	 * that are expected to ask for them soon. Precomputed updates skip 
+	 * the admission policy and are added as the most recently used 
+	 * entries. Stops once the precomputed updates would use more than 
+	 * PRECOMPUTE_PERCENT of the cache, so that they cannot evict the whole cache.
+	 * @param epoch - the epoch of the delta
+	 * @param delta
+	 * @param keys
+	 * @return the number of updates precomputed
+	 */
+	public int precompute(int epoch, MPTDictionaryDelta delta, List<byte[]> keys) {
+		long maximumPrecomputedBytes = (this.maximumBytes - this.maximumWindowBytes) * PRECOMPUTE_PERCENT / 100;
+		AtomicLong precomputedBytes = new AtomicLong();
+		return (int) keys.parallelStream().filter(key -> {
+			if (precomputedBytes.get() >= maximumPrecomputedBytes) {
+				return false;
+			}
+			Key cacheKey = new Key(epoch, key);
+			synchronized (this) {
+				if (this.main.containsKey(cacheKey) || this.window.containsKey(cacheKey)) {
+					return false;
+				}
+			}
+			Fragment fragment = new Fragment(delta.getUpdates(key), cacheKey);
+			if (precomputedBytes.addAndGet(fragment.bytes) > maximumPrecomputedBytes) {
+				return false;
+			}
+			synchronized (this) {
+				if (this.main.containsKey(cacheKey) || this.window.containsKey(cacheKey)) {
+					return false;
+				}
+				this.main.put(cacheKey, fragment);
+				this.mainBytes += fragment.bytes;
+				this.evictFromMain(null);
+			}
+			return true;
+		}).count();
+	}
+
+	private synchronized Fragment get(Key cacheKey) {
+		Fragment fragment = this.lookup(cacheKey);
+		if (fragment != null) {
+			this.hits++;
+		} else {
+			this.misses++;
+		}
+		return fragment;
+	}
+
+	private synchronized void put(Key cacheKey, Fragment fragment) {
+		this.add(cacheKey, fragment);
+	}
+
+	private Fragment lookup(Key cacheKey) {
+		if (this.sketch != null) {
+			this.sketch.increment(cacheKey.hash);
+		}
+		Fragment fragment = this.main.get(cacheKey);
+		if (fragment == null) {
+			fragment = this.window.get(cacheKey);
+		}
+		return fragment;
+	}
+
+	private void add(Key cacheKey, Fragment fragment) {
+		// too big, or added by a concurrent request
+		if (fragment.bytes > this.maximumBytes - this.maximumWindowBytes
+				|| this.main.containsKey(cacheKey) || this.window.containsKey(cacheKey)) {
+			return;
+		}
+		if (this.eviction == Eviction.LRU) {
+			this.main.put(cacheKey, fragment);
+			this.mainBytes += fragment.bytes;
+			this.evictFromMain(null);
+			return;
+		}
+		this.window.put(cacheKey, fragment);
+		this.windowBytes += fragment.bytes;
+		while (this.windowBytes > this.maximumWindowBytes) {
+			// the entry leaving the window is a candidate for main
+			Iterator<Map.Entry<Key, Fragment>> eldest = this.window.entrySet().iterator();
+			Map.Entry<Key, Fragment> candidate = eldest.next();
+			eldest.remove();
+			this.windowBytes -= candidate.getValue().bytes;
+			this.main.put(candidate.getKey(), candidate.getValue());
+			this.mainBytes += candidate.getValue().bytes;
+			this.evictFromMain(candidate.getKey());
+		}
+	}
+
+	/**
+	 * Evict least recently used entries until main fits. With TINY_LFU
+	 * the candidate (just added to main) is evicted instead if it is
+	 * not requested more often than the entry it would evict.
+	 */
+	private void evictFromMain(Key candidate) {
+		long maximumMainBytes = this.maximumBytes - this.maximumWindowBytes;
+		while (this.mainBytes > maximumMainBytes) {
+			Map.Entry<Key, Fragment> victim = this.main.entrySet().iterator().next();
+			Key evicted = victim.getKey();
+			if (candidate != null && !evicted.equals(candidate)
+					&& this.sketch.frequency(candidate.hash) <= this.sketch.frequency(evicted.hash)) {
+				evicted = candidate;
+			}
+			this.mainBytes -= this.main.remove(evicted).bytes;
+			this.evictions++;
+			if (evicted == candidate) {
+				return;
+			}
+		}
+	}
+
+	public synchronized long getHitCount() {
+		return this.hits;
+	}
+
+	public synchronized long getMissCount() {
+		return this.misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return this.evictions;
+	}
+
+	/**
+	 * The fraction of requests served from the cache
+	 * @return
+	 */
+	public synchronized double getHitRate() {
+		long requests = this.hits + this.misses;
+		return requests == 0 ? 0 : (double) this.hits / requests;
+	}
+
+	/**
+	 * The number of cached updates
+	 * @return
+	 */
+	public synchronized int size() {
+		return this.main.size() + this.window.size();
+	}
+
+	/**
+	 * The (approximate) size of the cached updates in bytes
+	 * @return
+	 */
+	public synchronized long getSizeInBytes() {
+		return this.mainBytes + this.windowBytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "<ProofFragmentCache " + this.eviction + " | entries: " + this.size()
+				+ " | bytes: " + this.getSizeInBytes() + "/" + this.maximumBytes
+				+ " | hits: " + this.hits + " | misses: " + this.misses
+				+ " | evictions: " + this.evictions + ">";
+	}
+
+	/**
+	 * A count-min sketch of how often keys are requested, with
+	 * four counters per key (capped at 15). All counters are halved
+	 * periodically so that the frequencies reflect recent requests.
+	 */
+	private static class FrequencySketch {
+		private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+		private static final int MAXIMUM_COUNT = 15;
+		// expected bytes per entry, used to size the sketch
+		private static final int EXPECTED_ENTRY_BYTES = 512;
+
+		private final int[] counters;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(long maximumBytes) {
+			long entries = Math.max(64, Math.min(1 << 24, maximumBytes / EXPECTED_ENTRY_BYTES));
+			int length = Integer.highestOneBit((int) entries - 1) << 1;
+			this.counters = new int[length];
+			this.sampleSize = 10 * length;
+		}
+
+		void increment(int hash) {
+			for (int seed : SEEDS) {
+				int index = this.index(hash, seed);
+				if (this.counters[index] < MAXIMUM_COUNT) {
+					this.counters[index]++;
+				}
+			}
+			this.additions++;
+			if (this.additions == this.sampleSize) {
+				for (int i = 0; i < this.counters.length; i++) {
+					this.counters[i] >>>= 1;
+				}
+				this.additions /= 2;
+			}
+		}
+
+		int frequency(int hash) {
+			int frequency = MAXIMUM_COUNT;
+			for (int seed : SEEDS) {
+				frequency = Math.min(frequency, this.counters[this.index(hash, seed)]);
+			}
+			return frequency;
+		}
+
+		private int index(int hash, int seed) {
+			int h = (hash + seed) * seed;
+			h ^= h >>> 16;
+			return h & (this.counters.length - 1);
+		}
+	}
+
+}
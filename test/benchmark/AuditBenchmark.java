@@ -0,0 +1,104 @@
+package benchmark;
+
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import client.MockClient;
+import crpyto.CryptographicSignature;
+import log.BVerifyAuditor;
+import log.BVerifyLog;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProofs;
+import server.BVerifyServer;
+
+/**
+ * Measures the throughput (logs verified per second) of auditing every
+ * log on a server: verifying the proof of each log with a separate
+ * BVerifyLog, verifying the proofs of all of the logs at once
+ * (BVerifyLog.verify(LogProofs, ...)) and with a BVerifyAuditor that
+ * applies all of the changes to a single replica of the MPT.
+ *
+ * Each commitment adds a statement to a batch of logs. Signatures are
+ * not required, so only the Merkle proofs and the witnesses are checked.
+ * The proofs are fetched before the timer is started, the best of the
+ * repetitions is reported.
+ *
+ * usage: AuditBenchmark [number of logs] [statements per log] [batch size] [repetitions]
+ *
+ */
+public class AuditBenchmark {
+
+	// keep a reference so the level is not lost
+	private static final Logger serverLogger = Logger.getLogger("server");
+
+	public static void main(String[] args) throws Exception {
+		int nLogs = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int nStatementsPerLog = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int reps = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		serverLogger.setLevel(Level.WARNING);
+
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, false));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, false);
+		for (MockClient mc : clients) {
+			server.createNewLog(mc.getCreateLogStatement());
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients) {
+				server.makeLogStatement(mc.addLogStatement("S" + i));
+			}
+		}
+		List<byte[]> logIds = new ArrayList<>();
+		List<LogProof> logProofs = new ArrayList<>();
+		for (MockClient mc : clients) {
+			logIds.add(mc.getLogID());
+			logProofs.add(server.getLogProof(mc.getLogID()));
+		}
+		LogProofs bulkProofs = server.getLogProofs(logIds);
+		LogProofs auditProofs = server.getAllLogProofs();
+		System.out.println("logs: " + nLogs + " | statements per log: " + nStatementsPerLog
+				+ " | commitments: " + server.commitments().size()
+				+ " | audit proof bytes: " + auditProofs.getSerializedSize()
+				+ " | bulk proof bytes: " + bulkProofs.getSerializedSize());
+
+		long perLog = Long.MAX_VALUE;
+		long bulk = Long.MAX_VALUE;
+		long audit = Long.MAX_VALUE;
+		for (int rep = 0; rep < reps; rep++) {
+			long startTime = System.nanoTime();
+			for (LogProof proof : logProofs) {
+				new BVerifyLog(proof, false);
+			}
+			perLog = Math.min(perLog, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			BVerifyLog.verify(bulkProofs, false);
+			bulk = Math.min(bulk, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			BVerifyAuditor auditor = new BVerifyAuditor(auditProofs, false);
+			audit = Math.min(audit, System.nanoTime() - startTime);
+			if (auditor.getNumberOfLogs() != nLogs) {
+				throw new RuntimeException("not all of the logs were audited");
+			}
+		}
+		System.out.println("BVerifyLog per log:           " + AuditBenchmark.logsPerSecond(nLogs, perLog)
+				+ " logs/s");
+		System.out.println("BVerifyLog.verify(LogProofs): " + AuditBenchmark.logsPerSecond(nLogs, bulk)
+				+ " logs/s");
+		System.out.println("BVerifyAuditor:               " + AuditBenchmark.logsPerSecond(nLogs, audit)
+				+ " logs/s");
+	}
+
+	private static long logsPerSecond(int nLogs, long nanos) {
+		return Math.round(nLogs / (nanos / 1e9));
+	}
+
+}
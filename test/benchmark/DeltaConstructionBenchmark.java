@@ -0,0 +1,77 @@
+package benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryDelta;
+import mpt.dictionary.MPTDictionaryFull;
+
+/**
+ * Measures the time to construct the delta of a batch of updates to a 
+ * large MPT, sequentially and on a fork/join pool with an increasing 
+ * number of worker threads. The commitment is calculated before the 
+ * delta is constructed (as in LogManager.commit), so only the copy is timed.
+ * The speedup is relative to the sequential constructor, and the flat 
+ * form of each parallel delta is checked against the sequential one.
+ * 
+ * usage: DeltaConstructionBenchmark [number of keys] [batch size] [max threads] [repetitions]
+ *
+ */
+public class DeltaConstructionBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int batchSize = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+		int reps = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		mpt.insertAll(kvpairs);
+		mpt.commitment();
+		mpt.reset();
+		List<byte[]> values = Utils.getValues(batchSize, "other salt");
+		for (int i = 0; i < batchSize; i++) {
+			mpt.insert(kvpairs.get(Math.floorMod(i * 104729, n)).getKey(), values.get(i));
+		}
+		mpt.commitment();
+
+		long sequential = Long.MAX_VALUE;
+		MPTDictionaryDelta expected = null;
+		for (int rep = 0; rep < reps; rep++) {
+			long startTime = System.nanoTime();
+			expected = new MPTDictionaryDelta(mpt);
+			sequential = Math.min(sequential, System.nanoTime() - startTime);
+		}
+		byte[] expectedBytes = DeltaConstructionBenchmark.encode(expected);
+		System.out.println("keys: " + n + " | batch size: " + batchSize + " | nodes in delta: " 
+				+ expected.countNodes() + " | available processors: " + Runtime.getRuntime().availableProcessors());
+		System.out.println("sequential | time: " + String.format("%.1f", sequential / 1e6) + " ms");
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool workers = new ForkJoinPool(threads);
+			long best = Long.MAX_VALUE;
+			boolean correct = true;
+			for (int rep = 0; rep < reps; rep++) {
+				long startTime = System.nanoTime();
+				MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt, workers);
+				best = Math.min(best, System.nanoTime() - startTime);
+				correct &= Arrays.equals(expectedBytes, DeltaConstructionBenchmark.encode(delta));
+			}
+			workers.shutdown();
+			System.out.println("threads: " + threads 
+					+ " | time: " + String.format("%.1f", best / 1e6) + " ms"
+					+ " | speedup: " + String.format("%.2f", (double) sequential / best)
+					+ " | same delta: " + correct);
+		}
+	}
+	
+	private static byte[] encode(MPTDictionaryDelta delta) {
+		ByteBuffer buffer = ByteBuffer.allocate(delta.getEncodedSizeInBytes());
+		delta.writeTo(buffer);
+		return buffer.array();
+	}
+	
+}
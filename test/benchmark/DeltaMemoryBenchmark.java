@@ -0,0 +1,84 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryDelta;
+import mpt.dictionary.MPTDictionaryFull;
+
+/**
+ * Reports the memory retained per delta for a history of commitments
+ * on a large MPT: for the flat form of MPTDictionaryDelta (measured as
+ * the growth of the heap after a GC while the deltas are retained, and
+ * as reported by getSizeInBytes()) and for the object tree of changed
+ * nodes and stubs a delta was stored as before (estimated from the
+ * number of nodes of each type, with 64-bit compressed object layouts).
+ *
+ * Run with a large heap (e.g. -Xmx4g).
+ *
+ * usage: DeltaMemoryBenchmark [number of keys] [commitments] [batch size]
+ *
+ */
+public class DeltaMemoryBenchmark {
+
+	// object + hash array
+	private static final int INTERIOR_NODE_BYTES = 32 + 48;
+	private static final int STUB_BYTES = 16 + 48;
+	// object + key, value and hash arrays
+	private static final int LEAF_BYTES = 32 + 3 * 48;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int commitments = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		mpt.insertAll(kvpairs);
+		mpt.commitment();
+		mpt.reset();
+
+		List<MPTDictionaryDelta> deltas = new ArrayList<>();
+		long flatBytes = 0;
+		long objectTreeBytes = 0;
+		long nodes = 0;
+		long heapBefore = DeltaMemoryBenchmark.usedHeap();
+		for (int epoch = 0; epoch < commitments; epoch++) {
+			List<byte[]> values = Utils.getValues(batchSize, "salt" + epoch);
+			for (int i = 0; i < batchSize; i++) {
+				int k = Math.floorMod((epoch * 7919 + i) * 104729, n);
+				mpt.insert(kvpairs.get(k).getKey(), values.get(i));
+			}
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+			mpt.reset();
+			deltas.add(delta);
+			flatBytes += delta.getSizeInBytes();
+			nodes += delta.countNodes();
+			// every interior node has two children, the
+			// other nodes are leaves or stubs (no deletes)
+			int interior = (delta.countNodes() - 1) / 2;
+			int leaves = delta.getChangedKeys().size();
+			int stubs = delta.countNodes() - interior - leaves;
+			objectTreeBytes += (long) interior * INTERIOR_NODE_BYTES + (long) stubs * STUB_BYTES
+					+ (long) leaves * LEAF_BYTES;
+		}
+		long flatHeap = DeltaMemoryBenchmark.usedHeap() - heapBefore;
+
+		System.out.println("keys: " + n + " | commitments: " + deltas.size() + " | batch size: " + batchSize
+				+ " | nodes per delta: " + nodes / commitments);
+		System.out.println("\tobject tree (estimated):  " + objectTreeBytes / commitments + " bytes/delta");
+		System.out.println("\tflat (getSizeInBytes):    " + flatBytes / commitments + " bytes/delta");
+		System.out.println("\tflat (measured heap):     " + flatHeap / commitments + " bytes/delta");
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
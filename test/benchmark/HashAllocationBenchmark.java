@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryFull;
+
+/**
+ * Measures the bytes allocated while recalculating the 
+ * commitment of a MPTDictionaryFull after a batch of updates. 
+ * 
+ * usage: HashAllocationBenchmark [number of keys] [updates per round] [rounds]
+ *
+ */
+public class HashAllocationBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int updates = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		com.sun.management.ThreadMXBean threads = 
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		mpt.commitment();
+		
+		long totalBytes = 0;
+		long totalHashes = 0;
+		long totalNanos = 0;
+		for (int round = 0; round < rounds; round++) {
+			List<byte[]> values = Utils.getValues(updates, "round" + round);
+			for (int i = 0; i < updates; i++) {
+				mpt.insert(kvpairs.get((i * 7919 + round) % n).getKey(), values.get(i));
+			}
+			totalHashes += mpt.countHashesRequiredToCommit();
+			long startBytes = threads.getThreadAllocatedBytes(threadId);
+			long startTime = System.nanoTime();
+			mpt.commitment();
+			totalNanos += System.nanoTime() - startTime;
+			totalBytes += threads.getThreadAllocatedBytes(threadId) - startBytes;
+		}
+		System.out.println("keys: " + n + " | updates per round: " + updates + " | rounds: " + rounds);
+		System.out.println("hashes computed: " + totalHashes);
+		System.out.println("bytes allocated during commitment(): " + totalBytes 
+				+ " (" + String.format("%.1f", (double) totalBytes / totalHashes) + " bytes/hash)");
+		System.out.println("time per hash: " + String.format("%.0f", (double) totalNanos / totalHashes) + " ns");
+	}
+	
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Map;
+
+import mpt.dictionary.AuthenticatedDictionaryServer;
+import mpt.dictionary.MPTDictionaryArena;
+import mpt.dictionary.MPTDictionaryFull;
+import mpt.core.Utils;
+
+/**
+ * Compares the heap used per key by the object-based
+ * MPTDictionaryFull and the array-backed MPTDictionaryArena.
+ * 
+ * usage: MemoryPerKeyBenchmark [number of keys]
+ *
+ */
+public class MemoryPerKeyBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		
+		long base = usedMemory();
+		MPTDictionaryFull full = new MPTDictionaryFull();
+		long fullBytes = build(full, kvpairs) - base;
+		byte[] fullCommitment = full.commitment();
+		full = null;
+		
+		base = usedMemory();
+		MPTDictionaryArena arena = new MPTDictionaryArena();
+		long arenaBytes = build(arena, kvpairs) - base;
+		byte[] arenaCommitment = arena.commitment();
+		
+		System.out.println("keys: " + n);
+		System.out.println("MPTDictionaryFull:  " + fullBytes + " bytes (" + (fullBytes / n) + " bytes/key)");
+		System.out.println("MPTDictionaryArena: " + arenaBytes + " bytes (" + (arenaBytes / n) + " bytes/key)"
+				+ " [arrays: " + arena.arenaSizeInBytes() + " bytes, nodes: " + arena.countNodes() + "]");
+		System.out.println("same commitment: " + java.util.Arrays.equals(fullCommitment, arenaCommitment));
+	}
+	
+	private static long build(AuthenticatedDictionaryServer mpt, List<Map.Entry<byte[], byte[]>> kvpairs) {
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			mpt.insert(kv.getKey(), kv.getValue());
+		}
+		mpt.commitment();
+		return usedMemory();
+	}
+	
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryFull;
+
+/**
+ * Measures batch insert throughput of MPTDictionaryFull.insertAllParallelized 
+ * with an increasing number of worker threads. Each run inserts the whole batch
+ * into an empty MPT and then inserts a second batch (of updates and new keys) into it.
+ * The speedup is relative to a single worker, and the commitment is 
+ * checked against the sequential insertAll.
+ * 
+ * usage: ParallelInsertBenchmark [batch size] [max threads] [repetitions]
+ *
+ */
+public class ParallelInsertBenchmark {
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		int reps = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		List<Map.Entry<byte[], byte[]>> batch = Utils.getKeyValuePairs(n, "salt");
+		List<Map.Entry<byte[], byte[]>> updates = Utils.getKeyValuePairs(n, "other salt");
+		
+		MPTDictionaryFull expected = new MPTDictionaryFull();
+		expected.insertAll(batch);
+		expected.insertAll(updates);
+		byte[] expectedCommitment = expected.commitment();
+		expected = null;
+
+		System.out.println("batch size: " + n + " | available processors: " 
+				+ Runtime.getRuntime().availableProcessors());
+		double baseline = 0;
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			ForkJoinPool workers = new ForkJoinPool(threads);
+			long best = Long.MAX_VALUE;
+			boolean correct = true;
+			for (int rep = 0; rep < reps; rep++) {
+				MPTDictionaryFull mpt = new MPTDictionaryFull();
+				long startTime = System.nanoTime();
+				mpt.insertAllParallelized(batch, workers);
+				mpt.insertAllParallelized(updates, workers);
+				best = Math.min(best, System.nanoTime() - startTime);
+				correct &= Arrays.equals(expectedCommitment, mpt.commitmentParallelized(workers));
+			}
+			workers.shutdown();
+			double insertsPerSecond = 2.0 * n / (best / 1e9);
+			if (threads == 1) {
+				baseline = insertsPerSecond;
+			}
+			System.out.println("threads: " + threads 
+					+ " | time: " + String.format("%.3f", best / 1e9) + " s"
+					+ " | inserts/s: " + String.format("%.0f", insertsPerSecond)
+					+ " | speedup: " + String.format("%.2f", insertsPerSecond / baseline)
+					+ " | same commitment: " + correct);
+		}
+	}
+	
+}
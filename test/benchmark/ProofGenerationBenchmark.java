@@ -0,0 +1,129 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import mpt.core.Utils;
+import mpt.dictionary.KeyEpochIndex;
+import mpt.dictionary.MPTDictionaryDelta;
+import mpt.dictionary.MPTDictionaryFull;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import server.ProofFragmentCache;
+
+/**
+ * Measures the time to build the Merkle part of log proofs over a long
+ * history of commitments, calling getUpdates(key) on every delta versus
+ * using a KeyEpochIndex and getPathUpdates(key) for the deltas
+ * in which the leaf of the key did not change, with and without a 
+ * ProofFragmentCache (as LogManager does). The cache is kept between 
+ * repetitions, as for clients that keep asking for proofs.
+ *
+ * Each commitment updates a batch of random keys. Proofs are built for
+ * a sample of the keys and serialized, the best of the repetitions 
+ * is reported in microseconds per proof.
+ *
+ * usage: ProofGenerationBenchmark [number of keys] [commitments] [batch size] [proofs] [repetitions] [cache MB]
+ *
+ */
+public class ProofGenerationBenchmark {
+
+	private static final int WARMUP_ROUNDS = 3;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int commitments = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+		int proofs = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+		int reps = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+		long cacheBytes = (args.length > 5 ? Long.parseLong(args[5]) : 1024) << 20;
+
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		mpt.insertAll(kvpairs);
+		mpt.commitment();
+		mpt.reset();
+		List<MPTDictionaryDelta> deltas = new ArrayList<>();
+		KeyEpochIndex index = new KeyEpochIndex();
+		for (int epoch = 0; epoch < commitments; epoch++) {
+			List<byte[]> values = Utils.getValues(batchSize, "salt" + epoch);
+			for (int i = 0; i < batchSize; i++) {
+				int k = Math.floorMod((epoch * 7919 + i) * 104729, n);
+				mpt.insert(kvpairs.get(k).getKey(), values.get(i));
+			}
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+			mpt.reset();
+			deltas.add(delta);
+			index.add(epoch, delta);
+		}
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < proofs; i++) {
+			keys.add(kvpairs.get(Math.floorMod(i * 31, n)).getKey());
+		}
+
+		ProofFragmentCache cache = new ProofFragmentCache(cacheBytes, ProofFragmentCache.Eviction.TINY_LFU);
+		long getUpdates = Long.MAX_VALUE;
+		long indexed = Long.MAX_VALUE;
+		long cached = Long.MAX_VALUE;
+		long checksum = 0;
+		for (int rep = 0; rep < WARMUP_ROUNDS + reps; rep++) {
+			long startTime = System.nanoTime();
+			for (byte[] key : keys) {
+				LogProof.Builder proof = LogProof.newBuilder();
+				for (MPTDictionaryDelta delta : deltas) {
+					proof.addProofOfStatements(delta.getUpdates(key));
+				}
+				checksum += proof.build().getProofOfStatementsCount();
+			}
+			long getUpdatesTime = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			for (byte[] key : keys) {
+				LogProof.Builder proof = LogProof.newBuilder();
+				int[] leafChanged = index.getEpochs(key, 0, commitments - 1);
+				int next = 0;
+				for (int epoch = 0; epoch < commitments; epoch++) {
+					MPTDictionaryDelta delta = deltas.get(epoch);
+					if (next < leafChanged.length && leafChanged[next] == epoch) {
+						proof.addProofOfStatements(delta.getUpdates(key));
+						next++;
+					} else {
+						proof.addProofOfStatements(delta.getPathUpdates(key));
+					}
+				}
+				checksum -= proof.build().getProofOfStatementsCount();
+			}
+			long indexedTime = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			for (byte[] key : keys) {
+				LogProof.Builder proof = LogProof.newBuilder();
+				int[] leafChanged = index.getEpochs(key, 0, commitments - 1);
+				int next = 0;
+				for (int epoch = 0; epoch < commitments; epoch++) {
+					MPTDictionaryDelta delta = deltas.get(epoch);
+					if (next < leafChanged.length && leafChanged[next] == epoch) {
+						proof.addProofOfStatements(cache.getUpdates(epoch, delta, key));
+						next++;
+					} else {
+						proof.addProofOfStatements(cache.getPathUpdates(epoch, delta, key));
+					}
+				}
+				checksum += proof.build().getProofOfStatementsCount();
+			}
+			long cachedTime = System.nanoTime() - startTime;
+			if (rep >= WARMUP_ROUNDS) {
+				getUpdates = Math.min(getUpdates, getUpdatesTime);
+				indexed = Math.min(indexed, indexedTime);
+				cached = Math.min(cached, cachedTime);
+			}
+		}
+		System.out.println("keys: " + n + " | commitments: " + commitments + " | batch size: " + batchSize
+				+ " | indexed keys: " + index.size() + " (checksum " + checksum + ")");
+		System.out.println("\tgetUpdates on every delta: " + String.format("%10.1f", getUpdates / 1000d / proofs) + " us/proof");
+		System.out.println("\tkey epoch index:           " + String.format("%10.1f", indexed / 1000d / proofs) + " us/proof");
+		System.out.println("\tindex and proof cache:     " + String.format("%10.1f", cached / 1000d / proofs) + " us/proof");
+		System.out.println("\t" + cache);
+	}
+
+}
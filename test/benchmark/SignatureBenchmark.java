@@ -0,0 +1,135 @@
+package benchmark;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import crpyto.CryptographicSignature;
+
+/**
+ * Measures the throughput (signatures verified per second) of
+ * CryptographicSignature.verify(...) on secp256k1:
+ *  - the same key every time, so the precomputed table of the key is reused
+ *  - the key loaded from its encoding every time, so the table comes
+ *    from the cache of recently used keys
+ *  - more distinct keys than the cache holds, so every verification
+ *    calculates the table of the key
+ * and of the JCA provider (CryptographicSignature.providerVerify(...)).
+ * The provider is measured on secp256k1 if it supports the curve and
+ * on secp256r1 (the same size) otherwise.
+ *
+ * The best of the repetitions is reported.
+ *
+ * usage: SignatureBenchmark [number of signatures] [repetitions]
+ *
+ */
+public class SignatureBenchmark {
+
+	// more than the number of tables cached
+	private static final int DISTINCT_KEYS = 2048;
+
+	public static void main(String[] args) {
+		int nSignatures = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int reps = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random rand = new Random(0);
+		List<byte[]> messages = new ArrayList<>();
+		for (int i = 0; i < nSignatures; i++) {
+			byte[] message = new byte[32];
+			rand.nextBytes(message);
+			messages.add(message);
+		}
+
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		byte[] encodedKey = kp.getPublic().getEncoded();
+		List<byte[]> signatures = new ArrayList<>();
+		for (byte[] message : messages) {
+			signatures.add(CryptographicSignature.sign(message, kp.getPrivate()));
+		}
+
+		List<PublicKey> distinctKeys = new ArrayList<>();
+		List<byte[]> distinctSignatures = new ArrayList<>();
+		for (int i = 0; i < nSignatures; i++) {
+			if (i < DISTINCT_KEYS) {
+				KeyPair distinct = CryptographicSignature.generateNewKeyPair();
+				distinctKeys.add(distinct.getPublic());
+				distinctSignatures.add(CryptographicSignature.sign(messages.get(i), distinct.getPrivate()));
+			} else {
+				distinctSignatures.add(distinctSignatures.get(i % DISTINCT_KEYS));
+			}
+		}
+
+		String providerCurve = CryptographicSignature.CURVE;
+		KeyPair providerKp;
+		try {
+			providerKp = CryptographicSignature.generateNewProviderKeyPair(providerCurve);
+		} catch (RuntimeException e) {
+			providerCurve = "secp256r1";
+			providerKp = CryptographicSignature.generateNewProviderKeyPair(providerCurve);
+		}
+		List<byte[]> providerSignatures = new ArrayList<>();
+		for (byte[] message : messages) {
+			providerSignatures.add(CryptographicSignature.providerSign(message, providerKp.getPrivate()));
+		}
+		System.out.println("signatures: " + nSignatures + " | distinct keys: "
+				+ Math.min(nSignatures, DISTINCT_KEYS) + " | provider curve: " + providerCurve);
+
+		long sameKey = Long.MAX_VALUE;
+		long loadedKey = Long.MAX_VALUE;
+		long distinctKey = Long.MAX_VALUE;
+		long provider = Long.MAX_VALUE;
+		for (int rep = 0; rep < reps; rep++) {
+			long startTime = System.nanoTime();
+			for (int i = 0; i < nSignatures; i++) {
+				SignatureBenchmark.check(CryptographicSignature.verify(messages.get(i), signatures.get(i),
+						kp.getPublic()));
+			}
+			sameKey = Math.min(sameKey, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < nSignatures; i++) {
+				PublicKey key = CryptographicSignature.loadPublicKey(encodedKey);
+				SignatureBenchmark.check(CryptographicSignature.verify(messages.get(i), signatures.get(i), key));
+			}
+			loadedKey = Math.min(loadedKey, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < nSignatures; i++) {
+				// a new key object each time, the cache has been cycled through
+				PublicKey key = CryptographicSignature
+						.loadPublicKey(distinctKeys.get(i % DISTINCT_KEYS).getEncoded());
+				SignatureBenchmark.check(CryptographicSignature.verify(messages.get(i),
+						distinctSignatures.get(i), key));
+			}
+			distinctKey = Math.min(distinctKey, System.nanoTime() - startTime);
+
+			startTime = System.nanoTime();
+			for (int i = 0; i < nSignatures; i++) {
+				SignatureBenchmark.check(CryptographicSignature.providerVerify(messages.get(i),
+						providerSignatures.get(i), providerKp.getPublic()));
+			}
+			provider = Math.min(provider, System.nanoTime() - startTime);
+		}
+		System.out.println("secp256k1 same key:                  "
+				+ SignatureBenchmark.perSecond(nSignatures, sameKey) + " verifications/s");
+		System.out.println("secp256k1 key loaded (cached table): "
+				+ SignatureBenchmark.perSecond(nSignatures, loadedKey) + " verifications/s");
+		System.out.println("secp256k1 distinct keys (no table):  "
+				+ SignatureBenchmark.perSecond(nSignatures, distinctKey) + " verifications/s");
+		System.out.println("provider " + providerCurve + ":                  "
+				+ SignatureBenchmark.perSecond(nSignatures, provider) + " verifications/s");
+	}
+
+	private static void check(boolean verified) {
+		if (!verified) {
+			throw new RuntimeException("signature not verified");
+		}
+	}
+
+	private static long perSecond(int n, long nanos) {
+		return Math.round(n / (nanos / 1e9));
+	}
+
+}
@@ -0,0 +1,115 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryDelta;
+import mpt.dictionary.MPTDictionaryFull;
+
+/**
+ * Measures the latency of single key operations on MPTDictionaryFull
+ * (get, insert of a new key, update of an existing key, delete) and of
+ * MPTDictionaryDelta.getUpdates. Each operation is warmed up and then
+ * timed over every key, the best of the repetitions is reported in
+ * nanoseconds per operation.
+ *
+ * Two key sets are used: random keys (paths of about log2(n) interior nodes)
+ * and keys that share all but their last bits (paths of about 256 interior nodes).
+ *
+ * usage: TraversalLatencyBenchmark [number of keys] [repetitions]
+ *
+ */
+public class TraversalLatencyBenchmark {
+
+	private static final int WARMUP_ROUNDS = 5;
+
+	public static void main(String[] args) {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int reps = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		List<Map.Entry<byte[], byte[]>> random = Utils.getKeyValuePairs(2 * n, "salt");
+		TraversalLatencyBenchmark.run("random keys", random, n, reps);
+
+		// keys that only differ in their last 16 bits
+		List<Map.Entry<byte[], byte[]>> deep = new ArrayList<>();
+		List<byte[]> values = Utils.getValues(2 * Math.min(n, 1 << 15), "salt");
+		for (int i = 0; i < values.size(); i++) {
+			byte[] key = new byte[32];
+			key[30] = (byte) (i >>> 8);
+			key[31] = (byte) i;
+			deep.add(Map.entry(key, values.get(i)));
+		}
+		TraversalLatencyBenchmark.run("deep keys", deep, values.size() / 2, reps);
+	}
+
+	private static void run(String name, List<Map.Entry<byte[], byte[]>> kvpairs, int n, int reps) {
+		List<Map.Entry<byte[], byte[]>> present = kvpairs.subList(0, n);
+		List<Map.Entry<byte[], byte[]>> absent = kvpairs.subList(n, 2 * n);
+		List<byte[]> keys = new ArrayList<>();
+		for (Map.Entry<byte[], byte[]> kv : present) {
+			keys.add(kv.getKey());
+		}
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		mpt.insertAll(present);
+		mpt.commitment();
+		mpt.reset();
+
+		long get = Long.MAX_VALUE;
+		long insert = Long.MAX_VALUE;
+		long update = Long.MAX_VALUE;
+		long delete = Long.MAX_VALUE;
+		long getUpdates = Long.MAX_VALUE;
+		long checksum = 0;
+		for (int rep = 0; rep < WARMUP_ROUNDS + reps; rep++) {
+			long startTime = System.nanoTime();
+			for (Map.Entry<byte[], byte[]> kv : present) {
+				checksum += mpt.get(kv.getKey())[0];
+			}
+			long getTime = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			for (Map.Entry<byte[], byte[]> kv : absent) {
+				mpt.insert(kv.getKey(), kv.getValue());
+			}
+			long insertTime = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			for (Map.Entry<byte[], byte[]> kv : present) {
+				mpt.insert(kv.getKey(), kv.getKey());
+			}
+			long updateTime = System.nanoTime() - startTime;
+
+			startTime = System.nanoTime();
+			for (Map.Entry<byte[], byte[]> kv : absent) {
+				mpt.delete(kv.getKey());
+			}
+			long deleteTime = System.nanoTime() - startTime;
+
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+			startTime = System.nanoTime();
+			checksum += delta.getUpdates(keys).getSerializedSize();
+			long getUpdatesTime = System.nanoTime() - startTime;
+
+			// restore the values so every round starts from the same MPT
+			mpt.insertAll(present);
+			mpt.commitment();
+			mpt.reset();
+			if (rep >= WARMUP_ROUNDS) {
+				get = Math.min(get, getTime);
+				insert = Math.min(insert, insertTime);
+				update = Math.min(update, updateTime);
+				delete = Math.min(delete, deleteTime);
+				getUpdates = Math.min(getUpdates, getUpdatesTime);
+			}
+		}
+		System.out.println(name + " | keys: " + n + " | max height: " + mpt.getMaxHeight() + " (checksum " + checksum + ")");
+		System.out.println("\tget:        " + String.format("%8.1f", (double) get / n) + " ns/op");
+		System.out.println("\tinsert:     " + String.format("%8.1f", (double) insert / n) + " ns/op");
+		System.out.println("\tupdate:     " + String.format("%8.1f", (double) update / n) + " ns/op");
+		System.out.println("\tdelete:     " + String.format("%8.1f", (double) delete / n) + " ns/op");
+		System.out.println("\tgetUpdates: " + String.format("%8.1f", (double) getUpdates / n) + " ns/key");
+	}
+
+}
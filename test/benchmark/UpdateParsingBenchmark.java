@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryFull;
+import mpt.dictionary.MPTDictionaryPartial;
+import serialization.generated.MptSerialization;
+
+/**
+ * Measures the time (and the memory allocated) on a client to apply a 
+ * long history of serialized updates to a partial MPT: by parsing each 
+ * update into the protobuf representation first (MerklePrefixTrie.parseFrom 
+ * and processUpdates) and by reading it directly from the bytes 
+ * (processUpdates(ByteBuffer)). As on a client, the commitment is 
+ * calculated after each update. The partial MPTs are checked against each other.
+ * 
+ * usage: UpdateParsingBenchmark [number of keys] [number of keys in the partial] [epochs] [repetitions]
+ *
+ */
+public class UpdateParsingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+		int reps = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < k; i++) {
+			keys.add(kvpairs.get(i * (n / k)).getKey());
+		}
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		mpt.insertAll(kvpairs);
+		byte[] initial = new MPTDictionaryPartial(mpt, keys).serialize().toByteArray();
+		mpt.reset();
+		List<byte[]> updates = new ArrayList<>();
+		long updateBytes = 0;
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			List<byte[]> values = Utils.getValues(100, "salt" + epoch);
+			for (int i = 0; i < values.size(); i++) {
+				mpt.insert(kvpairs.get(Math.floorMod((epoch * 7919 + i) * 104729, n)).getKey(), values.get(i));
+			}
+			byte[] update = mpt.commit().getDelta().getUpdates(keys).toByteArray();
+			updates.add(update);
+			updateBytes += update.length;
+		}
+		System.out.println("keys: " + n + " | keys in partial: " + k + " | epochs: " + epochs 
+				+ " | bytes per update: " + updateBytes / epochs);
+		
+		long parsed = Long.MAX_VALUE;
+		long streamed = Long.MAX_VALUE;
+		long parsedAllocated = 0;
+		long streamedAllocated = 0;
+		byte[] expected = null;
+		byte[] actual = null;
+		for (int rep = 0; rep < reps; rep++) {
+			long allocated = UpdateParsingBenchmark.allocatedBytes();
+			long startTime = System.nanoTime();
+			MPTDictionaryPartial partial = MPTDictionaryPartial.deserialize(
+					MptSerialization.MerklePrefixTrie.parseFrom(initial));
+			for (byte[] update : updates) {
+				partial.processUpdates(MptSerialization.MerklePrefixTrie.parseFrom(update));
+				partial.commitment();
+			}
+			partial.commitment();
+			parsed = Math.min(parsed, System.nanoTime() - startTime);
+			parsedAllocated = UpdateParsingBenchmark.allocatedBytes() - allocated;
+			expected = partial.commitment();
+			
+			allocated = UpdateParsingBenchmark.allocatedBytes();
+			startTime = System.nanoTime();
+			partial = MPTDictionaryPartial.deserialize(ByteBuffer.wrap(initial));
+			for (byte[] update : updates) {
+				partial.processUpdates(ByteBuffer.wrap(update));
+				partial.commitment();
+			}
+			partial.commitment();
+			streamed = Math.min(streamed, System.nanoTime() - startTime);
+			streamedAllocated = UpdateParsingBenchmark.allocatedBytes() - allocated;
+			actual = partial.commitment();
+		}
+		System.out.println("\tparseFrom + processUpdates: " + String.format("%.1f", parsed / 1e6) + " ms | "
+				+ parsedAllocated / epochs + " bytes allocated/epoch");
+		System.out.println("\tstreaming processUpdates:   " + String.format("%.1f", streamed / 1e6) + " ms | "
+				+ streamedAllocated / epochs + " bytes allocated/epoch");
+		System.out.println("\tsame commitment: " + Arrays.equals(expected, actual) 
+				+ " | matches MPT: " + Arrays.equals(mpt.commitment(), actual));
+	}
+	
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
@@ -0,0 +1,163 @@
+package crpyto;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CryptographicSignatureTest {
+
+	// generated with openssl: a secp256k1 key (PKCS#8 and X.509) and
+	// a signature (openssl pkeyutl -sign) of the SHA-256 digest of "b-verify"
+	private static final String OPENSSL_PRIVATE_KEY = "308184020100301006072a8648ce3d020106052b8104000a046d306b0201010420"
+			+ "e9ea31b7c00a60d774fe895db4615e1f23e5c83778b656ed118bffc1776946dda144034200043bbf4636d4942d7cb280c95de7b9619f"
+			+ "22aef450a8b30c239ebbf1283fcf47a71e350d0a04f5773a71f663df68af1607b95573a54e6462a55e46587dce9f74a4";
+	private static final String OPENSSL_PUBLIC_KEY = "3056301006072a8648ce3d020106052b8104000a034200043bbf4636d4942d7cb2"
+			+ "80c95de7b9619f22aef450a8b30c239ebbf1283fcf47a71e350d0a04f5773a71f663df68af1607b95573a54e6462a55e46587dce9f74a4";
+	private static final String OPENSSL_DIGEST = "11ffb24a3c0943e501205505ebbde4d2cba4722d80d1a304a28c94ee9c51e778";
+	private static final String OPENSSL_SIGNATURE = "3044022011b0dc057b308402935502e2af25eee400dcfa349d5f7128ed9077af66fe4"
+			+ "96b022039b3109ddc620989cfdec31390263cc0fd08516024f0394e9ed54b6328564b9c";
+
+	private static final BigInteger TWO_G_X = new BigInteger(
+			"C6047F9441ED7D6D3045406E95C07CD85C778E4B8CEF3CA7ABAC09B95C709EE5", 16);
+	private static final BigInteger TWO_G_Y = new BigInteger(
+			"1AE168FEA63DC339A3C58419466CEAEEF7F632653266D0E1236431A950CFE52A", 16);
+
+	@Test
+	public void testFieldArithmetic() {
+		Random rand = new Random(1);
+		BigInteger p = Secp256k1Field.P;
+		BigInteger[] special = { BigInteger.ZERO, BigInteger.ONE, p.subtract(BigInteger.ONE),
+				p.subtract(BigInteger.valueOf(2)), BigInteger.ONE.shiftLeft(255),
+				BigInteger.ONE.shiftLeft(32).subtract(BigInteger.ONE)};
+		for(int i = 0; i < 2000; i++) {
+			BigInteger a = i < special.length ? special[i] : new BigInteger(256, rand).mod(p);
+			BigInteger b = i < special.length ? special[special.length - 1 - i] : new BigInteger(256, rand).mod(p);
+			int[] x = Secp256k1Field.fromBigInteger(a);
+			int[] y = Secp256k1Field.fromBigInteger(b);
+			int[] r = Secp256k1Field.newElement();
+			Secp256k1Field.add(r, x, y);
+			Assert.assertEquals(a.add(b).mod(p), Secp256k1Field.toBigInteger(r));
+			Secp256k1Field.sub(r, x, y);
+			Assert.assertEquals(a.subtract(b).mod(p), Secp256k1Field.toBigInteger(r));
+			Secp256k1Field.mul(r, x, y);
+			Assert.assertEquals(a.multiply(b).mod(p), Secp256k1Field.toBigInteger(r));
+			Secp256k1Field.sqr(r, x);
+			Assert.assertEquals(a.multiply(a).mod(p), Secp256k1Field.toBigInteger(r));
+			Secp256k1Field.negate(r, x);
+			Assert.assertEquals(a.negate().mod(p), Secp256k1Field.toBigInteger(r));
+			Secp256k1Field.mulSmall(r, x, 3);
+			Assert.assertEquals(a.multiply(BigInteger.valueOf(3)).mod(p), Secp256k1Field.toBigInteger(r));
+			if(a.signum() != 0) {
+				Secp256k1Field.invert(r, x);
+				Assert.assertEquals(a.modInverse(p), Secp256k1Field.toBigInteger(r));
+			}
+		}
+	}
+
+	@Test
+	public void testEndomorphism() {
+		BigInteger three = BigInteger.valueOf(3);
+		Assert.assertEquals(BigInteger.ONE, Secp256k1.LAMBDA.modPow(three, Secp256k1.N));
+		Assert.assertEquals(BigInteger.ONE, Secp256k1.BETA.modPow(three, Secp256k1.P));
+		// lambda * G = (beta * Gx, Gy)
+		Secp256k1.AffinePoint lambdaG = Secp256k1.multiplyGenerator(Secp256k1.LAMBDA);
+		Assert.assertEquals(Secp256k1.GX.multiply(Secp256k1.BETA).mod(Secp256k1.P),
+				Secp256k1Field.toBigInteger(lambdaG.x));
+		Assert.assertEquals(Secp256k1.GY, Secp256k1Field.toBigInteger(lambdaG.y));
+
+		Random rand = new Random(2);
+		for(int i = 0; i < 1000; i++) {
+			BigInteger k = new BigInteger(256, rand).mod(Secp256k1.N);
+			BigInteger[] halves = Secp256k1.decompose(k);
+			Assert.assertEquals(k, halves[0].add(halves[1].multiply(Secp256k1.LAMBDA)).mod(Secp256k1.N));
+			Assert.assertTrue(halves[0].bitLength() <= 129);
+			Assert.assertTrue(halves[1].bitLength() <= 129);
+			int[] naf = Secp256k1.wnaf(halves[0], 5);
+			BigInteger value = BigInteger.ZERO;
+			for(int j = naf.length - 1; j >= 0; j--) {
+				value = value.shiftLeft(1).add(BigInteger.valueOf(naf[j]));
+			}
+			Assert.assertEquals(halves[0], value);
+		}
+	}
+
+	@Test
+	public void testGeneratorMultiples() {
+		Secp256k1.AffinePoint g = Secp256k1.multiplyGenerator(BigInteger.ONE);
+		Assert.assertEquals(Secp256k1.GX, Secp256k1Field.toBigInteger(g.x));
+		Assert.assertEquals(Secp256k1.GY, Secp256k1Field.toBigInteger(g.y));
+		Secp256k1.AffinePoint twoG = Secp256k1.multiplyGenerator(BigInteger.valueOf(2));
+		Assert.assertEquals(TWO_G_X, Secp256k1Field.toBigInteger(twoG.x));
+		Assert.assertEquals(TWO_G_Y, Secp256k1Field.toBigInteger(twoG.y));
+		// (n - 1) * G = -G
+		Secp256k1.AffinePoint minusG = Secp256k1.multiplyGenerator(Secp256k1.N.subtract(BigInteger.ONE));
+		Assert.assertEquals(Secp256k1.GX, Secp256k1Field.toBigInteger(minusG.x));
+		Assert.assertEquals(Secp256k1.P.subtract(Secp256k1.GY), Secp256k1Field.toBigInteger(minusG.y));
+	}
+
+	@Test
+	public void testSignAndVerify() {
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		KeyPair other = CryptographicSignature.generateNewKeyPair();
+		Random rand = new Random(3);
+		for(int i = 0; i < 50; i++) {
+			byte[] message = new byte[32];
+			rand.nextBytes(message);
+			byte[] signature = CryptographicSignature.sign(message, kp.getPrivate());
+			Assert.assertTrue(CryptographicSignature.verify(message, signature, kp.getPublic()));
+			Assert.assertFalse(CryptographicSignature.verify(message, signature, other.getPublic()));
+
+			byte[] otherMessage = message.clone();
+			otherMessage[i % 32] ^= 1;
+			Assert.assertFalse(CryptographicSignature.verify(otherMessage, signature, kp.getPublic()));
+
+			byte[] otherSignature = signature.clone();
+			otherSignature[otherSignature.length - 1 - (i % 8)] ^= 1;
+			Assert.assertFalse(CryptographicSignature.verify(message, otherSignature, kp.getPublic()));
+			Assert.assertFalse(CryptographicSignature.verify(message, new byte[0], kp.getPublic()));
+		}
+	}
+
+	@Test
+	public void testKeyEncoding() {
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		PublicKey publicKey = CryptographicSignature.loadPublicKey(kp.getPublic().getEncoded());
+		Assert.assertEquals(kp.getPublic(), publicKey);
+		Assert.assertArrayEquals(kp.getPublic().getEncoded(), publicKey.getEncoded());
+		PrivateKey privateKey = Secp256k1PrivateKey.decode(kp.getPrivate().getEncoded());
+		Assert.assertEquals(kp.getPrivate(), privateKey);
+
+		byte[] message = "message".getBytes();
+		byte[] signature = CryptographicSignature.sign(message, privateKey);
+		Assert.assertTrue(CryptographicSignature.verify(message, signature, publicKey));
+	}
+
+	@Test
+	public void testOpenSSLCompatibility() {
+		byte[] digest = CryptographicSignatureTest.fromHex(OPENSSL_DIGEST);
+		byte[] signature = CryptographicSignatureTest.fromHex(OPENSSL_SIGNATURE);
+		PublicKey publicKey = CryptographicSignature.loadPublicKey(CryptographicSignatureTest.fromHex(OPENSSL_PUBLIC_KEY));
+		Assert.assertTrue(CryptographicSignature.verify(digest, signature, publicKey));
+
+		Secp256k1PrivateKey privateKey = Secp256k1PrivateKey.decode(CryptographicSignatureTest.fromHex(OPENSSL_PRIVATE_KEY));
+		Assert.assertEquals(publicKey, privateKey.getPublicKey());
+		Assert.assertArrayEquals(CryptographicSignatureTest.fromHex(OPENSSL_PUBLIC_KEY),
+				privateKey.getPublicKey().getEncoded());
+
+		// signatures are deterministic (RFC 6979) and verify with the openssl key
+		byte[] ourSignature = CryptographicSignature.sign(digest, privateKey);
+		Assert.assertArrayEquals(ourSignature, CryptographicSignature.sign(digest, privateKey));
+		Assert.assertTrue(CryptographicSignature.verify(digest, ourSignature, publicKey));
+	}
+
+	private static byte[] fromHex(String hex) {
+		return Arrays.copyOfRange(new BigInteger("01" + hex, 16).toByteArray(), 1, hex.length() / 2 + 1);
+	}
+
+}
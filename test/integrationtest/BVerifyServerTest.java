@@ -1,7 +1,31 @@
 package integrationtest;
 
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
 import org.junit.Test;
 
+import client.MockClient;
+import crpyto.CryptographicSignature;
+import log.BVerifyAuditor;
+import log.BVerifyLog;
+import mpt.core.InvalidSerializationException;
+import mpt.dictionary.DeltaHistory;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProof;
+import serialization.generated.BVerifyAPIMessageSerialization.LogProofs;
+import server.BVerifyServer;
+import server.ProofFragmentCache;
+
 public class BVerifyServerTest {
 		
 	/**
@@ -52,10 +76,374 @@ public class BVerifyServerTest {
 		test.runTest();
 	}
 	
+	@Test
+	public void testProofsDuringCommits() throws Exception {
+		int nLogs = 20;
+		int nStatementsPerLog = 10;
+		int batchSize = 10;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, false));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, false);
+		for (MockClient mc : clients) {
+			Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+		}
+		// proofs are requested while statements are committed, each 
+		// proof must be a valid proof of a prefix of the log
+		AtomicBoolean done = new AtomicBoolean(false);
+		ExecutorService readers = Executors.newFixedThreadPool(4);
+		List<Future<Integer>> reads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			reads.add(readers.submit(() -> {
+				int checked = 0;
+				while (!done.get() || checked == 0) {
+					MockClient mc = clients.get(checked % nLogs);
+					BVerifyLog log = new BVerifyLog(server.getLogProof(mc.getLogID()), false);
+					List<byte[]> stmts = log.getLogStatements();
+					if (!TestHarness.deepEquals(stmts, mc.getLogStatements().subList(0, stmts.size()))) {
+						throw new AssertionError("incorrect statements in log");
+					}
+					checked++;
+				}
+				return checked;
+			}));
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+		}
+		done.set(true);
+		for (Future<Integer> read : reads) {
+			Assert.assertTrue(read.get() > 0);
+		}
+		readers.shutdown();
+		List<byte[]> commitments = server.commitments();
+		for (MockClient mc : clients) {
+			BVerifyLog log = new BVerifyLog(server.getLogProof(mc.getLogID()), false);
+			Assert.assertTrue(TestHarness.deepEquals(mc.getLogStatements(), log.getLogStatements()));
+			Assert.assertTrue(TestHarness.deepEquals(commitments, log.getCommittments()));
+		}
+	}
+	
+	@Test
+	public void testIncrementalProofs() throws Exception {
+		int nLogs = 10;
+		int nStatementsPerLog = 10;
+		int batchSize = 5;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, true));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, true);
+		for (MockClient mc : clients) {
+			Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+		}
+		List<BVerifyLog> logs = new ArrayList<>();
+		for (MockClient mc : clients) {
+			logs.add(new BVerifyLog(server.getLogProof(mc.getLogID()), true));
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+			for (int j = 0; j < nLogs; j++) {
+				BVerifyLog log = logs.get(j);
+				LogProof incremental = server.getLogProof(clients.get(j).getLogID(), log.getLastCommitmentNumber());
+				Assert.assertEquals(1, incremental.getSignedStatementsCount());
+				log.update(incremental, true);
+			}
+		}
+		List<byte[]> commitments = server.commitments();
+		for (int j = 0; j < nLogs; j++) {
+			BVerifyLog log = logs.get(j);
+			Assert.assertTrue(TestHarness.deepEquals(clients.get(j).getLogStatements(), log.getLogStatements()));
+			Assert.assertTrue(TestHarness.deepEquals(commitments, log.getCommittments()));
+			// already up to date
+			LogProof incremental = server.getLogProof(clients.get(j).getLogID(), log.getLastCommitmentNumber());
+			Assert.assertEquals(0, incremental.getProofOfStatementsCount());
+			log.update(incremental, true);
+			// does not continue from the last verified commitment
+			try {
+				log.update(server.getLogProof(clients.get(j).getLogID(), 1), true);
+				Assert.fail("proof should be rejected");
+			} catch (Exception e) {
+			}
+			Assert.assertTrue(TestHarness.deepEquals(commitments, log.getCommittments()));
+		}
+	}
+	
+	@Test
+	public void testCheckpoints() throws Exception {
+		int nLogs = 5;
+		int nStatementsPerLog = 6;
+		int batchSize = 5;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, true));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, true);
+		for (MockClient mc : clients) {
+			Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+		}
+		Path directory = Files.createTempDirectory("checkpoints");
+		List<Path> files = new ArrayList<>();
+		for (int j = 0; j < nLogs; j++) {
+			Path file = directory.resolve("log" + j);
+			new BVerifyLog(server.getLogProof(clients.get(j).getLogID()), true).saveCheckpoint(file);
+			files.add(file);
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+			// each run restores the checkpoint and only verifies the new commitments
+			for (int j = 0; j < nLogs; j++) {
+				BVerifyLog log = BVerifyLog.loadCheckpoint(files.get(j));
+				LogProof incremental = server.getLogProof(clients.get(j).getLogID(), log.getLastCommitmentNumber());
+				Assert.assertEquals(1, incremental.getSignedStatementsCount());
+				log.update(incremental, true);
+				log.saveCheckpoint(files.get(j));
+			}
+		}
+		List<byte[]> commitments = server.commitments();
+		for (int j = 0; j < nLogs; j++) {
+			BVerifyLog log = BVerifyLog.loadCheckpoint(files.get(j));
+			BVerifyLog expected = new BVerifyLog(server.getLogProof(clients.get(j).getLogID()), true);
+			Assert.assertTrue(TestHarness.deepEquals(clients.get(j).getLogStatements(), log.getLogStatements()));
+			Assert.assertTrue(TestHarness.deepEquals(commitments, log.getCommittments()));
+			Assert.assertArrayEquals(expected.getCheckpoint(), log.getCheckpoint());
+		}
+		// a checkpoint that is truncated or does not match its path is rejected
+		byte[] checkpoint = Files.readAllBytes(files.get(0));
+		try {
+			BVerifyLog.fromCheckpoint(Arrays.copyOf(checkpoint, checkpoint.length - 1));
+			Assert.fail("checkpoint should be rejected");
+		} catch (InvalidSerializationException e) {
+		}
+		// the path and current witness of another log replace the ones of this log
+		byte[] other = Files.readAllBytes(files.get(1));
+		byte[] mixed = Arrays.copyOf(checkpoint, checkpoint.length + other.length);
+		System.arraycopy(other, 0, mixed, checkpoint.length, other.length);
+		try {
+			BVerifyLog.fromCheckpoint(mixed);
+			Assert.fail("checkpoint should be rejected");
+		} catch (InvalidSerializationException e) {
+		}
+		for (Path file : files) {
+			Files.delete(file);
+		}
+		Files.delete(directory);
+	}
+	
+	@Test
+	public void testBulkProofs() throws Exception {
+		int nLogs = 30;
+		int nStatementsPerLog = 5;
+		int batchSize = 5;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, true));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, true);
+		for (MockClient mc : clients) {
+			Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients.subList(0, nLogs - 2 * i)) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+		}
+		List<byte[]> logIds = new ArrayList<>();
+		for (MockClient mc : clients) {
+			logIds.add(mc.getLogID());
+		}
+		LogProofs proofs = server.getLogProofs(logIds);
+		Assert.assertEquals(server.commitments().size(), proofs.getProofOfStatementsCount());
+		List<BVerifyLog> logs = BVerifyLog.verify(proofs, true);
+		Assert.assertEquals(logIds.size(), logs.size());
+		for (int j = 0; j < logIds.size(); j++) {
+			BVerifyLog expected = new BVerifyLog(server.getLogProof(logIds.get(j)), true);
+			Assert.assertTrue(TestHarness.deepEquals(expected.getLogStatements(), logs.get(j).getLogStatements()));
+			Assert.assertTrue(TestHarness.deepEquals(server.commitments(), logs.get(j).getCommittments()));
+		}
+		// the verified logs can be updated incrementally
+		for (MockClient mc : clients.subList(0, batchSize)) {
+			Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("NEW")));
+		}
+		BVerifyLog first = logs.get(0);
+		first.update(server.getLogProof(logIds.get(0), first.getLastCommitmentNumber()), true);
+		Assert.assertTrue(TestHarness.deepEquals(clients.get(0).getLogStatements(), first.getLogStatements()));
+		// a statement from the wrong log is rejected
+		LogProofs.Builder swapped = proofs.toBuilder();
+		swapped.setLogs(0, proofs.getLogs(0).toBuilder().setSignedStatements(0, 
+				proofs.getLogs(1).getSignedStatements(0)));
+		try {
+			BVerifyLog.verify(swapped.build(), true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+	}
+	
+	@Test
+	public void testAuditor() throws Exception {
+		int nLogs = 50;
+		int nStatementsPerLog = 5;
+		int batchSize = 10;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, true));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, true);
+		// logs are created over time and have different numbers of statements
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients.subList(i * nLogs / nStatementsPerLog, (i + 1) * nLogs / nStatementsPerLog)) {
+				Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+			}
+			for (MockClient mc : clients.subList(0, (i + 1) * nLogs / nStatementsPerLog)) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+		}
+		LogProofs proofs = server.getAllLogProofs();
+		BVerifyAuditor auditor = new BVerifyAuditor(proofs, true);
+		Assert.assertEquals(nLogs, auditor.getNumberOfLogs());
+		Assert.assertTrue(TestHarness.deepEquals(server.commitments(), auditor.getCommittments()));
+		Assert.assertTrue(auditor.getLogsPerSecond() > 0);
+		for (MockClient mc : clients) {
+			Assert.assertEquals(mc.getLogStatements().size(), auditor.getWitnessedStatements(mc.getLogID()));
+		}
+		// a statement from the wrong log is rejected
+		LogProofs.Builder swapped = proofs.toBuilder();
+		swapped.setLogs(0, proofs.getLogs(0).toBuilder().setSignedStatements(0, 
+				proofs.getLogs(1).getSignedStatements(0)));
+		try {
+			new BVerifyAuditor(swapped.build(), true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+		// as is a missing statement
+		LogProofs.Builder missing = proofs.toBuilder();
+		missing.setLogs(0, proofs.getLogs(0).toBuilder().removeSignedStatements(0));
+		try {
+			new BVerifyAuditor(missing.build(), true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+		// and changes that hide the leaves of the logs
+		List<byte[]> logIds = new ArrayList<>();
+		for (MockClient mc : clients) {
+			logIds.add(mc.getLogID());
+		}
+		LogProofs.Builder hidden = proofs.toBuilder();
+		LogProofs forSomeLogs = server.getLogProofs(logIds.subList(0, 1));
+		int last = proofs.getProofOfStatementsCount() - 1;
+		hidden.setProofOfStatements(last, forSomeLogs.getProofOfStatements(last));
+		try {
+			new BVerifyAuditor(hidden.build(), true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+	}
+	
+	@Test
+	public void testProofsFromSpilledDeltas() throws Exception {
+		int nLogs = 10;
+		int nStatementsPerLog = 5;
+		int batchSize = 2;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, false));
+		}
+		Path directory = Files.createTempDirectory("deltas");
+		// only the last two deltas are kept on the heap
+		BVerifyServer server = new BVerifyServer(batchSize, false, 
+				new ProofFragmentCache(1 << 20, ProofFragmentCache.Eviction.LRU), false, 
+				new DeltaHistory(directory, 2, 4096));
+		for (MockClient mc : clients) {
+			Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+		}
+		List<byte[]> commitments = server.commitments();
+		for (MockClient mc : clients) {
+			BVerifyLog log = new BVerifyLog(server.getLogProof(mc.getLogID()), false);
+			Assert.assertTrue(TestHarness.deepEquals(mc.getLogStatements(), log.getLogStatements()));
+			Assert.assertTrue(TestHarness.deepEquals(commitments, log.getCommittments()));
+		}
+		try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory)) {
+			for (Path segment : segments) {
+				Files.delete(segment);
+			}
+		}
+		Files.delete(directory);
+	}
+	
 	/**
 	 * Attacks
 	 */
 	
+	@Test
+	public void testBadSignatureRejected() throws Exception {
+		int nLogs = 10;
+		int nStatementsPerLog = 5;
+		int batchSize = 5;
+		KeyPair kp = CryptographicSignature.generateNewKeyPair();
+		List<MockClient> clients = new ArrayList<>();
+		for (int i = 0; i < nLogs; i++) {
+			clients.add(new MockClient(kp, "LOG " + i, true));
+		}
+		BVerifyServer server = new BVerifyServer(batchSize, true);
+		for (MockClient mc : clients) {
+			Assert.assertTrue(server.createNewLog(mc.getCreateLogStatement()));
+		}
+		for (int i = 0; i < nStatementsPerLog; i++) {
+			for (MockClient mc : clients) {
+				Assert.assertTrue(server.makeLogStatement(mc.addLogStatement("S" + i)));
+			}
+		}
+		List<byte[]> logIds = new ArrayList<>();
+		for (MockClient mc : clients) {
+			logIds.add(mc.getLogID());
+		}
+		LogProof proof = server.getLogProof(logIds.get(0));
+		LogProofs proofs = server.getLogProofs(logIds);
+		// valid proofs are accepted
+		new BVerifyLog(proof, true);
+		BVerifyLog.verify(proofs, true);
+		// the last statement with the signature of the first
+		int last = proof.getSignedStatementsCount() - 1;
+		LogProof badSignature = proof.toBuilder().setSignedStatements(last, proof.getSignedStatements(last)
+				.toBuilder().setSignature(proof.getSignedStatements(0).getSignature())).build();
+		try {
+			new BVerifyLog(badSignature, true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+		try {
+			BVerifyLog.verify(proofs.toBuilder().setLogs(0, badSignature).build(), true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+		// as is a create log statement with a bad signature
+		LogProof badCreateLog = proof.toBuilder().setCreateLogStatement(proof.getCreateLogStatement()
+				.toBuilder().setSignature(proof.getSignedStatements(0).getSignature())).build();
+		try {
+			BVerifyLog.verify(proofs.toBuilder().setLogs(0, badCreateLog).build(), true);
+			Assert.fail("proof should be rejected");
+		} catch (Exception e) {
+		}
+	}
+	
 	
 
 	
@@ -0,0 +1,82 @@
+package mpt.dictionary;
+
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mpt.core.Utils;
+
+public class DeltaHistoryTest {
+
+	@Test
+	public void testReadFromSameAsDelta() {
+		int n = 1000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			keys.add(kv.getKey());
+		}
+		MPTDictionaryDelta delta = new MPTDictionaryDelta(Utils.makeMPTDictionaryFull(kvpairs));
+		ByteBuffer buffer = ByteBuffer.allocateDirect(delta.getEncodedSizeInBytes() + 10);
+		buffer.position(10);
+		delta.writeTo(buffer);
+		Assert.assertFalse(buffer.hasRemaining());
+		buffer.position(10);
+		MPTDictionaryDelta read = MPTDictionaryDelta.readFrom(buffer);
+		Assert.assertEquals(delta.countNodes(), read.countNodes());
+		Assert.assertEquals(delta.getUpdates(keys), read.getUpdates(keys));
+		Assert.assertEquals(delta.getUpdates(keys.get(7)), read.getPathUpdates(keys.get(7)));
+		Assert.assertEquals(keys.size(), read.getChangedKeys().size());
+	}
+
+	@Test
+	public void testSpilledDeltasSameAsOnHeap() throws Exception {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			keys.add(kv.getKey());
+		}
+		Path directory = Files.createTempDirectory("deltas");
+		DeltaHistory onHeap = new DeltaHistory();
+		// small segments, so that deltas are spread over many of them
+		DeltaHistory spilled = new DeltaHistory(directory, 3, 64 * 1024);
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		int epochs = 20;
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			mpt.insertAll(Utils.getKeyValuePairs(n / 10, "salt" + epoch));
+			for (int i = epoch; i < n; i += 11) {
+				mpt.insert(keys.get(i), keys.get(i));
+			}
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+			mpt.reset();
+			onHeap.add(delta);
+			spilled.add(delta);
+		}
+		Assert.assertEquals(epochs, spilled.size());
+		Assert.assertTrue(spilled.countSegments() > 1);
+		Assert.assertTrue(spilled.getSizeInBytesOnHeap() < onHeap.getSizeInBytesOnHeap());
+		for (int epoch = 0; epoch < epochs; epoch++) {
+			Assert.assertEquals(onHeap.get(epoch).getUpdates(keys), spilled.get(epoch).getUpdates(keys));
+		}
+		try {
+			spilled.get(epochs);
+			Assert.fail("no delta for this epoch");
+		} catch (IndexOutOfBoundsException e) {
+		}
+		try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory)) {
+			for (Path segment : segments) {
+				Files.delete(segment);
+			}
+		}
+		Files.delete(directory);
+	}
+
+}
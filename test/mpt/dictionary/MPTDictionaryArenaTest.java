@@ -0,0 +1,119 @@
+package mpt.dictionary;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mpt.core.InvalidSerializationException;
+import mpt.core.Utils;
+
+public class MPTDictionaryArenaTest {
+
+	@Test
+	public void testSameCommitmentAsFullMPT() {
+		int n = 1000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull full = new MPTDictionaryFull();
+		MPTDictionaryArena arena = new MPTDictionaryArena(16);
+		Assert.assertArrayEquals(full.commitment(), arena.commitment());
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			full.insert(kv.getKey(), kv.getValue());
+			arena.insert(kv.getKey(), kv.getValue());
+		}
+		Assert.assertArrayEquals(full.commitment(), arena.commitment());
+		Assert.assertEquals(full.size(), arena.size());
+		Assert.assertEquals(full.countNodes(), arena.countNodes());
+		Assert.assertEquals(full.serialize(), arena.serialize());
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			Assert.assertArrayEquals(kv.getValue(), arena.get(kv.getKey()));
+		}
+	}
+
+	@Test
+	public void testUpdatesAndDeletes() {
+		int n = 500;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> newValues = Utils.getValues(n, "new salt");
+		MPTDictionaryFull full = Utils.makeMPTDictionaryFull(kvpairs);
+		MPTDictionaryArena arena = new MPTDictionaryArena();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			arena.insert(kv.getKey(), kv.getValue());
+		}
+		arena.reset();
+		for (int i = 0; i < n; i += 3) {
+			full.insert(kvpairs.get(i).getKey(), newValues.get(i));
+			arena.insert(kvpairs.get(i).getKey(), newValues.get(i));
+		}
+		Assert.assertArrayEquals(full.commitment(), arena.commitment());
+		for (int i = 0; i < n; i += 2) {
+			full.delete(kvpairs.get(i).getKey());
+			arena.delete(kvpairs.get(i).getKey());
+			Assert.assertNull(arena.get(kvpairs.get(i).getKey()));
+		}
+		Assert.assertArrayEquals(full.commitment(), arena.commitment());
+		Assert.assertEquals(full.size(), arena.size());
+		Assert.assertEquals(full.countNodes(), arena.countNodes());
+		Assert.assertEquals(full.serialize(), arena.serialize());
+		// freed nodes are reused
+		for (int i = 0; i < n; i += 2) {
+			full.insert(kvpairs.get(i).getKey(), kvpairs.get(i).getValue());
+			arena.insert(kvpairs.get(i).getKey(), kvpairs.get(i).getValue());
+		}
+		Assert.assertArrayEquals(full.commitment(), arena.commitment());
+		Assert.assertEquals(full.countNodes(), arena.countNodes());
+		for (int i = 0; i < n; i++) {
+			full.delete(kvpairs.get(i).getKey());
+			arena.delete(kvpairs.get(i).getKey());
+		}
+		Assert.assertArrayEquals(full.commitment(), arena.commitment());
+		Assert.assertEquals(0, arena.size());
+		Assert.assertEquals(full.countNodes(), arena.countNodes());
+	}
+
+	@Test
+	public void testSerialization() throws InvalidSerializationException {
+		MPTDictionaryArena arena = new MPTDictionaryArena();
+		for (Map.Entry<byte[], byte[]> kv : Utils.getKeyValuePairs(200, "salt")) {
+			arena.insert(kv.getKey(), kv.getValue());
+		}
+		byte[] asbytes = arena.serialize().toByteArray();
+		MPTDictionaryArena fromBytes = MPTDictionaryArena.deserialize(asbytes);
+		MPTDictionaryFull full = MPTDictionaryFull.deserialize(asbytes);
+		Assert.assertArrayEquals(arena.commitment(), fromBytes.commitment());
+		Assert.assertArrayEquals(full.commitment(), fromBytes.commitment());
+		Assert.assertEquals(arena.size(), fromBytes.size());
+	}
+
+	@Test
+	public void testParallelCommitment() {
+		int n = 20000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> newValues = Utils.getValues(n, "new salt");
+		MPTDictionaryFull full = Utils.makeMPTDictionaryFull(kvpairs);
+		MPTDictionaryArena arena = new MPTDictionaryArena();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			arena.insert(kv.getKey(), kv.getValue());
+		}
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			byte[] commitment = full.commitmentParallelized(pool);
+			Assert.assertArrayEquals(commitment, arena.commitmentParallelized(pool));
+			Assert.assertArrayEquals(commitment, Utils.makeMPTDictionaryFull(kvpairs).commitment());
+			// only some subtrees change
+			for (int i = 0; i < n; i += 5) {
+				full.insert(kvpairs.get(i).getKey(), newValues.get(i));
+				arena.insert(kvpairs.get(i).getKey(), newValues.get(i));
+			}
+			commitment = full.commitmentParallelized(pool);
+			Assert.assertArrayEquals(commitment, arena.commitmentParallelized(pool));
+			Assert.assertArrayEquals(commitment, full.commitment());
+			Assert.assertArrayEquals(commitment, arena.commitment());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+}
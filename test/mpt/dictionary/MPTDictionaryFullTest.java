@@ -0,0 +1,384 @@
+package mpt.dictionary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mpt.core.Utils;
+
+public class MPTDictionaryFullTest {
+
+	@Test
+	public void testInsertAllSameAsSequentialInserts() {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull sequential = new MPTDictionaryFull();
+		MPTDictionaryFull batched = new MPTDictionaryFull();
+		// first batch into an empty MPT, then batches 
+		// that update and add to existing entries
+		List<Map.Entry<byte[], byte[]>> batch = new ArrayList<>(kvpairs.subList(0, n / 2));
+		for (int round = 0; round < 3; round++) {
+			for (Map.Entry<byte[], byte[]> kv : batch) {
+				sequential.insert(kv.getKey(), kv.getValue());
+			}
+			batched.insertAll(batch);
+			assertSameMPTAndChanges(sequential, batched, kvpairs);
+			sequential.commitment();
+			sequential.reset();
+			batched.commitment();
+			batched.reset();
+			batch = new ArrayList<>(kvpairs.subList(round * n / 4, (round + 2) * n / 4));
+			batch.addAll(Utils.getKeyValuePairs(n / 10, "salt" + round));
+			Collections.shuffle(batch);
+		}
+	}
+	
+	@Test
+	public void testInsertAllRepeatedKeys() {
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(100, "salt");
+		List<byte[]> values = Utils.getValues(100, "other salt");
+		List<Map.Entry<byte[], byte[]>> batch = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			batch.add(kvpairs.get(i));
+			batch.add(Map.entry(kvpairs.get(i).getKey(), values.get(i)));
+			batch.add(Map.entry(kvpairs.get(99 - i).getKey(), values.get(i)));
+		}
+		MPTDictionaryFull sequential = new MPTDictionaryFull();
+		for (Map.Entry<byte[], byte[]> kv : batch) {
+			sequential.insert(kv.getKey(), kv.getValue());
+		}
+		MPTDictionaryFull batched = new MPTDictionaryFull();
+		batched.insertAll(batch);
+		assertSameMPTAndChanges(sequential, batched, kvpairs);
+		Assert.assertEquals(100, batched.size());
+	}
+	
+	@Test
+	public void testInsertAllParallelizedSameAsInsertAll() {
+		int n = 20000;
+		ForkJoinPool workers = new ForkJoinPool(4);
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull batched = new MPTDictionaryFull();
+		MPTDictionaryFull parallel = new MPTDictionaryFull();
+		List<Map.Entry<byte[], byte[]>> batch = new ArrayList<>(kvpairs.subList(0, n / 2));
+		for (int round = 0; round < 3; round++) {
+			batched.insertAll(batch);
+			parallel.insertAllParallelized(batch, workers);
+			assertSameMPTAndChanges(batched, parallel, kvpairs);
+			batched.commitment();
+			batched.reset();
+			parallel.commitmentParallelized(workers);
+			parallel.reset();
+			// updates, new entries and repeated keys
+			batch = new ArrayList<>(kvpairs.subList(round * n / 4, (round + 2) * n / 4));
+			batch.addAll(Utils.getKeyValuePairs(n / 10, "salt" + round));
+			Collections.shuffle(batch);
+		}
+		workers.shutdown();
+	}
+	
+	@Test
+	public void testParallelDeltaSameAsDelta() {
+		int n = 20000;
+		ForkJoinPool workers = new ForkJoinPool(4);
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		// nothing changed
+		assertSameDelta(mpt, workers);
+		mpt.insertAll(kvpairs);
+		assertSameDelta(mpt, workers);
+		mpt.reset();
+		// updates, new entries and deletes
+		for (int i = 0; i < n; i += 7) {
+			mpt.insert(kvpairs.get(i).getKey(), kvpairs.get(i / 7).getValue());
+		}
+		mpt.insertAll(Utils.getKeyValuePairs(n / 10, "other salt"));
+		for (int i = 3; i < n; i += 11) {
+			mpt.delete(kvpairs.get(i).getKey());
+		}
+		assertSameDelta(mpt, workers);
+		mpt.reset();
+		// keys with long shared prefixes (compressed runs)
+		for (int i = 0; i < 64; i++) {
+			byte[] key = new byte[32];
+			key[0] = (byte) (i % 2);
+			key[31] = (byte) (i * 3);
+			mpt.insert(key, key);
+		}
+		assertSameDelta(mpt, workers);
+		workers.shutdown();
+	}
+	
+	@Test
+	public void testCommitSameAsCommitmentDeltaAndReset() {
+		int n = 20000;
+		ForkJoinPool workers = new ForkJoinPool(4);
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull expected = new MPTDictionaryFull();
+		MPTDictionaryFull sequential = new MPTDictionaryFull();
+		MPTDictionaryFull parallel = new MPTDictionaryFull();
+		for (int round = 0; round < 4; round++) {
+			List<Map.Entry<byte[], byte[]>> batch = new ArrayList<>(kvpairs.subList(round * n / 8, (round + 4) * n / 8));
+			batch.addAll(Utils.getKeyValuePairs(n / 10, "salt" + round));
+			// keys with long shared prefixes (compressed runs)
+			for (int i = 0; i < 16; i++) {
+				byte[] key = new byte[32];
+				key[0] = (byte) round;
+				key[31] = (byte) (i * 3);
+				batch.add(Map.entry(key, kvpairs.get(i).getValue()));
+			}
+			for (MPTDictionaryFull mpt : List.of(expected, sequential, parallel)) {
+				mpt.insertAll(batch);
+				for (int i = round; i < n; i += 13) {
+					mpt.delete(kvpairs.get(i).getKey());
+				}
+			}
+			int hashesRequired = sequential.countHashesRequiredToCommit();
+			byte[] commitment = expected.commitment();
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(expected);
+			expected.reset();
+			CommitResult sequentialResult = sequential.commit();
+			CommitResult parallelResult = parallel.commitParallelized(workers);
+			for (CommitResult result : List.of(sequentialResult, parallelResult)) {
+				Assert.assertArrayEquals(commitment, result.getCommitment());
+				Assert.assertArrayEquals(encode(delta), encode(result.getDelta()));
+				Assert.assertEquals(hashesRequired, result.getHashesCalculated());
+				Assert.assertEquals(delta.countNodes(), result.getChangedNodes() + result.getStubs());
+				Assert.assertEquals(expected.countNodes(), result.getTotalNodes());
+			}
+			Assert.assertEquals(0, sequential.countHashesRequiredToCommit());
+			Assert.assertEquals(expected, sequential);
+			Assert.assertEquals(expected, parallel);
+		}
+		// the changes have been cleared
+		CommitResult result = parallel.commitParallelized(workers);
+		Assert.assertEquals(0, result.getHashesCalculated());
+		Assert.assertEquals(2, result.getStubs());
+		workers.shutdown();
+	}
+	
+	private static byte[] encode(MPTDictionaryDelta delta) {
+		ByteBuffer buffer = ByteBuffer.allocate(delta.getEncodedSizeInBytes());
+		delta.writeTo(buffer);
+		return buffer.array();
+	}
+	
+	private static void assertSameDelta(MPTDictionaryFull mpt, ForkJoinPool workers) {
+		MPTDictionaryDelta parallel = new MPTDictionaryDelta(mpt, workers);
+		MPTDictionaryDelta sequential = new MPTDictionaryDelta(mpt);
+		Assert.assertEquals(sequential.getEncodedSizeInBytes(), parallel.getEncodedSizeInBytes());
+		Assert.assertArrayEquals(encode(sequential), encode(parallel));
+	}
+	
+	@Test
+	public void testLongSharedPrefixes() throws Exception {
+		// keys that only differ in the last few bits so that the 
+		// MPT contains long runs of interior nodes with a single child
+		List<Map.Entry<byte[], byte[]>> kvpairs = new ArrayList<>();
+		List<byte[]> values = Utils.getValues(64, "salt");
+		for (int i = 0; i < 64; i++) {
+			byte[] key = new byte[32];
+			key[0] = (byte) (i % 2);
+			key[31] = (byte) (i * 3);
+			kvpairs.add(Map.entry(key, values.get(i)));
+		}
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		MPTDictionaryArena arena = new MPTDictionaryArena();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs.subList(0, 32)) {
+			mpt.insert(kv.getKey(), kv.getValue());
+			arena.insert(kv.getKey(), kv.getValue());
+		}
+		mpt.insertAll(kvpairs.subList(32, 64));
+		arena.insertAll(kvpairs.subList(32, 64));
+		Assert.assertArrayEquals(arena.commitment(), mpt.commitment());
+		for (int i = 0; i < 64; i += 5) {
+			mpt.delete(kvpairs.get(i).getKey());
+			arena.delete(kvpairs.get(i).getKey());
+		}
+		Assert.assertArrayEquals(arena.commitment(), mpt.commitment());
+		Assert.assertEquals(arena.size(), mpt.size());
+		for (int i = 0; i < 64; i++) {
+			byte[] key = kvpairs.get(i).getKey();
+			Assert.assertArrayEquals(arena.get(key), mpt.get(key));
+		}
+		MPTDictionaryFull fromBytes = MPTDictionaryFull.deserialize(mpt.serialize());
+		Assert.assertEquals(mpt, fromBytes);
+		Assert.assertArrayEquals(mpt.commitment(), fromBytes.commitment());
+		Assert.assertEquals(mpt.countNodes(), fromBytes.countNodes());
+	}
+	
+	@Test
+	public void testUpdatesOnFullDepthPaths() throws Exception {
+		// pairs of keys that only differ in the last bit, so the 
+		// paths to them are as deep as the MPT can be
+		List<byte[]> keys = new ArrayList<>();
+		List<byte[]> values = Utils.getValues(16, "salt");
+		for (int i = 0; i < 16; i++) {
+			byte[] key = new byte[32];
+			key[0] = (byte) (i / 2);
+			key[31] = (byte) (i % 2);
+			keys.add(key);
+		}
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		MPTDictionaryPartial partial = new MPTDictionaryPartial(mpt, keys);
+		for (int i = 0; i < 16; i++) {
+			mpt.insert(keys.get(i), values.get(i));
+		}
+		// repeated keys and keys not in the MPT
+		List<byte[]> requested = new ArrayList<>(keys);
+		requested.addAll(keys.subList(0, 4));
+		requested.add(Utils.getKey(1));
+		partial.processUpdates(new MPTDictionaryDelta(mpt).getUpdates(requested));
+		Assert.assertArrayEquals(mpt.commitment(), partial.commitment());
+		for (int i = 0; i < 16; i++) {
+			Assert.assertArrayEquals(values.get(i), partial.get(keys.get(i)));
+		}
+		Assert.assertEquals(partial, MPTDictionaryPartial.deserialize(partial.serialize()));
+		mpt.reset();
+		for (int i = 0; i < 16; i += 3) {
+			mpt.delete(keys.get(i));
+		}
+		partial.processUpdates(new MPTDictionaryDelta(mpt).getUpdates(requested));
+		Assert.assertArrayEquals(mpt.commitment(), partial.commitment());
+		for (int i = 0; i < 16; i++) {
+			Assert.assertArrayEquals(mpt.get(keys.get(i)), partial.get(keys.get(i)));
+		}
+		Assert.assertEquals(new MPTDictionaryPartial(mpt, keys), partial);
+		Assert.assertEquals(mpt, MPTDictionaryFull.deserialize(mpt.serialize()));
+	}
+	
+	@Test
+	public void testCountsMatchTraversal() {
+		int n = 3000;
+		ForkJoinPool workers = new ForkJoinPool(4);
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		assertCountsMatchTraversal(mpt);
+		for (Map.Entry<byte[], byte[]> kv : kvpairs.subList(0, n / 3)) {
+			mpt.insert(kv.getKey(), kv.getValue());
+		}
+		assertCountsMatchTraversal(mpt);
+		mpt.commitment();
+		assertCountsMatchTraversal(mpt);
+		mpt.reset();
+		mpt.insertAll(kvpairs.subList(n / 3, 2 * n / 3));
+		assertCountsMatchTraversal(mpt);
+		mpt.insertAllParallelized(Utils.getKeyValuePairs(2 * n / 3, "other salt"), workers);
+		assertCountsMatchTraversal(mpt);
+		mpt.commitmentParallelized(workers);
+		mpt.reset();
+		for (int i = 0; i < n; i += 3) {
+			mpt.delete(kvpairs.get(i).getKey());
+		}
+		assertCountsMatchTraversal(mpt);
+		new MPTDictionaryDelta(mpt);
+		assertCountsMatchTraversal(mpt);
+		Assert.assertEquals(0, mpt.countHashesRequiredToCommit());
+		workers.shutdown();
+	}
+	
+	@Test
+	public void testPathUpdatesAndKeyEpochIndex() {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			keys.add(kv.getKey());
+		}
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		KeyEpochIndex index = new KeyEpochIndex();
+		List<MPTDictionaryDelta> deltas = new ArrayList<>();
+		List<Set<ByteBuffer>> changedKeys = new ArrayList<>();
+		for (int epoch = 0; epoch < 4; epoch++) {
+			// add new keys, update some and delete some
+			mpt.insertAll(kvpairs.subList(epoch * n / 4, (epoch + 1) * n / 4));
+			for (int i = epoch; i < epoch * n / 4; i += 31) {
+				mpt.insert(keys.get(i), keys.get(i));
+			}
+			for (int i = epoch + 1; i < epoch * n / 4; i += 53) {
+				mpt.delete(keys.get(i));
+			}
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+			mpt.reset();
+			deltas.add(delta);
+			index.add(epoch, delta);
+			Set<ByteBuffer> changed = new HashSet<>();
+			for (byte[] key : delta.getChangedKeys()) {
+				changed.add(ByteBuffer.wrap(key));
+			}
+			changedKeys.add(changed);
+		}
+		for (byte[] key : keys) {
+			int[] epochs = index.getEpochs(key, 0, deltas.size() - 1);
+			int next = 0;
+			for (int epoch = 0; epoch < deltas.size(); epoch++) {
+				MPTDictionaryDelta delta = deltas.get(epoch);
+				boolean leafChanged = next < epochs.length && epochs[next] == epoch;
+				if (leafChanged) {
+					next++;
+				}
+				Assert.assertEquals(leafChanged, changedKeys.get(epoch).contains(ByteBuffer.wrap(key)));
+				Assert.assertEquals(delta.getUpdates(key), delta.getPathUpdates(key));
+			}
+			Assert.assertEquals(epochs.length, next);
+		}
+		Assert.assertArrayEquals(new int[] {}, index.getEpochs(keys.get(n - 1), 0, 2));
+	}
+	
+	@Test
+	public void testAllUpdatesKeepReplica() throws Exception {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = new MPTDictionaryFull();
+		// the first updates are the whole MPT
+		MPTDictionaryPartial replica = MPTDictionaryPartial.deserialize(mpt.commit().getDelta().getAllUpdates());
+		Assert.assertArrayEquals(mpt.commitment(), replica.commitment());
+		for (int epoch = 0; epoch < 4; epoch++) {
+			mpt.insertAll(kvpairs.subList(epoch * n / 4, (epoch + 1) * n / 4));
+			for (int i = epoch; i < epoch * n / 4; i += 31) {
+				mpt.insert(kvpairs.get(i).getKey(), kvpairs.get(i).getKey());
+			}
+			for (int i = epoch + 1; i < epoch * n / 4; i += 53) {
+				mpt.delete(kvpairs.get(i).getKey());
+			}
+			replica.processUpdates(mpt.commit().getDelta().getAllUpdates());
+			Assert.assertArrayEquals(mpt.commitment(), replica.commitment());
+			for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+				Assert.assertArrayEquals(mpt.get(kv.getKey()), replica.get(kv.getKey()));
+			}
+		}
+		// nothing changed
+		replica.processUpdates(mpt.commit().getDelta().getAllUpdates());
+		Assert.assertArrayEquals(mpt.commitment(), replica.commitment());
+	}
+	
+	private static void assertCountsMatchTraversal(MPTDictionaryFull mpt) {
+		Assert.assertEquals(mpt.root.nodesInSubtree(), mpt.countNodes());
+		Assert.assertEquals(mpt.root.interiorNodesInSubtree(), mpt.countInteriorNodes());
+		Assert.assertEquals(mpt.root.emptyLeafNodesInSubtree(), mpt.countEmptyLeafNodes());
+		Assert.assertEquals(mpt.root.nonEmptyLeafNodesInSubtree(), mpt.size());
+		Assert.assertEquals(mpt.root.countHashesRequiredForGetHash(), mpt.countHashesRequiredToCommit());
+	}
+	
+	private static void assertSameMPTAndChanges(MPTDictionaryFull expected, MPTDictionaryFull actual, 
+			List<Map.Entry<byte[], byte[]>> kvpairs) {
+		Assert.assertEquals(expected, actual);
+		Assert.assertArrayEquals(expected.commitment(), actual.commitment());
+		List<byte[]> keys = new ArrayList<>();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			keys.add(kv.getKey());
+		}
+		// the same nodes must be marked as changed
+		Assert.assertEquals(new MPTDictionaryDelta(expected).getUpdates(keys), 
+				new MPTDictionaryDelta(actual).getUpdates(keys));
+	}
+	
+}
@@ -0,0 +1,186 @@
+package mpt.dictionary;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+import mpt.core.InvalidSerializationException;
+import mpt.core.Utils;
+import serialization.generated.MptSerialization;
+
+public class MPTDictionaryPartialTest {
+
+	@Test
+	public void testStreamingDeserializeSameAsDeserialize() throws Exception {
+		int n = 1000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < n; i += 10) {
+			keys.add(kvpairs.get(i).getKey());
+		}
+		// and a key that is not in the MPT
+		keys.add(Utils.getKey(n + 1));
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		MptSerialization.MerklePrefixTrie serialized = new MPTDictionaryPartial(mpt, keys).serialize();
+		MPTDictionaryPartial expected = MPTDictionaryPartial.deserialize(serialized);
+		MPTDictionaryPartial fromBytes = MPTDictionaryPartial.deserialize(serialized.toByteArray());
+		MPTDictionaryPartial fromBuffer = MPTDictionaryPartial.deserialize(
+				ByteBuffer.wrap(serialized.toByteArray()).asReadOnlyBuffer());
+		Assert.assertEquals(expected, fromBytes);
+		Assert.assertEquals(expected, fromBuffer);
+		Assert.assertArrayEquals(mpt.commitment(), fromBuffer.commitment());
+		for (byte[] key : keys) {
+			Assert.assertArrayEquals(mpt.get(key), fromBuffer.get(key));
+		}
+	}
+
+	@Test
+	public void testStreamingUpdatesSameAsUpdates() throws Exception {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < n; i += 20) {
+			keys.add(kvpairs.get(i).getKey());
+		}
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		MPTDictionaryPartial expected = new MPTDictionaryPartial(mpt, keys);
+		MPTDictionaryPartial streamed = MPTDictionaryPartial.deserialize(expected.serialize().toByteArray());
+		mpt.reset();
+		for (int epoch = 0; epoch < 10; epoch++) {
+			mpt.insertAll(Utils.getKeyValuePairs(n / 10, "salt" + epoch));
+			for (int i = epoch; i < n; i += 7) {
+				mpt.insert(kvpairs.get(i).getKey(), Utils.getValue(i, "epoch" + epoch));
+			}
+			for (int i = 3 * epoch; i < n; i += 97) {
+				mpt.delete(kvpairs.get(i).getKey());
+			}
+			MptSerialization.MerklePrefixTrie updates = mpt.commit().getDelta().getUpdates(keys);
+			expected.processUpdates(updates);
+			streamed.processUpdates(ByteBuffer.wrap(updates.toByteArray()));
+			Assert.assertEquals(expected, streamed);
+			Assert.assertArrayEquals(mpt.commitment(), streamed.commitment());
+			for (byte[] key : keys) {
+				Assert.assertArrayEquals(mpt.get(key), streamed.get(key));
+			}
+		}
+	}
+
+	@Test
+	public void testUpdatesOnlyRehashChangedNodes() throws Exception {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < n; i += 20) {
+			keys.add(kvpairs.get(i).getKey());
+		}
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		MPTDictionaryPartial partial = new MPTDictionaryPartial(mpt, keys);
+		partial.commitment();
+		mpt.reset();
+		for (int epoch = 0; epoch < 5; epoch++) {
+			for (int i = epoch; i < n; i += 40) {
+				mpt.insert(kvpairs.get(i).getKey(), Utils.getValue(i, "epoch" + epoch));
+			}
+			MptSerialization.MerklePrefixTrie updates = mpt.commit().getDelta().getUpdates(keys);
+			partial.processUpdates(updates);
+			// only the nodes in the update can be stale
+			Assert.assertTrue(partial.root.countHashesRequiredForGetHash() <= countNodes(updates.getRoot()));
+			Assert.assertArrayEquals(mpt.commitment(), partial.commitment());
+			// an update that does not change anything keeps all of the hashes
+			partial.processUpdates(updates);
+			Assert.assertEquals(0, partial.root.countHashesRequiredForGetHash());
+			partial.processUpdates(ByteBuffer.wrap(updates.toByteArray()));
+			Assert.assertEquals(0, partial.root.countHashesRequiredForGetHash());
+			Assert.assertEquals(new MPTDictionaryPartial(mpt, keys), partial);
+		}
+	}
+	
+	private static int countNodes(MptSerialization.Node node) {
+		if (!node.hasInteriorNode()) {
+			return 1;
+		}
+		MptSerialization.InteriorNode interior = node.getInteriorNode();
+		return 1 + (interior.hasLeft() ? countNodes(interior.getLeft()) : 0) 
+				+ (interior.hasRight() ? countNodes(interior.getRight()) : 0);
+	}
+	
+	@Test
+	public void testRejectedUpdateDoesNotChangePartial() throws Exception {
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(100, "salt");
+		List<byte[]> keys = Arrays.asList(kvpairs.get(0).getKey(), kvpairs.get(1).getKey());
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		MPTDictionaryPartial partial = new MPTDictionaryPartial(mpt, keys);
+		MPTDictionaryPartial expected = new MPTDictionaryPartial(mpt, keys);
+		// the left child is replaced before the (missing) right child is read
+		MptSerialization.Node stub = MptSerialization.Node.newBuilder()
+				.setStub(MptSerialization.Stub.newBuilder()
+						.setHash(ByteString.copyFrom(Utils.getValue(0, "hash"))))
+				.build();
+		MptSerialization.MerklePrefixTrie invalid = MptSerialization.MerklePrefixTrie.newBuilder()
+				.setRoot(MptSerialization.Node.newBuilder()
+						.setInteriorNode(MptSerialization.InteriorNode.newBuilder()
+								.setLeft(stub)
+								.setRight(MptSerialization.Node.getDefaultInstance())))
+				.build();
+		try {
+			partial.processUpdates(invalid);
+			Assert.fail("update with a node that is not set");
+		} catch (InvalidSerializationException e) {
+		}
+		Assert.assertEquals(expected, partial);
+		Assert.assertArrayEquals(mpt.commitment(), partial.commitment());
+		try {
+			partial.processUpdates(ByteBuffer.wrap(invalid.toByteArray()));
+			Assert.fail("update with a node that is not set");
+		} catch (InvalidSerializationException e) {
+		}
+		Assert.assertEquals(expected, partial);
+		Assert.assertArrayEquals(mpt.commitment(), partial.commitment());
+	}
+	
+	@Test
+	public void testStreamingRejectsInvalidSerializations() throws Exception {
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(100, "salt");
+		List<byte[]> keys = Arrays.asList(kvpairs.get(0).getKey(), kvpairs.get(1).getKey());
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		byte[] serialized = new MPTDictionaryPartial(mpt, keys).serialize().toByteArray();
+		// truncated
+		try {
+			MPTDictionaryPartial.deserialize(Arrays.copyOf(serialized, serialized.length - 10));
+			Assert.fail("truncated serialization");
+		} catch (InvalidSerializationException e) {
+		}
+		// no root
+		try {
+			MPTDictionaryPartial.deserialize(new byte[0]);
+			Assert.fail("no root");
+		} catch (InvalidSerializationException e) {
+		}
+		// an interior node with an omitted child is only valid in an update
+		MptSerialization.Node stub = MptSerialization.Node.newBuilder()
+				.setStub(MptSerialization.Stub.newBuilder()
+						.setHash(ByteString.copyFrom(Utils.getValue(0, "hash"))))
+				.build();
+		MptSerialization.MerklePrefixTrie leftOnly = MptSerialization.MerklePrefixTrie.newBuilder()
+				.setRoot(MptSerialization.Node.newBuilder()
+						.setInteriorNode(MptSerialization.InteriorNode.newBuilder().setLeft(stub)))
+				.build();
+		try {
+			MPTDictionaryPartial.deserialize(leftOnly.toByteArray());
+			Assert.fail("interior node without a right child");
+		} catch (InvalidSerializationException e) {
+		}
+		MPTDictionaryPartial partial = MPTDictionaryPartial.deserialize(serialized);
+		partial.processUpdates(ByteBuffer.wrap(leftOnly.toByteArray()));
+		Assert.assertEquals(stub.getStub().getHash(), partial.serialize().getRoot().getInteriorNode().getLeft()
+				.getStub().getHash());
+	}
+
+}
@@ -0,0 +1,182 @@
+package mpt.dictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mpt.core.Utils;
+
+public class MPTDictionaryPersistentTest {
+
+	@Test
+	public void testSameCommitmentsAsFullMPT() {
+		int n = 1000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> newValues = Utils.getValues(n, "new salt");
+		MPTDictionaryFull full = new MPTDictionaryFull();
+		MPTDictionaryPersistent persistent = new MPTDictionaryPersistent();
+		Assert.assertArrayEquals(full.commitment(), persistent.commit().commitment());
+		full.insertAll(kvpairs.subList(0, n / 2));
+		persistent.insertAll(kvpairs.subList(0, n / 2));
+		Assert.assertArrayEquals(full.commitment(), persistent.commit().commitment());
+		for (int i = 0; i < n; i += 3) {
+			full.insert(kvpairs.get(i).getKey(), newValues.get(i));
+			persistent.insert(kvpairs.get(i).getKey(), newValues.get(i));
+		}
+		Assert.assertArrayEquals(full.commitment(), persistent.commit().commitment());
+		for (int i = 0; i < n; i += 2) {
+			full.delete(kvpairs.get(i).getKey());
+			persistent.delete(kvpairs.get(i).getKey());
+		}
+		MPTDictionaryPersistent.Version version = persistent.commit();
+		Assert.assertArrayEquals(full.commitment(), version.commitment());
+		Assert.assertEquals(full.size(), version.size());
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			Assert.assertArrayEquals(full.get(kv.getKey()), version.get(kv.getKey()));
+		}
+	}
+
+	@Test
+	public void testCommittedVersionsDoNotChange() {
+		int n = 500;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> newValues = Utils.getValues(n, "new salt");
+		MPTDictionaryPersistent persistent = new MPTDictionaryPersistent();
+		persistent.insertAll(kvpairs);
+		MPTDictionaryPersistent.Version first = persistent.commit();
+		byte[] firstCommitment = first.commitment();
+		for (int i = 0; i < n; i++) {
+			if (i % 2 == 0) {
+				persistent.delete(kvpairs.get(i).getKey());
+			} else {
+				persistent.insert(kvpairs.get(i).getKey(), newValues.get(i));
+			}
+		}
+		persistent.insertAll(Utils.getKeyValuePairs(n, "other salt"));
+		MPTDictionaryPersistent.Version second = persistent.commit();
+		Assert.assertFalse(Arrays.equals(firstCommitment, second.commitment()));
+		Assert.assertArrayEquals(firstCommitment, first.getPartial(new ArrayList<>()).commitment());
+		Assert.assertEquals(n, first.size());
+		for (int i = 0; i < n; i++) {
+			Assert.assertArrayEquals(kvpairs.get(i).getValue(), first.get(kvpairs.get(i).getKey()));
+		}
+		Assert.assertSame(first, persistent.getVersion(0));
+		Assert.assertSame(second, persistent.getLatestVersion());
+	}
+
+	@Test
+	public void testReleaseVersions() throws Exception {
+		int n = 200;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		keys.add(kvpairs.get(0).getKey());
+		MPTDictionaryPersistent persistent = new MPTDictionaryPersistent();
+		MPTDictionaryPartial partial = null;
+		// more versions than the initial capacity
+		for (int i = 0; i < n; i++) {
+			persistent.insert(kvpairs.get(i).getKey(), kvpairs.get(i).getValue());
+			MPTDictionaryPersistent.Version version = persistent.commit();
+			Assert.assertEquals(i, version.getEpoch());
+			if (partial == null) {
+				partial = MPTDictionaryPartial.deserialize(version.getUpdates(keys));
+			} else {
+				partial.processUpdates(version.getUpdates(keys));
+			}
+		}
+		Assert.assertEquals(n, persistent.countVersions());
+		Assert.assertEquals(n / 2, persistent.getVersion(n / 2).getEpoch());
+		persistent.releaseVersionsBefore(n / 2);
+		Assert.assertEquals(n, persistent.countVersions());
+		Assert.assertEquals(n / 2, persistent.getVersion(n / 2).getEpoch());
+		try {
+			persistent.getVersion(n / 2 - 1);
+			Assert.fail("released version returned");
+		} catch (IndexOutOfBoundsException e) {
+		}
+		// the latest version is always kept
+		persistent.releaseVersionsBefore(2 * n);
+		MPTDictionaryPersistent.Version latest = persistent.getLatestVersion();
+		Assert.assertSame(latest, persistent.getVersion(n - 1));
+		persistent.delete(kvpairs.get(0).getKey());
+		MPTDictionaryPersistent.Version next = persistent.commit();
+		partial.processUpdates(next.getUpdates(keys));
+		Assert.assertArrayEquals(next.commitment(), partial.commitment());
+	}
+
+	@Test
+	public void testClientUpdates() throws Exception {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < n; i += 97) {
+			keys.add(kvpairs.get(i).getKey());
+		}
+		MPTDictionaryPersistent persistent = new MPTDictionaryPersistent();
+		persistent.insertAll(kvpairs.subList(0, n / 4));
+		MPTDictionaryPartial partial = MPTDictionaryPartial.deserialize(persistent.commit().getUpdates(keys));
+		for (int round = 1; round < 4; round++) {
+			persistent.insertAll(kvpairs.subList(round * n / 4, (round + 1) * n / 4));
+			persistent.insertAll(Utils.getKeyValuePairs(n / 10, "salt" + round));
+			for (int i = round; i < n; i += 7) {
+				persistent.delete(kvpairs.get(i).getKey());
+			}
+			MPTDictionaryPersistent.Version version = persistent.commit();
+			partial.processUpdates(version.getUpdates(keys));
+			Assert.assertArrayEquals(version.commitment(), partial.commitment());
+			Assert.assertEquals(version.getPartial(keys), partial);
+			for (byte[] key : keys) {
+				Assert.assertArrayEquals(version.get(key), partial.get(key));
+			}
+		}
+		// nothing changed
+		MPTDictionaryPersistent.Version version = persistent.commit();
+		partial.processUpdates(version.getUpdates(keys));
+		Assert.assertArrayEquals(version.commitment(), partial.commitment());
+	}
+
+	@Test
+	public void testReadsDuringUpdates() throws Exception {
+		int n = 2000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryPersistent persistent = new MPTDictionaryPersistent();
+		persistent.insertAll(kvpairs);
+		MPTDictionaryPersistent.Version version = persistent.commit();
+		byte[] commitment = version.commitment();
+		MPTDictionaryFull expected = Utils.makeMPTDictionaryFull(kvpairs);
+		List<byte[]> keys = new ArrayList<>();
+		for (int i = 0; i < n; i += 13) {
+			keys.add(kvpairs.get(i).getKey());
+		}
+		ExecutorService readers = Executors.newFixedThreadPool(4);
+		List<Future<Boolean>> reads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			reads.add(readers.submit(() -> {
+				boolean correct = true;
+				for (int rep = 0; rep < 20; rep++) {
+					correct &= Arrays.equals(commitment, version.getPartial(keys).commitment());
+					for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+						correct &= Arrays.equals(kv.getValue(), version.get(kv.getKey()));
+					}
+				}
+				return correct;
+			}));
+		}
+		for (int round = 0; round < 10; round++) {
+			persistent.insertAll(Utils.getKeyValuePairs(n, "salt" + round));
+			persistent.commit();
+		}
+		for (Future<Boolean> read : reads) {
+			Assert.assertTrue(read.get());
+		}
+		readers.shutdown();
+		Assert.assertArrayEquals(expected.commitment(), version.commitment());
+	}
+
+}
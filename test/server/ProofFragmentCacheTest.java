@@ -0,0 +1,143 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import mpt.core.Utils;
+import mpt.dictionary.MPTDictionaryDelta;
+import mpt.dictionary.MPTDictionaryFull;
+
+public class ProofFragmentCacheTest {
+
+	@Test
+	public void testCachedUpdatesSameAsDelta() {
+		for (ProofFragmentCache.Eviction eviction : ProofFragmentCache.Eviction.values()) {
+			int n = 500;
+			List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(Utils.makeMPTDictionaryFull(kvpairs));
+			ProofFragmentCache cache = new ProofFragmentCache(1 << 20, eviction);
+			for (int rep = 0; rep < 3; rep++) {
+				for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+					Assert.assertEquals(delta.getUpdates(kv.getKey()), cache.getUpdates(0, delta, kv.getKey()));
+				}
+			}
+			Assert.assertEquals(n, cache.getMissCount());
+			Assert.assertEquals(2 * n, cache.getHitCount());
+			Assert.assertEquals(n, cache.size());
+			Assert.assertEquals(0, cache.getEvictionCount());
+		}
+	}
+
+	@Test
+	public void testKeyIsCopied() {
+		int n = 100;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryDelta delta = new MPTDictionaryDelta(Utils.makeMPTDictionaryFull(kvpairs));
+		ProofFragmentCache cache = new ProofFragmentCache(1 << 20, ProofFragmentCache.Eviction.LRU);
+		// the caller reuses the same array for every key
+		byte[] reused = new byte[kvpairs.get(0).getKey().length];
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			System.arraycopy(kv.getKey(), 0, reused, 0, reused.length);
+			cache.getUpdates(0, delta, reused);
+		}
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			Assert.assertEquals(delta.getUpdates(kv.getKey()), cache.getUpdates(0, delta, kv.getKey().clone()));
+		}
+		Assert.assertEquals(n, cache.getHitCount());
+		Assert.assertEquals(n, cache.size());
+	}
+
+	@Test
+	public void testPathUpdatesShared() {
+		for (ProofFragmentCache.Eviction eviction : ProofFragmentCache.Eviction.values()) {
+			int n = 2000;
+			List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+			MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+			mpt.reset();
+			List<byte[]> values = Utils.getValues(10, "updated");
+			for (int i = 0; i < 10; i++) {
+				mpt.insert(kvpairs.get(i * 97).getKey(), values.get(i));
+			}
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+			ProofFragmentCache cache = new ProofFragmentCache(1 << 22, eviction);
+			for (int rep = 0; rep < 2; rep++) {
+				for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+					Assert.assertEquals(delta.getUpdates(kv.getKey()), cache.getPathUpdates(0, delta, kv.getKey()));
+				}
+			}
+			// one entry per unchanged node on the paths and per changed leaf
+			Assert.assertTrue(cache.size() < n / 4);
+			Assert.assertEquals(cache.size(), cache.getMissCount());
+			Assert.assertEquals(2 * n - cache.size(), cache.getHitCount());
+		}
+	}
+
+	@Test
+	public void testSizeBound() {
+		for (ProofFragmentCache.Eviction eviction : ProofFragmentCache.Eviction.values()) {
+			int n = 2000;
+			List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+			MPTDictionaryDelta delta = new MPTDictionaryDelta(Utils.makeMPTDictionaryFull(kvpairs));
+			long maximumBytes = 50000;
+			ProofFragmentCache cache = new ProofFragmentCache(maximumBytes, eviction);
+			for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+				cache.getUpdates(0, delta, kv.getKey());
+				Assert.assertTrue(cache.getSizeInBytes() <= maximumBytes);
+			}
+			Assert.assertTrue(cache.getEvictionCount() > 0);
+			Assert.assertEquals(n - cache.size(), cache.getEvictionCount());
+		}
+	}
+
+	@Test
+	public void testTinyLFUKeepsHotKeysDuringScan() {
+		int n = 4000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryFull mpt = Utils.makeMPTDictionaryFull(kvpairs);
+		MPTDictionaryDelta delta = new MPTDictionaryDelta(mpt);
+		List<byte[]> hot = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			hot.add(kvpairs.get(i).getKey());
+		}
+		ProofFragmentCache lru = new ProofFragmentCache(100000, ProofFragmentCache.Eviction.LRU);
+		ProofFragmentCache tinyLFU = new ProofFragmentCache(100000, ProofFragmentCache.Eviction.TINY_LFU);
+		for (ProofFragmentCache cache : new ProofFragmentCache[] { lru, tinyLFU }) {
+			// hot keys requested between scans of the other keys
+			for (int i = 200; i < n; i++) {
+				cache.getUpdates(0, delta, kvpairs.get(i).getKey());
+				byte[] key = hot.get(i % hot.size());
+				cache.getUpdates(0, delta, key);
+			}
+		}
+		Assert.assertTrue(tinyLFU.getHitRate() > lru.getHitRate());
+	}
+
+	@Test
+	public void testPrecompute() {
+		int n = 1000;
+		List<Map.Entry<byte[], byte[]>> kvpairs = Utils.getKeyValuePairs(n, "salt");
+		MPTDictionaryDelta delta = new MPTDictionaryDelta(Utils.makeMPTDictionaryFull(kvpairs));
+		List<byte[]> keys = new ArrayList<>();
+		for (Map.Entry<byte[], byte[]> kv : kvpairs) {
+			keys.add(kv.getKey());
+		}
+		ProofFragmentCache cache = new ProofFragmentCache(1 << 22, ProofFragmentCache.Eviction.TINY_LFU);
+		Assert.assertEquals(n, cache.precompute(0, delta, keys));
+		Assert.assertEquals(0, cache.precompute(0, delta, keys));
+		for (byte[] key : keys) {
+			Assert.assertEquals(delta.getUpdates(key), cache.getUpdates(0, delta, key));
+		}
+		Assert.assertEquals(n, cache.getHitCount());
+		Assert.assertEquals(0, cache.getMissCount());
+		// only half of the cache can be used
+		ProofFragmentCache small = new ProofFragmentCache(50000, ProofFragmentCache.Eviction.TINY_LFU);
+		int precomputed = small.precompute(0, delta, keys);
+		Assert.assertTrue(precomputed > 0 && precomputed < n);
+		Assert.assertTrue(small.getSizeInBytes() <= 25000);
+	}
+
+}